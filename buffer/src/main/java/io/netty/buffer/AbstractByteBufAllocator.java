@@ -43,6 +43,12 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
                     buf = new SimpleLeakAwareByteBuf(buf, leak);
                 }
                 break;
+            case SAMPLED:
+                leak = AbstractByteBuf.leakDetector.track(buf);
+                if (leak != null) {
+                    buf = new SampledLeakAwareByteBuf(buf, leak);
+                }
+                break;
             case ADVANCED:
             case PARANOID:
                 leak = AbstractByteBuf.leakDetector.track(buf);
@@ -65,6 +71,12 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
                     buf = new SimpleLeakAwareCompositeByteBuf(buf, leak);
                 }
                 break;
+            case SAMPLED:
+                leak = AbstractByteBuf.leakDetector.track(buf);
+                if (leak != null) {
+                    buf = new SampledLeakAwareCompositeByteBuf(buf, leak);
+                }
+                break;
             case ADVANCED:
             case PARANOID:
                 leak = AbstractByteBuf.leakDetector.track(buf);
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakTracker;
+
+/**
+ * Leak aware {@link ByteBuf} used at {@link ResourceLeakDetector.Level#SAMPLED}. Like {@link SimpleLeakAwareByteBuf}
+ * but records {@link #touch()} and {@link #retain()} so the first access of a sampled buffer is known.
+ */
+final class SampledLeakAwareByteBuf extends SimpleLeakAwareByteBuf {
+
+    static {
+        ResourceLeakDetector.addExclusions(SampledLeakAwareByteBuf.class, "touch", "retain");
+    }
+
+    SampledLeakAwareByteBuf(ByteBuf buf, ResourceLeakTracker<ByteBuf> leak) {
+        super(buf, leak);
+    }
+
+    SampledLeakAwareByteBuf(ByteBuf wrapped, ByteBuf trackedByteBuf, ResourceLeakTracker<ByteBuf> leak) {
+        super(wrapped, trackedByteBuf, leak);
+    }
+
+    @Override
+    public ByteBuf retain() {
+        leak.record();
+        return super.retain();
+    }
+
+    @Override
+    public ByteBuf retain(int increment) {
+        leak.record();
+        return super.retain(increment);
+    }
+
+    @Override
+    public ByteBuf touch() {
+        leak.record();
+        return this;
+    }
+
+    @Override
+    public ByteBuf touch(Object hint) {
+        leak.record(hint);
+        return this;
+    }
+
+    @Override
+    protected SampledLeakAwareByteBuf newLeakAwareByteBuf(
+            ByteBuf buf, ByteBuf trackedByteBuf, ResourceLeakTracker<ByteBuf> leakTracker) {
+        return new SampledLeakAwareByteBuf(buf, trackedByteBuf, leakTracker);
+    }
+}
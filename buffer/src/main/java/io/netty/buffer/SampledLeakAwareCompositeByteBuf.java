@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakTracker;
+
+/**
+ * Leak aware {@link CompositeByteBuf} used at {@link ResourceLeakDetector.Level#SAMPLED}. Like
+ * {@link SimpleLeakAwareCompositeByteBuf} but records {@link #touch()} and {@link #retain()} so the first access of a
+ * sampled buffer is known.
+ */
+final class SampledLeakAwareCompositeByteBuf extends SimpleLeakAwareCompositeByteBuf {
+
+    static {
+        ResourceLeakDetector.addExclusions(SampledLeakAwareCompositeByteBuf.class, "touch", "retain");
+    }
+
+    SampledLeakAwareCompositeByteBuf(CompositeByteBuf wrapped, ResourceLeakTracker<ByteBuf> leak) {
+        super(wrapped, leak);
+    }
+
+    @Override
+    public CompositeByteBuf retain() {
+        leak.record();
+        return super.retain();
+    }
+
+    @Override
+    public CompositeByteBuf retain(int increment) {
+        leak.record();
+        return super.retain(increment);
+    }
+
+    @Override
+    public CompositeByteBuf touch() {
+        leak.record();
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf touch(Object hint) {
+        leak.record(hint);
+        return this;
+    }
+
+    @Override
+    protected SampledLeakAwareByteBuf newLeakAwareByteBuf(
+            ByteBuf wrapped, ByteBuf trackedByteBuf, ResourceLeakTracker<ByteBuf> leakTracker) {
+        return new SampledLeakAwareByteBuf(wrapped, trackedByteBuf, leakTracker);
+    }
+}
@@ -0,0 +1,553 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.AbstractReferenceCountedByteBuf;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.FileRegion;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Read-only {@link ByteBuf} whose content is stored in a file and read on demand. Single byte and primitive reads
+ * are served from a small page which is refilled when needed, bulk reads go to the file directly. The file is
+ * closed and deleted once the buffer is released.
+ * <p>
+ * {@link #nioBuffer(int, int)} has to read the whole range into memory, which is what a transport does when the
+ * buffer itself is written. {@link #newFileRegion(int, int)} sends the content without doing so.
+ */
+final class FileBackedByteBuf extends AbstractReferenceCountedByteBuf {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(FileBackedByteBuf.class);
+
+    private static final int PAGE_SIZE = 8192;
+
+    private final ByteBufAllocator alloc;
+    private final File file;
+    private final FileChannel channel;
+    private final int length;
+
+    private byte[] page;
+    private int pageStart;
+    private int pageLength;
+
+    /**
+     * Creates a new instance which takes ownership of the {@code channel} and the {@code file}.
+     *
+     * @param length the number of bytes in the file, starting at position {@code 0}.
+     */
+    FileBackedByteBuf(ByteBufAllocator alloc, File file, FileChannel channel, int length) {
+        super(length);
+        this.alloc = alloc;
+        this.file = file;
+        this.channel = channel;
+        this.length = length;
+        writerIndex(length);
+    }
+
+    /**
+     * Returns the file which stores the content of this buffer.
+     */
+    File file() {
+        return file;
+    }
+
+    @Override
+    protected void deallocate() {
+        page = null;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close a file: {}", file, e);
+        }
+        if (!file.delete()) {
+            logger.warn("Failed to delete a file: {}", file);
+        }
+    }
+
+    private void read(ByteBuffer dst, long position) {
+        try {
+            while (dst.hasRemaining()) {
+                int read = channel.read(dst, position);
+                if (read < 0) {
+                    throw new IOException("unexpected end of file: " + file);
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            PlatformDependent.throwException(e);
+        }
+    }
+
+    private byte[] page(int index) {
+        byte[] page = this.page;
+        if (page == null) {
+            this.page = page = new byte[Math.min(PAGE_SIZE, length)];
+        }
+        if (index < pageStart || index >= pageStart + pageLength) {
+            pageStart = index / page.length * page.length;
+            pageLength = Math.min(page.length, length - pageStart);
+            read(ByteBuffer.wrap(page, 0, pageLength), pageStart);
+        }
+        return page;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean isWritable() {
+        return false;
+    }
+
+    @Override
+    public boolean isWritable(int numBytes) {
+        return false;
+    }
+
+    @Override
+    public ByteBuf ensureWritable(int minWritableBytes) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public int ensureWritable(int minWritableBytes, boolean force) {
+        return 1;
+    }
+
+    @Override
+    protected byte _getByte(int index) {
+        return page(index)[index - pageStart];
+    }
+
+    @Override
+    protected short _getShort(int index) {
+        return (short) (_getByte(index) << 8 | _getByte(index + 1) & 0xff);
+    }
+
+    @Override
+    protected short _getShortLE(int index) {
+        return ByteBufUtil.swapShort(_getShort(index));
+    }
+
+    @Override
+    protected int _getUnsignedMedium(int index) {
+        return (_getByte(index) & 0xff) << 16 |
+               (_getByte(index + 1) & 0xff) << 8 |
+               _getByte(index + 2) & 0xff;
+    }
+
+    @Override
+    protected int _getUnsignedMediumLE(int index) {
+        return _getByte(index) & 0xff |
+               (_getByte(index + 1) & 0xff) << 8 |
+               (_getByte(index + 2) & 0xff) << 16;
+    }
+
+    @Override
+    protected int _getInt(int index) {
+        return (_getShort(index) & 0xffff) << 16 | _getShort(index + 2) & 0xffff;
+    }
+
+    @Override
+    protected int _getIntLE(int index) {
+        return ByteBufUtil.swapInt(_getInt(index));
+    }
+
+    @Override
+    protected long _getLong(int index) {
+        return (_getInt(index) & 0xffffffffL) << 32 | _getInt(index + 4) & 0xffffffffL;
+    }
+
+    @Override
+    protected long _getLongLE(int index) {
+        return ByteBufUtil.swapLong(_getLong(index));
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, ByteBuf dst, int dstIndex, int length) {
+        checkDstIndex(index, length, dstIndex, dst.capacity());
+        if (dst.hasArray()) {
+            getBytes(index, dst.array(), dst.arrayOffset() + dstIndex, length);
+        } else if (dst.nioBufferCount() > 0) {
+            for (ByteBuffer bb: dst.nioBuffers(dstIndex, length)) {
+                int bbLen = bb.remaining();
+                getBytes(index, bb);
+                index += bbLen;
+            }
+        } else {
+            dst.setBytes(dstIndex, this, index, length);
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, byte[] dst, int dstIndex, int length) {
+        checkDstIndex(index, length, dstIndex, dst.length);
+        read(ByteBuffer.wrap(dst, dstIndex, length), index);
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, ByteBuffer dst) {
+        checkIndex(index, dst.remaining());
+        read(dst, index);
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, OutputStream out, int length) throws IOException {
+        checkIndex(index, length);
+        byte[] tmp = new byte[Math.min(length, PAGE_SIZE)];
+        while (length > 0) {
+            int chunk = Math.min(length, tmp.length);
+            read(ByteBuffer.wrap(tmp, 0, chunk), index);
+            out.write(tmp, 0, chunk);
+            index += chunk;
+            length -= chunk;
+        }
+        return this;
+    }
+
+    @Override
+    public int getBytes(int index, GatheringByteChannel out, int length) throws IOException {
+        checkIndex(index, length);
+        return (int) channel.transferTo(index, length, out);
+    }
+
+    @Override
+    public int getBytes(int index, FileChannel out, long position, int length) throws IOException {
+        checkIndex(index, length);
+        // FileChannel.transferFrom transfers nothing beyond the end of out and transferTo writes at the position of
+        // out, which must not change, so transferTo writes through a view of out at the requested position instead.
+        PositionalChannel target = new PositionalChannel(out, position);
+        while (length > 0) {
+            long transferred = channel.transferTo(index, length, target);
+            if (transferred <= 0) {
+                break;
+            }
+            index += transferred;
+            length -= transferred;
+        }
+        return (int) (target.position - position);
+    }
+
+    /**
+     * Returns a new {@link FileRegion} which transfers the given range of the file without reading it into memory.
+     * This buffer is retained until the region is released.
+     */
+    FileRegion newFileRegion(int index, int length) {
+        checkIndex(index, length);
+        retain();
+        return new FileBackedRegion(index, length);
+    }
+
+    @Override
+    protected void _setByte(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setShort(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setShortLE(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setMedium(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setMediumLE(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setInt(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setIntLE(int index, int value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setLong(int index, long value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    protected void _setLongLE(int index, long value) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, ByteBuf src, int srcIndex, int length) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, byte[] src, int srcIndex, int length) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, ByteBuffer src) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public int setBytes(int index, InputStream in, int length) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public int setBytes(int index, ScatteringByteChannel in, int length) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public int setBytes(int index, FileChannel in, long position, int length) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public int capacity() {
+        return length;
+    }
+
+    @Override
+    public ByteBuf capacity(int newCapacity) {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public ByteBufAllocator alloc() {
+        return alloc;
+    }
+
+    @Override
+    public ByteOrder order() {
+        return ByteOrder.BIG_ENDIAN;
+    }
+
+    @Override
+    public ByteBuf unwrap() {
+        return null;
+    }
+
+    @Override
+    public boolean isDirect() {
+        return false;
+    }
+
+    @Override
+    public ByteBuf copy(int index, int length) {
+        checkIndex(index, length);
+        ByteBuf copy = alloc.heapBuffer(length);
+        try {
+            read(copy.internalNioBuffer(0, length), index);
+            copy.writerIndex(length);
+        } catch (Throwable cause) {
+            copy.release();
+            PlatformDependent.throwException(cause);
+        }
+        return copy;
+    }
+
+    @Override
+    public int nioBufferCount() {
+        return 1;
+    }
+
+    /**
+     * Reads the requested region into a new {@link ByteBuffer}.
+     */
+    @Override
+    public ByteBuffer nioBuffer(int index, int length) {
+        checkIndex(index, length);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        read(buffer, index);
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public ByteBuffer internalNioBuffer(int index, int length) {
+        return nioBuffer(index, length);
+    }
+
+    @Override
+    public ByteBuffer[] nioBuffers(int index, int length) {
+        return new ByteBuffer[] { nioBuffer(index, length) };
+    }
+
+    @Override
+    public boolean hasArray() {
+        return false;
+    }
+
+    @Override
+    public byte[] array() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int arrayOffset() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean hasMemoryAddress() {
+        return false;
+    }
+
+    @Override
+    public long memoryAddress() {
+        throw new UnsupportedOperationException();
+    }
+
+    private static final class PositionalChannel implements WritableByteChannel {
+        private final FileChannel out;
+        long position;
+
+        PositionalChannel(FileChannel out, long position) {
+            this.out = out;
+            this.position = position;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int written = out.write(src, position);
+            position += written;
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return out.isOpen();
+        }
+
+        @Override
+        public void close() {
+            // The channel is owned by the caller.
+        }
+    }
+
+    private final class FileBackedRegion extends AbstractReferenceCounted implements FileRegion {
+        private final int index;
+        private final int count;
+        private long transferred;
+
+        FileBackedRegion(int index, int count) {
+            this.index = index;
+            this.count = count;
+        }
+
+        @Override
+        public long position() {
+            return 0;
+        }
+
+        @Deprecated
+        @Override
+        public long transfered() {
+            return transferred;
+        }
+
+        @Override
+        public long transferred() {
+            return transferred;
+        }
+
+        @Override
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public long transferTo(WritableByteChannel target, long position) throws IOException {
+            long count = this.count - position;
+            if (count < 0 || position < 0) {
+                throw new IllegalArgumentException(
+                        "position out of range: " + position + " (expected: 0 - " + (this.count - 1) + ')');
+            }
+            if (count == 0) {
+                return 0L;
+            }
+            if (refCnt() == 0) {
+                throw new IllegalReferenceCountException(0);
+            }
+            long written = channel.transferTo(index + position, count, target);
+            if (written > 0) {
+                transferred += written;
+            }
+            return written;
+        }
+
+        @Override
+        protected void deallocate() {
+            FileBackedByteBuf.this.release();
+        }
+
+        @Override
+        public FileRegion retain() {
+            super.retain();
+            return this;
+        }
+
+        @Override
+        public FileRegion retain(int increment) {
+            super.retain(increment);
+            return this;
+        }
+
+        @Override
+        public FileRegion touch() {
+            return this;
+        }
+
+        @Override
+        public FileRegion touch(Object hint) {
+            FileBackedByteBuf.this.touch(hint);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.handler.codec.PrematureChannelClosureException;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.ObjectUtil;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Sends {@link FullHttpRequest}s over one connection without waiting for the previous response
+ * (<a href="https://tools.ietf.org/html/rfc7230#section-6.3.2">HTTP/1.1 pipelining</a>) and completes the
+ * {@link Future} returned by {@link #send(FullHttpRequest)} with the matching {@link FullHttpResponse}.
+ * <p>
+ * Responses are matched to requests in the order the requests were written. At most {@code maxInFlightRequests}
+ * requests may wait for a response at the same time, {@link #send(FullHttpRequest)} fails with an
+ * {@link IllegalStateException} beyond that. All requests which did not receive a response yet are failed with a
+ * {@link PrematureChannelClosureException} once the connection is closed, and the connection is closed if a
+ * response is not {@linkplain HttpUtil#isKeepAlive(HttpMessage) keep-alive}.
+ * <p>
+ * {@link HttpRequest}s which are written through the {@link ChannelPipeline} directly are tracked as well, their
+ * responses are passed on to the next handler. Informational responses, except {@code 101 Switching Protocols},
+ * are always passed on.
+ * <p>
+ * Requests which are not idempotent should not be pipelined, as they can not be retried safely if the connection
+ * is closed before their response arrived. Use {@link HttpPipeliningClient} to spread requests over the
+ * connections of a {@link ChannelPool}.
+ * <blockquote>
+ * <pre>
+ *  {@link ChannelPipeline} p = ...;
+ *  ...
+ *  p.addLast("clientCodec", new {@link HttpClientCodec}());
+ *  p.addLast("aggregator", new {@link HttpObjectAggregator}(1048576));
+ *  p.addLast("pipelining", <b>new {@link HttpClientPipeliningHandler}(16)</b>);
+ *  </pre>
+ * </blockquote>
+ */
+public class HttpClientPipeliningHandler extends ChannelDuplexHandler {
+    private final int maxInFlightRequests;
+
+    // Everything below is only accessed from the EventLoop.
+    private final Queue<Object> inFlight = new ArrayDeque<Object>();
+    private ChannelPool releasePool;
+    private boolean closed;
+    private ChannelHandlerContext ctx;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxInFlightRequests the maximal number of requests which may wait for a response at the same time.
+     */
+    public HttpClientPipeliningHandler(int maxInFlightRequests) {
+        this.maxInFlightRequests = ObjectUtil.checkPositive(maxInFlightRequests, "maxInFlightRequests");
+    }
+
+    /**
+     * Returns the maximal number of requests which may wait for a response at the same time.
+     */
+    public int maxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+
+    /**
+     * Returns the number of requests which wait for a response. Must only be called from the
+     * {@link io.netty.channel.EventLoop} of the {@link io.netty.channel.Channel}.
+     */
+    public int inFlightRequests() {
+        return inFlight.size();
+    }
+
+    /**
+     * Writes and flushes the {@code request} and returns a {@link Future} which is notified with its response.
+     * The caller is responsible for releasing the {@link FullHttpResponse}.
+     */
+    public Future<FullHttpResponse> send(FullHttpRequest request) {
+        return send(request, context().executor().<FullHttpResponse>newPromise());
+    }
+
+    /**
+     * Writes and flushes the {@code request} and notifies the given {@link Promise} with its response.
+     * The caller is responsible for releasing the {@link FullHttpResponse}.
+     */
+    public Future<FullHttpResponse> send(FullHttpRequest request, Promise<FullHttpResponse> promise) {
+        return send(request, promise, null);
+    }
+
+    Future<FullHttpResponse> send(final FullHttpRequest request, final Promise<FullHttpResponse> promise,
+                                  final ChannelPool pool) {
+        ObjectUtil.checkNotNull(request, "request");
+        ObjectUtil.checkNotNull(promise, "promise");
+        EventExecutor executor = context().executor();
+        if (executor.inEventLoop()) {
+            send0(request, promise, pool);
+        } else {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    send0(request, promise, pool);
+                }
+            });
+        }
+        return promise;
+    }
+
+    private ChannelHandlerContext context() {
+        ChannelHandlerContext ctx = this.ctx;
+        if (ctx == null) {
+            throw new IllegalStateException(
+                    HttpClientPipeliningHandler.class.getSimpleName() + " was not added to a pipeline");
+        }
+        return ctx;
+    }
+
+    private void send0(FullHttpRequest request, Promise<FullHttpResponse> promise, ChannelPool pool) {
+        if (closed) {
+            ReferenceCountUtil.release(request);
+            promise.tryFailure(new PrematureChannelClosureException("channel gone inactive"));
+        } else if (inFlight.size() >= maxInFlightRequests) {
+            ReferenceCountUtil.release(request);
+            promise.tryFailure(new IllegalStateException(
+                    "too many in-flight requests (expected: <= " + maxInFlightRequests + ')'));
+        } else {
+            inFlight.add(promise);
+            ctx.writeAndFlush(request).addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) {
+                    if (!future.isSuccess()) {
+                        // The responses can not be correlated anymore, so fail everything and close.
+                        failInFlight(future.cause());
+                        future.channel().close();
+                    }
+                }
+            });
+        }
+        if (pool != null) {
+            releasePool = pool;
+            releaseIfPossible();
+        }
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        closed = true;
+        failInFlight(null);
+        releaseIfPossible();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (!(msg instanceof HttpRequest)) {
+            ctx.write(msg, promise);
+            return;
+        }
+        // Added before the write completes to keep the order of the requests, and removed again if it fails, as no
+        // response will arrive for it then.
+        final PassThrough entry = new PassThrough();
+        inFlight.add(entry);
+        ctx.write(msg, promise.unvoid()).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                if (!future.isSuccess()) {
+                    inFlight.remove(entry);
+                    releaseIfPossible();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof HttpResponse) || isInformational((HttpResponse) msg)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        boolean keepAlive = HttpUtil.isKeepAlive((HttpResponse) msg);
+        Object head = inFlight.poll();
+        if (head == null || head instanceof PassThrough) {
+            ctx.fireChannelRead(msg);
+        } else {
+            @SuppressWarnings("unchecked")
+            Promise<FullHttpResponse> promise = (Promise<FullHttpResponse>) head;
+            if (msg instanceof FullHttpResponse) {
+                FullHttpResponse response = (FullHttpResponse) msg;
+                if (!promise.trySuccess(response)) {
+                    response.release();
+                }
+            } else {
+                ReferenceCountUtil.release(msg);
+                promise.tryFailure(new IllegalStateException("response is not a " +
+                        FullHttpResponse.class.getSimpleName() + ", is a " +
+                        HttpObjectAggregator.class.getSimpleName() + " missing?"));
+                ctx.close();
+                return;
+            }
+        }
+        if (!keepAlive) {
+            ctx.close();
+        } else {
+            releaseIfPossible();
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        closed = true;
+        failInFlight(null);
+        releaseIfPossible();
+        ctx.fireChannelInactive();
+    }
+
+    private static boolean isInformational(HttpResponse response) {
+        HttpResponseStatus status = response.status();
+        return status.codeClass() == HttpStatusClass.INFORMATIONAL &&
+                status.code() != HttpResponseStatus.SWITCHING_PROTOCOLS.code();
+    }
+
+    private void failInFlight(Throwable cause) {
+        for (;;) {
+            Object head = inFlight.poll();
+            if (head == null) {
+                break;
+            }
+            if (!(head instanceof PassThrough)) {
+                @SuppressWarnings("unchecked")
+                Promise<FullHttpResponse> promise = (Promise<FullHttpResponse>) head;
+                promise.tryFailure(cause == null ?
+                        new PrematureChannelClosureException("channel gone inactive with in-flight request") :
+                        new PrematureChannelClosureException(cause));
+            }
+        }
+    }
+
+    /**
+     * Releases the {@link io.netty.channel.Channel} back to the {@link ChannelPool} it was acquired from by a
+     * {@link HttpPipeliningClient} once another request can be sent over it.
+     */
+    private void releaseIfPossible() {
+        ChannelPool pool = releasePool;
+        if (pool != null && (closed || inFlight.size() < maxInFlightRequests)) {
+            releasePool = null;
+            pool.release(ctx.channel());
+        }
+    }
+
+    /**
+     * Marks a request which was not written by this handler, its response is passed on to the next handler.
+     */
+    private static final class PassThrough {
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded cache of compressed response content which is used by {@link HttpContentCompressor} to send
+ * the same content without compressing it again.
+ * <p>
+ * Content is identified by the requested resource, which is the {@code "Host"} header and the URI of the request,
+ * together with the strong {@code ETag} of the response, as an {@code ETag} is only unique for a single resource.
+ * If enabled, the content of responses without
+ * such an {@code ETag} is identified by the content itself, in which case a copy of the uncompressed content is
+ * kept as the key and counted against the size of the cache as well. When the cache is full, the least recently
+ * used entries are evicted.
+ * <p>
+ * Instances are thread-safe and should be shared by all channels. Entries are not keyed by the compression level,
+ * so a cache should only be shared by {@link HttpContentCompressor}s with different settings if it does not matter
+ * which of them compressed the content.
+ */
+@UnstableApi
+public final class HttpCompressedContentCache {
+
+    private final long maxSize;
+    private final boolean identifyByContent;
+    private final Map<Object, ByteBuf> entries = new LinkedHashMap<Object, ByteBuf>(16, 0.75f, true);
+    private long size;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a new cache which identifies content by the {@code ETag} of the response only.
+     *
+     * @param maxSize the maximum number of bytes of all entries.
+     */
+    public HttpCompressedContentCache(long maxSize) {
+        this(maxSize, false);
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize the maximum number of bytes of all entries.
+     * @param identifyByContent {@code true} if the content of responses without a strong {@code ETag} should be
+     * cached as well.
+     */
+    public HttpCompressedContentCache(long maxSize, boolean identifyByContent) {
+        this.maxSize = ObjectUtil.checkPositive(maxSize, "maxSize");
+        this.identifyByContent = identifyByContent;
+    }
+
+    /**
+     * Returns the maximum number of bytes of all entries.
+     */
+    public long maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of bytes of all entries.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of entries.
+     */
+    public synchronized int entries() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups which found an entry.
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups which did not find an entry.
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Removes the entries of the given resource, for example because its content changed while its {@code ETag} did
+     * not.
+     *
+     * @param host the {@code "Host"} header of the requests for the resource, or {@code null} if there is none.
+     * @param uri the URI of the requests for the resource, as returned by {@link HttpRequest#uri()}.
+     */
+    public synchronized void invalidate(String host, String uri) {
+        String resource = resource(host, ObjectUtil.checkNotNull(uri, "uri"));
+        Iterator<Map.Entry<Object, ByteBuf>> i = entries.entrySet().iterator();
+        while (i.hasNext()) {
+            Map.Entry<Object, ByteBuf> e = i.next();
+            if (e.getKey() instanceof EtagKey && ((EtagKey) e.getKey()).resource.equals(resource)) {
+                i.remove();
+                remove(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear() {
+        Iterator<Map.Entry<Object, ByteBuf>> i = entries.entrySet().iterator();
+        while (i.hasNext()) {
+            Map.Entry<Object, ByteBuf> e = i.next();
+            i.remove();
+            remove(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Returns the identity of the resource requested with the given {@code "Host"} header and URI. The host is
+     * omitted if the URI is in absolute form, as it contains the host already.
+     */
+    static String resource(String host, String uri) {
+        return host == null || !uri.startsWith("/") ? uri : host + uri;
+    }
+
+    /**
+     * Returns the key which identifies the content of the given response to a request for the given resource in the
+     * given encoding, or {@code null} if the response can not be cached.
+     */
+    Object key(String resource, FullHttpResponse response, String contentEncoding) {
+        String etag = response.headers().get(HttpHeaderNames.ETAG);
+        if (resource != null && etag != null && !etag.startsWith("W/")) {
+            return new EtagKey(contentEncoding, resource, etag);
+        }
+        if (identifyByContent && response.content().readableBytes() <= maxSize) {
+            return new ContentKey(contentEncoding, response.content());
+        }
+        return null;
+    }
+
+    /**
+     * Returns a retained duplicate of the content cached for the given key, or {@code null} if there is none.
+     */
+    synchronized ByteBuf get(Object key) {
+        ByteBuf content = entries.get(key);
+        if (content == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return content.retainedDuplicate();
+    }
+
+    /**
+     * Caches a copy of the given encoded content unless it does not fit.
+     */
+    void put(Object key, ByteBuf encodedContent) {
+        long entrySize = sizeOf(key) + encodedContent.readableBytes();
+        if (entrySize > maxSize) {
+            return;
+        }
+        if (key instanceof ContentKey) {
+            // Copy the uncompressed content as the key must not reference the response content anymore.
+            key = ((ContentKey) key).copy();
+        }
+        ByteBuf copy = Unpooled.directBuffer(encodedContent.readableBytes()).writeBytes(
+                encodedContent, encodedContent.readerIndex(), encodedContent.readableBytes());
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                // Was cached by another channel in the meantime.
+                copy.release();
+                if (key instanceof ContentKey) {
+                    ((ContentKey) key).content.release();
+                }
+                return;
+            }
+            entries.put(key, copy);
+            size += entrySize;
+            Iterator<Map.Entry<Object, ByteBuf>> i = entries.entrySet().iterator();
+            while (size > maxSize && i.hasNext()) {
+                Map.Entry<Object, ByteBuf> e = i.next();
+                i.remove();
+                remove(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    private void remove(Object key, ByteBuf content) {
+        size -= sizeOf(key) + content.readableBytes();
+        content.release();
+        if (key instanceof ContentKey) {
+            ((ContentKey) key).content.release();
+        }
+    }
+
+    private static long sizeOf(Object key) {
+        return key instanceof ContentKey ? ((ContentKey) key).content.readableBytes() : 0;
+    }
+
+    private static final class EtagKey {
+        final String contentEncoding;
+        final String resource;
+        final String etag;
+
+        EtagKey(String contentEncoding, String resource, String etag) {
+            this.contentEncoding = contentEncoding;
+            this.resource = resource;
+            this.etag = etag;
+        }
+
+        @Override
+        public int hashCode() {
+            return (contentEncoding.hashCode() * 31 + resource.hashCode()) * 31 + etag.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof EtagKey)) {
+                return false;
+            }
+            EtagKey other = (EtagKey) o;
+            return contentEncoding.equals(other.contentEncoding) && resource.equals(other.resource) &&
+                   etag.equals(other.etag);
+        }
+    }
+
+    private static final class ContentKey {
+        final String contentEncoding;
+        final ByteBuf content;
+        final int hash;
+
+        ContentKey(String contentEncoding, ByteBuf content) {
+            this(contentEncoding, content, contentEncoding.hashCode() * 31 + ByteBufUtil.hashCode(content));
+        }
+
+        private ContentKey(String contentEncoding, ByteBuf content, int hash) {
+            this.contentEncoding = contentEncoding;
+            this.content = content;
+            this.hash = hash;
+        }
+
+        ContentKey copy() {
+            return new ContentKey(contentEncoding, Unpooled.copiedBuffer(content), hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ContentKey)) {
+                return false;
+            }
+            ContentKey other = (ContentKey) o;
+            return hash == other.hash && contentEncoding.equals(other.contentEncoding) &&
+                   ByteBufUtil.equals(content, other.content);
+        }
+    }
+}
@@ -15,17 +15,42 @@
  */
 package io.netty.handler.codec.http;
 
+import static io.netty.handler.codec.http.HttpHeaderValues.BR;
+import static io.netty.handler.codec.http.HttpHeaderValues.DEFLATE;
+import static io.netty.handler.codec.http.HttpHeaderValues.GZIP;
+import static io.netty.handler.codec.http.HttpHeaderValues.X_GZIP;
+import static io.netty.handler.codec.http.HttpHeaderValues.ZSTD;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.BrotliEncoder;
 import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.compression.ZstdEncoder;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
 
 /**
  * Compresses an {@link HttpMessage} and an {@link HttpContent} in {@code gzip} or
  * {@code deflate} encoding while respecting the {@code "Accept-Encoding"} header.
+ * If Brotli4j or zstd-jni are available, {@code br} and {@code zstd} are used as
+ * well if the client prefers them, see {@link #determineEncoding(String)}.
  * If there is no matching encoding, no compression is done.  For more
  * information on how this handler modifies the message, please refer to
  * {@link HttpContentEncoder}.
+ * <p>
+ * If a {@link HttpCompressedContentCache} is given, the compressed content of {@link FullHttpResponse}s is cached
+ * and sent again without compressing it when the same content is sent the next time. Files which are compressed
+ * ahead of time can be sent with {@link HttpPrecompressedFile}.
  */
 public class HttpContentCompressor extends HttpContentEncoder {
 
@@ -33,6 +58,9 @@ public class HttpContentCompressor extends HttpContentEncoder {
     private final int windowBits;
     private final int memLevel;
     private final int contentSizeThreshold;
+    private final HttpCompressedContentCache cache;
+    private final Queue<String> resourceQueue;
+    private String resource;
     private ChannelHandlerContext ctx;
 
     /**
@@ -103,6 +131,50 @@ public class HttpContentCompressor extends HttpContentEncoder {
      *        number. {@code 0} will enable compression for all responses.
      */
     public HttpContentCompressor(int compressionLevel, int windowBits, int memLevel, int contentSizeThreshold) {
+        this(compressionLevel, windowBits, memLevel, contentSizeThreshold, null);
+    }
+
+    /**
+     * Creates a new handler with the default compression level (<tt>6</tt>),
+     * default window size (<tt>15</tt>) and default memory level (<tt>8</tt>)
+     * which caches the compressed content in the specified cache.
+     *
+     * @param cache
+     *        The {@link HttpCompressedContentCache} which is shared by all
+     *        channels.
+     */
+    public HttpContentCompressor(HttpCompressedContentCache cache) {
+        this(6, 15, 8, 0, ObjectUtil.checkNotNull(cache, "cache"));
+    }
+
+    /**
+     * Creates a new handler with the specified compression level, window size,
+     * memory level and cache of compressed content.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 9} yields the
+     *        best compression.  {@code 0} means no compression.  The default
+     *        compression level is {@code 6}.
+     * @param windowBits
+     *        The base two logarithm of the size of the history buffer.  The
+     *        value should be in the range {@code 9} to {@code 15} inclusive.
+     *        Larger values result in better compression at the expense of
+     *        memory usage.  The default value is {@code 15}.
+     * @param memLevel
+     *        How much memory should be allocated for the internal compression
+     *        state.  {@code 1} uses minimum memory and {@code 9} uses maximum
+     *        memory.  Larger values result in better and faster compression
+     *        at the expense of memory usage.  The default value is {@code 8}
+     * @param contentSizeThreshold
+     *        The response body is compressed when the size of the response
+     *        body exceeds the threshold. The value should be a non negative
+     *        number. {@code 0} will enable compression for all responses.
+     * @param cache
+     *        The {@link HttpCompressedContentCache} which is shared by all
+     *        channels, or {@code null} to compress all content.
+     */
+    public HttpContentCompressor(int compressionLevel, int windowBits, int memLevel, int contentSizeThreshold,
+                                 HttpCompressedContentCache cache) {
         if (compressionLevel < 0 || compressionLevel > 9) {
             throw new IllegalArgumentException(
                     "compressionLevel: " + compressionLevel +
@@ -124,6 +196,8 @@ public class HttpContentCompressor extends HttpContentEncoder {
         this.windowBits = windowBits;
         this.memLevel = memLevel;
         this.contentSizeThreshold = contentSizeThreshold;
+        this.cache = cache;
+        resourceQueue = cache == null ? null : new ArrayDeque<String>();
     }
 
     @Override
@@ -131,6 +205,25 @@ public class HttpContentCompressor extends HttpContentEncoder {
         this.ctx = ctx;
     }
 
+    @Override
+    protected void decode(ChannelHandlerContext ctx, HttpRequest msg, List<Object> out) throws Exception {
+        super.decode(ctx, msg, out);
+        if (resourceQueue != null) {
+            // Remember the requested resource as an ETag only identifies the content of a single resource.
+            resourceQueue.add(HttpCompressedContentCache.resource(msg.headers().get(HttpHeaderNames.HOST), msg.uri()));
+        }
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, HttpObject msg, List<Object> out) throws Exception {
+        if (resourceQueue != null && msg instanceof HttpResponse &&
+                ((HttpResponse) msg).status().code() != HttpResponseStatus.CONTINUE.code()) {
+            // Polled for the same responses as the "Accept-Encoding" of the request in HttpContentEncoder.
+            resource = resourceQueue.poll();
+        }
+        super.encode(ctx, msg, out);
+    }
+
     @Override
     protected Result beginEncode(HttpResponse headers, String acceptEncoding) throws Exception {
         if (this.contentSizeThreshold > 0) {
@@ -147,28 +240,117 @@ public class HttpContentCompressor extends HttpContentEncoder {
             return null;
         }
 
+        String targetContentEncoding = determineEncoding(acceptEncoding);
+        if (targetContentEncoding == null) {
+            return null;
+        }
+
+        if (cache != null && headers instanceof FullHttpResponse) {
+            FullHttpResponse response = (FullHttpResponse) headers;
+            Object key = cache.key(resource, response, targetContentEncoding);
+            if (key != null) {
+                ByteBuf compressed = cache.get(key);
+                if (compressed == null) {
+                    compressed = compress(newEncoder(targetContentEncoding), response.content());
+                    cache.put(key, compressed);
+                }
+                return new Result(targetContentEncoding, compressed);
+            }
+        }
+        return new Result(targetContentEncoding, newEncoder(targetContentEncoding));
+    }
+
+    private EmbeddedChannel newEncoder(String contentEncoding) {
+        ChannelHandler encoder;
+        if (BR.contentEquals(contentEncoding)) {
+            encoder = new BrotliEncoder();
+        } else if (ZSTD.contentEquals(contentEncoding)) {
+            encoder = new ZstdEncoder();
+        } else if (GZIP.contentEquals(contentEncoding)) {
+            encoder = ZlibCodecFactory.newZlibEncoder(ZlibWrapper.GZIP, compressionLevel, windowBits, memLevel);
+        } else if (DEFLATE.contentEquals(contentEncoding)) {
+            encoder = ZlibCodecFactory.newZlibEncoder(ZlibWrapper.ZLIB, compressionLevel, windowBits, memLevel);
+        } else {
+            throw new IllegalStateException("unsupported content encoding: " + contentEncoding);
+        }
+        return new EmbeddedChannel(ctx.channel().id(), ctx.channel().metadata().hasDisconnect(),
+                ctx.channel().config(), encoder);
+    }
+
+    private ByteBuf compress(EmbeddedChannel encoder, ByteBuf content) {
+        CompositeByteBuf compressed = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+        try {
+            encoder.writeOutbound(content.retainedDuplicate());
+            encoder.finish();
+            for (;;) {
+                ByteBuf buf = encoder.readOutbound();
+                if (buf == null) {
+                    break;
+                }
+                compressed.addComponent(true, buf);
+            }
+        } catch (Throwable cause) {
+            encoder.finishAndReleaseAll();
+            compressed.release();
+            PlatformDependent.throwException(cause);
+        }
+        return compressed;
+    }
+
+    /**
+     * Returns the content encoding of the response to the request with the given {@code "Accept-Encoding"} header,
+     * or {@code null} if the response should not be compressed.
+     * <p>
+     * {@code br} and {@code zstd} are only selected if they are available, see {@link Brotli#isAvailable()} and
+     * {@link Zstd#isAvailable()}, and accepted explicitly with a quality which is not lower than the one of
+     * {@code gzip} and {@code deflate}, in this order of preference. Otherwise the encoding is determined by
+     * {@link #determineWrapper(String)}.
+     */
+    protected String determineEncoding(String acceptEncoding) {
+        if (compressionLevel > 0) {
+            float brQ = -1.0f;
+            float zstdQ = -1.0f;
+            float gzipQ = -1.0f;
+            float deflateQ = -1.0f;
+            float starQ = -1.0f;
+            for (String encoding : acceptEncoding.split(",")) {
+                String name = encodingName(encoding);
+                float q = encodingQuality(encoding);
+                if ("*".equals(name)) {
+                    starQ = q;
+                } else if (BR.contentEqualsIgnoreCase(name)) {
+                    brQ = Math.max(brQ, q);
+                } else if (ZSTD.contentEqualsIgnoreCase(name)) {
+                    zstdQ = Math.max(zstdQ, q);
+                } else if (isGzip(name)) {
+                    gzipQ = Math.max(gzipQ, q);
+                } else if (DEFLATE.contentEqualsIgnoreCase(name)) {
+                    deflateQ = Math.max(deflateQ, q);
+                }
+            }
+            // "*" only applies to the codings which are not listed explicitly. br and zstd are only used if they are
+            // listed, as not every client which sends "*" supports them.
+            float zlibQ = Math.max(gzipQ == -1.0f ? starQ : gzipQ, deflateQ == -1.0f ? starQ : deflateQ);
+            if (brQ > 0.0f && brQ >= zstdQ && brQ >= zlibQ && Brotli.isAvailable()) {
+                return BR.toString();
+            }
+            if (zstdQ > 0.0f && zstdQ >= zlibQ && Zstd.isAvailable()) {
+                return ZSTD.toString();
+            }
+        }
+
         ZlibWrapper wrapper = determineWrapper(acceptEncoding);
         if (wrapper == null) {
             return null;
         }
-
-        String targetContentEncoding;
         switch (wrapper) {
         case GZIP:
-            targetContentEncoding = "gzip";
-            break;
+            return GZIP.toString();
         case ZLIB:
-            targetContentEncoding = "deflate";
-            break;
+            return DEFLATE.toString();
         default:
             throw new Error();
         }
-
-        return new Result(
-                targetContentEncoding,
-                new EmbeddedChannel(ctx.channel().id(), ctx.channel().metadata().hasDisconnect(),
-                        ctx.channel().config(), ZlibCodecFactory.newZlibEncoder(
-                        wrapper, compressionLevel, windowBits, memLevel)));
     }
 
     @SuppressWarnings("FloatingPointEquality")
@@ -177,21 +359,13 @@ public class HttpContentCompressor extends HttpContentEncoder {
         float gzipQ = -1.0f;
         float deflateQ = -1.0f;
         for (String encoding : acceptEncoding.split(",")) {
-            float q = 1.0f;
-            int equalsPos = encoding.indexOf('=');
-            if (equalsPos != -1) {
-                try {
-                    q = Float.parseFloat(encoding.substring(equalsPos + 1));
-                } catch (NumberFormatException e) {
-                    // Ignore encoding
-                    q = 0.0f;
-                }
-            }
-            if (encoding.contains("*")) {
+            String name = encodingName(encoding);
+            float q = encodingQuality(encoding);
+            if ("*".equals(name)) {
                 starQ = q;
-            } else if (encoding.contains("gzip") && q > gzipQ) {
+            } else if (isGzip(name) && q > gzipQ) {
                 gzipQ = q;
-            } else if (encoding.contains("deflate") && q > deflateQ) {
+            } else if (DEFLATE.contentEqualsIgnoreCase(name) && q > deflateQ) {
                 deflateQ = q;
             }
         }
@@ -212,4 +386,34 @@ public class HttpContentCompressor extends HttpContentEncoder {
         }
         return null;
     }
+
+    static String encodingName(String encoding) {
+        int semicolonPos = encoding.indexOf(';');
+        return (semicolonPos == -1 ? encoding : encoding.substring(0, semicolonPos)).trim();
+    }
+
+    static boolean isGzip(String name) {
+        return GZIP.contentEqualsIgnoreCase(name) || X_GZIP.contentEqualsIgnoreCase(name);
+    }
+
+    /**
+     * Returns the value of the {@code q} parameter of the coding, {@code 1.0} if there is none, or {@code 0.0} if it
+     * is malformed so that the coding is ignored.
+     */
+    static float encodingQuality(String encoding) {
+        int paramPos = encoding.indexOf(';');
+        while (paramPos != -1) {
+            int nextPos = encoding.indexOf(';', paramPos + 1);
+            String param = encoding.substring(paramPos + 1, nextPos == -1 ? encoding.length() : nextPos).trim();
+            if (param.length() > 1 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                try {
+                    return Float.parseFloat(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0.0f;
+                }
+            }
+            paramPos = nextPos;
+        }
+        return 1.0f;
+    }
 }
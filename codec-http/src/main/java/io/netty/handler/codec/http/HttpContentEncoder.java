@@ -158,6 +158,11 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
                     break;
                 }
 
+                ByteBuf encodedContent = result.encodedContent();
+                if (encodedContent != null && !isFull) {
+                    encodedContent.release();
+                    throw new IllegalStateException("encoded content can only be used for a full response");
+                }
                 encoder = result.contentEncoder();
 
                 // Encode the content and remove or replace the existing headers
@@ -166,13 +171,17 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
 
                 // Output the rewritten response.
                 if (isFull) {
-                    // Convert full message into unfull one.
-                    HttpResponse newRes = new DefaultHttpResponse(res.protocolVersion(), res.status());
+                    // Convert full message into unfull one, keeping the HttpResponseTemplate it was created from.
+                    HttpResponse newRes = HttpResponseTemplate.newResponseOf(res);
                     newRes.headers().set(res.headers());
                     out.add(newRes);
 
                     ensureContent(res);
-                    encodeFullResponse(newRes, (HttpContent) res, out);
+                    if (encodedContent != null) {
+                        addEncodedFullResponse(newRes, encodedContent, (LastHttpContent) res, out);
+                    } else {
+                        encodeFullResponse(newRes, (HttpContent) res, out);
+                    }
                     break;
                 } else {
                     // Make the response chunked to simplify content transformation.
@@ -227,6 +236,22 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
         }
     }
 
+    private static void addEncodedFullResponse(HttpResponse newRes, ByteBuf encodedContent, LastHttpContent last,
+                                               List<Object> out) {
+        if (HttpUtil.isContentLengthSet(newRes)) {
+            HttpUtil.setContentLength(newRes, encodedContent.readableBytes());
+        } else {
+            newRes.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        }
+        out.add(new DefaultHttpContent(encodedContent));
+        HttpHeaders headers = last.trailingHeaders();
+        if (headers.isEmpty()) {
+            out.add(LastHttpContent.EMPTY_LAST_CONTENT);
+        } else {
+            out.add(new ComposedLastHttpContent(headers));
+        }
+    }
+
     private static boolean isPassthru(HttpVersion version, int code, CharSequence httpMethod) {
         return code < 200 || code == 204 || code == 304 ||
                (httpMethod == ZERO_LENGTH_HEAD || (httpMethod == ZERO_LENGTH_CONNECT && code == 200)) ||
@@ -347,6 +372,7 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
     public static final class Result {
         private final String targetContentEncoding;
         private final EmbeddedChannel contentEncoder;
+        private final ByteBuf encodedContent;
 
         public Result(String targetContentEncoding, EmbeddedChannel contentEncoder) {
             if (targetContentEncoding == null) {
@@ -358,14 +384,46 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
 
             this.targetContentEncoding = targetContentEncoding;
             this.contentEncoder = contentEncoder;
+            encodedContent = null;
+        }
+
+        /**
+         * Creates a new result whose content was already encoded, for example because it was cached. The content
+         * of the response is replaced with {@code encodedContent} instead of being encoded, which is only possible
+         * for a {@link FullHttpResponse}. The ownership of {@code encodedContent} is transferred to the
+         * {@link HttpContentEncoder}.
+         */
+        public Result(String targetContentEncoding, ByteBuf encodedContent) {
+            if (targetContentEncoding == null) {
+                throw new NullPointerException("targetContentEncoding");
+            }
+            if (encodedContent == null) {
+                throw new NullPointerException("encodedContent");
+            }
+
+            this.targetContentEncoding = targetContentEncoding;
+            this.encodedContent = encodedContent;
+            contentEncoder = null;
         }
 
         public String targetContentEncoding() {
             return targetContentEncoding;
         }
 
+        /**
+         * Returns the {@link EmbeddedChannel} which encodes the content, or {@code null} if the content was already
+         * encoded.
+         */
         public EmbeddedChannel contentEncoder() {
             return contentEncoder;
         }
+
+        /**
+         * Returns the already encoded content, or {@code null} if the content is encoded by the
+         * {@link #contentEncoder()}.
+         */
+        public ByteBuf encodedContent() {
+            return encodedContent;
+        }
     }
 }
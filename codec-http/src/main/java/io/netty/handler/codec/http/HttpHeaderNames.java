@@ -17,6 +17,13 @@
 package io.netty.handler.codec.http;
 
 import io.netty.util.AsciiString;
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Standard HTTP header names.
@@ -355,5 +362,74 @@ public final class HttpHeaderNames {
      */
     public static final AsciiString X_FRAME_OPTIONS = AsciiString.cached("x-frame-options");
 
+    private static final AsciiString[] NAMES;
+    // Open addressing table of all the names above, used to intern decoded header names.
+    private static final AsciiString[] NAMES_TABLE;
+    private static final int NAMES_TABLE_MASK;
+
+    static {
+        List<AsciiString> names = new ArrayList<AsciiString>();
+        for (Field field : HttpHeaderNames.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == AsciiString.class) {
+                try {
+                    names.add((AsciiString) field.get(null));
+                } catch (IllegalAccessException e) {
+                    throw new ExceptionInInitializerError(e);
+                }
+            }
+        }
+        NAMES = names.toArray(new AsciiString[0]);
+        NAMES_TABLE = new AsciiString[MathUtil.safeFindNextPositivePowerOfTwo(names.size() * 4)];
+        NAMES_TABLE_MASK = NAMES_TABLE.length - 1;
+        for (AsciiString name : names) {
+            int i = name.hashCode() & NAMES_TABLE_MASK;
+            while (NAMES_TABLE[i] != null) {
+                i = (i + 1) & NAMES_TABLE_MASK;
+            }
+            NAMES_TABLE[i] = name;
+        }
+    }
+
+    /**
+     * Returns all the standard header names.
+     */
+    static AsciiString[] names() {
+        return NAMES.clone();
+    }
+
+    /**
+     * Returns the standard header name which equals the ASCII bytes {@code bytes[start, start + length)} ignoring
+     * case, or {@code null} if there is no such name.
+     */
+    static AsciiString lookup(byte[] bytes, int start, int length) {
+        int i = PlatformDependent.hashCodeAscii(bytes, start, length) & NAMES_TABLE_MASK;
+        for (;;) {
+            AsciiString name = NAMES_TABLE[i];
+            if (name == null) {
+                return null;
+            }
+            if (name.length() == length && equalsIgnoreCase(name, bytes, start)) {
+                return name;
+            }
+            i = (i + 1) & NAMES_TABLE_MASK;
+        }
+    }
+
+    private static boolean equalsIgnoreCase(AsciiString name, byte[] bytes, int start) {
+        byte[] nameBytes = name.array();
+        int nameOffset = name.arrayOffset();
+        for (int i = 0; i < name.length(); i++) {
+            byte b = bytes[start + i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            // All the names are lowercase.
+            if (b != nameBytes[nameOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private HttpHeaderNames() { }
 }
@@ -159,7 +159,7 @@ public class HttpObjectAggregator
         }
     }
 
-    private static Object continueResponse(HttpMessage start, int maxContentLength, ChannelPipeline pipeline) {
+    static Object continueResponse(HttpMessage start, long maxContentLength, ChannelPipeline pipeline) {
         if (HttpUtil.isUnsupportedExpectation(start)) {
             // if the request contains an unsupported expectation, we return 417
             pipeline.fireUserEventTriggered(HttpExpectationFailedEvent.INSTANCE);
@@ -243,12 +243,22 @@ public class HttpObjectAggregator
 
     @Override
     protected void handleOversizedMessage(final ChannelHandlerContext ctx, HttpMessage oversized) throws Exception {
+        handleOversizedMessage(ctx, oversized, oversized instanceof FullHttpMessage);
+    }
+
+    /**
+     * Rejects an oversized request with a {@code 413} response or fails an oversized response.
+     *
+     * @param contentReceived {@code true} if some of the content of {@code oversized} was received already.
+     */
+    static void handleOversizedMessage(final ChannelHandlerContext ctx, HttpMessage oversized,
+                                       boolean contentReceived) {
         if (oversized instanceof HttpRequest) {
             // send back a 413 and close the connection
 
             // If the client started to send data already, close because it's impossible to recover.
             // If keep-alive is off and 'Expect: 100-continue' is missing, no need to leave the connection open.
-            if (oversized instanceof FullHttpMessage ||
+            if (contentReceived ||
                 !HttpUtil.is100ContinueExpected(oversized) && !HttpUtil.isKeepAlive(oversized)) {
                 ChannelFuture future = ctx.writeAndFlush(TOO_LARGE_CLOSE.retainedDuplicate());
                 future.addListener(new ChannelFutureListener() {
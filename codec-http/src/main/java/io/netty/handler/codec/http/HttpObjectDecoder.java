@@ -58,6 +58,14 @@ import java.util.List;
  * </tr>
  * </table>
  *
+ * <h3>Sliced Headers</h3>
+ *
+ * If the decoder is created with {@code sliceHeaders} set to {@code true}, the header block of a message is copied
+ * once instead of character by character, and the {@link HttpHeaders} of the decoded message keep the names and values
+ * as {@link io.netty.util.AsciiString}s which share the copied bytes. Values are only created when they are accessed
+ * and standard header names are replaced by the lowercase {@link HttpHeaderNames} constants. The headers are copied
+ * into {@link DefaultHttpHeaders} as soon as they are modified.
+ *
  * <h3>Chunked Content</h3>
  *
  * If the content of an HTTP message is greater than {@code maxChunkSize} or
@@ -105,7 +113,9 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
     private final int maxChunkSize;
     private final boolean chunkedSupported;
     protected final boolean validateHeaders;
+    private final boolean sliceHeaders;
     private final HeaderParser headerParser;
+    private final HeaderBlockParser headerBlockParser;
     private final LineParser lineParser;
 
     private HttpMessage message;
@@ -168,6 +178,19 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
     protected HttpObjectDecoder(
             int maxInitialLineLength, int maxHeaderSize, int maxChunkSize,
             boolean chunkedSupported, boolean validateHeaders, int initialBufferSize) {
+        this(maxInitialLineLength, maxHeaderSize, maxChunkSize, chunkedSupported, validateHeaders, initialBufferSize,
+             false);
+    }
+
+    /**
+     * Creates a new instance with the specified parameters.
+     *
+     * @param sliceHeaders {@code true} to decode the headers into {@link HttpHeaders} which keep the names and values
+     *                     as slices of the received header block. See {@link #newHeaders()}.
+     */
+    protected HttpObjectDecoder(
+            int maxInitialLineLength, int maxHeaderSize, int maxChunkSize,
+            boolean chunkedSupported, boolean validateHeaders, int initialBufferSize, boolean sliceHeaders) {
         if (maxInitialLineLength <= 0) {
             throw new IllegalArgumentException(
                     "maxInitialLineLength must be a positive integer: " +
@@ -186,9 +209,20 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         AppendableCharSequence seq = new AppendableCharSequence(initialBufferSize);
         lineParser = new LineParser(seq, maxInitialLineLength);
         headerParser = new HeaderParser(seq, maxHeaderSize);
+        headerBlockParser = sliceHeaders ? new HeaderBlockParser(maxHeaderSize) : null;
         this.maxChunkSize = maxChunkSize;
         this.chunkedSupported = chunkedSupported;
         this.validateHeaders = validateHeaders;
+        this.sliceHeaders = sliceHeaders;
+    }
+
+    /**
+     * Returns a new {@link HttpHeaders} for a message created by {@link #createMessage(String[])}. The headers only
+     * keep the names and values as slices of the received bytes if the decoder was created with
+     * {@code sliceHeaders} and the message uses the returned instance.
+     */
+    protected HttpHeaders newHeaders() {
+        return sliceHeaders ? new SlicedHttpHeaders(validateHeaders) : new DefaultHttpHeaders(validateHeaders);
     }
 
     @Override
@@ -514,6 +548,9 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         contentLength = Long.MIN_VALUE;
         lineParser.reset();
         headerParser.reset();
+        if (headerBlockParser != null) {
+            headerBlockParser.reset();
+        }
         trailer = null;
         if (!isDecodingRequest()) {
             HttpResponse res = (HttpResponse) message;
@@ -578,6 +615,15 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         final HttpMessage message = this.message;
         final HttpHeaders headers = message.headers();
 
+        if (headers instanceof SlicedHttpHeaders && headerBlockParser != null) {
+            byte[] block = headerBlockParser.parse(buffer);
+            if (block == null) {
+                return null;
+            }
+            ((SlicedHttpHeaders) headers).parse(block);
+            return nextState(message);
+        }
+
         AppendableCharSequence line = headerParser.parse(buffer);
         if (line == null) {
             return null;
@@ -613,6 +659,10 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         name = null;
         value = null;
 
+        return nextState(message);
+    }
+
+    private State nextState(HttpMessage message) {
         State nextState;
 
         if (isContentAlwaysEmpty(message)) {
@@ -838,6 +888,89 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         }
     }
 
+    /**
+     * Finds the empty line which terminates the header block and copies the whole block at once. Like
+     * {@link HeaderParser}, which ignores every {@code CR}, it removes a {@code CR} which is not directly followed by
+     * a {@code LF}.
+     */
+    private static final class HeaderBlockParser implements ByteProcessor {
+        private final int maxLength;
+        private int size;
+        private int lineLength;
+        private boolean cr;
+        private boolean bareCr;
+        // Number of bytes after the readerIndex which were already scanned.
+        private int scanned;
+
+        HeaderBlockParser(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        byte[] parse(ByteBuf buffer) {
+            int readerIndex = buffer.readerIndex();
+            int start = readerIndex + scanned;
+            int i = buffer.forEachByte(start, buffer.writerIndex() - start, this);
+            if (i == -1) {
+                scanned = buffer.writerIndex() - readerIndex;
+                return null;
+            }
+            byte[] block = new byte[i + 1 - readerIndex];
+            buffer.readBytes(block);
+            if (bareCr) {
+                removeCr(block);
+            }
+            reset();
+            return block;
+        }
+
+        /**
+         * Removes every {@code CR} from the block. The bytes after the terminating empty line are left as they are,
+         * as the block is not parsed beyond it.
+         */
+        private static void removeCr(byte[] block) {
+            int length = 0;
+            for (byte b : block) {
+                if (b != HttpConstants.CR) {
+                    block[length++] = b;
+                }
+            }
+        }
+
+        void reset() {
+            size = 0;
+            lineLength = 0;
+            scanned = 0;
+            cr = false;
+            bareCr = false;
+        }
+
+        @Override
+        public boolean process(byte value) throws Exception {
+            if (value == HttpConstants.LF) {
+                cr = false;
+                if (lineLength == 0) {
+                    return false;
+                }
+                lineLength = 0;
+                return true;
+            }
+            if (value == HttpConstants.CR) {
+                bareCr |= cr;
+                cr = true;
+                return true;
+            }
+            if (cr) {
+                bareCr = true;
+                cr = false;
+            }
+            if (++ size > maxLength) {
+                throw new TooLongFrameException("HTTP header is larger than " + maxLength + " bytes.");
+            }
+            lineLength++;
+            return true;
+        }
+    }
+
     private static final class LineParser extends HeaderParser {
 
         LineParser(AppendableCharSequence seq, int maxLength) {
@@ -92,12 +92,19 @@ public abstract class HttpObjectEncoder<H extends HttpMessage> extends MessageTo
 
             buf = ctx.alloc().buffer((int) headersEncodedSizeAccumulator);
             // Encode the message.
-            encodeInitialLine(buf, m);
+            HttpResponseTemplate template = HttpResponseTemplate.templateOf(m);
+            if (template == null || !template.writeInitialLine((HttpResponse) m, buf)) {
+                encodeInitialLine(buf, m);
+            }
             state = isContentAlwaysEmpty(m) ? ST_CONTENT_ALWAYS_EMPTY :
                     HttpUtil.isTransferEncodingChunked(m) ? ST_CONTENT_CHUNK : ST_CONTENT_NON_CHUNK;
 
             sanitizeHeadersBeforeEncode(m, state == ST_CONTENT_ALWAYS_EMPTY);
 
+            if (template != null) {
+                // Splice in the pre-encoded headers of the template.
+                template.writeHeaders(buf);
+            }
             encodeHeaders(m.headers(), buf);
             ByteBufUtil.writeShortBE(buf, CRLF_SHORT);
 
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.Channel;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.channel.pool.ChannelPoolHandler;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.BackgroundEventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.ObjectUtil;
+
+/**
+ * Sends {@link FullHttpRequest}s over the {@link Channel}s of a {@link ChannelPool} and pipelines them with a
+ * {@link HttpClientPipeliningHandler}.
+ * <p>
+ * A {@link Channel} is released back to the {@link ChannelPool} as soon as the request was handed to it, unless it
+ * already has {@link HttpClientPipeliningHandler#maxInFlightRequests()} requests in flight, in which case it is
+ * released once one of the responses was received. The next {@link #send(FullHttpRequest)} can therefore reuse
+ * the same connection while earlier responses are still pending, so far fewer connections are needed. Using a
+ * pool which hands out the most recently used {@link Channel} first concentrates the requests on as few
+ * connections as possible.
+ * <p>
+ * The {@link ChannelPoolHandler} of the pool must add a {@link HttpClientCodec}, a {@link HttpObjectAggregator}
+ * and a {@link HttpClientPipeliningHandler} to every {@link Channel} it creates.
+ */
+public final class HttpPipeliningClient {
+    private final ChannelPool pool;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param pool the {@link ChannelPool} the connections are acquired from.
+     */
+    public HttpPipeliningClient(ChannelPool pool) {
+        this.pool = ObjectUtil.checkNotNull(pool, "pool");
+    }
+
+    /**
+     * Returns the {@link ChannelPool} the connections are acquired from.
+     */
+    public ChannelPool pool() {
+        return pool;
+    }
+
+    /**
+     * Sends the {@code request} and returns a {@link Future} which is notified with its response. The caller is
+     * responsible for releasing the {@link FullHttpResponse}.
+     */
+    public Future<FullHttpResponse> send(FullHttpRequest request) {
+        return send(request, BackgroundEventExecutor.globalExecutor().<FullHttpResponse>newPromise());
+    }
+
+    /**
+     * Sends the {@code request} and notifies the given {@link Promise} with its response. The caller is
+     * responsible for releasing the {@link FullHttpResponse}.
+     */
+    public Future<FullHttpResponse> send(final FullHttpRequest request, final Promise<FullHttpResponse> promise) {
+        ObjectUtil.checkNotNull(request, "request");
+        ObjectUtil.checkNotNull(promise, "promise");
+        pool.acquire().addListener(new FutureListener<Channel>() {
+            @Override
+            public void operationComplete(Future<Channel> future) {
+                if (!future.isSuccess()) {
+                    ReferenceCountUtil.release(request);
+                    promise.tryFailure(future.cause());
+                    return;
+                }
+                Channel channel = future.getNow();
+                HttpClientPipeliningHandler handler = channel.pipeline().get(HttpClientPipeliningHandler.class);
+                if (handler == null) {
+                    ReferenceCountUtil.release(request);
+                    pool.release(channel);
+                    promise.tryFailure(new IllegalStateException(
+                            HttpClientPipeliningHandler.class.getSimpleName() + " not found in pipeline of " +
+                            channel));
+                    return;
+                }
+                handler.send(request, promise, pool);
+            }
+        });
+        return promise;
+    }
+}
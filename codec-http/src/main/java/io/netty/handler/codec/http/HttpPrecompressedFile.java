@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
+import io.netty.handler.stream.ChunkedNioFile;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Selects between a file and its {@code gzip} compressed sidecar file, which has the same name with the suffix
+ * {@value #GZIP_SUFFIX}, depending on the {@code "Accept-Encoding"} header of a request.
+ * <p>
+ * The sidecar is only used if it is not older than the file. The response always carries a {@code "Content-Encoding"}
+ * header, {@code gzip} if the sidecar was selected and {@code identity} otherwise, so {@link HttpContentCompressor}
+ * passes the {@link FileRegion} through instead of starting to compress a body it cannot see.
+ * <pre>
+ * HttpPrecompressedFile file = HttpPrecompressedFile.select(request, new File(root, "app.js"));
+ * HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+ * file.setHeaders(response);
+ * ctx.write(response);
+ * ctx.write(file.newFileRegion());
+ * ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+ * </pre>
+ */
+@UnstableApi
+public final class HttpPrecompressedFile {
+
+    /**
+     * The suffix of the name of a {@code gzip} compressed sidecar file.
+     */
+    public static final String GZIP_SUFFIX = ".gz";
+
+    private final File file;
+    private final boolean compressed;
+    private final boolean hasSidecar;
+    private final long length;
+
+    private HttpPrecompressedFile(File file, boolean compressed, boolean hasSidecar) {
+        this.file = file;
+        this.compressed = compressed;
+        this.hasSidecar = hasSidecar;
+        length = file.length();
+    }
+
+    /**
+     * Selects the {@code gzip} sidecar of the given file if it exists and the request accepts the {@code gzip}
+     * encoding, or the file itself otherwise.
+     */
+    public static HttpPrecompressedFile select(HttpRequest request, File file) {
+        ObjectUtil.checkNotNull(request, "request");
+        ObjectUtil.checkNotNull(file, "file");
+        File sidecar = new File(file.getPath() + GZIP_SUFFIX);
+        long sidecarModified = sidecar.lastModified();
+        // lastModified() returns 0 if the file does not exist.
+        boolean hasSidecar = sidecarModified != 0 && sidecarModified >= file.lastModified() && sidecar.isFile();
+        if (hasSidecar && acceptsGzip(request.headers().get(HttpHeaderNames.ACCEPT_ENCODING))) {
+            return new HttpPrecompressedFile(sidecar, true, true);
+        }
+        return new HttpPrecompressedFile(file, false, hasSidecar);
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        float starQ = -1.0f;
+        float gzipQ = -1.0f;
+        for (String encoding : acceptEncoding.split(",")) {
+            String name = HttpContentCompressor.encodingName(encoding);
+            if ("*".equals(name)) {
+                starQ = HttpContentCompressor.encodingQuality(encoding);
+            } else if (HttpContentCompressor.isGzip(name)) {
+                gzipQ = Math.max(gzipQ, HttpContentCompressor.encodingQuality(encoding));
+            }
+        }
+        return gzipQ > 0.0f || gzipQ == -1.0f && starQ > 0.0f;
+    }
+
+    /**
+     * Returns the file to send, which is either the requested file or its sidecar.
+     */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Returns {@code true} if the {@code gzip} compressed sidecar was selected.
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Returns the length of the {@link #file()}.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Sets the {@code "Content-Length"} and the {@code "Content-Encoding"} header of the given response. The latter is
+     * {@code identity} if the sidecar was not selected, which makes {@link HttpContentCompressor} leave the response
+     * alone. If there is a sidecar, the {@code "Vary"} header is set as well, so caches do not send the compressed
+     * file to clients which do not accept it.
+     */
+    public void setHeaders(HttpResponse response) {
+        HttpHeaders headers = response.headers();
+        HttpUtil.setContentLength(response, length);
+        headers.set(HttpHeaderNames.CONTENT_ENCODING, compressed ? HttpHeaderValues.GZIP : HttpHeaderValues.IDENTITY);
+        if (hasSidecar) {
+            headers.set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        }
+    }
+
+    /**
+     * Returns a new {@link FileRegion} which sends the whole {@link #file()} with zero-copy transfer.
+     */
+    public FileRegion newFileRegion() {
+        return new DefaultFileRegion(file, 0, length);
+    }
+
+    /**
+     * Returns a new {@link HttpChunkedInput} which reads the whole {@link #file()} in chunks of the given size, for
+     * transports which do not support {@link FileRegion}s, e.g. when SSL is used.
+     */
+    public HttpChunkedInput newChunkedInput(int chunkSize) throws IOException {
+        return new HttpChunkedInput(new ChunkedNioFile(file, chunkSize));
+    }
+}
@@ -81,11 +81,24 @@ public class HttpRequestDecoder extends HttpObjectDecoder {
         super(maxInitialLineLength, maxHeaderSize, maxChunkSize, true, validateHeaders, initialBufferSize);
     }
 
+    /**
+     * Creates a new instance with the specified parameters.
+     *
+     * @param sliceHeaders {@code true} to keep the decoded header names and values as slices of the received bytes.
+     *                     See {@link HttpObjectDecoder}.
+     */
+    public HttpRequestDecoder(
+            int maxInitialLineLength, int maxHeaderSize, int maxChunkSize, boolean validateHeaders,
+            int initialBufferSize, boolean sliceHeaders) {
+        super(maxInitialLineLength, maxHeaderSize, maxChunkSize, true, validateHeaders, initialBufferSize,
+              sliceHeaders);
+    }
+
     @Override
     protected HttpMessage createMessage(String[] initialLine) throws Exception {
         return new DefaultHttpRequest(
                 HttpVersion.valueOf(initialLine[2]),
-                HttpMethod.valueOf(initialLine[0]), initialLine[1], validateHeaders);
+                HttpMethod.valueOf(initialLine[0]), initialLine[1], newHeaders());
     }
 
     @Override
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import static io.netty.handler.codec.http.HttpConstants.SP;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * An immutable set of headers which is encoded once and then copied as is into every {@link HttpResponse} created
+ * from this template, together with the pre-encoded initial line of the response.
+ * <p>
+ * Responses are created through {@link #newResponse()} and its variants. Their {@link HttpResponse#headers()} only
+ * contain the headers which differ per response, like {@code content-length}. When such a response is written
+ * through a {@link HttpResponseEncoder} the template headers are appended without walking or encoding them again.
+ * If the status or the protocol version of the response was changed the initial line is encoded as usual and only
+ * the header block is copied.
+ * <p>
+ * The template headers are not visible through {@link HttpResponse#headers()} of the created responses, so they
+ * must not contain headers which handlers in the pipeline need to inspect or change. For this reason
+ * {@code content-length}, {@code transfer-encoding}, {@code content-encoding}, {@code connection} and
+ * {@code keep-alive} are rejected, which leaves them to {@link HttpUtil}, {@link HttpServerKeepAliveHandler} and
+ * {@link HttpContentCompressor}. When {@link HttpContentEncoder} replaces a full response by one without content
+ * the new response keeps the template.
+ * <p>
+ * Optionally a {@code date} header is added to every response. Its value is cached per thread and refreshed once
+ * per second, so all responses written by one {@link io.netty.channel.EventLoop} in the same second share it.
+ */
+@UnstableApi
+public final class HttpResponseTemplate {
+    private static final AsciiString[] REJECTED_HEADERS = {
+            HttpHeaderNames.CONTENT_LENGTH, HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderNames.CONTENT_ENCODING,
+            HttpHeaderNames.CONNECTION, HttpHeaderNames.KEEP_ALIVE
+    };
+    private static final FastThreadLocal<DateHeader> DATE_HEADER = new FastThreadLocal<DateHeader>() {
+        @Override
+        protected DateHeader initialValue() {
+            return new DateHeader();
+        }
+    };
+
+    private final HttpVersion version;
+    private final HttpResponseStatus status;
+    private final HttpHeaders headers;
+    private final boolean dateHeader;
+    private final byte[] encoded;
+    private final int initialLineLength;
+
+    /**
+     * Creates a new template which adds a {@code date} header to every response.
+     *
+     * @param version the protocol version of the responses
+     * @param status the default status of the responses
+     * @param headers the headers shared by all responses. They are copied.
+     */
+    public HttpResponseTemplate(HttpVersion version, HttpResponseStatus status, HttpHeaders headers) {
+        this(version, status, headers, true);
+    }
+
+    /**
+     * Creates a new template.
+     *
+     * @param version the protocol version of the responses
+     * @param status the default status of the responses
+     * @param headers the headers shared by all responses. They are copied.
+     * @param dateHeader {@code true} to add a cached {@code date} header to every response
+     */
+    public HttpResponseTemplate(HttpVersion version, HttpResponseStatus status, HttpHeaders headers,
+                                boolean dateHeader) {
+        this.version = checkNotNull(version, "version");
+        this.status = checkNotNull(status, "status");
+        checkNotNull(headers, "headers");
+        for (AsciiString name : REJECTED_HEADERS) {
+            if (headers.contains(name)) {
+                throw new IllegalArgumentException("headers must not contain " + name);
+            }
+        }
+        if (dateHeader && headers.contains(HttpHeaderNames.DATE)) {
+            throw new IllegalArgumentException("headers must not contain " + HttpHeaderNames.DATE +
+                    " if dateHeader is true");
+        }
+        this.dateHeader = dateHeader;
+
+        CharSequence[] nameValuePairs = new CharSequence[headers.size() << 1];
+        ByteBuf buf = Unpooled.buffer(256);
+        try {
+            version.encode(buf);
+            buf.writeByte(SP);
+            status.encode(buf);
+            buf.writeShort(HttpObjectEncoder.CRLF_SHORT);
+            initialLineLength = buf.readableBytes();
+
+            int i = 0;
+            Iterator<Entry<CharSequence, CharSequence>> iter = headers.iteratorCharSequence();
+            while (iter.hasNext()) {
+                Entry<CharSequence, CharSequence> header = iter.next();
+                nameValuePairs[i++] = header.getKey();
+                nameValuePairs[i++] = header.getValue();
+                HttpHeadersEncoder.encoderHeader(header.getKey(), header.getValue(), buf);
+            }
+            encoded = new byte[buf.readableBytes()];
+            buf.readBytes(encoded);
+        } finally {
+            buf.release();
+        }
+        this.headers = new ReadOnlyHttpHeaders(false, nameValuePairs);
+    }
+
+    /**
+     * Returns the protocol version of the responses created by this template.
+     */
+    public HttpVersion protocolVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the default status of the responses created by this template.
+     */
+    public HttpResponseStatus status() {
+        return status;
+    }
+
+    /**
+     * Returns a read-only view of the headers shared by all responses created by this template.
+     */
+    public HttpHeaders headers() {
+        return headers;
+    }
+
+    /**
+     * Returns {@code true} if a cached {@code date} header is added to every response.
+     */
+    public boolean isDateHeader() {
+        return dateHeader;
+    }
+
+    /**
+     * Creates a new {@link HttpResponse} with the default status of this template.
+     */
+    public HttpResponse newResponse() {
+        return newResponse(status);
+    }
+
+    /**
+     * Creates a new {@link HttpResponse} with the given {@code status}. The header block of this template is still
+     * copied as is, only the initial line is encoded for every response.
+     */
+    public HttpResponse newResponse(HttpResponseStatus status) {
+        return new TemplateHttpResponse(this, status);
+    }
+
+    /**
+     * Creates a new {@link FullHttpResponse} with the default status of this template and sets its
+     * {@code content-length} header to the readable bytes of {@code content}.
+     */
+    public FullHttpResponse newFullResponse(ByteBuf content) {
+        return newFullResponse(status, content);
+    }
+
+    /**
+     * Creates a new {@link FullHttpResponse} with the given {@code status} and sets its {@code content-length} header
+     * to the readable bytes of {@code content}.
+     */
+    public FullHttpResponse newFullResponse(HttpResponseStatus status, ByteBuf content) {
+        FullHttpResponse response = new TemplateFullHttpResponse(this, status, content,
+                new DefaultHttpHeaders(), new DefaultHttpHeaders());
+        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+        return response;
+    }
+
+    /**
+     * Returns the template {@code message} was created from or {@code null} if it was not created from a template.
+     */
+    static HttpResponseTemplate templateOf(HttpMessage message) {
+        if (message instanceof TemplateHttpResponse) {
+            return ((TemplateHttpResponse) message).template;
+        }
+        if (message instanceof TemplateFullHttpResponse) {
+            return ((TemplateFullHttpResponse) message).template;
+        }
+        return null;
+    }
+
+    /**
+     * Creates a new {@link HttpResponse} without content which has the protocol version and status of
+     * {@code response} and the same template, if {@code response} was created from one. The headers are not copied.
+     */
+    static HttpResponse newResponseOf(HttpResponse response) {
+        HttpResponseTemplate template = templateOf(response);
+        if (template == null) {
+            return new DefaultHttpResponse(response.protocolVersion(), response.status());
+        }
+        HttpResponse newResponse = new TemplateHttpResponse(template, response.status());
+        newResponse.setProtocolVersion(response.protocolVersion());
+        return newResponse;
+    }
+
+    /**
+     * Writes the initial line of {@code response} if it still matches the pre-encoded one and returns {@code true},
+     * or writes nothing and returns {@code false} if the initial line needs to be encoded by the caller.
+     */
+    boolean writeInitialLine(HttpResponse response, ByteBuf buf) {
+        // Compare by identity so that a status with a custom reason phrase is encoded as given.
+        if (response.protocolVersion() != version || response.status() != status) {
+            return false;
+        }
+        buf.writeBytes(encoded, 0, initialLineLength);
+        return true;
+    }
+
+    /**
+     * Writes the pre-encoded header block and, if enabled, the cached {@code date} header.
+     */
+    void writeHeaders(ByteBuf buf) {
+        buf.writeBytes(encoded, initialLineLength, encoded.length - initialLineLength);
+        if (dateHeader) {
+            buf.writeBytes(DATE_HEADER.get().encoded());
+        }
+    }
+
+    private static final class DateHeader {
+        private long second = -1;
+        private byte[] encoded;
+
+        byte[] encoded() {
+            long second = System.currentTimeMillis() / 1000;
+            if (second != this.second) {
+                this.second = second;
+                String value = DateFormatter.format(new Date(second * 1000));
+                encoded = (HttpHeaderNames.DATE + ": " + value + "\r\n").getBytes(CharsetUtil.US_ASCII);
+            }
+            return encoded;
+        }
+    }
+
+    private static final class TemplateHttpResponse extends DefaultHttpResponse {
+        final HttpResponseTemplate template;
+
+        TemplateHttpResponse(HttpResponseTemplate template, HttpResponseStatus status) {
+            super(template.version, status);
+            this.template = template;
+        }
+    }
+
+    private static final class TemplateFullHttpResponse extends DefaultFullHttpResponse {
+        final HttpResponseTemplate template;
+
+        TemplateFullHttpResponse(HttpResponseTemplate template, HttpResponseStatus status, ByteBuf content,
+                                 HttpHeaders headers, HttpHeaders trailingHeaders) {
+            super(template.version, status, content, headers, trailingHeaders);
+            this.template = template;
+        }
+
+        @Override
+        public FullHttpResponse replace(ByteBuf content) {
+            FullHttpResponse response = new TemplateFullHttpResponse(template, status(), content,
+                    headers().copy(), trailingHeaders().copy());
+            response.setProtocolVersion(protocolVersion());
+            response.setDecoderResult(decoderResult());
+            return response;
+        }
+    }
+}
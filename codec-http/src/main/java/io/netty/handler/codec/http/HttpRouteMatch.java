@@ -0,0 +1,252 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of routing a request with a {@link HttpRouter}.
+ * <p>
+ * Path parameters are stored as offsets into the {@link #uri()} which can be accessed with {@link #paramStart(int)}
+ * and {@link #paramEnd(int)}, or decoded with {@link #param(String)}. The query is not parsed by the router, its
+ * parameters are decoded on demand by a {@link LazyQueryStringDecoder} which is reused with the match.
+ * <p>
+ * An instance can be reused for the next request once the current one was handled.
+ */
+@UnstableApi
+public final class HttpRouteMatch<T> {
+
+    private final String[] paramNames;
+    // Start and end of every parameter in uri.
+    private final int[] paramOffsets;
+    private int paramCount;
+    private String uri;
+    private int pathStart;
+    private int pathEnd;
+    private T target;
+    private boolean methodNotAllowed;
+    // The methods of the routes which match the path, only allocated if the method of the request did not match.
+    private List<HttpMethod> allowedMethods;
+    private LazyQueryStringDecoder queryDecoder;
+
+    HttpRouteMatch(int maxParams) {
+        paramNames = new String[maxParams];
+        paramOffsets = new int[maxParams << 1];
+    }
+
+    void reset(String uri, int pathStart, int pathEnd) {
+        this.uri = uri;
+        this.pathStart = pathStart;
+        this.pathEnd = pathEnd;
+        paramCount = 0;
+        target = null;
+        methodNotAllowed = false;
+        if (allowedMethods != null) {
+            allowedMethods.clear();
+        }
+        if (queryDecoder != null) {
+            queryDecoder.reset(uri);
+        }
+    }
+
+    void addParam(String name, int start, int end) {
+        paramNames[paramCount] = name;
+        paramOffsets[paramCount << 1] = start;
+        paramOffsets[(paramCount << 1) + 1] = end;
+        paramCount++;
+    }
+
+    void paramCount(int paramCount) {
+        this.paramCount = paramCount;
+    }
+
+    void target(T target) {
+        this.target = target;
+    }
+
+    void methodNotAllowed(HttpMethod[] methods) {
+        methodNotAllowed = true;
+        if (allowedMethods == null) {
+            allowedMethods = new ArrayList<HttpMethod>(methods.length);
+        }
+        for (HttpMethod method : methods) {
+            if (!allowedMethods.contains(method)) {
+                allowedMethods.add(method);
+            }
+        }
+    }
+
+    /**
+     * Returns the target of the matched route.
+     */
+    public T target() {
+        return target;
+    }
+
+    /**
+     * Returns {@code true} if the request was not matched, but there is a route for its path with another method.
+     */
+    public boolean isMethodNotAllowed() {
+        return target == null && methodNotAllowed;
+    }
+
+    /**
+     * Returns the methods with which a route would have matched the path of the request if
+     * {@link #isMethodNotAllowed()}, or an empty list otherwise.
+     */
+    public List<HttpMethod> allowedMethods() {
+        if (!isMethodNotAllowed()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(allowedMethods);
+    }
+
+    /**
+     * Returns the routed request URI.
+     */
+    public String uri() {
+        return uri;
+    }
+
+    /**
+     * Returns the decoded path of the request URI.
+     */
+    public String path() {
+        return pathStart < 0 ? "" : QueryStringDecoder.decodeComponent(
+                uri, pathStart, pathEnd, HttpConstants.DEFAULT_CHARSET, true);
+    }
+
+    /**
+     * Returns the raw query of the request URI without the leading {@code '?'}, or an empty string if there is none.
+     */
+    public String rawQuery() {
+        int queryStart = pathEnd + 1;
+        int queryEnd = queryEnd();
+        return queryStart < queryEnd ? uri.substring(queryStart, queryEnd) : "";
+    }
+
+    private int queryEnd() {
+        if (pathEnd == uri.length() || uri.charAt(pathEnd) != '?') {
+            return pathEnd;
+        }
+        int end = uri.indexOf('#', pathEnd);
+        return end < 0 ? uri.length() : end;
+    }
+
+    /**
+     * Returns the number of path parameters.
+     */
+    public int paramCount() {
+        return paramCount;
+    }
+
+    /**
+     * Returns the name of the path parameter with the given index.
+     */
+    public String paramName(int index) {
+        checkParamIndex(index);
+        return paramNames[index];
+    }
+
+    /**
+     * Returns the index in the {@link #uri()} at which the raw value of the path parameter with the given index
+     * starts.
+     */
+    public int paramStart(int index) {
+        checkParamIndex(index);
+        return paramOffsets[index << 1];
+    }
+
+    /**
+     * Returns the index in the {@link #uri()} at which the raw value of the path parameter with the given index
+     * ends.
+     */
+    public int paramEnd(int index) {
+        checkParamIndex(index);
+        return paramOffsets[(index << 1) + 1];
+    }
+
+    /**
+     * Returns the decoded value of the path parameter with the given index.
+     */
+    public String param(int index) {
+        checkParamIndex(index);
+        return QueryStringDecoder.decodeComponent(uri, paramOffsets[index << 1], paramOffsets[(index << 1) + 1],
+                HttpConstants.DEFAULT_CHARSET, true);
+    }
+
+    /**
+     * Returns the decoded value of the path parameter with the given name, or {@code null} if there is none.
+     */
+    public String param(String name) {
+        for (int i = 0; i < paramCount; i++) {
+            if (paramNames[i].equals(name)) {
+                return param(i);
+            }
+        }
+        return null;
+    }
+
+    private void checkParamIndex(int index) {
+        if (index < 0 || index >= paramCount) {
+            throw new IndexOutOfBoundsException("index: " + index + " (expected: 0-" + (paramCount - 1) + ')');
+        }
+    }
+
+    /**
+     * Returns the first decoded value of the query parameter with the given name, or {@code null} if there is none.
+     */
+    public String queryParam(String name) {
+        CharSequence value = queryDecoder().get(name);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Returns all decoded values of the query parameter with the given name.
+     */
+    public List<String> queryParams(String name) {
+        List<CharSequence> values = queryDecoder().getAll(name);
+        if (values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> strings = new ArrayList<String>(values.size());
+        for (CharSequence value : values) {
+            strings.add(value.toString());
+        }
+        return strings;
+    }
+
+    private LazyQueryStringDecoder queryDecoder() {
+        if (queryDecoder == null) {
+            queryDecoder = new LazyQueryStringDecoder().reset(uri);
+        }
+        return queryDecoder;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder(64).append("HttpRouteMatch(target: ").append(target);
+        for (int i = 0; i < paramCount; i++) {
+            buf.append(", ").append(paramNames[i]).append(": ")
+               .append(uri, paramOffsets[i << 1], paramOffsets[(i << 1) + 1]);
+        }
+        return buf.append(')').toString();
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Matches request URIs against a set of routes which were added with a {@link HttpRouterBuilder}.
+ * <p>
+ * The routes are compiled into a radix tree which is walked over the characters of the request URI as received,
+ * which are the raw bytes of the request line as {@link HttpObjectDecoder} creates one {@code char} per byte. So
+ * neither the path nor the query is decoded, and percent-encoded characters only match the same encoding in a route.
+ * Literal segments take precedence over path parameters, which take precedence over a trailing wildcard.
+ * <p>
+ * Routing into a reused {@link HttpRouteMatch} does not allocate: path parameters are recorded as offsets into the
+ * URI and the query is only parsed when a parameter of it is requested.
+ * <p>
+ * Instances are immutable and can be shared by all channels.
+ */
+@UnstableApi
+public final class HttpRouter<T> {
+
+    private final Node<T> root;
+    private final int maxParams;
+
+    HttpRouter(Node<T> root, int maxParams) {
+        this.root = root;
+        this.maxParams = maxParams;
+    }
+
+    /**
+     * Returns a new {@link HttpRouteMatch} which has enough room for the parameters of every route of this router.
+     */
+    public HttpRouteMatch<T> newMatch() {
+        return new HttpRouteMatch<T>(maxParams);
+    }
+
+    /**
+     * Routes the given {@link HttpRequest}.
+     *
+     * @return the matched route, or {@code null} if no route matches.
+     */
+    public HttpRouteMatch<T> route(HttpRequest request) {
+        HttpRouteMatch<T> match = newMatch();
+        return route(request.method(), request.uri(), match) ? match : null;
+    }
+
+    /**
+     * Routes a request with the given {@code method} and {@code uri} into the given {@link HttpRouteMatch}, which is
+     * reset first.
+     *
+     * @param uri the request URI in origin-form ({@code /path?query}) or absolute-form
+     * ({@code http://host/path?query}).
+     * @return {@code true} if a route matched. Otherwise {@link HttpRouteMatch#isMethodNotAllowed()} tells whether a
+     * route would have matched with another method, and {@link HttpRouteMatch#allowedMethods()} returns the methods
+     * with which it would have matched.
+     */
+    public boolean route(HttpMethod method, String uri, HttpRouteMatch<T> match) {
+        ObjectUtil.checkNotNull(method, "method");
+        ObjectUtil.checkNotNull(uri, "uri");
+        int pathStart = pathStart(uri);
+        int pathEnd = pathEnd(uri, pathStart);
+        match.reset(uri, pathStart, pathEnd);
+        return pathStart >= 0 && match(root, method, uri, pathStart, pathEnd, match);
+    }
+
+    private static int pathStart(String uri) {
+        if (uri.startsWith("/")) {
+            return 0;
+        }
+        int schemeEnd = uri.indexOf("://");
+        if (schemeEnd <= 0) {
+            return -1;
+        }
+        int pathStart = uri.indexOf('/', schemeEnd + 3);
+        if (pathStart < 0) {
+            return -1;
+        }
+        // The authority ends with the first '/', '?' or '#'.
+        for (int i = schemeEnd + 3; i < pathStart; i++) {
+            char c = uri.charAt(i);
+            if (c == '?' || c == '#') {
+                return -1;
+            }
+        }
+        return pathStart;
+    }
+
+    private static int pathEnd(String uri, int pathStart) {
+        int len = uri.length();
+        for (int i = Math.max(pathStart, 0); i < len; i++) {
+            char c = uri.charAt(i);
+            if (c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return len;
+    }
+
+    private static <T> boolean match(Node<T> node, HttpMethod method, String uri, int index, int end,
+                                     HttpRouteMatch<T> match) {
+        if (index == end && select(node.targets, method, match)) {
+            return true;
+        }
+        if (index < end) {
+            Node<T> child = node.child(uri.charAt(index));
+            if (child != null) {
+                String prefix = child.prefix;
+                if (end - index >= prefix.length() && uri.regionMatches(index, prefix, 0, prefix.length()) &&
+                    match(child, method, uri, index + prefix.length(), end, match)) {
+                    return true;
+                }
+            }
+
+            Node<T> param = node.param;
+            if (param != null) {
+                int segmentEnd = index;
+                while (segmentEnd < end && uri.charAt(segmentEnd) != '/') {
+                    segmentEnd++;
+                }
+                if (segmentEnd > index) {
+                    int params = match.paramCount();
+                    match.addParam(param.prefix, index, segmentEnd);
+                    if (match(param, method, uri, segmentEnd, end, match)) {
+                        return true;
+                    }
+                    match.paramCount(params);
+                }
+            }
+        }
+        if (node.wildcardTargets != null) {
+            int params = match.paramCount();
+            match.addParam(HttpRouterBuilder.WILDCARD, index, end);
+            if (select(node.wildcardTargets, method, match)) {
+                return true;
+            }
+            match.paramCount(params);
+        }
+        return false;
+    }
+
+    private static <T> boolean select(Targets<T> targets, HttpMethod method, HttpRouteMatch<T> match) {
+        if (targets == null) {
+            return false;
+        }
+        T target = targets.get(method);
+        if (target == null) {
+            match.methodNotAllowed(targets.methods);
+            return false;
+        }
+        match.target(target);
+        return true;
+    }
+
+    /**
+     * A node of the radix tree. Literal children are keyed by the first character of their prefix, the parameter
+     * child matches one non-empty path segment and uses its prefix as the name of the parameter.
+     */
+    static final class Node<T> {
+        String prefix;
+        char[] firstChars = new char[0];
+        Node<T>[] children = newNodes(0);
+        Node<T> param;
+        Targets<T> targets;
+        Targets<T> wildcardTargets;
+
+        Node(String prefix) {
+            this.prefix = prefix;
+        }
+
+        Node<T> child(char c) {
+            char[] firstChars = this.firstChars;
+            for (int i = 0; i < firstChars.length; i++) {
+                if (firstChars[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(Node<T> child) {
+            int n = children.length;
+            char[] firstChars = new char[n + 1];
+            Node<T>[] children = newNodes(n + 1);
+            System.arraycopy(this.firstChars, 0, firstChars, 0, n);
+            System.arraycopy(this.children, 0, children, 0, n);
+            firstChars[n] = child.prefix.charAt(0);
+            children[n] = child;
+            this.firstChars = firstChars;
+            this.children = children;
+        }
+
+        void replaceChild(Node<T> child) {
+            children[indexOf(child.prefix.charAt(0))] = child;
+        }
+
+        private int indexOf(char c) {
+            for (int i = 0; i < firstChars.length; i++) {
+                if (firstChars[i] == c) {
+                    return i;
+                }
+            }
+            throw new IllegalStateException();
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newNodes(int length) {
+            return new Node[length];
+        }
+    }
+
+    /**
+     * The targets of a route for each method, and optionally for any other method.
+     */
+    static final class Targets<T> {
+        HttpMethod[] methods = new HttpMethod[0];
+        Object[] targets = new Object[0];
+        T anyMethod;
+
+        @SuppressWarnings("unchecked")
+        T get(HttpMethod method) {
+            HttpMethod[] methods = this.methods;
+            for (int i = 0; i < methods.length; i++) {
+                if (methods[i] == method) {
+                    return (T) targets[i];
+                }
+            }
+            // HttpMethod.valueOf(...) returns the constants for the standard methods, so only others need equals.
+            for (int i = 0; i < methods.length; i++) {
+                if (methods[i].equals(method)) {
+                    return (T) targets[i];
+                }
+            }
+            return anyMethod;
+        }
+
+        boolean add(HttpMethod method, T target) {
+            if (method == null) {
+                if (anyMethod != null) {
+                    return false;
+                }
+                anyMethod = target;
+                return true;
+            }
+            for (HttpMethod m: methods) {
+                if (m.equals(method)) {
+                    return false;
+                }
+            }
+            int n = methods.length;
+            HttpMethod[] methods = new HttpMethod[n + 1];
+            Object[] targets = new Object[n + 1];
+            System.arraycopy(this.methods, 0, methods, 0, n);
+            System.arraycopy(this.targets, 0, targets, 0, n);
+            methods[n] = method;
+            targets[n] = target;
+            this.methods = methods;
+            this.targets = targets;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.handler.codec.http.HttpRouter.Node;
+import io.netty.handler.codec.http.HttpRouter.Targets;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Builder used to add routes to and build a {@link HttpRouter}.
+ * <p>
+ * A route pattern is a path which starts with {@code '/'}. A segment of the form {@code {name}} is a path parameter
+ * which matches one non-empty segment, and a last segment {@code *} matches the remainder of the path, which is
+ * available as the parameter {@value #WILDCARD}. For example {@code /users/{id}/files/*}.
+ */
+@UnstableApi
+public final class HttpRouterBuilder<T> {
+
+    /**
+     * The name of the parameter which holds the path matched by a trailing wildcard.
+     */
+    public static final String WILDCARD = "*";
+
+    private final Node<T> root = new Node<T>("");
+    private int maxParams;
+
+    /**
+     * Adds a route which matches requests with any method which has no route of its own for the same pattern.
+     *
+     * @return {@link HttpRouterBuilder} to support method chaining.
+     */
+    public HttpRouterBuilder<T> addRoute(String pattern, T target) {
+        return addRoute0(null, pattern, target);
+    }
+
+    /**
+     * Adds a route which matches requests with the given {@link HttpMethod}.
+     *
+     * @return {@link HttpRouterBuilder} to support method chaining.
+     */
+    public HttpRouterBuilder<T> addRoute(HttpMethod method, String pattern, T target) {
+        return addRoute0(ObjectUtil.checkNotNull(method, "method"), pattern, target);
+    }
+
+    private HttpRouterBuilder<T> addRoute0(HttpMethod method, String pattern, T target) {
+        ObjectUtil.checkNotNull(pattern, "pattern");
+        ObjectUtil.checkNotNull(target, "target");
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("pattern must start with '/': " + pattern);
+        }
+
+        Node<T> node = root;
+        int params = 0;
+        boolean wildcard = false;
+        int literalStart = 0;
+        int segmentStart = 1;
+        while (segmentStart <= pattern.length()) {
+            int segmentEnd = pattern.indexOf('/', segmentStart);
+            if (segmentEnd < 0) {
+                segmentEnd = pattern.length();
+            }
+            String segment = pattern.substring(segmentStart, segmentEnd);
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                String name = segment.substring(1, segment.length() - 1);
+                checkLiteral(pattern, name);
+                if (name.isEmpty() || WILDCARD.equals(name)) {
+                    throw new IllegalArgumentException("invalid parameter name in pattern: " + pattern);
+                }
+                node = insertParam(insertLiteral(node, pattern.substring(literalStart, segmentStart)), name, pattern);
+                params++;
+                literalStart = segmentEnd;
+            } else if (WILDCARD.equals(segment)) {
+                if (segmentEnd != pattern.length()) {
+                    throw new IllegalArgumentException("wildcard must be the last segment: " + pattern);
+                }
+                node = insertLiteral(node, pattern.substring(literalStart, segmentStart));
+                params++;
+                wildcard = true;
+                literalStart = segmentEnd;
+            } else {
+                checkLiteral(pattern, segment);
+            }
+            segmentStart = segmentEnd + 1;
+        }
+        node = insertLiteral(node, pattern.substring(literalStart));
+
+        Targets<T> targets = wildcard ? node.wildcardTargets : node.targets;
+        if (targets == null) {
+            targets = new Targets<T>();
+            if (wildcard) {
+                node.wildcardTargets = targets;
+            } else {
+                node.targets = targets;
+            }
+        }
+        if (!targets.add(method, target)) {
+            throw new IllegalArgumentException("duplicate route: " + (method == null ? "" : method + " ") + pattern);
+        }
+        maxParams = Math.max(maxParams, params);
+        return this;
+    }
+
+    private static void checkLiteral(String pattern, String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '{' || c == '}' || c == '?' || c == '#') {
+                throw new IllegalArgumentException("invalid character '" + c + "' in pattern: " + pattern);
+            }
+        }
+    }
+
+    private static <T> Node<T> insertLiteral(Node<T> node, String literal) {
+        int i = 0;
+        while (i < literal.length()) {
+            Node<T> child = node.child(literal.charAt(i));
+            if (child == null) {
+                child = new Node<T>(literal.substring(i));
+                node.addChild(child);
+                return child;
+            }
+            String prefix = child.prefix;
+            int max = Math.min(prefix.length(), literal.length() - i);
+            int common = 1;
+            while (common < max && prefix.charAt(common) == literal.charAt(i + common)) {
+                common++;
+            }
+            if (common < prefix.length()) {
+                // Split the child so that its prefix ends where the literal diverges.
+                Node<T> split = new Node<T>(prefix.substring(0, common));
+                child.prefix = prefix.substring(common);
+                split.addChild(child);
+                node.replaceChild(split);
+                child = split;
+            }
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    private static <T> Node<T> insertParam(Node<T> node, String name, String pattern) {
+        Node<T> param = node.param;
+        if (param == null) {
+            node.param = param = new Node<T>(name);
+        } else if (!param.prefix.equals(name)) {
+            throw new IllegalArgumentException(
+                    "parameter {" + name + "} conflicts with {" + param.prefix + "} of another route: " + pattern);
+        }
+        return param;
+    }
+
+    /**
+     * Returns a new {@link HttpRouter} with the routes added so far.
+     */
+    public HttpRouter<T> build() {
+        return new HttpRouter<T>(copy(root), maxParams);
+    }
+
+    private static <T> Node<T> copy(Node<T> node) {
+        Node<T> copy = new Node<T>(node.prefix);
+        copy.firstChars = node.firstChars.clone();
+        copy.children = node.children.clone();
+        for (int i = 0; i < copy.children.length; i++) {
+            copy.children[i] = copy(copy.children[i]);
+        }
+        if (node.param != null) {
+            copy.param = copy(node.param);
+        }
+        copy.targets = copy(node.targets);
+        copy.wildcardTargets = copy(node.wildcardTargets);
+        return copy;
+    }
+
+    private static <T> Targets<T> copy(Targets<T> targets) {
+        if (targets == null) {
+            return null;
+        }
+        Targets<T> copy = new Targets<T>();
+        copy.methods = targets.methods.clone();
+        copy.targets = targets.targets.clone();
+        copy.anyMethod = targets.anyMethod;
+        return copy;
+    }
+}
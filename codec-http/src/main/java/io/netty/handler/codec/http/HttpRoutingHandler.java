@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Dispatches received {@link HttpRequest}s by their method and URI using a {@link HttpRouter}.
+ * <p>
+ * A matched request is passed to {@link #channelRouted(ChannelHandlerContext, HttpRequest, HttpRouteMatch)}, and the
+ * {@link HttpContent}s which follow it are passed on to the next handler in the pipeline. Place it after a
+ * {@link HttpObjectAggregator} to route {@link FullHttpRequest}s instead. Requests which do not match are answered by
+ * {@link #notRouted(ChannelHandlerContext, HttpRequest, boolean)}, and their content is discarded.
+ * <p>
+ * The {@link HttpRouteMatch} is reused for every request of the channel, so it must not be used anymore once the
+ * next request was received.
+ * <pre>
+ * HttpRouter&lt;Action&gt; router = new HttpRouterBuilder&lt;Action&gt;()
+ *         .addRoute(HttpMethod.GET, "/users/{id}", Action.GET_USER)
+ *         .addRoute(HttpMethod.GET, "/static/*", Action.STATIC)
+ *         .build();
+ *
+ * pipeline.addLast(new HttpServerCodec());
+ * pipeline.addLast(new HttpObjectAggregator(65536));
+ * pipeline.addLast(new HttpRoutingHandler&lt;Action&gt;(router) {
+ *     protected void channelRouted(ChannelHandlerContext ctx, HttpRequest request,
+ *                                  HttpRouteMatch&lt;Action&gt; match) {
+ *         ...
+ *     }
+ * });
+ * </pre>
+ */
+@UnstableApi
+public abstract class HttpRoutingHandler<T> extends ChannelInboundHandlerAdapter {
+
+    private final HttpRouter<T> router;
+    private final HttpRouteMatch<T> match;
+    private boolean discarding;
+
+    protected HttpRoutingHandler(HttpRouter<T> router) {
+        this.router = ObjectUtil.checkNotNull(router, "router");
+        match = router.newMatch();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            discarding = false;
+            if (router.route(request.method(), request.uri(), match)) {
+                channelRouted(ctx, request, match);
+            } else {
+                discarding = !(msg instanceof LastHttpContent);
+                notRouted(ctx, request, match.isMethodNotAllowed());
+            }
+        } else if (discarding && msg instanceof HttpContent) {
+            discarding = !(msg instanceof LastHttpContent);
+            ReferenceCountUtil.release(msg);
+        } else {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    /**
+     * Is called for every request which matched a route. The implementation is responsible for releasing the
+     * request.
+     */
+    protected abstract void channelRouted(ChannelHandlerContext ctx, HttpRequest request, HttpRouteMatch<T> match)
+            throws Exception;
+
+    /**
+     * Is called for every request which did not match a route. The default implementation releases the request
+     * and responds with {@code 405 Method Not Allowed}, which lists the methods of the routes which match the path in
+     * its {@code Allow} header, or {@code 404 Not Found}.
+     *
+     * @param methodNotAllowed {@code true} if a route matches the URI of the request but not its method.
+     */
+    protected void notRouted(ChannelHandlerContext ctx, HttpRequest request, boolean methodNotAllowed)
+            throws Exception {
+        ReferenceCountUtil.release(request);
+        FullHttpResponse response = new DefaultFullHttpResponse(request.protocolVersion(),
+                methodNotAllowed ? HttpResponseStatus.METHOD_NOT_ALLOWED : HttpResponseStatus.NOT_FOUND);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, HttpHeaderValues.ZERO);
+        if (methodNotAllowed) {
+            StringBuilder allow = new StringBuilder();
+            for (HttpMethod method : match.allowedMethods()) {
+                if (allow.length() > 0) {
+                    allow.append(", ");
+                }
+                allow.append(method.name());
+            }
+            response.headers().set(HttpHeaderNames.ALLOW, allow.toString());
+        }
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        HttpUtil.setKeepAlive(response, keepAlive);
+        ChannelFuture future = ctx.writeAndFlush(response);
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+}
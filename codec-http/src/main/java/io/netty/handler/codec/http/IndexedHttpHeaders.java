@@ -0,0 +1,797 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.handler.codec.DefaultHeaders.NameValidator;
+import io.netty.handler.codec.HeadersUtils;
+import io.netty.handler.codec.ValueConverter;
+import io.netty.util.AsciiString;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * An {@link HttpHeaders} implementation which stores the headers with one of the names defined in
+ * {@link HttpHeaderNames} in a fixed slot, and all other headers in a small open addressing hash table.
+ * <p>
+ * The slot of a well-known name is found by a perfect hash of the case-insensitive hash code of the name, which is
+ * cached by {@link AsciiString}, so looking up, adding or removing such a header costs a multiplication, an array
+ * lookup and a reference comparison if the name is one of the {@link HttpHeaderNames} constants. The names and
+ * values are kept in insertion order, and the behaviour is the same as the one of {@link DefaultHttpHeaders}, which
+ * this class can replace, for example by passing it to
+ * {@link DefaultHttpRequest#DefaultHttpRequest(HttpVersion, HttpMethod, String, HttpHeaders)}.
+ * <p>
+ * Every instance allocates a slot for each of the well-known names, and adding a header whose name is not one of
+ * the constants costs a comparison with the well-known name it may match, so this class pays off for messages whose
+ * headers are looked up several times, for example by a pipeline of handlers, rather than for messages which are
+ * only decoded and forwarded.
+ */
+@UnstableApi
+public class IndexedHttpHeaders extends HttpHeaders {
+
+    private static final AsciiString[] KNOWN_NAMES = HttpHeaderNames.names();
+
+    /**
+     * A multiplier which maps the hash codes of the {@link #KNOWN_NAMES} to distinct slots of a table with
+     * {@code 256} slots. It was found by a search, which is repeated when the class is initialized if the hash codes
+     * differ on the current platform or if names were added to {@link HttpHeaderNames}.
+     */
+    private static final int PRECOMPUTED_MULTIPLIER = 0x9da70f1b;
+    private static final int PRECOMPUTED_SLOT_BITS = 8;
+
+    private static final int[] KNOWN_HASHES = new int[KNOWN_NAMES.length];
+    private static final int MULTIPLIER;
+    private static final int SLOT_SHIFT;
+    // The index of the known name which is mapped to a slot, or -1 if there is none.
+    private static final short[] SLOTS;
+
+    static {
+        for (int i = 0; i < KNOWN_NAMES.length; i++) {
+            KNOWN_HASHES[i] = KNOWN_NAMES[i].hashCode();
+        }
+        int multiplier = PRECOMPUTED_MULTIPLIER;
+        int bits = PRECOMPUTED_SLOT_BITS;
+        short[] slots = newSlots(multiplier, bits);
+        for (int tries = 0; slots == null; tries++) {
+            // More slots make it much more likely to find a multiplier quickly.
+            if ((tries & 0xffff) == 0) {
+                bits++;
+            }
+            multiplier += 0x9e3779b9 << 1;
+            slots = newSlots(multiplier, bits);
+        }
+        MULTIPLIER = multiplier;
+        SLOT_SHIFT = 32 - bits;
+        SLOTS = slots;
+    }
+
+    private static short[] newSlots(int multiplier, int bits) {
+        short[] slots = new short[1 << bits];
+        Arrays.fill(slots, (short) -1);
+        for (int i = 0; i < KNOWN_HASHES.length; i++) {
+            int slot = (KNOWN_HASHES[i] * multiplier) >>> (32 - bits);
+            if (slots[slot] != -1) {
+                return null;
+            }
+            slots[slot] = (short) i;
+        }
+        return slots;
+    }
+
+    /**
+     * Returns the index of the given well-known name in {@link #KNOWN_NAMES}, or {@code -1} if it is none.
+     */
+    private static int knownIndex(CharSequence name, int hash) {
+        int index = SLOTS[(hash * MULTIPLIER) >>> SLOT_SHIFT];
+        if (index < 0) {
+            return -1;
+        }
+        AsciiString knownName = KNOWN_NAMES[index];
+        return knownName == name ||
+               KNOWN_HASHES[index] == hash && knownName.contentEqualsIgnoreCase(name) ? index : -1;
+    }
+
+    private static final int MIN_CUSTOM_CAPACITY = 8;
+
+    private final boolean validate;
+    private final ValueConverter<CharSequence> valueConverter;
+    private final NameValidator<CharSequence> nameValidator;
+    // The first header of every well-known name.
+    private final HeaderEntry[] known = new HeaderEntry[KNOWN_NAMES.length];
+    // The first header of every other name, with linear probing.
+    private HeaderEntry[] custom;
+    private int customNames;
+    // The sentinel of the list of all headers in insertion order.
+    private final HeaderEntry head = new HeaderEntry(0, null, null);
+    private int size;
+
+    /**
+     * Creates a new instance which validates the names and values of the headers.
+     */
+    public IndexedHttpHeaders() {
+        this(true);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param validate {@code true} if the names and values of the headers should be validated.
+     */
+    public IndexedHttpHeaders(boolean validate) {
+        this.validate = validate;
+        valueConverter = DefaultHttpHeaders.valueConverter(validate);
+        nameValidator = DefaultHttpHeaders.nameValidator(validate);
+        head.before = head.after = head;
+    }
+
+    private HeaderEntry first(CharSequence name, int hash) {
+        int index = knownIndex(name, hash);
+        if (index >= 0) {
+            return known[index];
+        }
+        int slot = customSlot(name, hash);
+        return slot < 0 ? null : custom[slot];
+    }
+
+    private HeaderEntry first(CharSequence name) {
+        checkNotNull(name, "name");
+        return first(name, AsciiString.hashCode(name));
+    }
+
+    private static int mix(int hash) {
+        return hash ^ hash >>> 16;
+    }
+
+    // Returns the slot of the custom name, or -1 if there is none.
+    private int customSlot(CharSequence name, int hash) {
+        HeaderEntry[] custom = this.custom;
+        if (custom == null) {
+            return -1;
+        }
+        int mask = custom.length - 1;
+        for (int slot = mix(hash) & mask;; slot = slot + 1 & mask) {
+            HeaderEntry e = custom[slot];
+            if (e == null) {
+                return -1;
+            }
+            if (e.hash == hash && AsciiString.contentEqualsIgnoreCase(e.name, name)) {
+                return slot;
+            }
+        }
+    }
+
+    private void addCustom(HeaderEntry first) {
+        if (custom == null) {
+            custom = new HeaderEntry[MIN_CUSTOM_CAPACITY];
+        } else if (customNames + 1 > custom.length >>> 1) {
+            HeaderEntry[] old = custom;
+            custom = new HeaderEntry[old.length << 1];
+            for (HeaderEntry e : old) {
+                if (e != null) {
+                    insertCustom(e);
+                }
+            }
+        }
+        insertCustom(first);
+        customNames++;
+    }
+
+    private void insertCustom(HeaderEntry first) {
+        HeaderEntry[] custom = this.custom;
+        int mask = custom.length - 1;
+        int slot = mix(first.hash) & mask;
+        while (custom[slot] != null) {
+            slot = slot + 1 & mask;
+        }
+        custom[slot] = first;
+    }
+
+    // Removes the name at the given slot and moves the following names of the same cluster to keep them reachable.
+    private void removeCustom(int slot) {
+        HeaderEntry[] custom = this.custom;
+        int mask = custom.length - 1;
+        custom[slot] = null;
+        customNames--;
+        for (int i = slot + 1 & mask;; i = i + 1 & mask) {
+            HeaderEntry e = custom[i];
+            if (e == null) {
+                return;
+            }
+            int ideal = mix(e.hash) & mask;
+            // Move the entry into the gap unless its ideal slot lies cyclically in (slot, i].
+            if (slot <= i ? ideal <= slot || ideal > i : ideal <= slot && ideal > i) {
+                custom[slot] = e;
+                custom[i] = null;
+                slot = i;
+            }
+        }
+    }
+
+    private int hashName(CharSequence name) {
+        if (name == null) {
+            // Throws the same exception as DefaultHttpHeaders.
+            nameValidator.validateName(null);
+        }
+        return AsciiString.hashCode(name);
+    }
+
+    // Returns the index of the name in KNOWN_NAMES or -1, after validating the name if it is not a well-known one.
+    private int validatedIndex(CharSequence name, int hash) {
+        int index = knownIndex(name, hash);
+        if (index < 0 && validate) {
+            nameValidator.validateName(name);
+        }
+        return index;
+    }
+
+    private void add0(int hash, int index, CharSequence name, CharSequence value) {
+        HeaderEntry e = new HeaderEntry(hash, name, value);
+        e.after = head;
+        e.before = head.before;
+        head.before.after = e;
+        head.before = e;
+        size++;
+
+        HeaderEntry first;
+        if (index >= 0) {
+            first = known[index];
+            if (first == null) {
+                known[index] = e;
+            }
+        } else {
+            int slot = customSlot(name, hash);
+            first = slot < 0 ? null : custom[slot];
+            if (first == null) {
+                addCustom(e);
+            }
+        }
+        if (first == null) {
+            e.last = e;
+        } else {
+            first.last.next = e;
+            first.last = e;
+        }
+    }
+
+    private boolean remove0(int hash, int index, CharSequence name) {
+        HeaderEntry e;
+        if (index >= 0) {
+            e = known[index];
+            if (e == null) {
+                return false;
+            }
+            known[index] = null;
+        } else {
+            int slot = customSlot(name, hash);
+            if (slot < 0) {
+                return false;
+            }
+            e = custom[slot];
+            removeCustom(slot);
+        }
+        do {
+            e.unlink();
+            size--;
+            e = e.next;
+        } while (e != null);
+        return true;
+    }
+
+    private CharSequence convert(Object value) {
+        return valueConverter.convertObject(checkNotNull(value, "value"));
+    }
+
+    @Override
+    public HttpHeaders add(HttpHeaders headers) {
+        if (headers instanceof IndexedHttpHeaders) {
+            if (headers == this) {
+                throw new IllegalArgumentException("can't add to itself.");
+            }
+            // The names were validated when they were added to the other instance.
+            IndexedHttpHeaders other = (IndexedHttpHeaders) headers;
+            for (HeaderEntry e = other.head.after; e != other.head; e = e.after) {
+                add0(e.hash, knownIndex(e.name, e.hash), e.name, e.value);
+            }
+            return this;
+        }
+        return super.add(headers);
+    }
+
+    @Override
+    public HttpHeaders set(HttpHeaders headers) {
+        if (headers == this) {
+            return this;
+        }
+        return super.set(headers);
+    }
+
+    @Override
+    public HttpHeaders add(String name, Object value) {
+        return add((CharSequence) name, value);
+    }
+
+    @Override
+    public HttpHeaders add(CharSequence name, Object value) {
+        int hash = hashName(name);
+        int index = validatedIndex(name, hash);
+        add0(hash, index, name, convert(value));
+        return this;
+    }
+
+    @Override
+    public HttpHeaders add(String name, Iterable<?> values) {
+        return add((CharSequence) name, values);
+    }
+
+    @Override
+    public HttpHeaders add(CharSequence name, Iterable<?> values) {
+        int hash = hashName(name);
+        int index = validatedIndex(name, hash);
+        for (Object value : values) {
+            add0(hash, index, name, convert(value));
+        }
+        return this;
+    }
+
+    @Override
+    public HttpHeaders addInt(CharSequence name, int value) {
+        int hash = hashName(name);
+        int index = validatedIndex(name, hash);
+        add0(hash, index, name, valueConverter.convertInt(value));
+        return this;
+    }
+
+    @Override
+    public HttpHeaders addShort(CharSequence name, short value) {
+        int hash = hashName(name);
+        int index = validatedIndex(name, hash);
+        add0(hash, index, name, valueConverter.convertShort(value));
+        return this;
+    }
+
+    @Override
+    public HttpHeaders remove(String name) {
+        return remove((CharSequence) name);
+    }
+
+    @Override
+    public HttpHeaders remove(CharSequence name) {
+        checkNotNull(name, "name");
+        int hash = AsciiString.hashCode(name);
+        remove0(hash, knownIndex(name, hash), name);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders set(String name, Object value) {
+        return set((CharSequence) name, value);
+    }
+
+    @Override
+    public HttpHeaders set(CharSequence name, Object value) {
+        return set0(name, convert(value));
+    }
+
+    private HttpHeaders set0(CharSequence name, CharSequence value) {
+        int hash = hashName(name);
+        int index = validatedIndex(name, hash);
+        remove0(hash, index, name);
+        add0(hash, index, name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders set(String name, Iterable<?> values) {
+        return set((CharSequence) name, values);
+    }
+
+    @Override
+    public HttpHeaders set(CharSequence name, Iterable<?> values) {
+        int hash = hashName(name);
+        int index = validatedIndex(name, hash);
+        checkNotNull(values, "values");
+        remove0(hash, index, name);
+        for (Object value : values) {
+            if (value == null) {
+                break;
+            }
+            add0(hash, index, name, convert(value));
+        }
+        return this;
+    }
+
+    @Override
+    public HttpHeaders setInt(CharSequence name, int value) {
+        return set0(name, valueConverter.convertInt(value));
+    }
+
+    @Override
+    public HttpHeaders setShort(CharSequence name, short value) {
+        return set0(name, valueConverter.convertShort(value));
+    }
+
+    @Override
+    public HttpHeaders clear() {
+        Arrays.fill(known, null);
+        custom = null;
+        customNames = 0;
+        head.before = head.after = head;
+        size = 0;
+        return this;
+    }
+
+    @Override
+    public String get(String name) {
+        return get((CharSequence) name);
+    }
+
+    @Override
+    public String get(CharSequence name) {
+        HeaderEntry e = first(name);
+        return e == null ? null : e.value.toString();
+    }
+
+    private CharSequence getCharSequence(CharSequence name) {
+        HeaderEntry e = first(name);
+        return e == null ? null : e.value;
+    }
+
+    @Override
+    public Integer getInt(CharSequence name) {
+        CharSequence v = getCharSequence(name);
+        try {
+            return v != null ? valueConverter.convertToInt(v) : null;
+        } catch (RuntimeException ignore) {
+            return null;
+        }
+    }
+
+    @Override
+    public int getInt(CharSequence name, int defaultValue) {
+        Integer v = getInt(name);
+        return v != null ? v : defaultValue;
+    }
+
+    @Override
+    public Short getShort(CharSequence name) {
+        CharSequence v = getCharSequence(name);
+        try {
+            return v != null ? valueConverter.convertToShort(v) : null;
+        } catch (RuntimeException ignore) {
+            return null;
+        }
+    }
+
+    @Override
+    public short getShort(CharSequence name, short defaultValue) {
+        Short v = getShort(name);
+        return v != null ? v : defaultValue;
+    }
+
+    @Override
+    public Long getTimeMillis(CharSequence name) {
+        CharSequence v = getCharSequence(name);
+        try {
+            return v != null ? valueConverter.convertToTimeMillis(v) : null;
+        } catch (RuntimeException ignore) {
+            return null;
+        }
+    }
+
+    @Override
+    public long getTimeMillis(CharSequence name, long defaultValue) {
+        Long v = getTimeMillis(name);
+        return v != null ? v : defaultValue;
+    }
+
+    @Override
+    public List<String> getAll(String name) {
+        return getAll((CharSequence) name);
+    }
+
+    @Override
+    public List<String> getAll(CharSequence name) {
+        HeaderEntry e = first(name);
+        if (e == null) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<String>(4);
+        do {
+            values.add(e.value.toString());
+            e = e.next;
+        } while (e != null);
+        return values;
+    }
+
+    @Override
+    public List<Entry<String, String>> entries() {
+        if (isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Entry<String, String>> entries = new ArrayList<Entry<String, String>>(size);
+        for (Entry<String, String> entry : this) {
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    @Deprecated
+    @Override
+    public Iterator<Entry<String, String>> iterator() {
+        return HeadersUtils.iteratorAsString(new Iterable<Entry<CharSequence, CharSequence>>() {
+            @Override
+            public Iterator<Entry<CharSequence, CharSequence>> iterator() {
+                return new HeaderIterator();
+            }
+        });
+    }
+
+    @Override
+    public Iterator<Entry<CharSequence, CharSequence>> iteratorCharSequence() {
+        return new HeaderIterator();
+    }
+
+    @Override
+    public Iterator<String> valueStringIterator(CharSequence name) {
+        final Iterator<CharSequence> itr = valueCharSequenceIterator(name);
+        return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return itr.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return itr.next().toString();
+            }
+
+            @Override
+            public void remove() {
+                itr.remove();
+            }
+        };
+    }
+
+    @Override
+    public Iterator<CharSequence> valueCharSequenceIterator(CharSequence name) {
+        return new ValueIterator(first(name));
+    }
+
+    @Override
+    public boolean contains(String name) {
+        return contains((CharSequence) name);
+    }
+
+    @Override
+    public boolean contains(CharSequence name) {
+        return first(name) != null;
+    }
+
+    @Override
+    public boolean contains(String name, String value, boolean ignoreCase) {
+        return contains((CharSequence) name, (CharSequence) value, ignoreCase);
+    }
+
+    @Override
+    public boolean contains(CharSequence name, CharSequence value, boolean ignoreCase) {
+        checkNotNull(value, "value");
+        for (HeaderEntry e = first(name); e != null; e = e.next) {
+            if (ignoreCase ? AsciiString.contentEqualsIgnoreCase(e.value, value) :
+                    AsciiString.contentEquals(e.value, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<String> names() {
+        if (isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> names = new LinkedHashSet<String>(size);
+        for (HeaderEntry e = head.after; e != head; e = e.after) {
+            names.add(e.name.toString());
+        }
+        return names;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof IndexedHttpHeaders)) {
+            return false;
+        }
+        IndexedHttpHeaders other = (IndexedHttpHeaders) o;
+        if (size != other.size) {
+            return false;
+        }
+        for (HeaderEntry e = head.after; e != head; e = e.after) {
+            if (e.last == null) {
+                continue;
+            }
+            HeaderEntry otherE = other.first(e.name, e.hash);
+            for (HeaderEntry v = e; v != null; v = v.next, otherE = otherE.next) {
+                if (otherE == null || !AsciiString.contentEquals(v.value, otherE.value)) {
+                    return false;
+                }
+            }
+            if (otherE != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 0;
+        for (HeaderEntry e = head.after; e != head; e = e.after) {
+            if (e.last == null) {
+                continue;
+            }
+            // The order of the names does not matter for equals, so the hash codes of the names are added.
+            int h = e.hash;
+            for (HeaderEntry v = e; v != null; v = v.next) {
+                h = 31 * h + AsciiString.hashCode(v.value);
+            }
+            result += h;
+        }
+        return result;
+    }
+
+    @Override
+    public HttpHeaders copy() {
+        IndexedHttpHeaders copy = new IndexedHttpHeaders(validate);
+        copy.add(this);
+        return copy;
+    }
+
+    private static final class HeaderEntry implements Map.Entry<CharSequence, CharSequence> {
+        final int hash;
+        final CharSequence name;
+        CharSequence value;
+        // The next header with the same name.
+        HeaderEntry next;
+        // The last header with the same name, only set on the first one.
+        HeaderEntry last;
+        // The previous and next header in insertion order.
+        HeaderEntry before;
+        HeaderEntry after;
+
+        HeaderEntry(int hash, CharSequence name, CharSequence value) {
+            this.hash = hash;
+            this.name = name;
+            this.value = value;
+        }
+
+        void unlink() {
+            before.after = after;
+            after.before = before;
+        }
+
+        @Override
+        public CharSequence getKey() {
+            return name;
+        }
+
+        @Override
+        public CharSequence getValue() {
+            return value;
+        }
+
+        @Override
+        public CharSequence setValue(CharSequence value) {
+            checkNotNull(value, "value");
+            CharSequence oldValue = this.value;
+            this.value = value;
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return name.equals(other.getKey()) && value.equals(other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return name.toString() + '=' + value.toString();
+        }
+    }
+
+    private final class HeaderIterator implements Iterator<Entry<CharSequence, CharSequence>> {
+        private HeaderEntry current = head;
+
+        @Override
+        public boolean hasNext() {
+            return current.after != head;
+        }
+
+        @Override
+        public Entry<CharSequence, CharSequence> next() {
+            current = current.after;
+            if (current == head) {
+                throw new NoSuchElementException();
+            }
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("read only");
+        }
+    }
+
+    private static final class ValueIterator implements Iterator<CharSequence> {
+        private HeaderEntry next;
+
+        ValueIterator(HeaderEntry first) {
+            next = first;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public CharSequence next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            HeaderEntry current = next;
+            next = current.next;
+            return current.value;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("read only");
+        }
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.util.AsciiString;
+import io.netty.util.internal.UnstableApi;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static io.netty.util.internal.ObjectUtil.*;
+
+/**
+ * Decodes the parameters of an HTTP query string on demand, as an alternative to {@link QueryStringDecoder} for
+ * handlers which only read a few parameters.
+ * <p>
+ * On first access the offsets of all parameters in the raw URI are recorded, but nothing is decoded until a name
+ * or value is requested, and a value which does not contain any escape sequence is returned as a view of the URI.
+ * The offsets are kept in an array which is reused when the decoder is {@linkplain #reset(CharSequence) reset} for
+ * the next URI, so a decoder which is kept per channel does not allocate any collection for a typical request:
+ * <pre>
+ * {@link LazyQueryStringDecoder} decoder = new {@link LazyQueryStringDecoder}();
+ * decoder.reset("/hello?recipient=world&amp;x=1;y=2");
+ * assert decoder.get("recipient").toString().equals("world");
+ * assert decoder.getInt("x", 0) == 1;
+ * </pre>
+ * The parameters are the same as the ones decoded by {@link QueryStringDecoder}, including their order. If the URI
+ * is an {@link AsciiString}, views of it do not copy its content, otherwise they are {@link String}s.
+ * <p>
+ * Instances are not thread-safe.
+ */
+@UnstableApi
+public final class LazyQueryStringDecoder {
+
+    private static final int DEFAULT_MAX_PARAMS = 1024;
+    // The name start, value start and value end of every parameter.
+    private static final int OFFSETS_PER_PARAM = 3;
+
+    private final Charset charset;
+    private final int maxParams;
+    private CharSequence uri = "";
+    private boolean hasPath;
+    private int pathEnd = -1;
+    private int[] offsets = new int[8 * OFFSETS_PER_PARAM];
+    // -1 if the parameters were not indexed yet.
+    private int size = -1;
+
+    /**
+     * Creates a new decoder which assumes that the query string is encoded in UTF-8.
+     */
+    public LazyQueryStringDecoder() {
+        this(HttpConstants.DEFAULT_CHARSET);
+    }
+
+    /**
+     * Creates a new decoder which assumes that the query string is encoded in the specified charset.
+     */
+    public LazyQueryStringDecoder(Charset charset) {
+        this(charset, DEFAULT_MAX_PARAMS);
+    }
+
+    /**
+     * Creates a new decoder which assumes that the query string is encoded in the specified charset, and which
+     * ignores all parameters after the first {@code maxParams} ones.
+     */
+    public LazyQueryStringDecoder(Charset charset, int maxParams) {
+        this.charset = checkNotNull(charset, "charset");
+        this.maxParams = checkPositive(maxParams, "maxParams");
+    }
+
+    /**
+     * Resets this decoder to decode the specified URI, which consists of a path and an optional query string.
+     */
+    public LazyQueryStringDecoder reset(CharSequence uri) {
+        return reset(uri, true);
+    }
+
+    /**
+     * Resets this decoder to decode the specified URI. If {@code hasPath} is {@code false}, the whole URI is
+     * decoded as a query string, for example the content of an HTTP POST request whose content type is
+     * <tt>application/x-www-form-urlencoded</tt>.
+     */
+    public LazyQueryStringDecoder reset(CharSequence uri, boolean hasPath) {
+        this.uri = checkNotNull(uri, "uri");
+        this.hasPath = hasPath;
+        pathEnd = -1;
+        size = -1;
+        return this;
+    }
+
+    /**
+     * Returns the URI which is decoded.
+     */
+    public CharSequence uri() {
+        return uri;
+    }
+
+    /**
+     * Returns the raw path of the URI.
+     */
+    public CharSequence rawPath() {
+        return subSequence(0, pathEnd());
+    }
+
+    /**
+     * Returns the raw query string of the URI, without the leading {@code '?'}.
+     */
+    public CharSequence rawQuery() {
+        int start = pathEnd() + 1;
+        return start < uri.length() ? subSequence(start, uri.length()) : "";
+    }
+
+    /**
+     * Returns the number of parameters.
+     */
+    public int size() {
+        if (size == -1) {
+            index();
+        }
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if there is no parameter.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the decoded name of the parameter at the specified index.
+     */
+    public CharSequence name(int index) {
+        checkIndex(index);
+        int offset = index * OFFSETS_PER_PARAM;
+        return decode(offsets[offset], offsets[offset + 1] - 1);
+    }
+
+    /**
+     * Returns the decoded value of the parameter at the specified index, which is empty if the parameter has no
+     * value.
+     */
+    public CharSequence value(int index) {
+        checkIndex(index);
+        int offset = index * OFFSETS_PER_PARAM;
+        return decode(offsets[offset + 1], offsets[offset + 2]);
+    }
+
+    /**
+     * Returns the index of the first parameter with the specified name, or {@code -1} if there is none.
+     */
+    public int indexOf(CharSequence name) {
+        return indexOf(name, 0);
+    }
+
+    /**
+     * Returns the index of the first parameter with the specified name at or after the specified index, or
+     * {@code -1} if there is none. This allows to iterate over all values of a parameter without allocating.
+     */
+    public int indexOf(CharSequence name, int fromIndex) {
+        checkNotNull(name, "name");
+        int size = size();
+        for (int i = Math.max(fromIndex, 0); i < size; i++) {
+            int offset = i * OFFSETS_PER_PARAM;
+            if (nameEquals(name, offsets[offset], offsets[offset + 1] - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if there is a parameter with the specified name.
+     */
+    public boolean contains(CharSequence name) {
+        return indexOf(name) != -1;
+    }
+
+    /**
+     * Returns the decoded first value of the parameter with the specified name, or {@code null} if there is none.
+     */
+    public CharSequence get(CharSequence name) {
+        int index = indexOf(name);
+        return index == -1 ? null : value(index);
+    }
+
+    /**
+     * Returns the decoded values of all parameters with the specified name.
+     */
+    public List<CharSequence> getAll(CharSequence name) {
+        int index = indexOf(name);
+        if (index == -1) {
+            return Collections.emptyList();
+        }
+        List<CharSequence> values = new ArrayList<CharSequence>(2);
+        do {
+            values.add(value(index));
+            index = indexOf(name, index + 1);
+        } while (index != -1);
+        return values;
+    }
+
+    /**
+     * Returns the first value of the parameter with the specified name as an {@code int}, or the default value if
+     * there is no such parameter or its value is not a decimal number which fits into an {@code int}. The value is
+     * parsed without decoding it unless it contains an escape sequence.
+     */
+    public int getInt(CharSequence name, int defaultValue) {
+        int index = indexOf(name);
+        if (index == -1) {
+            return defaultValue;
+        }
+        int offset = index * OFFSETS_PER_PARAM;
+        int start = offsets[offset + 1];
+        int end = offsets[offset + 2];
+        CharSequence value = uri;
+        if (firstEscaped(start, end) != -1) {
+            value = QueryStringDecoder.decodeComponent(uri, start, end, charset, false);
+            start = 0;
+            end = value.length();
+        }
+        return parseInt(value, start, end, defaultValue);
+    }
+
+    private static int parseInt(CharSequence value, int start, int end, int defaultValue) {
+        if (start == end) {
+            return defaultValue;
+        }
+        boolean negative = value.charAt(start) == '-';
+        if (negative || value.charAt(start) == '+') {
+            if (++start == end) {
+                return defaultValue;
+            }
+        }
+        // Accumulate negatively to be able to parse Integer.MIN_VALUE.
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < (Integer.MIN_VALUE + digit) / 10) {
+                return defaultValue;
+            }
+            result = result * 10 - digit;
+        }
+        if (negative) {
+            return result;
+        }
+        return result == Integer.MIN_VALUE ? defaultValue : -result;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index + " (expected: 0-" + (size - 1) + ')');
+        }
+    }
+
+    private int pathEnd() {
+        if (pathEnd == -1) {
+            pathEnd = hasPath ? findPathEndIndex(uri) : 0;
+        }
+        return pathEnd;
+    }
+
+    private static int findPathEndIndex(CharSequence uri) {
+        int len = uri.length();
+        for (int i = 0; i < len; i++) {
+            char c = uri.charAt(i);
+            if (c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return len;
+    }
+
+    // Records the same parameters which QueryStringDecoder decodes.
+    private void index() {
+        size = 0;
+        CharSequence s = uri;
+        int len = s.length();
+        int from = pathEnd();
+        if (from >= len) {
+            return;
+        }
+        if (s.charAt(from) == '?') {
+            from++;
+        }
+        int nameStart = from;
+        int valueStart = -1;
+        int i;
+        loop:
+        for (i = from; i < len; i++) {
+            switch (s.charAt(i)) {
+            case '=':
+                if (nameStart == i) {
+                    nameStart = i + 1;
+                } else if (valueStart < nameStart) {
+                    valueStart = i + 1;
+                }
+                break;
+            case '&':
+            case ';':
+                if (addParam(nameStart, valueStart, i) && size == maxParams) {
+                    return;
+                }
+                nameStart = i + 1;
+                break;
+            case '#':
+                break loop;
+            default:
+                // continue
+            }
+        }
+        addParam(nameStart, valueStart, i);
+    }
+
+    private boolean addParam(int nameStart, int valueStart, int valueEnd) {
+        if (nameStart >= valueEnd) {
+            return false;
+        }
+        if (valueStart <= nameStart) {
+            valueStart = valueEnd + 1;
+        }
+        int offset = size * OFFSETS_PER_PARAM;
+        if (offset == offsets.length) {
+            int[] newOffsets = new int[offsets.length << 1];
+            System.arraycopy(offsets, 0, newOffsets, 0, offsets.length);
+            offsets = newOffsets;
+        }
+        offsets[offset] = nameStart;
+        offsets[offset + 1] = valueStart;
+        // A parameter without value has an empty value which starts after its end.
+        offsets[offset + 2] = Math.max(valueStart, valueEnd);
+        size++;
+        return true;
+    }
+
+    private int firstEscaped(int start, int end) {
+        CharSequence s = uri;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '%' || c == '+') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private CharSequence decode(int start, int end) {
+        if (start >= end) {
+            return "";
+        }
+        if (firstEscaped(start, end) == -1) {
+            return subSequence(start, end);
+        }
+        return QueryStringDecoder.decodeComponent(uri, start, end, charset, false);
+    }
+
+    private CharSequence subSequence(int start, int end) {
+        CharSequence s = uri;
+        return s instanceof AsciiString ? ((AsciiString) s).subSequence(start, end, false) : s.subSequence(start, end);
+    }
+
+    private boolean nameEquals(CharSequence name, int start, int end) {
+        if (firstEscaped(start, end) != -1) {
+            return AsciiString.contentEquals(name, QueryStringDecoder.decodeComponent(uri, start, end, charset, false));
+        }
+        int length = end - start;
+        if (name.length() != length) {
+            return false;
+        }
+        CharSequence s = uri;
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return uri.toString();
+    }
+}
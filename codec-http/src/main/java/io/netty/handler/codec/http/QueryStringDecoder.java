@@ -309,7 +309,7 @@ public class QueryStringDecoder {
         return decodeComponent(s, 0, s.length(), charset, false);
     }
 
-    private static String decodeComponent(String s, int from, int toExcluded, Charset charset, boolean isPath) {
+    static String decodeComponent(CharSequence s, int from, int toExcluded, Charset charset, boolean isPath) {
         int len = toExcluded - from;
         if (len <= 0) {
             return EMPTY_STRING;
@@ -323,7 +323,7 @@ public class QueryStringDecoder {
             }
         }
         if (firstEscaped == -1) {
-            return s.substring(from, toExcluded);
+            return s.subSequence(from, toExcluded).toString();
         }
 
         CharsetDecoder decoder = CharsetUtil.decoder(charset);
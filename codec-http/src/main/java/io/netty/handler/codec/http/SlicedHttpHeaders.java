@@ -0,0 +1,620 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.handler.codec.ValueConverter;
+import io.netty.util.AsciiString;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static io.netty.handler.codec.CharSequenceValueConverter.INSTANCE;
+import static io.netty.handler.codec.http.DefaultHttpHeaders.HttpNameValidator;
+
+/**
+ * {@link HttpHeaders} which are parsed from a block of received header lines without copying them.
+ * <p>
+ * Names which are {@link HttpHeaderNames standard header names} are interned, so they are lowercase independent of
+ * what was received. All other names and the values are {@link AsciiString}s which share the received bytes, and
+ * values are only created when they are accessed. The first modification copies the headers into a
+ * {@link DefaultHttpHeaders} to which all the operations are delegated from then on.
+ */
+final class SlicedHttpHeaders extends HttpHeaders {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final ValueConverter<CharSequence> VALUE_VALIDATOR = DefaultHttpHeaders.valueConverter(true);
+
+    private final boolean validate;
+    private byte[] bytes;
+    private AsciiString[] names;
+    // Start and end of every value in bytes.
+    private int[] valueOffsets;
+    // Lazily created values, or the joined value of folded lines.
+    private CharSequence[] values;
+    private int size;
+    private DefaultHttpHeaders delegate;
+
+    SlicedHttpHeaders(boolean validate) {
+        this.validate = validate;
+    }
+
+    /**
+     * Parses the header lines in {@code bytes}, which must end with an empty line and must not contain a {@code CR}
+     * other than directly before a {@code LF}. The array is used directly and so must not be modified anymore.
+     * <p>
+     * If validation is enabled, names and values are validated like {@link DefaultHttpHeaders} does when the headers
+     * are added to it.
+     */
+    void parse(byte[] bytes) {
+        assert this.bytes == null && delegate == null;
+        this.bytes = bytes;
+        names = new AsciiString[INITIAL_CAPACITY];
+        valueOffsets = new int[INITIAL_CAPACITY << 1];
+        values = new CharSequence[INITIAL_CAPACITY];
+
+        int lineStart = 0;
+        for (;;) {
+            int lineEnd = lineStart;
+            while (bytes[lineEnd] != HttpConstants.LF) {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && bytes[lineEnd - 1] == HttpConstants.CR) {
+                lineEnd--;
+            }
+            byte first = bytes[lineStart];
+            boolean folded = size > 0 && lineEnd > lineStart && (first == ' ' || first == '\t');
+            if (validate && size > 0 && !folded) {
+                // The previous header is complete.
+                validateValue(size - 1);
+            }
+            if (lineEnd == lineStart) {
+                return;
+            }
+            if (folded) {
+                fold(lineStart, lineEnd);
+            } else {
+                split(lineStart, lineEnd);
+            }
+            lineStart = next;
+        }
+    }
+
+    private void split(int start, int end) {
+        int nameStart = findNonWhitespace(bytes, start, end);
+        int nameEnd;
+        for (nameEnd = nameStart; nameEnd < end; nameEnd++) {
+            byte b = bytes[nameEnd];
+            if (b == ':' || isWhitespace(b)) {
+                break;
+            }
+        }
+        int colonEnd;
+        for (colonEnd = nameEnd; colonEnd < end; colonEnd++) {
+            if (bytes[colonEnd] == ':') {
+                colonEnd++;
+                break;
+            }
+        }
+
+        AsciiString name = HttpHeaderNames.lookup(bytes, nameStart, nameEnd - nameStart);
+        if (name == null) {
+            name = new AsciiString(bytes, nameStart, nameEnd - nameStart, false);
+            if (validate) {
+                HttpNameValidator.validateName(name);
+            }
+        }
+
+        if (size == names.length) {
+            int newCapacity = size << 1;
+            names = Arrays.copyOf(names, newCapacity);
+            valueOffsets = Arrays.copyOf(valueOffsets, newCapacity << 1);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+        int valueStart = findNonWhitespace(bytes, colonEnd, end);
+        names[size] = name;
+        valueOffsets[size << 1] = valueStart;
+        valueOffsets[(size << 1) + 1] = findEndOfString(bytes, valueStart, end);
+        size++;
+    }
+
+    private void fold(int start, int end) {
+        int valueStart = findNonWhitespace(bytes, start, end);
+        int valueEnd = findEndOfString(bytes, valueStart, end);
+        int last = size - 1;
+        //please do not make one line from below code
+        //as it breaks +XX:OptimizeStringConcat optimization
+        String trimmedLine = new AsciiString(bytes, valueStart, valueEnd - valueStart, false).toString();
+        String valueStr = value(last).toString();
+        values[last] = valueStr + ' ' + trimmedLine;
+    }
+
+    private void validateValue(int index) {
+        CharSequence value = values[index];
+        if (value != null) {
+            // The joined value of folded lines.
+            VALUE_VALIDATOR.convertObject(value);
+            return;
+        }
+        int end = valueOffsets[(index << 1) + 1];
+        for (int i = valueOffsets[index << 1]; i < end; i++) {
+            byte b = bytes[i];
+            if (b == 0 || b == 0x0b || b == '\f') {
+                // Throws the same exception as for the headers of the default decoding.
+                VALUE_VALIDATOR.convertObject(value(index));
+            }
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return Character.isWhitespace((char) (b & 0xFF));
+    }
+
+    private static int findNonWhitespace(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isWhitespace(bytes[i])) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static int findEndOfString(byte[] bytes, int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (!isWhitespace(bytes[i])) {
+                return i + 1;
+            }
+        }
+        return start;
+    }
+
+    private CharSequence value(int index) {
+        CharSequence value = values[index];
+        if (value == null) {
+            int start = valueOffsets[index << 1];
+            int length = valueOffsets[(index << 1) + 1] - start;
+            value = length == 0 ? AsciiString.EMPTY_STRING : new AsciiString(bytes, start, length, false);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    private int indexOf(CharSequence name, int nameHash, int fromIndex) {
+        for (int i = fromIndex; i < size; i++) {
+            AsciiString headerName = names[i];
+            if (headerName.hashCode() == nameHash && headerName.contentEqualsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private CharSequence get0(CharSequence name) {
+        int index = indexOf(name, AsciiString.hashCode(name), 0);
+        return index == -1 ? null : value(index);
+    }
+
+    /**
+     * Copies the headers into a {@link DefaultHttpHeaders} which is used for all the operations from now on.
+     */
+    private DefaultHttpHeaders modify() {
+        DefaultHttpHeaders delegate = this.delegate;
+        if (delegate == null) {
+            delegate = new DefaultHttpHeaders(validate);
+            for (int i = 0; i < size; i++) {
+                delegate.add(names[i], value(i));
+            }
+            this.delegate = delegate;
+            bytes = null;
+            names = null;
+            valueOffsets = null;
+            values = null;
+            size = 0;
+        }
+        return delegate;
+    }
+
+    @Override
+    public String get(String name) {
+        return get((CharSequence) name);
+    }
+
+    @Override
+    public String get(CharSequence name) {
+        if (delegate != null) {
+            return delegate.get(name);
+        }
+        CharSequence value = get0(name);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public Integer getInt(CharSequence name) {
+        if (delegate != null) {
+            return delegate.getInt(name);
+        }
+        CharSequence value = get0(name);
+        return value == null ? null : INSTANCE.convertToInt(value);
+    }
+
+    @Override
+    public int getInt(CharSequence name, int defaultValue) {
+        if (delegate != null) {
+            return delegate.getInt(name, defaultValue);
+        }
+        CharSequence value = get0(name);
+        return value == null ? defaultValue : INSTANCE.convertToInt(value);
+    }
+
+    @Override
+    public Short getShort(CharSequence name) {
+        if (delegate != null) {
+            return delegate.getShort(name);
+        }
+        CharSequence value = get0(name);
+        return value == null ? null : INSTANCE.convertToShort(value);
+    }
+
+    @Override
+    public short getShort(CharSequence name, short defaultValue) {
+        if (delegate != null) {
+            return delegate.getShort(name, defaultValue);
+        }
+        CharSequence value = get0(name);
+        return value == null ? defaultValue : INSTANCE.convertToShort(value);
+    }
+
+    @Override
+    public Long getTimeMillis(CharSequence name) {
+        if (delegate != null) {
+            return delegate.getTimeMillis(name);
+        }
+        CharSequence value = get0(name);
+        return value == null ? null : INSTANCE.convertToTimeMillis(value);
+    }
+
+    @Override
+    public long getTimeMillis(CharSequence name, long defaultValue) {
+        if (delegate != null) {
+            return delegate.getTimeMillis(name, defaultValue);
+        }
+        CharSequence value = get0(name);
+        return value == null ? defaultValue : INSTANCE.convertToTimeMillis(value);
+    }
+
+    @Override
+    public List<String> getAll(String name) {
+        return getAll((CharSequence) name);
+    }
+
+    @Override
+    public List<String> getAll(CharSequence name) {
+        if (delegate != null) {
+            return delegate.getAll(name);
+        }
+        int nameHash = AsciiString.hashCode(name);
+        int index = indexOf(name, nameHash, 0);
+        if (index == -1) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<String>(4);
+        do {
+            values.add(value(index).toString());
+            index = indexOf(name, nameHash, index + 1);
+        } while (index != -1);
+        return values;
+    }
+
+    @Override
+    public List<Map.Entry<String, String>> entries() {
+        if (delegate != null) {
+            return delegate.entries();
+        }
+        if (isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Map.Entry<String, String>> entries = new ArrayList<Map.Entry<String, String>>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new SimpleImmutableEntry<String, String>(names[i].toString(), value(i).toString()));
+        }
+        return entries;
+    }
+
+    @Override
+    public boolean contains(String name) {
+        return contains((CharSequence) name);
+    }
+
+    @Override
+    public boolean contains(CharSequence name) {
+        if (delegate != null) {
+            return delegate.contains(name);
+        }
+        return indexOf(name, AsciiString.hashCode(name), 0) != -1;
+    }
+
+    @Override
+    public boolean contains(CharSequence name, CharSequence value, boolean ignoreCase) {
+        if (delegate != null) {
+            return delegate.contains(name, value, ignoreCase);
+        }
+        int nameHash = AsciiString.hashCode(name);
+        for (int i = indexOf(name, nameHash, 0); i != -1; i = indexOf(name, nameHash, i + 1)) {
+            CharSequence v = value(i);
+            if (ignoreCase ? AsciiString.contentEqualsIgnoreCase(v, value) : AsciiString.contentEquals(v, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<String> valueStringIterator(CharSequence name) {
+        if (delegate != null) {
+            return delegate.valueStringIterator(name);
+        }
+        final Iterator<CharSequence> itr = valueCharSequenceIterator(name);
+        return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return itr.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return itr.next().toString();
+            }
+
+            @Override
+            public void remove() {
+                itr.remove();
+            }
+        };
+    }
+
+    @Override
+    public Iterator<CharSequence> valueCharSequenceIterator(CharSequence name) {
+        if (delegate != null) {
+            return delegate.valueCharSequenceIterator(name);
+        }
+        return new ValueIterator(name);
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, String>> iterator() {
+        if (delegate != null) {
+            return delegate.iterator();
+        }
+        return entries().iterator();
+    }
+
+    @Override
+    public Iterator<Map.Entry<CharSequence, CharSequence>> iteratorCharSequence() {
+        if (delegate != null) {
+            return delegate.iteratorCharSequence();
+        }
+        return new EntryIterator();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate != null ? delegate.isEmpty() : size == 0;
+    }
+
+    @Override
+    public int size() {
+        return delegate != null ? delegate.size() : size;
+    }
+
+    @Override
+    public Set<String> names() {
+        if (delegate != null) {
+            return delegate.names();
+        }
+        if (isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> names = new LinkedHashSet<String>(size);
+        for (int i = 0; i < size; i++) {
+            names.add(this.names[i].toString());
+        }
+        return names;
+    }
+
+    @Override
+    public HttpHeaders add(String name, Object value) {
+        modify().add(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders add(CharSequence name, Object value) {
+        modify().add(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders add(String name, Iterable<?> values) {
+        modify().add(name, values);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders add(CharSequence name, Iterable<?> values) {
+        modify().add(name, values);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders addInt(CharSequence name, int value) {
+        modify().addInt(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders addShort(CharSequence name, short value) {
+        modify().addShort(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders set(String name, Object value) {
+        modify().set(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders set(CharSequence name, Object value) {
+        modify().set(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders set(String name, Iterable<?> values) {
+        modify().set(name, values);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders set(CharSequence name, Iterable<?> values) {
+        modify().set(name, values);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders setInt(CharSequence name, int value) {
+        modify().setInt(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders setShort(CharSequence name, short value) {
+        modify().setShort(name, value);
+        return this;
+    }
+
+    @Override
+    public HttpHeaders remove(String name) {
+        return remove((CharSequence) name);
+    }
+
+    @Override
+    public HttpHeaders remove(CharSequence name) {
+        // Removing a header which does not exist does not need a copy.
+        if (delegate != null || contains(name)) {
+            modify().remove(name);
+        }
+        return this;
+    }
+
+    @Override
+    public HttpHeaders clear() {
+        modify().clear();
+        return this;
+    }
+
+    private final class EntryIterator implements Map.Entry<CharSequence, CharSequence>,
+            Iterator<Map.Entry<CharSequence, CharSequence>> {
+        private final int size = SlicedHttpHeaders.this.size;
+        private int index = -1;
+
+        @Override
+        public boolean hasNext() {
+            return index + 1 < size;
+        }
+
+        @Override
+        public Map.Entry<CharSequence, CharSequence> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            checkNotModified();
+            index++;
+            return this;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CharSequence getKey() {
+            return names[index];
+        }
+
+        @Override
+        public CharSequence getValue() {
+            return value(index);
+        }
+
+        @Override
+        public CharSequence setValue(CharSequence value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString() {
+            return getKey().toString() + '=' + getValue().toString();
+        }
+    }
+
+    private final class ValueIterator implements Iterator<CharSequence> {
+        private final CharSequence name;
+        private final int nameHash;
+        private int nextIndex;
+
+        ValueIterator(CharSequence name) {
+            this.name = name;
+            nameHash = AsciiString.hashCode(name);
+            nextIndex = indexOf(name, nameHash, 0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex != -1;
+        }
+
+        @Override
+        public CharSequence next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            checkNotModified();
+            CharSequence value = value(nextIndex);
+            nextIndex = indexOf(name, nameHash, nextIndex + 1);
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private void checkNotModified() {
+        if (delegate != null) {
+            throw new IllegalStateException("headers were modified while iterating");
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.FileRegion;
+import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.MessageAggregationException;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.handler.codec.http.multipart.MixedFileUpload;
+import io.netty.handler.stream.ChunkedStream;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
+import static io.netty.handler.codec.http.HttpHeaderNames.EXPECT;
+import static io.netty.handler.codec.http.HttpUtil.getContentLength;
+
+/**
+ * A {@link HttpObjectAggregator} alternative which keeps the content of a message in memory only up to
+ * {@code maxInMemorySize} bytes and writes it to a temporary file beyond that, like {@link MixedFileUpload} does for
+ * multipart uploads. Large messages can therefore be aggregated with bounded memory.
+ * <p>
+ * The content of a {@link FullHttpMessage} which was written to a file is a read-only {@link ByteBuf} which reads
+ * from the file on demand. Its file is deleted once the message is released, {@link #spilledFile(FullHttpMessage)}
+ * returns it for handlers which would rather move the file than read it.
+ * <p>
+ * Writing such a message as is reads its whole content into memory, as the transport needs it in a buffer. To send
+ * it on with bounded memory, for example when proxying, write a {@link HttpMessage} with its headers followed by
+ * {@link #newFileRegion(FullHttpMessage)} and a {@link LastHttpContent}, or by
+ * {@link #newChunkedInput(FullHttpMessage, int)} if the transport does not support {@link FileRegion}s, e.g. when
+ * SSL is used.
+ * <p>
+ * {@code Expect: 100-continue} and oversized messages are handled like {@link HttpObjectAggregator} does.
+ * <blockquote>
+ * <pre>
+ *  {@link ChannelPipeline} p = ...;
+ *  ...
+ *  p.addLast("decoder", new {@link HttpRequestDecoder}());
+ *  p.addLast("encoder", new {@link HttpResponseEncoder}());
+ *  p.addLast("aggregator", <b>new {@link SpillingHttpObjectAggregator}(1073741824, 65536)</b>);
+ *  ...
+ *  p.addLast("handler", new HttpRequestHandler());
+ *  </pre>
+ * </blockquote>
+ */
+public class SpillingHttpObjectAggregator extends MessageToMessageDecoder<HttpObject> {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(SpillingHttpObjectAggregator.class);
+
+    private static final String FILE_PREFIX = "AggregatedHttpContent_";
+    private static final String FILE_POSTFIX = ".tmp";
+    private static final int MAX_CUMULATION_BUFFER_COMPONENTS = 1024;
+
+    private final int maxContentLength;
+    private final int maxInMemorySize;
+    private final File directory;
+    private final boolean closeOnExpectationFailed;
+
+    private ChannelFutureListener continueResponseWriteListener;
+
+    private HttpMessage currentMessage;
+    private HttpHeaders trailingHeaders;
+    private int contentLength;
+    private CompositeByteBuf memoryContent;
+    private File file;
+    private FileChannel fileChannel;
+
+    /**
+     * Creates a new instance which writes its temporary files to the default temporary-file directory.
+     *
+     * @param maxContentLength the maximum length of the aggregated content in bytes.
+     * @param maxInMemorySize the maximum number of bytes of a message which are kept in memory.
+     */
+    public SpillingHttpObjectAggregator(int maxContentLength, int maxInMemorySize) {
+        this(maxContentLength, maxInMemorySize, null, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxContentLength the maximum length of the aggregated content in bytes.
+     * @param maxInMemorySize the maximum number of bytes of a message which are kept in memory.
+     * @param directory the directory for the temporary files or {@code null} to use the default temporary-file
+     * directory.
+     * @param closeOnExpectationFailed If a 100-continue response is detected but the content length is too large
+     * then {@code true} means close the connection. otherwise the connection will remain open and data will be
+     * consumed and discarded until the next request is received.
+     */
+    public SpillingHttpObjectAggregator(int maxContentLength, int maxInMemorySize, File directory,
+                                        boolean closeOnExpectationFailed) {
+        this.maxContentLength = ObjectUtil.checkPositiveOrZero(maxContentLength, "maxContentLength");
+        this.maxInMemorySize = ObjectUtil.checkPositiveOrZero(maxInMemorySize, "maxInMemorySize");
+        this.directory = directory;
+        this.closeOnExpectationFailed = closeOnExpectationFailed;
+    }
+
+    /**
+     * Returns the maximum length of the aggregated content in bytes.
+     */
+    public final int maxContentLength() {
+        return maxContentLength;
+    }
+
+    /**
+     * Returns the maximum number of bytes of a message which are kept in memory.
+     */
+    public final int maxInMemorySize() {
+        return maxInMemorySize;
+    }
+
+    /**
+     * Returns the file which stores the content of the given {@code message}, or {@code null} if its content is
+     * kept in memory. The file is deleted when the message is released.
+     */
+    public static File spilledFile(FullHttpMessage message) {
+        ByteBuf content = message.content();
+        return content instanceof FileBackedByteBuf ? ((FileBackedByteBuf) content).file() : null;
+    }
+
+    /**
+     * Returns a new {@link FileRegion} which sends the content of the given {@code message} with zero-copy transfer.
+     * The content must have been written to a file, see {@link #spilledFile(FullHttpMessage)}. The content is
+     * retained until the region is released.
+     */
+    public static FileRegion newFileRegion(FullHttpMessage message) {
+        ByteBuf content = message.content();
+        if (!(content instanceof FileBackedByteBuf)) {
+            throw new IllegalArgumentException("content of message was not written to a file");
+        }
+        return ((FileBackedByteBuf) content).newFileRegion(content.readerIndex(), content.readableBytes());
+    }
+
+    /**
+     * Returns a new {@link HttpChunkedInput} which reads the content of the given {@code message} in chunks of the
+     * given size, which works whether the content was written to a file or not. It has to be written through a
+     * {@link io.netty.handler.stream.ChunkedWriteHandler}. The content is retained until the input is closed.
+     */
+    public static HttpChunkedInput newChunkedInput(FullHttpMessage message, int chunkSize) {
+        InputStream in = new ByteBufInputStream(message.content().retainedDuplicate(), true);
+        return new HttpChunkedInput(new ChunkedStream(in, chunkSize));
+    }
+
+    @Override
+    public boolean acceptInboundMessage(Object msg) throws Exception {
+        return super.acceptInboundMessage(msg) && !(msg instanceof FullHttpMessage);
+    }
+
+    @Override
+    protected void decode(final ChannelHandlerContext ctx, HttpObject msg, List<Object> out) throws Exception {
+        if (msg instanceof HttpMessage) {
+            if (currentMessage != null) {
+                releaseCurrentMessage();
+                throw new MessageAggregationException();
+            }
+            HttpMessage m = (HttpMessage) msg;
+
+            // Send the continue response if necessary (e.g. 'Expect: 100-continue' header)
+            // Check before content length. Failing an expectation may result in a different response being sent.
+            Object continueResponse = HttpObjectAggregator.continueResponse(m, maxContentLength, ctx.pipeline());
+            if (continueResponse != null) {
+                // We respond to the expectation, so there's no need to propagate it further.
+                m.headers().remove(EXPECT);
+                boolean rejected = ((HttpResponse) continueResponse).status().codeClass() ==
+                        HttpStatusClass.CLIENT_ERROR;
+
+                ChannelFutureListener listener = continueResponseWriteListener;
+                if (listener == null) {
+                    continueResponseWriteListener = listener = new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) {
+                            if (!future.isSuccess()) {
+                                ctx.fireExceptionCaught(future.cause());
+                            }
+                        }
+                    };
+                }
+                ChannelFuture future = ctx.writeAndFlush(continueResponse).addListener(listener);
+                if (rejected) {
+                    if (closeOnExpectationFailed) {
+                        future.addListener(ChannelFutureListener.CLOSE);
+                    }
+                    return;
+                }
+            } else if (isContentLengthInvalid(m)) {
+                HttpObjectAggregator.handleOversizedMessage(ctx, m, false);
+                return;
+            }
+
+            if (!m.decoderResult().isSuccess()) {
+                out.add(toFullMessage(m, Unpooled.EMPTY_BUFFER, null));
+                return;
+            }
+
+            HttpUtil.setTransferEncodingChunked(m, false);
+            currentMessage = m;
+            memoryContent = ctx.alloc().compositeBuffer(MAX_CUMULATION_BUFFER_COMPONENTS);
+        } else if (msg instanceof HttpContent) {
+            if (currentMessage == null) {
+                // The message was oversized already, discard its content until the next message.
+                return;
+            }
+            HttpContent chunk = (HttpContent) msg;
+            ByteBuf data = chunk.content();
+            int readable = data.readableBytes();
+            if (contentLength > maxContentLength - readable) {
+                HttpMessage oversized = currentMessage;
+                releaseCurrentMessage();
+                HttpObjectAggregator.handleOversizedMessage(ctx, oversized, true);
+                return;
+            }
+
+            try {
+                append(ctx, data);
+            } catch (IOException e) {
+                releaseCurrentMessage();
+                throw e;
+            }
+            contentLength += readable;
+
+            boolean last;
+            DecoderResult decoderResult = chunk.decoderResult();
+            if (!decoderResult.isSuccess()) {
+                currentMessage.setDecoderResult(DecoderResult.failure(decoderResult.cause()));
+                last = true;
+            } else {
+                last = chunk instanceof LastHttpContent;
+            }
+            if (chunk instanceof LastHttpContent) {
+                trailingHeaders = ((LastHttpContent) chunk).trailingHeaders();
+            }
+
+            if (last) {
+                out.add(finishAggregation(ctx));
+            }
+        } else {
+            throw new MessageAggregationException();
+        }
+    }
+
+    private boolean isContentLengthInvalid(HttpMessage start) {
+        try {
+            return getContentLength(start, -1L) > maxContentLength;
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void append(ChannelHandlerContext ctx, ByteBuf data) throws IOException {
+        int readable = data.readableBytes();
+        if (readable == 0) {
+            return;
+        }
+        if (fileChannel == null) {
+            if (contentLength + readable <= maxInMemorySize) {
+                memoryContent.addComponent(true, data.retain());
+                return;
+            }
+            spill();
+        }
+        int index = data.readerIndex();
+        long position = contentLength;
+        while (readable > 0) {
+            int written = data.getBytes(index, fileChannel, position, readable);
+            index += written;
+            position += written;
+            readable -= written;
+        }
+    }
+
+    /**
+     * Moves the content which was kept in memory so far to a new temporary file.
+     */
+    private void spill() throws IOException {
+        file = directory == null ? File.createTempFile(FILE_PREFIX, FILE_POSTFIX) :
+                File.createTempFile(FILE_PREFIX, FILE_POSTFIX, directory);
+        fileChannel = new RandomAccessFile(file, "rw").getChannel();
+        CompositeByteBuf memoryContent = this.memoryContent;
+        this.memoryContent = null;
+        try {
+            int readable = memoryContent.readableBytes();
+            int index = memoryContent.readerIndex();
+            long position = 0;
+            while (readable > 0) {
+                int written = memoryContent.getBytes(index, fileChannel, position, readable);
+                index += written;
+                position += written;
+                readable -= written;
+            }
+        } finally {
+            memoryContent.release();
+        }
+    }
+
+    private FullHttpMessage finishAggregation(ChannelHandlerContext ctx) {
+        ByteBuf content;
+        if (fileChannel != null) {
+            content = new FileBackedByteBuf(ctx.alloc(), file, fileChannel, contentLength);
+            fileChannel = null;
+            file = null;
+        } else {
+            content = memoryContent;
+            memoryContent = null;
+        }
+        FullHttpMessage aggregated = toFullMessage(currentMessage, content, trailingHeaders);
+        currentMessage = null;
+        trailingHeaders = null;
+        contentLength = 0;
+
+        // Set the 'Content-Length' header. If one isn't already set.
+        // HEAD responses use a 'Content-Length' header which does not match the actual body.
+        if (!HttpUtil.isContentLengthSet(aggregated)) {
+            aggregated.headers().set(CONTENT_LENGTH, String.valueOf(aggregated.content().readableBytes()));
+        }
+        return aggregated;
+    }
+
+    private static FullHttpMessage toFullMessage(HttpMessage message, ByteBuf content, HttpHeaders trailingHeaders) {
+        if (trailingHeaders == null) {
+            trailingHeaders = EmptyHttpHeaders.INSTANCE;
+        }
+        FullHttpMessage full;
+        if (message instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) message;
+            full = new DefaultFullHttpRequest(request.protocolVersion(), request.method(), request.uri(), content,
+                    request.headers(), trailingHeaders);
+        } else if (message instanceof HttpResponse) {
+            HttpResponse response = (HttpResponse) message;
+            full = new DefaultFullHttpResponse(response.protocolVersion(), response.status(), content,
+                    response.headers(), trailingHeaders);
+        } else {
+            content.release();
+            throw new IllegalStateException();
+        }
+        full.setDecoderResult(message.decoderResult());
+        return full;
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        try {
+            // release current message if it is not null as it may be a left-over
+            super.channelInactive(ctx);
+        } finally {
+            releaseCurrentMessage();
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        try {
+            super.handlerRemoved(ctx);
+        } finally {
+            // release current message if it is not null as it may be a left-over as there is not much more we can do
+            // in this case
+            releaseCurrentMessage();
+        }
+    }
+
+    private void releaseCurrentMessage() {
+        currentMessage = null;
+        trailingHeaders = null;
+        contentLength = 0;
+        if (memoryContent != null) {
+            memoryContent.release();
+            memoryContent = null;
+        }
+        if (fileChannel != null) {
+            try {
+                fileChannel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close a file: {}", file, e);
+            }
+            fileChannel = null;
+        }
+        if (file != null) {
+            if (!file.delete()) {
+                logger.warn("Failed to delete a file: {}", file);
+            }
+            file = null;
+        }
+    }
+}
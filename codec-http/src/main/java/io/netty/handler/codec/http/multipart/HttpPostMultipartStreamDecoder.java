@@ -0,0 +1,426 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.multipart;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpConstants;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDecoderException;
+import io.netty.util.CharsetUtil;
+import io.netty.util.internal.ObjectUtil;
+
+import java.util.Arrays;
+
+/**
+ * Incremental decoder for {@code multipart/form-data} bodies which passes the content of every part to a
+ * {@link Listener} as slices of the buffers it was given, without copying or buffering it.
+ * <p>
+ * Unlike {@link HttpPostMultipartRequestDecoder} this decoder never scans a byte of content twice: the delimiter is
+ * searched with the Boyer-Moore-Horspool algorithm, and only the last few bytes of a buffer which may be the start
+ * of a delimiter are held back until the next buffer arrives. Part headers are the only data which is copied.
+ * Nested {@code multipart/mixed} parts are passed on as plain content.
+ * <p>
+ * The buffers passed to {@link Listener#partContent(ByteBuf)} are only valid during the call, they must be
+ * retained or copied if they are needed later. This decoder does not release the buffers passed to
+ * {@link #offer(HttpContent)}.
+ */
+public final class HttpPostMultipartStreamDecoder {
+
+    /**
+     * Receives the parts decoded by a {@link HttpPostMultipartStreamDecoder}.
+     */
+    public interface Listener {
+        /**
+         * Called when the headers of a new part were decoded.
+         */
+        void partStarted(HttpHeaders headers);
+
+        /**
+         * Called with the next piece of content of the current part. The buffer is only valid during this call.
+         */
+        void partContent(ByteBuf content);
+
+        /**
+         * Called when all content of the current part was passed to {@link #partContent(ByteBuf)}.
+         */
+        void partEnded();
+
+        /**
+         * Called when the closing delimiter was decoded. Everything after it is ignored.
+         */
+        void multipartEnded();
+    }
+
+    private static final int DEFAULT_MAX_HEADER_SIZE = 8192;
+
+    private enum State {
+        PREAMBLE,
+        DELIMITER_SUFFIX,
+        DELIMITER_DASH,
+        DELIMITER_PADDING,
+        DELIMITER_CR,
+        HEADERS,
+        BODY,
+        EPILOGUE
+    }
+
+    private final Listener listener;
+    private final int maxHeaderSize;
+
+    /**
+     * {@code CRLF "--" boundary}, the delimiter which precedes every part.
+     */
+    private final byte[] delimiter;
+    private final int[] skipTable;
+
+    /**
+     * A prefix of {@link #delimiter} which was found at the end of the last buffer.
+     */
+    private final byte[] carry;
+    private int carryLength;
+
+    private State state = State.PREAMBLE;
+    private ByteBuf headerBuf;
+    // Number of bytes of the CRLF CRLF sequence which ends the headers that were matched so far.
+    private int headerEndMatched;
+
+    /**
+     * Creates a new instance for the given {@code multipart/form-data} {@link HttpRequest}.
+     *
+     * @throws ErrorDataDecoderException if the request does not have a {@code multipart/form-data} content type
+     * with a boundary.
+     */
+    public HttpPostMultipartStreamDecoder(HttpRequest request, Listener listener) {
+        this(boundary(request), DEFAULT_MAX_HEADER_SIZE, listener);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param boundary the boundary of the parts, without the leading {@code "--"}.
+     * @param maxHeaderSize the maximum size of the headers of a part in bytes.
+     * @param listener the {@link Listener} which receives the parts.
+     */
+    public HttpPostMultipartStreamDecoder(String boundary, int maxHeaderSize, Listener listener) {
+        ObjectUtil.checkNotNull(boundary, "boundary");
+        if (boundary.isEmpty() || boundary.length() > 70) {
+            throw new IllegalArgumentException("boundary: " + boundary + " (expected: 1-70 characters)");
+        }
+        for (int i = 0; i < boundary.length(); i++) {
+            char c = boundary.charAt(i);
+            if (c == HttpConstants.CR || c == HttpConstants.LF || c > 127) {
+                throw new IllegalArgumentException("boundary contains an illegal character: " + boundary);
+            }
+        }
+        this.maxHeaderSize = ObjectUtil.checkPositive(maxHeaderSize, "maxHeaderSize");
+        this.listener = ObjectUtil.checkNotNull(listener, "listener");
+
+        delimiter = ("\r\n--" + boundary).getBytes(CharsetUtil.US_ASCII);
+        skipTable = new int[256];
+        Arrays.fill(skipTable, delimiter.length);
+        for (int i = 0; i < delimiter.length - 1; i++) {
+            skipTable[delimiter[i] & 0xff] = delimiter.length - 1 - i;
+        }
+        carry = new byte[delimiter.length];
+        // The first delimiter is not preceded by a CRLF if there is no preamble, so pretend there was one.
+        carry[0] = HttpConstants.CR;
+        carry[1] = HttpConstants.LF;
+        carryLength = 2;
+    }
+
+    private static String boundary(HttpRequest request) {
+        String contentType = request.headers().get(HttpHeaderNames.CONTENT_TYPE);
+        String[] boundary = contentType == null ? null : HttpPostRequestDecoder.getMultipartDataBoundary(contentType);
+        if (boundary == null) {
+            throw new ErrorDataDecoderException("not a multipart/form-data request");
+        }
+        // Strip the leading "--".
+        return boundary[0].substring(2);
+    }
+
+    /**
+     * Returns {@code true} once the closing delimiter was decoded.
+     */
+    public boolean isEnded() {
+        return state == State.EPILOGUE;
+    }
+
+    /**
+     * Decodes the content of the given {@link HttpContent}.
+     *
+     * @throws ErrorDataDecoderException if the content is malformed, or if it is the {@link LastHttpContent} and
+     * the closing delimiter is missing.
+     */
+    public void offer(HttpContent content) {
+        offer(content.content());
+        if (content instanceof LastHttpContent && state != State.EPILOGUE) {
+            throw new ErrorDataDecoderException("multipart body ended without closing delimiter");
+        }
+    }
+
+    /**
+     * Decodes the readable bytes of the given {@link ByteBuf} without changing its reader index.
+     *
+     * @throws ErrorDataDecoderException if the content is malformed.
+     */
+    public void offer(ByteBuf buf) {
+        int index = buf.readerIndex();
+        final int end = buf.writerIndex();
+        while (index < end) {
+            switch (state) {
+                case PREAMBLE:
+                case BODY:
+                    index = decodeBody(buf, index, end);
+                    break;
+                case HEADERS:
+                    index = decodeHeaders(buf, index, end);
+                    break;
+                case EPILOGUE:
+                    return;
+                default:
+                    index = decodeDelimiterSuffix(buf, index, end);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Releases the resources held by this decoder.
+     */
+    public void destroy() {
+        if (headerBuf != null) {
+            headerBuf.release();
+            headerBuf = null;
+        }
+    }
+
+    private int decodeBody(ByteBuf buf, int index, int end) {
+        if (carryLength > 0) {
+            int matched = matchCarry(buf, index, end);
+            if (matched < 0) {
+                // The held back bytes were not the start of a delimiter, they are content.
+                if (state == State.BODY) {
+                    listener.partContent(Unpooled.wrappedBuffer(Arrays.copyOf(carry, carryLength)));
+                }
+                carryLength = 0;
+            } else if (carryLength + matched < delimiter.length) {
+                // Still a prefix of the delimiter, but the buffer ended.
+                buf.getBytes(index, carry, carryLength, matched);
+                carryLength += matched;
+                return end;
+            } else {
+                carryLength = 0;
+                delimiterFound();
+                return index + matched;
+            }
+        }
+
+        final int found = indexOfDelimiter(buf, index, end);
+        if (found >= 0) {
+            if (state == State.BODY && found > index) {
+                listener.partContent(buf.slice(index, found - index));
+            }
+            delimiterFound();
+            return found + delimiter.length;
+        }
+
+        // Hold back the tail of the buffer if it may be the start of the next delimiter. As the delimiter contains a
+        // CR only at its start, only the last CR in the tail is a candidate.
+        int contentEnd = end;
+        int tailStart = Math.max(index, end - delimiter.length + 1);
+        for (int i = end - 1; i >= tailStart; i--) {
+            if (buf.getByte(i) == HttpConstants.CR) {
+                if (isDelimiterPrefix(buf, i, end)) {
+                    contentEnd = i;
+                }
+                break;
+            }
+        }
+        if (state == State.BODY && contentEnd > index) {
+            listener.partContent(buf.slice(index, contentEnd - index));
+        }
+        if (contentEnd < end) {
+            carryLength = end - contentEnd;
+            buf.getBytes(contentEnd, carry, 0, carryLength);
+        }
+        return end;
+    }
+
+    /**
+     * Returns the number of bytes at the start of the buffer which continue the held back delimiter prefix, or
+     * {@code -1} if they do not.
+     */
+    private int matchCarry(ByteBuf buf, int index, int end) {
+        int needed = Math.min(delimiter.length - carryLength, end - index);
+        for (int i = 0; i < needed; i++) {
+            if (buf.getByte(index + i) != delimiter[carryLength + i]) {
+                return -1;
+            }
+        }
+        return needed;
+    }
+
+    private boolean isDelimiterPrefix(ByteBuf buf, int index, int end) {
+        for (int i = index, j = 0; i < end; i++, j++) {
+            if (buf.getByte(i) != delimiter[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Boyer-Moore-Horspool search for the {@link #delimiter} in the given range.
+     */
+    private int indexOfDelimiter(ByteBuf buf, int index, int end) {
+        final byte[] delimiter = this.delimiter;
+        final int[] skipTable = this.skipTable;
+        final int last = delimiter.length - 1;
+        if (buf.hasArray()) {
+            final byte[] array = buf.array();
+            final int offset = buf.arrayOffset();
+            for (int i = index + offset, limit = end + offset - last; i < limit;) {
+                int j = last;
+                while (array[i + j] == delimiter[j]) {
+                    if (j == 0) {
+                        return i - offset;
+                    }
+                    j--;
+                }
+                i += skipTable[array[i + last] & 0xff];
+            }
+        } else {
+            for (int i = index, limit = end - last; i < limit;) {
+                int j = last;
+                while (buf.getByte(i + j) == delimiter[j]) {
+                    if (j == 0) {
+                        return i;
+                    }
+                    j--;
+                }
+                i += skipTable[buf.getByte(i + last) & 0xff];
+            }
+        }
+        return -1;
+    }
+
+    private void delimiterFound() {
+        if (state == State.BODY) {
+            listener.partEnded();
+        }
+        state = State.DELIMITER_SUFFIX;
+    }
+
+    /**
+     * Decodes what follows a delimiter: either {@code "--"} for the closing delimiter, or optional whitespace and
+     * a CRLF before the headers of the next part.
+     */
+    private int decodeDelimiterSuffix(ByteBuf buf, int index, int end) {
+        while (index < end) {
+            byte b = buf.getByte(index++);
+            switch (state) {
+                case DELIMITER_SUFFIX:
+                    if (b == '-') {
+                        state = State.DELIMITER_DASH;
+                        break;
+                    }
+                    // fall-through
+                case DELIMITER_PADDING:
+                    if (b == HttpConstants.SP || b == HttpConstants.HT) {
+                        state = State.DELIMITER_PADDING;
+                    } else if (b == HttpConstants.CR) {
+                        state = State.DELIMITER_CR;
+                    } else {
+                        throw new ErrorDataDecoderException("unexpected character after delimiter: " + (char) b);
+                    }
+                    break;
+                case DELIMITER_DASH:
+                    if (b != '-') {
+                        throw new ErrorDataDecoderException("unexpected character after delimiter: " + (char) b);
+                    }
+                    state = State.EPILOGUE;
+                    destroy();
+                    listener.multipartEnded();
+                    return end;
+                case DELIMITER_CR:
+                    if (b != HttpConstants.LF) {
+                        throw new ErrorDataDecoderException("unexpected character after delimiter: " + (char) b);
+                    }
+                    state = State.HEADERS;
+                    return index;
+                default:
+                    throw new Error();
+            }
+        }
+        return index;
+    }
+
+    private int decodeHeaders(ByteBuf buf, int index, int end) {
+        ByteBuf headerBuf = this.headerBuf;
+        if (headerBuf == null) {
+            this.headerBuf = headerBuf = Unpooled.buffer(256);
+        }
+        int i = index;
+        while (i < end) {
+            if (headerBuf.readableBytes() + i - index >= maxHeaderSize) {
+                throw new ErrorDataDecoderException("part headers are larger than " + maxHeaderSize + " bytes");
+            }
+            byte b = buf.getByte(i++);
+            if (b == ((headerEndMatched & 1) == 0 ? HttpConstants.CR : HttpConstants.LF)) {
+                headerEndMatched++;
+            } else {
+                headerEndMatched = b == HttpConstants.CR ? 1 : 0;
+            }
+            if (headerEndMatched == 4 || headerEndMatched == 2 && headerBuf.readableBytes() + i - index == 2) {
+                // Found the empty line which ends the headers.
+                headerBuf.writeBytes(buf, index, i - index);
+                headerEndMatched = 0;
+                HttpHeaders headers = parseHeaders(headerBuf);
+                headerBuf.clear();
+                state = State.BODY;
+                listener.partStarted(headers);
+                return i;
+            }
+        }
+        headerBuf.writeBytes(buf, index, end - index);
+        return end;
+    }
+
+    private static HttpHeaders parseHeaders(ByteBuf headerBuf) {
+        HttpHeaders headers = new DefaultHttpHeaders();
+        String block = headerBuf.toString(CharsetUtil.UTF_8);
+        int lineStart = 0;
+        for (;;) {
+            int lineEnd = block.indexOf("\r\n", lineStart);
+            if (lineEnd <= lineStart) {
+                break;
+            }
+            int colon = block.indexOf(':', lineStart);
+            if (colon < 0 || colon > lineEnd) {
+                throw new ErrorDataDecoderException("malformed part header: " + block.substring(lineStart, lineEnd));
+            }
+            headers.add(block.substring(lineStart, colon).trim(), block.substring(colon + 1, lineEnd).trim());
+            lineStart = lineEnd + 2;
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.PrematureChannelClosureException;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class HttpClientPipeliningHandlerTest {
+
+    private static FullHttpRequest newRequest(String uri) {
+        return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+    }
+
+    private static FullHttpResponse newResponse(HttpResponseStatus status) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status);
+        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, 0);
+        return response;
+    }
+
+    private static void assertWritten(EmbeddedChannel channel, String uri) {
+        FullHttpRequest request = channel.readOutbound();
+        assertEquals(uri, request.uri());
+        request.release();
+    }
+
+    @Test
+    public void testResponsesAreMatchedInOrder() {
+        HttpClientPipeliningHandler handler = new HttpClientPipeliningHandler(4);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        Future<FullHttpResponse> first = handler.send(newRequest("/1"));
+        Future<FullHttpResponse> second = handler.send(newRequest("/2"));
+        assertWritten(channel, "/1");
+        assertWritten(channel, "/2");
+        assertEquals(2, handler.inFlightRequests());
+
+        assertFalse(channel.writeInbound(newResponse(HttpResponseStatus.OK)));
+        assertTrue(first.isSuccess());
+        assertFalse(second.isDone());
+        assertEquals(HttpResponseStatus.OK, first.getNow().status());
+        first.getNow().release();
+
+        assertFalse(channel.writeInbound(newResponse(HttpResponseStatus.NOT_FOUND)));
+        assertTrue(second.isSuccess());
+        assertEquals(HttpResponseStatus.NOT_FOUND, second.getNow().status());
+        second.getNow().release();
+
+        assertEquals(0, handler.inFlightRequests());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testMaxInFlightRequests() {
+        HttpClientPipeliningHandler handler = new HttpClientPipeliningHandler(1);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        Future<FullHttpResponse> first = handler.send(newRequest("/1"));
+        Future<FullHttpResponse> second = handler.send(newRequest("/2"));
+        assertWritten(channel, "/1");
+        assertNull(channel.readOutbound());
+        assertFalse(first.isDone());
+        assertTrue(second.cause() instanceof IllegalStateException);
+
+        assertFalse(channel.writeInbound(newResponse(HttpResponseStatus.OK)));
+        first.getNow().release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testCloseFailsInFlightRequests() {
+        HttpClientPipeliningHandler handler = new HttpClientPipeliningHandler(4);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        Future<FullHttpResponse> first = handler.send(newRequest("/1"));
+        Future<FullHttpResponse> second = handler.send(newRequest("/2"));
+        assertWritten(channel, "/1");
+        assertWritten(channel, "/2");
+
+        assertFalse(channel.finish());
+        assertTrue(first.cause() instanceof PrematureChannelClosureException);
+        assertTrue(second.cause() instanceof PrematureChannelClosureException);
+
+        Future<FullHttpResponse> third = handler.send(newRequest("/3"));
+        assertTrue(third.cause() instanceof PrematureChannelClosureException);
+    }
+
+    @Test
+    public void testConnectionCloseResponseClosesChannel() {
+        HttpClientPipeliningHandler handler = new HttpClientPipeliningHandler(4);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        Future<FullHttpResponse> first = handler.send(newRequest("/1"));
+        Future<FullHttpResponse> second = handler.send(newRequest("/2"));
+        assertWritten(channel, "/1");
+        assertWritten(channel, "/2");
+
+        FullHttpResponse response = newResponse(HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        assertFalse(channel.writeInbound(response));
+        assertTrue(first.isSuccess());
+        first.getNow().release();
+        assertFalse(channel.isActive());
+        assertTrue(second.cause() instanceof PrematureChannelClosureException);
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testPassThroughRequestsAndInformationalResponses() {
+        HttpClientPipeliningHandler handler = new HttpClientPipeliningHandler(4);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        assertTrue(channel.writeOutbound(newRequest("/direct")));
+        Future<FullHttpResponse> sent = handler.send(newRequest("/sent"));
+        assertWritten(channel, "/direct");
+        assertWritten(channel, "/sent");
+
+        assertTrue(channel.writeInbound(newResponse(HttpResponseStatus.CONTINUE)));
+        FullHttpResponse informational = channel.readInbound();
+        assertEquals(HttpResponseStatus.CONTINUE, informational.status());
+        informational.release();
+
+        assertTrue(channel.writeInbound(newResponse(HttpResponseStatus.OK)));
+        FullHttpResponse direct = channel.readInbound();
+        assertEquals(HttpResponseStatus.OK, direct.status());
+        direct.release();
+        assertFalse(sent.isDone());
+
+        assertFalse(channel.writeInbound(newResponse(HttpResponseStatus.ACCEPTED)));
+        assertEquals(HttpResponseStatus.ACCEPTED, sent.getNow().status());
+        sent.getNow().release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testFailedPassThroughRequestIsNotTracked() {
+        HttpClientPipeliningHandler handler = new HttpClientPipeliningHandler(4);
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                if (msg instanceof HttpRequest && "/fail".equals(((HttpRequest) msg).uri())) {
+                    ReferenceCountUtil.release(msg);
+                    promise.setFailure(new IOException("write failed"));
+                } else {
+                    ctx.write(msg, promise);
+                }
+            }
+        }, handler);
+
+        ChannelFuture failed = channel.writeAndFlush(newRequest("/fail"));
+        assertTrue(failed.cause() instanceof IOException);
+        assertEquals(0, handler.inFlightRequests());
+
+        // The response must complete the request which was actually written.
+        Future<FullHttpResponse> sent = handler.send(newRequest("/sent"));
+        assertWritten(channel, "/sent");
+        assertFalse(channel.writeInbound(newResponse(HttpResponseStatus.OK)));
+        assertTrue(sent.isSuccess());
+        sent.getNow().release();
+        assertFalse(channel.finish());
+    }
+}
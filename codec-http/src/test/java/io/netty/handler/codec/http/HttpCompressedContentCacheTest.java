@@ -0,0 +1,201 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class HttpCompressedContentCacheTest {
+
+    private static final String CONTENT;
+
+    static {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            buf.append("Hello, World ").append(i).append('\n');
+        }
+        CONTENT = buf.toString();
+    }
+
+    private static FullHttpRequest newRequest(String uri) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+        request.headers().set(HttpHeaderNames.HOST, "localhost");
+        request.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "gzip");
+        return request;
+    }
+
+    private static FullHttpResponse newResponse(String content, String etag) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                Unpooled.copiedBuffer(content, CharsetUtil.US_ASCII));
+        HttpUtil.setContentLength(response, response.content().readableBytes());
+        if (etag != null) {
+            response.headers().set(HttpHeaderNames.ETAG, etag);
+        }
+        return response;
+    }
+
+    // Sends the response and returns its decompressed content.
+    private static String send(EmbeddedChannel channel, FullHttpResponse response) throws IOException {
+        return send(channel, "/", response);
+    }
+
+    private static String send(EmbeddedChannel channel, String uri, FullHttpResponse response) throws IOException {
+        assertTrue(channel.writeInbound(newRequest(uri)));
+        ((FullHttpRequest) channel.readInbound()).release();
+        assertTrue(channel.writeOutbound(response));
+
+        HttpResponse encoded = channel.readOutbound();
+        assertEquals("gzip", encoded.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        ByteBuf compressed = Unpooled.buffer();
+        for (;;) {
+            HttpContent content = channel.readOutbound();
+            compressed.writeBytes(content.content());
+            content.release();
+            if (content instanceof LastHttpContent) {
+                break;
+            }
+        }
+        assertEquals(compressed.readableBytes(), HttpUtil.getContentLength(encoded));
+
+        InputStream in = new GZIPInputStream(new ByteBufInputStream(compressed, true));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        for (;;) {
+            int read = in.read(buf);
+            if (read < 0) {
+                break;
+            }
+            out.write(buf, 0, read);
+        }
+        in.close();
+        return new String(out.toByteArray(), CharsetUtil.US_ASCII);
+    }
+
+    @Test
+    public void testCachedByEtag() throws Exception {
+        HttpCompressedContentCache cache = new HttpCompressedContentCache(1024 * 1024);
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpContentCompressor(cache));
+
+        assertEquals(CONTENT, send(channel, newResponse(CONTENT, "\"v1\"")));
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.entries());
+
+        // The cached content is sent even though the content of the response differs, as the ETag is the same.
+        assertEquals(CONTENT, send(channel, newResponse("other", "\"v1\"")));
+        assertEquals(1, cache.hits());
+
+        cache.invalidate("localhost", "/other");
+        assertEquals(1, cache.entries());
+        cache.invalidate("localhost", "/");
+        assertEquals(0, cache.entries());
+        assertEquals(0, cache.size());
+        assertEquals("other", send(channel, newResponse("other", "\"v1\"")));
+
+        // Weak ETags and responses without an ETag are not cached.
+        assertEquals(CONTENT, send(channel, newResponse(CONTENT, "W/\"v2\"")));
+        assertEquals(CONTENT, send(channel, newResponse(CONTENT, null)));
+        assertEquals(1, cache.entries());
+
+        cache.clear();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testCachedByContent() throws Exception {
+        HttpCompressedContentCache cache = new HttpCompressedContentCache(1024 * 1024, true);
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpContentCompressor(cache));
+
+        assertEquals(CONTENT, send(channel, newResponse(CONTENT, null)));
+        assertEquals(CONTENT, send(channel, newResponse(CONTENT, null)));
+        assertEquals("other", send(channel, newResponse("other", null)));
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.entries());
+        assertTrue(cache.size() > CONTENT.length());
+
+        cache.clear();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        HttpCompressedContentCache probe = new HttpCompressedContentCache(1024 * 1024);
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpContentCompressor(probe));
+        send(channel, newResponse(CONTENT, "\"a\""));
+        long entrySize = probe.size();
+        probe.clear();
+        assertFalse(channel.finish());
+
+        // Room for two entries only.
+        HttpCompressedContentCache cache = new HttpCompressedContentCache(entrySize * 5 / 2);
+        channel = new EmbeddedChannel(new HttpContentCompressor(cache));
+        send(channel, newResponse(CONTENT, "\"a\""));
+        send(channel, newResponse(CONTENT, "\"b\""));
+        send(channel, newResponse(CONTENT, "\"a\""));
+        assertEquals(1, cache.hits());
+        send(channel, newResponse(CONTENT, "\"c\""));
+
+        // "b" was the least recently used entry.
+        assertEquals(2, cache.entries());
+        assertEquals(2 * entrySize, cache.size());
+        send(channel, newResponse(CONTENT, "\"a\""));
+        assertEquals(2, cache.hits());
+        send(channel, newResponse(CONTENT, "\"b\""));
+        assertEquals(2, cache.hits());
+
+        cache.clear();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testEtagIsScopedToResource() throws Exception {
+        HttpCompressedContentCache cache = new HttpCompressedContentCache(1024 * 1024);
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpContentCompressor(cache));
+
+        // Different resources may use the same ETag, e.g. one derived from the modification time.
+        assertEquals(CONTENT, send(channel, "/a", newResponse(CONTENT, "\"v1\"")));
+        assertEquals("other", send(channel, "/b", newResponse("other", "\"v1\"")));
+        assertEquals(0, cache.hits());
+        assertEquals(2, cache.entries());
+        assertEquals(CONTENT, send(channel, "/a", newResponse(CONTENT, "\"v1\"")));
+        assertEquals("other", send(channel, "/b", newResponse("other", "\"v1\"")));
+        assertEquals(2, cache.hits());
+
+        // The host is part of the resource unless the URI is in absolute form.
+        assertEquals(CONTENT, send(channel, "http://localhost/a", newResponse(CONTENT, "\"v1\"")));
+        assertEquals(2, cache.hits());
+        assertEquals(3, cache.entries());
+
+        cache.invalidate("localhost", "/a");
+        assertEquals(2, cache.entries());
+        cache.invalidate(null, "http://localhost/a");
+        assertEquals(1, cache.entries());
+
+        cache.clear();
+        assertFalse(channel.finish());
+    }
+}
@@ -15,11 +15,17 @@
  */
 package io.netty.handler.codec.http;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.BrotliDecoder;
 import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.compression.ZstdDecoder;
 import io.netty.util.CharsetUtil;
 import io.netty.util.ReferenceCountUtil;
 import org.junit.Test;
@@ -30,6 +36,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 public class HttpContentCompressorTest {
 
@@ -70,6 +77,97 @@ public class HttpContentCompressorTest {
         }
     }
 
+    @Test
+    public void testDetermineEncoding() throws Exception {
+        HttpContentCompressor compressor = new HttpContentCompressor();
+        String br = Brotli.isAvailable() ? "br" : null;
+        String zstd = Zstd.isAvailable() ? "zstd" : null;
+
+        String[] tests = {
+            // Accept-Encoding -> Content-Encoding if available, or else
+            "gzip", "gzip", "gzip",
+            "*", "gzip", "gzip",
+            "br", br, null,
+            "gzip, deflate, br", br, "gzip",
+            "gzip, zstd", zstd, "gzip",
+            "zstd, br", br, zstd,
+            "br;q=0.5, zstd", zstd, br,
+            "br;q=0.5, gzip", "gzip", "gzip",
+            "br;q=0, gzip;q=0.5", "gzip", "gzip",
+            "brotli, gzip;q=0.5", "gzip", "gzip",
+            "br; q=0.5, zstd", zstd, br,
+            // An explicit quality wins over "*", which only matches as a whole token.
+            "br;q=0, *", "gzip", "gzip",
+            "br;q=0.5, *", "gzip", "gzip",
+            "gzip;q=0, *", "deflate", "deflate",
+            "*;q=0, br", br, null,
+            "x-*, deflate;q=0.5", "deflate", "deflate",
+            "x-gzip", "gzip", "gzip",
+        };
+        for (int i = 0; i < tests.length; i += 3) {
+            String acceptEncoding = tests[i];
+            String expected = tests[i + 1] != null ? tests[i + 1] : tests[i + 2];
+            assertEquals(acceptEncoding, expected, compressor.determineEncoding(acceptEncoding));
+        }
+
+        // br and zstd are not used if compression is disabled.
+        assertEquals("gzip", new HttpContentCompressor(0).determineEncoding("br, zstd, gzip"));
+    }
+
+    @Test
+    public void testBrotliContent() throws Exception {
+        assumeTrue(Brotli.isAvailable());
+        testEncodedContent("br", new BrotliDecoder());
+    }
+
+    @Test
+    public void testZstdContent() throws Exception {
+        assumeTrue(Zstd.isAvailable());
+        testEncodedContent("zstd", new ZstdDecoder());
+    }
+
+    private static void testEncodedContent(String contentEncoding, ChannelHandler decoder) {
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor());
+        FullHttpRequest request = newRequest();
+        request.headers().set(HttpHeaderNames.ACCEPT_ENCODING, contentEncoding + ", gzip");
+        ch.writeInbound(request);
+        ((FullHttpRequest) ch.readInbound()).release();
+
+        HttpResponse res = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        res.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        ch.writeOutbound(res);
+        ch.writeOutbound(new DefaultHttpContent(Unpooled.copiedBuffer("Hell", CharsetUtil.US_ASCII)));
+        ch.writeOutbound(new DefaultHttpContent(Unpooled.copiedBuffer("o, w", CharsetUtil.US_ASCII)));
+        ch.writeOutbound(new DefaultLastHttpContent(Unpooled.copiedBuffer("orld", CharsetUtil.US_ASCII)));
+
+        res = ch.readOutbound();
+        assertEquals(contentEncoding, res.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+
+        EmbeddedChannel decoderChannel = new EmbeddedChannel(decoder);
+        for (;;) {
+            HttpContent content = ch.readOutbound();
+            // Every chunk can be decompressed as soon as it is received.
+            decoderChannel.writeInbound(content.content().retain());
+            content.release();
+            if (content instanceof LastHttpContent) {
+                break;
+            }
+        }
+        ByteBuf decompressed = Unpooled.buffer();
+        for (;;) {
+            ByteBuf buf = decoderChannel.readInbound();
+            if (buf == null) {
+                break;
+            }
+            decompressed.writeBytes(buf);
+            buf.release();
+        }
+        assertEquals("Hello, world", decompressed.toString(CharsetUtil.US_ASCII));
+        decompressed.release();
+        assertFalse(decoderChannel.finish());
+        assertThat(ch.readOutbound(), is(nullValue()));
+    }
+
     @Test
     public void testSplitContent() throws Exception {
         EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor());
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.*;
+
+public class HttpPipeliningClientTest {
+
+    /**
+     * A pool of a single {@link Channel} which hands it out to one acquirer at a time.
+     */
+    private static final class SingleChannelPool implements ChannelPool {
+        private final Channel channel;
+        private final Queue<Promise<Channel>> waiting = new ArrayDeque<Promise<Channel>>();
+        private boolean acquired;
+        int acquires;
+        int releases;
+
+        SingleChannelPool(Channel channel) {
+            this.channel = channel;
+        }
+
+        boolean isAcquired() {
+            return acquired;
+        }
+
+        @Override
+        public Future<Channel> acquire() {
+            return acquire(channel.eventLoop().<Channel>newPromise());
+        }
+
+        @Override
+        public Future<Channel> acquire(Promise<Channel> promise) {
+            if (acquired) {
+                waiting.add(promise);
+            } else {
+                acquired = true;
+                acquires++;
+                promise.setSuccess(channel);
+            }
+            return promise;
+        }
+
+        @Override
+        public Future<Void> release(Channel channel) {
+            return release(channel, channel.eventLoop().<Void>newPromise());
+        }
+
+        @Override
+        public Future<Void> release(Channel channel, Promise<Void> promise) {
+            assertSame(this.channel, channel);
+            assertTrue(acquired);
+            releases++;
+            acquired = false;
+            promise.setSuccess(null);
+            Promise<Channel> next = waiting.poll();
+            if (next != null) {
+                acquire(next);
+            }
+            return promise;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static FullHttpResponse newResponse(String uri) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, 0);
+        response.headers().set("X-Uri", uri);
+        return response;
+    }
+
+    private static void assertWritten(EmbeddedChannel channel, String uri) {
+        FullHttpRequest request = channel.readOutbound();
+        assertEquals(uri, request.uri());
+        request.release();
+    }
+
+    @Test
+    public void testRequestsArePipelinedOverPooledChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpClientPipeliningHandler(2));
+        SingleChannelPool pool = new SingleChannelPool(channel);
+        HttpPipeliningClient client = new HttpPipeliningClient(pool);
+
+        List<Future<FullHttpResponse>> futures = new ArrayList<Future<FullHttpResponse>>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(client.send(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/" + i),
+                    channel.eventLoop().<FullHttpResponse>newPromise()));
+        }
+
+        // Two requests fit into the pipeline, the channel is kept until a response makes room for the third.
+        assertTrue(pool.isAcquired());
+        assertEquals(2, pool.acquires);
+        assertEquals(1, pool.releases);
+        assertWritten(channel, "/0");
+        assertWritten(channel, "/1");
+        assertNull(channel.readOutbound());
+
+        for (int i = 0; i < 3; i++) {
+            assertFalse(channel.writeInbound(newResponse("/" + i)));
+            Future<FullHttpResponse> future = futures.get(i);
+            assertTrue(future.isSuccess());
+            assertEquals("/" + i, future.getNow().headers().get("X-Uri"));
+            future.getNow().release();
+            for (int j = i + 1; j < futures.size(); j++) {
+                assertFalse(futures.get(j).isDone());
+            }
+            if (i == 0) {
+                assertWritten(channel, "/2");
+            }
+        }
+
+        assertFalse(pool.isAcquired());
+        assertEquals(3, pool.acquires);
+        assertEquals(3, pool.releases);
+        assertFalse(channel.finish());
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class HttpPrecompressedFileTest {
+
+    private File file;
+    private File sidecar;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("netty-", ".txt");
+        sidecar = new File(file.getPath() + HttpPrecompressedFile.GZIP_SUFFIX);
+        write(file, "uncompressed content");
+    }
+
+    @After
+    public void tearDown() {
+        assertTrue(file.delete());
+        sidecar.delete();
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes(CharsetUtil.US_ASCII));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static HttpRequest newRequest(String acceptEncoding) {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        if (acceptEncoding != null) {
+            request.headers().set(HttpHeaderNames.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return request;
+    }
+
+    @Test
+    public void testSelectsSidecar() throws IOException {
+        write(sidecar, "gzip");
+        HttpPrecompressedFile selected = HttpPrecompressedFile.select(newRequest("gzip, deflate"), file);
+        assertTrue(selected.isCompressed());
+        assertEquals(sidecar, selected.file());
+        assertEquals(4, selected.length());
+
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        selected.setHeaders(response);
+        assertEquals("4", response.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertEquals("gzip", response.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        assertEquals("accept-encoding", response.headers().get(HttpHeaderNames.VARY));
+    }
+
+    @Test
+    public void testSelectsFile() throws IOException {
+        HttpPrecompressedFile selected = HttpPrecompressedFile.select(newRequest("gzip"), file);
+        assertFalse(selected.isCompressed());
+        assertEquals(file, selected.file());
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        selected.setHeaders(response);
+        assertEquals("identity", response.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        assertNull(response.headers().get(HttpHeaderNames.VARY));
+
+        write(sidecar, "gzip");
+        for (String acceptEncoding: new String[] { null, "identity", "deflate", "gzip;q=0", "*;q=0", "gzip;q=0, *",
+                "x-gzip-foo", "gzip;level=1;q=0" }) {
+            selected = HttpPrecompressedFile.select(newRequest(acceptEncoding), file);
+            assertFalse(acceptEncoding, selected.isCompressed());
+            response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+            selected.setHeaders(response);
+            assertEquals("identity", response.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+            assertEquals("accept-encoding", response.headers().get(HttpHeaderNames.VARY));
+        }
+        assertTrue(HttpPrecompressedFile.select(newRequest("*"), file).isCompressed());
+        assertTrue(HttpPrecompressedFile.select(newRequest("x-gzip"), file).isCompressed());
+    }
+
+    @Test
+    public void testIgnoresOutdatedSidecar() throws IOException {
+        write(sidecar, "gzip");
+        assertTrue(sidecar.setLastModified(file.lastModified() - 10000));
+        assertFalse(HttpPrecompressedFile.select(newRequest("gzip"), file).isCompressed());
+    }
+
+    @Test
+    public void testSidecarPassesThroughCompressor() throws IOException {
+        write(sidecar, "gzip");
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpContentCompressor());
+        HttpRequest request = newRequest("gzip");
+        assertTrue(channel.writeInbound(request));
+        assertSame(request, channel.readInbound());
+
+        HttpPrecompressedFile selected = HttpPrecompressedFile.select(request, file);
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        selected.setHeaders(response);
+        FileRegion region = selected.newFileRegion();
+        assertTrue(channel.writeOutbound(response, region, LastHttpContent.EMPTY_LAST_CONTENT));
+
+        HttpResponse written = channel.readOutbound();
+        assertEquals("4", written.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertEquals("gzip", written.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        assertSame(region, channel.readOutbound());
+        assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel.readOutbound());
+        region.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testFallbackPassesThroughCompressor() throws IOException {
+        write(sidecar, "gzip");
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpContentCompressor());
+        HttpRequest request = newRequest("deflate");
+        assertTrue(channel.writeInbound(request));
+        assertSame(request, channel.readInbound());
+
+        HttpPrecompressedFile selected = HttpPrecompressedFile.select(request, file);
+        assertFalse(selected.isCompressed());
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        selected.setHeaders(response);
+        FileRegion region = selected.newFileRegion();
+        assertTrue(channel.writeOutbound(response, region, LastHttpContent.EMPTY_LAST_CONTENT));
+
+        // The uncompressed file must neither be announced as deflate encoded nor followed by a deflate trailer.
+        HttpResponse written = channel.readOutbound();
+        assertEquals("20", written.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertEquals("identity", written.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        assertFalse(written.headers().contains(HttpHeaderNames.TRANSFER_ENCODING));
+        assertSame(region, channel.readOutbound());
+        assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel.readOutbound());
+        region.release();
+        assertFalse(channel.finish());
+    }
+}
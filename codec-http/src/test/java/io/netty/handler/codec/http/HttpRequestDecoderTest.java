@@ -17,12 +17,17 @@ package io.netty.handler.codec.http;
 
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderResult;
 import io.netty.handler.codec.TooLongFrameException;
 import io.netty.util.AsciiString;
 import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.*;
 import static io.netty.handler.codec.http.HttpHeadersTestUtils.of;
@@ -33,6 +38,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -79,8 +85,23 @@ public class HttpRequestDecoderTest {
         testDecodeWholeRequestAtOnce(CONTENT_MIXED_DELIMITERS);
     }
 
+    @Test
+    public void testDecodeWholeRequestAtOnceSlicedHeaders() {
+        testDecodeWholeRequestAtOnce(CONTENT_CRLF_DELIMITERS, newSlicingDecoder());
+        testDecodeWholeRequestAtOnce(CONTENT_LF_DELIMITERS, newSlicingDecoder());
+        testDecodeWholeRequestAtOnce(CONTENT_MIXED_DELIMITERS, newSlicingDecoder());
+    }
+
+    private static HttpRequestDecoder newSlicingDecoder() {
+        return new HttpRequestDecoder(4096, 8192, 8192, true, 128, true);
+    }
+
     private static void testDecodeWholeRequestAtOnce(byte[] content) {
-        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder());
+        testDecodeWholeRequestAtOnce(content, new HttpRequestDecoder());
+    }
+
+    private static void testDecodeWholeRequestAtOnce(byte[] content, HttpRequestDecoder decoder) {
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
         assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(content)));
         HttpRequest req = channel.readInbound();
         assertNotNull(req);
@@ -128,14 +149,22 @@ public class HttpRequestDecoderTest {
         testDecodeWholeRequestInMultipleSteps(CONTENT_MIXED_DELIMITERS);
     }
 
+    @Test
+    public void testDecodeWholeRequestInMultipleStepsSlicedHeaders() {
+        for (int i = 1; i < CONTENT_MIXED_DELIMITERS.length; i++) {
+            testDecodeWholeRequestInMultipleSteps(CONTENT_MIXED_DELIMITERS, i, newSlicingDecoder());
+        }
+    }
+
     private static void testDecodeWholeRequestInMultipleSteps(byte[] content) {
         for (int i = 1; i < content.length; i++) {
-            testDecodeWholeRequestInMultipleSteps(content, i);
+            testDecodeWholeRequestInMultipleSteps(content, i, new HttpRequestDecoder());
         }
     }
 
-    private static void testDecodeWholeRequestInMultipleSteps(byte[] content, int fragmentSize) {
-        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder());
+    private static void testDecodeWholeRequestInMultipleSteps(
+            byte[] content, int fragmentSize, HttpRequestDecoder decoder) {
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
         int headerLength = content.length - CONTENT_LENGTH;
 
         // split up the header
@@ -177,7 +206,16 @@ public class HttpRequestDecoderTest {
 
     @Test
     public void testMultiLineHeader() {
-        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder());
+        testMultiLineHeader(new HttpRequestDecoder());
+    }
+
+    @Test
+    public void testMultiLineHeaderSlicedHeaders() {
+        testMultiLineHeader(newSlicingDecoder());
+    }
+
+    private static void testMultiLineHeader(HttpRequestDecoder decoder) {
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
         String crlf = "\r\n";
         String request =  "GET /some/path HTTP/1.1" + crlf +
                 "Host: localhost" + crlf +
@@ -320,4 +358,127 @@ public class HttpRequestDecoderTest {
         assertTrue(request.decoderResult().cause() instanceof TooLongFrameException);
         assertFalse(channel.finish());
     }
+
+    @Test
+    public void testTooLargeHeadersSlicedHeaders() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder(1024, 10, 1024, true, 128, true));
+        String requestStr = "GET /some/path HTTP/1.1\r\n" +
+                "Host: localhost1\r\n\r\n";
+
+        assertTrue(channel.writeInbound(Unpooled.copiedBuffer(requestStr, CharsetUtil.US_ASCII)));
+        HttpRequest request = channel.readInbound();
+        assertTrue(request.decoderResult().isFailure());
+        assertTrue(request.decoderResult().cause() instanceof TooLongFrameException);
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testSlicedHeaders() {
+        EmbeddedChannel channel = new EmbeddedChannel(newSlicingDecoder());
+        String requestStr = "GET /some/path HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "X-Custom: a\r\n" +
+                "x-custom:  b \r\n" +
+                "X-Empty:\r\n" +
+                "Content-Length: 0\r\n\r\n";
+        assertTrue(channel.writeInbound(Unpooled.copiedBuffer(requestStr, CharsetUtil.US_ASCII)));
+        HttpRequest req = channel.readInbound();
+        HttpHeaders headers = req.headers();
+        assertThat(headers, instanceOf(SlicedHttpHeaders.class));
+        assertEquals(5, headers.size());
+
+        // Standard names are interned, others keep their case.
+        List<String> names = new ArrayList<String>(headers.names());
+        assertEquals("host", names.get(0));
+        assertEquals("X-Custom", names.get(1));
+        assertEquals("x-custom", names.get(2));
+        assertSame(HOST, headers.iteratorCharSequence().next().getKey());
+
+        assertEquals("localhost", headers.get(HOST));
+        assertEquals("localhost", headers.get("HOST"));
+        assertEquals(0, headers.getInt(HttpHeaderNames.CONTENT_LENGTH).intValue());
+        assertEquals(2, headers.getAll("X-CUSTOM").size());
+        assertEquals("b", headers.getAll("X-CUSTOM").get(1));
+        assertEquals("", headers.get("x-empty"));
+        assertTrue(headers.contains("x-custom", "A", true));
+        assertFalse(headers.contains("x-custom", "A", false));
+        assertNull(headers.get("missing"));
+
+        // Removing a missing header does not copy, any other modification does.
+        headers.remove("missing");
+        assertEquals(5, headers.size());
+        headers.set(HOST, "example.com");
+        headers.remove("X-CUSTOM");
+        assertEquals(3, headers.size());
+        assertEquals("example.com", headers.get(HOST));
+        assertEquals("", headers.get("x-empty"));
+
+        LastHttpContent c = channel.readInbound();
+        c.release();
+        assertFalse(channel.finish());
+    }
+
+    private static HttpRequest decodeHeaders(HttpRequestDecoder decoder, String headers) {
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+        String requestStr = "GET /some/path HTTP/1.1\r\n" + headers + "Content-Length: 0\r\n\r\n";
+        assertTrue(channel.writeInbound(Unpooled.copiedBuffer(requestStr, CharsetUtil.ISO_8859_1)));
+        HttpRequest request = channel.readInbound();
+        channel.finishAndReleaseAll();
+        return request;
+    }
+
+    // Standard names are lowercase in SlicedHttpHeaders.
+    private static List<String> entries(HttpHeaders headers) {
+        List<String> entries = new ArrayList<String>();
+        for (Map.Entry<String, String> entry : headers) {
+            entries.add(entry.getKey().toLowerCase(Locale.ROOT) + '=' + entry.getValue());
+        }
+        return entries;
+    }
+
+    @Test
+    public void testMalformedHeadersSlicedHeaders() {
+        String[] inputs = {
+                "X-A: a\rb\r\n",
+                "X-A: a\r\r\n",
+                "X-A: a\r\n \rb\r\n",
+                "X-B: c\u000bd\r\n",
+                "X-B: c\u0000d\r\n",
+                "X-B: c\fd\r\n",
+                "X-B: c\r\n \u000bd\r\n",
+                "X-C: e\r\nX-B: c\u000bd\r\n",
+                "X C: e\r\n",
+        };
+        for (String input : inputs) {
+            HttpRequest expected = decodeHeaders(new HttpRequestDecoder(), input);
+            HttpRequest actual = decodeHeaders(newSlicingDecoder(), input);
+            DecoderResult expectedResult = expected.decoderResult();
+            DecoderResult actualResult = actual.decoderResult();
+            assertEquals(input, expectedResult.isSuccess(), actualResult.isSuccess());
+            if (expectedResult.isFailure()) {
+                assertEquals(input, expectedResult.cause().getClass(), actualResult.cause().getClass());
+                assertEquals(input, expectedResult.cause().getMessage(), actualResult.cause().getMessage());
+            } else {
+                assertThat(actual.headers(), instanceOf(SlicedHttpHeaders.class));
+                assertEquals(input, entries(expected.headers()), entries(actual.headers()));
+                // The values are valid, so copying them for a modification must not fail either.
+                actual.headers().set("X-D", "f");
+                expected.headers().set("X-D", "f");
+                assertEquals(input, entries(expected.headers()), entries(actual.headers()));
+            }
+            ReferenceCountUtil.release(expected);
+            ReferenceCountUtil.release(actual);
+        }
+    }
+
+    @Test
+    public void testMalformedHeadersNotValidatedSlicedHeaders() {
+        String input = "X-A: a\rb\r\nX-B: c\u000bd\r\n";
+        HttpRequest expected = decodeHeaders(new HttpRequestDecoder(4096, 8192, 8192, false), input);
+        HttpRequest actual = decodeHeaders(new HttpRequestDecoder(4096, 8192, 8192, false, 128, true), input);
+        assertTrue(actual.decoderResult().isSuccess());
+        assertEquals(entries(expected.headers()), entries(actual.headers()));
+        assertEquals("ab", actual.headers().get("X-A"));
+        assertEquals("c\u000bd", actual.headers().get("X-B"));
+    }
 }
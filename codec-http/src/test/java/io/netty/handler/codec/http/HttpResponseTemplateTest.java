@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HttpResponseTemplateTest {
+
+    private static HttpHeaders newHeaders() {
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.set(HttpHeaderNames.SERVER, "netty");
+        headers.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN);
+        return headers;
+    }
+
+    private static String encode(HttpObject msg) {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpResponseEncoder());
+        assertTrue(channel.writeOutbound(msg));
+        String encoded = readOutbound(channel);
+        assertFalse(channel.finish());
+        return encoded;
+    }
+
+    private static String readOutbound(EmbeddedChannel channel) {
+        StringBuilder sb = new StringBuilder();
+        for (;;) {
+            ByteBuf buf = channel.readOutbound();
+            if (buf == null) {
+                break;
+            }
+            sb.append(buf.toString(CharsetUtil.ISO_8859_1));
+            buf.release();
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testFullResponse() {
+        HttpResponseTemplate template = new HttpResponseTemplate(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, newHeaders(), false);
+        FullHttpResponse response = template.newFullResponse(Unpooled.copiedBuffer("hello", CharsetUtil.US_ASCII));
+        assertEquals("5", response.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertFalse(response.headers().contains(HttpHeaderNames.SERVER));
+
+        assertEquals("HTTP/1.1 200 OK\r\n" +
+                "server: netty\r\n" +
+                "content-type: text/plain\r\n" +
+                "content-length: 5\r\n\r\n" +
+                "hello", encode(response));
+    }
+
+    @Test
+    public void testChangedStatus() {
+        HttpResponseTemplate template = new HttpResponseTemplate(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, newHeaders(), false);
+        HttpResponse response = template.newResponse(HttpResponseStatus.NOT_FOUND);
+        response.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+
+        assertEquals("HTTP/1.1 404 Not Found\r\n" +
+                "server: netty\r\n" +
+                "content-type: text/plain\r\n" +
+                "transfer-encoding: chunked\r\n\r\n", encode(response));
+    }
+
+    @Test
+    public void testDateHeader() {
+        HttpResponseTemplate template = new HttpResponseTemplate(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, newHeaders());
+        String encoded = encode(template.newFullResponse(Unpooled.EMPTY_BUFFER));
+        int start = encoded.indexOf("date: ");
+        assertTrue(encoded, start > 0);
+        String value = encoded.substring(start + 6, encoded.indexOf("\r\n", start));
+        assertNotNull(value, DateFormatter.parseHttpDate(value));
+    }
+
+    @Test
+    public void testReplaceKeepsTemplate() {
+        HttpResponseTemplate template = new HttpResponseTemplate(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, newHeaders(), false);
+        FullHttpResponse response = template.newFullResponse(Unpooled.EMPTY_BUFFER);
+        FullHttpResponse copy = response.copy();
+        response.release();
+        assertSame(template, HttpResponseTemplate.templateOf(copy));
+        assertTrue(encode(copy).contains("server: netty\r\n"));
+    }
+
+    @Test
+    public void testCompressorKeepsTemplate() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpResponseEncoder(), new HttpContentCompressor());
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        request.headers().set(HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderValues.GZIP);
+        assertTrue(channel.writeInbound(request));
+        ((FullHttpRequest) channel.readInbound()).release();
+
+        HttpResponseTemplate template = new HttpResponseTemplate(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, newHeaders(), false);
+        FullHttpResponse response = template.newFullResponse(Unpooled.copiedBuffer("hello", CharsetUtil.US_ASCII));
+        HttpUtil.setKeepAlive(response, false);
+        assertFalse(HttpUtil.isKeepAlive(response));
+        assertTrue(channel.writeOutbound(response));
+
+        String encoded = readOutbound(channel);
+        assertTrue(encoded, encoded.startsWith("HTTP/1.1 200 OK\r\n" +
+                "server: netty\r\n" +
+                "content-type: text/plain\r\n" +
+                "connection: close\r\n" +
+                "content-encoding: gzip\r\n"));
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testHeadersAreReadOnly() {
+        HttpResponseTemplate template = new HttpResponseTemplate(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, newHeaders(), false);
+        assertEquals("netty", template.headers().get(HttpHeaderNames.SERVER));
+        try {
+            template.headers().set(HttpHeaderNames.SERVER, "other");
+            fail();
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsContentLength() {
+        HttpHeaders headers = newHeaders();
+        headers.setInt(HttpHeaderNames.CONTENT_LENGTH, 1);
+        new HttpResponseTemplate(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, headers);
+    }
+
+    @Test
+    public void testRejectsHeadersInspectedByHandlers() {
+        AsciiString[] names = {
+                HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderNames.CONTENT_ENCODING, HttpHeaderNames.CONNECTION,
+                HttpHeaderNames.KEEP_ALIVE
+        };
+        for (AsciiString name : names) {
+            HttpHeaders headers = newHeaders();
+            headers.set(name, "value");
+            try {
+                new HttpResponseTemplate(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, headers);
+                fail(name.toString());
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsDateIfDateHeaderEnabled() {
+        HttpHeaders headers = newHeaders();
+        headers.set(HttpHeaderNames.DATE, "Thu, 01 Jan 1970 00:00:00 GMT");
+        new HttpResponseTemplate(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, headers, true);
+    }
+}
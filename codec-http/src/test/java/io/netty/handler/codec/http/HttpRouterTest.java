@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class HttpRouterTest {
+
+    private static HttpRouter<String> newRouter() {
+        return new HttpRouterBuilder<String>()
+                .addRoute(HttpMethod.GET, "/", "index")
+                .addRoute(HttpMethod.GET, "/users", "users")
+                .addRoute(HttpMethod.POST, "/users", "createUser")
+                .addRoute(HttpMethod.GET, "/users/me", "me")
+                .addRoute(HttpMethod.GET, "/users/{id}", "user")
+                .addRoute(HttpMethod.GET, "/users/{id}/posts/{post}", "post")
+                .addRoute(HttpMethod.GET, "/userinfo", "userinfo")
+                .addRoute("/static/*", "static")
+                .addRoute(HttpMethod.GET, "/static/index.html", "staticIndex")
+                .build();
+    }
+
+    private static HttpRouteMatch<String> route(HttpRouter<String> router, HttpMethod method, String uri) {
+        HttpRouteMatch<String> match = router.newMatch();
+        return router.route(method, uri, match) ? match : null;
+    }
+
+    @Test
+    public void testLiteralRoutes() {
+        HttpRouter<String> router = newRouter();
+        assertEquals("index", route(router, HttpMethod.GET, "/").target());
+        assertEquals("users", route(router, HttpMethod.GET, "/users").target());
+        assertEquals("createUser", route(router, HttpMethod.POST, "/users").target());
+        assertEquals("userinfo", route(router, HttpMethod.GET, "/userinfo").target());
+        assertEquals("me", route(router, HttpMethod.GET, "/users/me?x=1").target());
+        assertNull(route(router, HttpMethod.GET, "/use"));
+        assertNull(route(router, HttpMethod.GET, "/users/"));
+        assertNull(route(router, HttpMethod.GET, "/unknown"));
+        assertNull(route(router, HttpMethod.GET, "*"));
+    }
+
+    @Test
+    public void testPathParameters() {
+        HttpRouter<String> router = newRouter();
+        HttpRouteMatch<String> match = route(router, HttpMethod.GET, "/users/42/posts/hello%20world?x=1");
+        assertEquals("post", match.target());
+        assertEquals(2, match.paramCount());
+        assertEquals("id", match.paramName(0));
+        assertEquals("42", match.param("id"));
+        assertEquals("hello world", match.param("post"));
+        assertEquals("hello%20world", match.uri().substring(match.paramStart(1), match.paramEnd(1)));
+        assertNull(match.param("unknown"));
+
+        match = route(router, HttpMethod.GET, "/users/mine");
+        assertEquals("user", match.target());
+        assertEquals("mine", match.param("id"));
+
+        // A literal route which does not match falls back to the parameter.
+        match = route(router, HttpMethod.GET, "/users/me/posts/1");
+        assertEquals("post", match.target());
+        assertEquals("me", match.param("id"));
+
+        assertNull(route(router, HttpMethod.GET, "/users/42/posts/"));
+    }
+
+    @Test
+    public void testWildcard() {
+        HttpRouter<String> router = newRouter();
+        HttpRouteMatch<String> match = route(router, HttpMethod.GET, "/static/css/site.css");
+        assertEquals("static", match.target());
+        assertEquals("css/site.css", match.param(HttpRouterBuilder.WILDCARD));
+        assertEquals("staticIndex", route(router, HttpMethod.GET, "/static/index.html").target());
+        assertEquals("static", route(router, HttpMethod.POST, "/static/index.html").target());
+        assertEquals("", route(router, HttpMethod.GET, "/static/").param(HttpRouterBuilder.WILDCARD));
+    }
+
+    @Test
+    public void testMethodNotAllowed() {
+        HttpRouter<String> router = newRouter();
+        HttpRouteMatch<String> match = router.newMatch();
+        assertFalse(router.route(HttpMethod.DELETE, "/users/42", match));
+        assertTrue(match.isMethodNotAllowed());
+        assertEquals(Collections.singletonList(HttpMethod.GET), match.allowedMethods());
+        assertFalse(router.route(HttpMethod.DELETE, "/users", match));
+        assertEquals(Arrays.asList(HttpMethod.GET, HttpMethod.POST), match.allowedMethods());
+        assertFalse(router.route(HttpMethod.GET, "/unknown", match));
+        assertFalse(match.isMethodNotAllowed());
+        assertEquals(Collections.<HttpMethod>emptyList(), match.allowedMethods());
+        assertTrue(router.route(HttpMethod.valueOf("POST"), "/users", match));
+        assertEquals("createUser", match.target());
+    }
+
+    @Test
+    public void testAbsoluteUri() {
+        HttpRouter<String> router = newRouter();
+        assertEquals("user", route(router, HttpMethod.GET, "http://example.com:8080/users/1?a=b").target());
+        assertNull(route(router, HttpMethod.GET, "http://example.com"));
+        assertNull(route(router, HttpMethod.GET, "http://example.com?/users"));
+    }
+
+    @Test
+    public void testQuery() {
+        HttpRouter<String> router = newRouter();
+        HttpRouteMatch<String> match = route(router, HttpMethod.GET, "/users?a=1&b=x+y&a=2;c&%61=3#fragment");
+        assertEquals("a=1&b=x+y&a=2;c&%61=3", match.rawQuery());
+        assertEquals("1", match.queryParam("a"));
+        assertEquals("x y", match.queryParam("b"));
+        assertEquals("", match.queryParam("c"));
+        assertNull(match.queryParam("d"));
+        assertEquals(Arrays.asList("1", "2", "3"), match.queryParams("a"));
+        assertEquals(Collections.<String>emptyList(), match.queryParams("d"));
+        assertEquals("/users", match.path());
+
+        match = route(router, HttpMethod.GET, "/users");
+        assertEquals("", match.rawQuery());
+        assertNull(match.queryParam("a"));
+    }
+
+    @Test
+    public void testMatchIsReused() {
+        HttpRouter<String> router = newRouter();
+        HttpRouteMatch<String> match = router.newMatch();
+        assertTrue(router.route(HttpMethod.GET, "/users/1/posts/2", match));
+        assertTrue(router.route(HttpMethod.GET, "/users", match));
+        assertEquals("users", match.target());
+        assertEquals(0, match.paramCount());
+    }
+
+    @Test
+    public void testBuilderCanBeReused() {
+        HttpRouterBuilder<String> builder = new HttpRouterBuilder<String>().addRoute("/a", "a");
+        HttpRouter<String> first = builder.build();
+        HttpRouter<String> second = builder.addRoute("/ab", "ab").build();
+        assertNull(route(first, HttpMethod.GET, "/ab"));
+        assertEquals("ab", route(second, HttpMethod.GET, "/ab").target());
+        assertEquals("a", route(second, HttpMethod.GET, "/a").target());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateRoute() {
+        new HttpRouterBuilder<String>().addRoute(HttpMethod.GET, "/a", "a").addRoute(HttpMethod.GET, "/a", "b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConflictingParameterNames() {
+        new HttpRouterBuilder<String>().addRoute("/a/{id}", "a").addRoute("/a/{name}/b", "b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWildcardNotLast() {
+        new HttpRouterBuilder<String>().addRoute("/a/*/b", "a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPatternWithoutLeadingSlash() {
+        new HttpRouterBuilder<String>().addRoute("a", "a");
+    }
+}
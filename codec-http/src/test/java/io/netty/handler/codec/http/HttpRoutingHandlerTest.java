@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HttpRoutingHandlerTest {
+
+    private static final class RecordingHandler extends HttpRoutingHandler<String> {
+        final List<String> routed = new ArrayList<String>();
+
+        RecordingHandler() {
+            super(new HttpRouterBuilder<String>()
+                    .addRoute(HttpMethod.GET, "/users/{id}", "user")
+                    .addRoute(HttpMethod.POST, "/upload", "upload")
+                    .build());
+        }
+
+        @Override
+        protected void channelRouted(ChannelHandlerContext ctx, HttpRequest request, HttpRouteMatch<String> match) {
+            routed.add(match.target() + ':' + (match.paramCount() > 0 ? match.param(0) : ""));
+            ReferenceCountUtil.release(request);
+        }
+    }
+
+    @Test
+    public void testRoutedRequest() {
+        RecordingHandler handler = new RecordingHandler();
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        assertFalse(channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/users/7")));
+        assertEquals("user:7", handler.routed.get(0));
+
+        // Content of a routed request is passed on.
+        assertFalse(channel.writeInbound(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload")));
+        assertTrue(channel.writeInbound(new DefaultHttpContent(Unpooled.copiedBuffer(new byte[] { 1, 2 }))));
+        assertEquals("upload:", handler.routed.get(1));
+        HttpContent content = channel.readInbound();
+        assertEquals(2, content.content().readableBytes());
+        content.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testNotFound() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RecordingHandler());
+        assertFalse(channel.writeInbound(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/unknown")));
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.NOT_FOUND, response.status());
+        assertEquals("0", response.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        response.release();
+
+        // The content of the request is discarded.
+        HttpContent content = new DefaultHttpContent(Unpooled.copiedBuffer(new byte[] { 1 }));
+        assertFalse(channel.writeInbound(content));
+        assertEquals(0, content.refCnt());
+        LastHttpContent last = new DefaultLastHttpContent(Unpooled.copiedBuffer(new byte[] { 2 }));
+        assertFalse(channel.writeInbound(last));
+        assertEquals(0, last.refCnt());
+        assertTrue(channel.isOpen());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testMethodNotAllowed() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RecordingHandler());
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.DELETE, "/users/7");
+        HttpUtil.setKeepAlive(request, false);
+        assertFalse(channel.writeInbound(request));
+        assertEquals(0, request.refCnt());
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.METHOD_NOT_ALLOWED, response.status());
+        assertEquals("GET", response.headers().get(HttpHeaderNames.ALLOW));
+        response.release();
+        assertFalse(channel.isOpen());
+        assertFalse(channel.finish());
+    }
+}
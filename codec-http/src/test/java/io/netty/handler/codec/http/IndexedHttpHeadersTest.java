@@ -0,0 +1,250 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.util.AsciiString;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IndexedHttpHeadersTest {
+
+    private static List<AsciiString> knownNames() throws IllegalAccessException {
+        List<AsciiString> names = new ArrayList<AsciiString>();
+        for (Field field : HttpHeaderNames.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == AsciiString.class) {
+                names.add((AsciiString) field.get(null));
+            }
+        }
+        return names;
+    }
+
+    @Test
+    public void testKnownNames() throws Exception {
+        IndexedHttpHeaders headers = new IndexedHttpHeaders();
+        List<AsciiString> names = knownNames();
+        for (AsciiString name : names) {
+            headers.add(name, name.toString());
+        }
+        assertEquals(names.size(), headers.size());
+        for (AsciiString name : names) {
+            // Lookups by the constant, a String and a name in different case find the same header.
+            assertEquals(name.toString(), headers.get(name));
+            assertEquals(name.toString(), headers.get(name.toString()));
+            assertEquals(name.toString(), headers.get(name.toString().toUpperCase(Locale.ROOT)));
+            assertEquals(name.toString(), headers.get(new AsciiString(name.toString())));
+        }
+        for (AsciiString name : names) {
+            headers.remove(name.toString().toUpperCase(Locale.ROOT));
+            assertFalse(headers.contains(name));
+        }
+        assertTrue(headers.isEmpty());
+    }
+
+    @Test
+    public void testCustomNames() {
+        IndexedHttpHeaders headers = new IndexedHttpHeaders();
+        for (int i = 0; i < 100; i++) {
+            headers.add("X-Custom-" + i, "a" + i);
+            headers.add("x-custom-" + i, "b" + i);
+        }
+        assertEquals(200, headers.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Arrays.asList("a" + i, "b" + i), headers.getAll("X-CUSTOM-" + i));
+        }
+        // Remove every other name, which moves the names which remain in the open addressing table.
+        for (int i = 0; i < 100; i += 2) {
+            headers.remove("X-Custom-" + i);
+        }
+        assertEquals(100, headers.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 2 != 0, headers.contains("x-custom-" + i));
+        }
+        for (int i = 1; i < 100; i += 2) {
+            headers.remove("X-Custom-" + i);
+        }
+        assertTrue(headers.isEmpty());
+        assertNull(headers.get("X-Custom-1"));
+    }
+
+    @Test
+    public void testInsertionOrder() {
+        IndexedHttpHeaders headers = new IndexedHttpHeaders();
+        headers.add(HttpHeaderNames.HOST, "localhost");
+        headers.add("X-Foo", "1");
+        headers.add(HttpHeaderNames.ACCEPT, "text/html");
+        headers.add("x-foo", "2");
+        headers.set(HttpHeaderNames.HOST, "example.com");
+
+        List<String> entries = new ArrayList<String>();
+        for (Entry<String, String> entry : headers) {
+            entries.add(entry.getKey() + '=' + entry.getValue());
+        }
+        assertEquals(Arrays.asList("X-Foo=1", "accept=text/html", "x-foo=2", "host=example.com"), entries);
+        assertEquals(Arrays.asList("X-Foo", "accept", "x-foo", "host"), new ArrayList<String>(headers.names()));
+    }
+
+    @Test
+    public void testValueIterator() {
+        IndexedHttpHeaders headers = new IndexedHttpHeaders();
+        headers.add(HttpHeaderNames.SET_COOKIE, Arrays.asList("a", "b"));
+        headers.add("X-Foo", "1");
+        headers.add("set-cookie", "c");
+        Iterator<String> itr = headers.valueStringIterator(HttpHeaderNames.SET_COOKIE);
+        List<String> values = new ArrayList<String>();
+        while (itr.hasNext()) {
+            values.add(itr.next());
+        }
+        assertEquals(Arrays.asList("a", "b", "c"), values);
+        assertFalse(headers.valueStringIterator("X-Bar").hasNext());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIteratorRemove() {
+        IndexedHttpHeaders headers = new IndexedHttpHeaders();
+        headers.add(HttpHeaderNames.HOST, "localhost");
+        Iterator<Entry<CharSequence, CharSequence>> itr = headers.iteratorCharSequence();
+        itr.next();
+        itr.remove();
+    }
+
+    @Test
+    public void testValidation() {
+        IndexedHttpHeaders headers = new IndexedHttpHeaders();
+        try {
+            headers.add("Bad Name", "value");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            headers.set((String) null, "value");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            headers.add(HttpHeaderNames.HOST, "bad\rvalue");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        assertTrue(headers.isEmpty());
+
+        headers = new IndexedHttpHeaders(false);
+        headers.add("Bad Name", "bad\rvalue");
+        assertEquals("bad\rvalue", headers.get("bad name"));
+    }
+
+    @Test
+    public void testConversions() {
+        IndexedHttpHeaders headers = new IndexedHttpHeaders();
+        headers.setInt(HttpHeaderNames.CONTENT_LENGTH, 42);
+        headers.addShort("X-Short", (short) 7);
+        headers.set(HttpHeaderNames.AGE, "abc");
+        assertEquals(Integer.valueOf(42), headers.getInt(HttpHeaderNames.CONTENT_LENGTH));
+        assertEquals(7, headers.getShort("x-short", (short) 0));
+        assertNull(headers.getInt(HttpHeaderNames.AGE));
+        assertEquals(-1, headers.getInt(HttpHeaderNames.AGE, -1));
+        assertTrue(headers.containsValue(HttpHeaderNames.CONTENT_LENGTH, "42", false));
+        assertTrue(headers.contains(HttpHeaderNames.AGE, "ABC", true));
+        assertFalse(headers.contains(HttpHeaderNames.AGE, "ABC", false));
+    }
+
+    @Test
+    public void testEqualsAndCopy() {
+        IndexedHttpHeaders headers = new IndexedHttpHeaders();
+        headers.add(HttpHeaderNames.HOST, "localhost");
+        headers.add("X-Foo", "1");
+        headers.add("X-Foo", "2");
+
+        HttpHeaders copy = headers.copy();
+        assertEquals(headers, copy);
+        assertEquals(headers.hashCode(), copy.hashCode());
+
+        IndexedHttpHeaders other = new IndexedHttpHeaders();
+        other.add("x-foo", "1");
+        other.add("x-foo", "2");
+        other.add(HttpHeaderNames.HOST, "localhost");
+        assertEquals(headers, other);
+        assertEquals(headers.hashCode(), other.hashCode());
+
+        other.set("x-foo", Arrays.asList("2", "1"));
+        assertNotEquals(headers, other);
+
+        copy.add("X-Bar", "3");
+        assertFalse(headers.contains("X-Bar"));
+    }
+
+    @Test
+    public void testSameAsDefaultHttpHeaders() {
+        String[] names = {
+                "Host", "host", "Content-Length", "accept", "X-Foo", "x-foo", "X-Bar", "X-Baz", "Set-Cookie",
+                "x-request-id", "Cookie", "Vary"
+        };
+        Random random = new Random(42);
+        HttpHeaders expected = new DefaultHttpHeaders();
+        HttpHeaders actual = new IndexedHttpHeaders();
+        for (int i = 0; i < 10000; i++) {
+            String name = names[random.nextInt(names.length)];
+            String value = String.valueOf(random.nextInt(10));
+            switch (random.nextInt(5)) {
+            case 0:
+            case 1:
+                expected.add(name, value);
+                actual.add(name, value);
+                break;
+            case 2:
+                expected.set(name, value);
+                actual.set(name, value);
+                break;
+            case 3:
+                expected.remove(name);
+                actual.remove(name);
+                break;
+            default:
+                List<String> values = Arrays.asList(value, String.valueOf(i));
+                expected.set(name, values);
+                actual.set(name, values);
+            }
+            assertEquals(expected.size(), actual.size());
+            assertEquals(toStrings(expected.entries()), toStrings(actual.entries()));
+            assertEquals(new ArrayList<String>(expected.names()), new ArrayList<String>(actual.names()));
+            for (String n : names) {
+                assertEquals(expected.get(n), actual.get(n));
+                assertEquals(expected.getAll(n), actual.getAll(n));
+            }
+        }
+    }
+
+    private static List<String> toStrings(List<Entry<String, String>> entries) {
+        List<String> strings = new ArrayList<String>(entries.size());
+        for (Entry<String, String> entry : entries) {
+            strings.add(entry.getKey() + '=' + entry.getValue());
+        }
+        return strings;
+    }
+}
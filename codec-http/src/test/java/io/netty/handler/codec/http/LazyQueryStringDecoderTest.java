@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LazyQueryStringDecoderTest {
+
+    private static final String[] URIS = {
+        "", "/foo", "/foo%20bar", "/foo?a=b=c", "/foo?a=1&a=2", "/foo%20bar?a=1&a=2", "/foo?a=&a=2", "/foo?a=1&a=",
+        "/foo?a=1&a=&a=", "/foo?a=1=&a==2", "/foo?abc=1%2023&abc=124%20", "/foo?a+b=c+d&a%20b=e", "path/", "path?",
+        "?a#anchor", "?a=b#anchor", "?#", "?#anchor", "#?a=b#anchor", "?#a=b#anchor", "/foo?=a&=&b=1;c", "?&&a=1&&",
+        "/foo?%C3%A9t%C3%A9=%E2%82%AC",
+    };
+
+    private static Map<String, List<String>> parameters(LazyQueryStringDecoder decoder) {
+        Map<String, List<String>> params = new LinkedHashMap<String, List<String>>();
+        for (int i = 0; i < decoder.size(); i++) {
+            String name = decoder.name(i).toString();
+            List<String> values = params.get(name);
+            if (values == null) {
+                values = new ArrayList<String>();
+                params.put(name, values);
+                for (CharSequence value : decoder.getAll(name)) {
+                    values.add(value.toString());
+                }
+            }
+        }
+        return params;
+    }
+
+    @Test
+    public void testSameParametersAsQueryStringDecoder() {
+        LazyQueryStringDecoder decoder = new LazyQueryStringDecoder();
+        for (String uri : URIS) {
+            QueryStringDecoder expected = new QueryStringDecoder(uri);
+            decoder.reset(uri);
+            assertEquals(uri, expected.parameters(), parameters(decoder));
+            assertEquals(uri, expected.rawPath(), decoder.rawPath().toString());
+            assertEquals(uri, expected.rawQuery(), decoder.rawQuery().toString());
+
+            // Views of an AsciiString are equal as well.
+            decoder.reset(new AsciiString(uri));
+            assertEquals(uri, expected.parameters(), parameters(decoder));
+
+            expected = new QueryStringDecoder(uri, false);
+            decoder.reset(uri, false);
+            assertEquals(uri, expected.parameters(), parameters(decoder));
+        }
+    }
+
+    @Test
+    public void testGet() {
+        LazyQueryStringDecoder decoder = new LazyQueryStringDecoder().reset("/foo?a=1&b=x%20y&a=2&c&d+e=f");
+        assertEquals(5, decoder.size());
+        assertEquals("1", decoder.get("a").toString());
+        assertEquals("x y", decoder.get("b").toString());
+        assertEquals("", decoder.get("c").toString());
+        assertEquals("f", decoder.get(new AsciiString("d e")).toString());
+        assertNull(decoder.get("e"));
+        assertTrue(decoder.contains("c"));
+        assertFalse(decoder.contains("z"));
+
+        assertEquals(0, decoder.indexOf("a"));
+        assertEquals(2, decoder.indexOf("a", 1));
+        assertEquals(-1, decoder.indexOf("a", 3));
+        assertEquals(Arrays.<CharSequence>asList("1", "2"), toStrings(decoder.getAll("a")));
+        assertTrue(decoder.getAll("z").isEmpty());
+    }
+
+    private static List<CharSequence> toStrings(List<CharSequence> values) {
+        List<CharSequence> strings = new ArrayList<CharSequence>(values.size());
+        for (CharSequence value : values) {
+            strings.add(value.toString());
+        }
+        return strings;
+    }
+
+    @Test
+    public void testGetInt() {
+        LazyQueryStringDecoder decoder = new LazyQueryStringDecoder().reset(
+                "?a=42&b=-7&c=%2B5&d=x&e=&f=2147483647&g=-2147483648&h=2147483648&i=-&j=1%");
+        assertEquals(42, decoder.getInt("a", 0));
+        assertEquals(-7, decoder.getInt("b", 0));
+        assertEquals(5, decoder.getInt("c", 0));
+        assertEquals(-1, decoder.getInt("d", -1));
+        assertEquals(-1, decoder.getInt("e", -1));
+        assertEquals(Integer.MAX_VALUE, decoder.getInt("f", 0));
+        assertEquals(Integer.MIN_VALUE, decoder.getInt("g", 0));
+        assertEquals(-1, decoder.getInt("h", -1));
+        assertEquals(-1, decoder.getInt("i", -1));
+        assertEquals(-1, decoder.getInt("z", -1));
+        try {
+            decoder.getInt("j", -1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // Malformed escape sequence, like QueryStringDecoder.
+        }
+    }
+
+    @Test
+    public void testMaxParams() {
+        LazyQueryStringDecoder decoder = new LazyQueryStringDecoder(CharsetUtil.UTF_8, 2);
+        decoder.reset("/foo?a=1&b=2&c=3");
+        assertEquals(2, decoder.size());
+        assertFalse(decoder.contains("c"));
+    }
+
+    @Test
+    public void testReset() {
+        LazyQueryStringDecoder decoder = new LazyQueryStringDecoder();
+        StringBuilder uri = new StringBuilder("/foo?");
+        for (int i = 0; i < 100; i++) {
+            uri.append("p").append(i).append('=').append(i).append('&');
+        }
+        decoder.reset(uri.toString());
+        assertEquals(100, decoder.size());
+        assertEquals(99, decoder.getInt("p99", -1));
+
+        decoder.reset("/bar?q=1");
+        assertEquals(1, decoder.size());
+        assertEquals("q", decoder.name(0).toString());
+        assertFalse(decoder.contains("p0"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        new LazyQueryStringDecoder().reset("/foo?a=1").value(1);
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import static org.junit.Assert.*;
+
+public class SpillingHttpObjectAggregatorTest {
+
+    private static HttpRequest newRequest() {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        HttpUtil.setTransferEncodingChunked(request, true);
+        return request;
+    }
+
+    private static HttpContent chunk(String content) {
+        return new DefaultHttpContent(Unpooled.copiedBuffer(content, CharsetUtil.US_ASCII));
+    }
+
+    @Test
+    public void testKeepsSmallContentInMemory() {
+        EmbeddedChannel channel = new EmbeddedChannel(new SpillingHttpObjectAggregator(1024, 16));
+        assertFalse(channel.writeInbound(newRequest()));
+        assertFalse(channel.writeInbound(chunk("hello ")));
+        assertTrue(channel.writeInbound(new DefaultLastHttpContent(
+                Unpooled.copiedBuffer("world", CharsetUtil.US_ASCII))));
+
+        FullHttpRequest request = channel.readInbound();
+        assertNull(SpillingHttpObjectAggregator.spilledFile(request));
+        assertEquals("hello world", request.content().toString(CharsetUtil.US_ASCII));
+        assertEquals("11", request.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertFalse(HttpUtil.isTransferEncodingChunked(request));
+        request.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testSpillsLargeContentToFile() {
+        EmbeddedChannel channel = new EmbeddedChannel(new SpillingHttpObjectAggregator(1024 * 1024, 16));
+        StringBuilder expected = new StringBuilder();
+        assertFalse(channel.writeInbound(newRequest()));
+        for (int i = 0; i < 1000; i++) {
+            String content = "chunk-" + i + ';';
+            expected.append(content);
+            assertFalse(channel.writeInbound(chunk(content)));
+        }
+        LastHttpContent last = new DefaultLastHttpContent();
+        last.trailingHeaders().set("x-checksum", "abc");
+        assertTrue(channel.writeInbound(last));
+
+        FullHttpRequest request = channel.readInbound();
+        File file = SpillingHttpObjectAggregator.spilledFile(request);
+        assertNotNull(file);
+        assertTrue(file.exists());
+        assertEquals(expected.length(), file.length());
+        assertEquals("abc", request.trailingHeaders().get("x-checksum"));
+
+        ByteBuf content = request.content();
+        assertEquals(expected.length(), content.readableBytes());
+        assertEquals(expected.toString(), content.toString(CharsetUtil.US_ASCII));
+        assertEquals('c', content.getByte(0));
+        assertEquals(expected.charAt(expected.length() - 1), content.getByte(expected.length() - 1));
+        assertEquals(expected.substring(9000, 9010), content.toString(9000, 10, CharsetUtil.US_ASCII));
+
+        request.release();
+        assertFalse(file.exists());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testOversizedContent() {
+        EmbeddedChannel channel = new EmbeddedChannel(new SpillingHttpObjectAggregator(8, 4));
+        assertFalse(channel.writeInbound(newRequest()));
+        assertFalse(channel.writeInbound(chunk("12345")));
+        assertFalse(channel.writeInbound(chunk("67890")));
+
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, response.status());
+        response.release();
+        assertFalse(channel.isOpen());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testFullMessagePassesThrough() {
+        EmbeddedChannel channel = new EmbeddedChannel(new SpillingHttpObjectAggregator(1024, 16));
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        assertTrue(channel.writeInbound(request));
+        FullHttpRequest read = channel.readInbound();
+        assertSame(request, read);
+        read.release();
+        assertFalse(channel.finish());
+    }
+
+    private static FullHttpRequest spill(int length) {
+        EmbeddedChannel channel = new EmbeddedChannel(new SpillingHttpObjectAggregator(length, 1024));
+        assertFalse(channel.writeInbound(newRequest()));
+        byte[] chunk = new byte[65536];
+        for (int i = 0; i < length; i += chunk.length) {
+            for (int j = 0; j < chunk.length; j++) {
+                chunk[j] = (byte) ((i + j) % 251);
+            }
+            assertFalse(channel.writeInbound(new DefaultHttpContent(Unpooled.copiedBuffer(chunk))));
+        }
+        assertTrue(channel.writeInbound(LastHttpContent.EMPTY_LAST_CONTENT));
+        FullHttpRequest request = channel.readInbound();
+        assertNotNull(SpillingHttpObjectAggregator.spilledFile(request));
+        assertFalse(channel.finish());
+        return request;
+    }
+
+    private static HttpRequest head(FullHttpRequest request) {
+        HttpRequest head = new DefaultHttpRequest(request.protocolVersion(), request.method(), request.uri());
+        head.headers().set(request.headers());
+        return head;
+    }
+
+    /**
+     * Consumes everything written to the channel like a socket does and records how much heap memory the allocator
+     * of the channel had handed out at most.
+     */
+    private static final class Sink extends ChannelOutboundHandlerAdapter implements WritableByteChannel {
+        final UnpooledByteBufAllocator alloc = new UnpooledByteBufAllocator(false);
+        long peakHeapMemory;
+        int maxTransferSize;
+        boolean headersWritten;
+        long contentLength;
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            peakHeapMemory = Math.max(peakHeapMemory, alloc.metric().usedHeapMemory());
+            try {
+                if (!headersWritten) {
+                    // The encoded initial line and headers.
+                    headersWritten = true;
+                } else if (msg instanceof ByteBuf) {
+                    write(((ByteBuf) msg).nioBuffer());
+                } else {
+                    FileRegion region = (FileRegion) msg;
+                    while (region.transferred() < region.count()) {
+                        region.transferTo(this, region.transferred());
+                    }
+                }
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+            promise.setSuccess();
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            maxTransferSize = Math.max(maxTransferSize, length);
+            while (src.hasRemaining()) {
+                assertEquals((byte) (contentLength++ % 251), src.get());
+            }
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void testSpilledContentIsSentAsFileRegion() {
+        int length = 4 * 1024 * 1024;
+        FullHttpRequest request = spill(length);
+        File file = SpillingHttpObjectAggregator.spilledFile(request);
+        Sink sink = new Sink();
+        EmbeddedChannel channel = new EmbeddedChannel(sink, new HttpRequestEncoder());
+        channel.config().setAllocator(sink.alloc);
+
+        channel.write(head(request));
+        channel.write(SpillingHttpObjectAggregator.newFileRegion(request));
+        channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        assertEquals(length, sink.contentLength);
+        assertTrue(sink.peakHeapMemory < 64 * 1024);
+        assertTrue(sink.maxTransferSize <= 64 * 1024);
+
+        request.release();
+        assertFalse(file.exists());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testSpilledContentIsSentAsChunkedInput() {
+        int length = 4 * 1024 * 1024;
+        FullHttpRequest request = spill(length);
+        File file = SpillingHttpObjectAggregator.spilledFile(request);
+        Sink sink = new Sink();
+        EmbeddedChannel channel = new EmbeddedChannel(sink, new HttpRequestEncoder(), new ChunkedWriteHandler());
+        channel.config().setAllocator(sink.alloc);
+
+        channel.write(head(request));
+        channel.writeAndFlush(SpillingHttpObjectAggregator.newChunkedInput(request, 8192));
+        assertEquals(length, sink.contentLength);
+        assertTrue(sink.peakHeapMemory < 64 * 1024);
+        assertTrue(sink.maxTransferSize <= 8192);
+
+        request.release();
+        assertFalse(file.exists());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testGetBytesToFileChannel() throws Exception {
+        FullHttpRequest request = spill(65536);
+        File copy = File.createTempFile("netty-", ".tmp");
+        RandomAccessFile out = new RandomAccessFile(copy, "rw");
+        try {
+            FileChannel channel = out.getChannel();
+            assertEquals(1000, request.content().getBytes(100, channel, 10, 1000));
+            assertEquals(0, channel.position());
+            ByteBuffer read = ByteBuffer.allocate(1000);
+            channel.read(read, 10);
+            read.flip();
+            for (int i = 0; i < 1000; i++) {
+                assertEquals((byte) ((100 + i) % 251), read.get());
+            }
+        } finally {
+            out.close();
+            copy.delete();
+            request.release();
+        }
+    }
+}
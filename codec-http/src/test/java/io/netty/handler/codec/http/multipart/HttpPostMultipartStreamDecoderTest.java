@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.multipart;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDecoderException;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HttpPostMultipartStreamDecoderTest {
+
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+
+    private static final String BODY =
+            "preamble\r\n" +
+            "--" + BOUNDARY + "\r\n" +
+            "Content-Disposition: form-data; name=\"field\"\r\n" +
+            "\r\n" +
+            "value\r\n" +
+            "--" + BOUNDARY + "  \r\n" +
+            "Content-Disposition: form-data; name=\"file\"; filename=\"file.bin\"\r\n" +
+            "Content-Type: application/octet-stream\r\n" +
+            "\r\n" +
+            "data\r\n--" + BOUNDARY.substring(0, 10) + "\r\rmore\r\n\r\n" +
+            "--" + BOUNDARY + "--\r\n" +
+            "epilogue";
+
+    private static final String EXPECTED =
+            "[form-data; name=\"field\"]value|" +
+            "[form-data; name=\"file\"; filename=\"file.bin\"]data\r\n--" + BOUNDARY.substring(0, 10) +
+            "\r\rmore\r\n|END";
+
+    private static final class RecordingListener implements HttpPostMultipartStreamDecoder.Listener {
+        final StringBuilder events = new StringBuilder();
+
+        @Override
+        public void partStarted(HttpHeaders headers) {
+            events.append('[').append(headers.get(HttpHeaderNames.CONTENT_DISPOSITION)).append(']');
+        }
+
+        @Override
+        public void partContent(ByteBuf content) {
+            events.append(content.toString(CharsetUtil.US_ASCII));
+        }
+
+        @Override
+        public void partEnded() {
+            events.append('|');
+        }
+
+        @Override
+        public void multipartEnded() {
+            events.append("END");
+        }
+    }
+
+    @Test
+    public void testDecodeInOneBuffer() {
+        RecordingListener listener = new RecordingListener();
+        HttpPostMultipartStreamDecoder decoder = new HttpPostMultipartStreamDecoder(BOUNDARY, 1024, listener);
+        ByteBuf buf = Unpooled.copiedBuffer(BODY, CharsetUtil.US_ASCII);
+        decoder.offer(buf);
+        assertEquals(0, buf.readerIndex());
+        buf.release();
+
+        assertTrue(decoder.isEnded());
+        assertEquals(EXPECTED, listener.events.toString());
+        decoder.destroy();
+    }
+
+    @Test
+    public void testDecodeInChunksOfEverySize() {
+        byte[] bytes = BODY.getBytes(CharsetUtil.US_ASCII);
+        for (int step = 1; step <= bytes.length; step++) {
+            RecordingListener listener = new RecordingListener();
+            HttpPostMultipartStreamDecoder decoder = new HttpPostMultipartStreamDecoder(BOUNDARY, 1024, listener);
+            for (int i = 0; i < bytes.length; i += step) {
+                ByteBuf buf = Unpooled.directBuffer().writeBytes(bytes, i, Math.min(step, bytes.length - i));
+                decoder.offer(buf);
+                buf.release();
+            }
+            assertTrue(decoder.isEnded());
+            assertEquals("step: " + step, EXPECTED, listener.events.toString());
+            decoder.destroy();
+        }
+    }
+
+    @Test
+    public void testBoundaryFromRequest() {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        request.headers().set(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=" + BOUNDARY);
+        RecordingListener listener = new RecordingListener();
+        HttpPostMultipartStreamDecoder decoder = new HttpPostMultipartStreamDecoder(request, listener);
+
+        int half = BODY.length() / 2;
+        decoder.offer(new DefaultHttpContent(Unpooled.copiedBuffer(BODY.substring(0, half), CharsetUtil.US_ASCII)));
+        assertFalse(decoder.isEnded());
+        DefaultLastHttpContent last = new DefaultLastHttpContent(
+                Unpooled.copiedBuffer(BODY.substring(half), CharsetUtil.US_ASCII));
+        decoder.offer(last);
+        last.release();
+
+        assertTrue(decoder.isEnded());
+        assertEquals(EXPECTED, listener.events.toString());
+        decoder.destroy();
+    }
+
+    @Test(expected = ErrorDataDecoderException.class)
+    public void testNotMultipartRequest() {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        request.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/x-www-form-urlencoded");
+        new HttpPostMultipartStreamDecoder(request, new RecordingListener());
+    }
+
+    @Test
+    public void testMissingClosingDelimiter() {
+        HttpPostMultipartStreamDecoder decoder =
+                new HttpPostMultipartStreamDecoder(BOUNDARY, 1024, new RecordingListener());
+        DefaultLastHttpContent last = new DefaultLastHttpContent(Unpooled.copiedBuffer(
+                "--" + BOUNDARY + "\r\n\r\nvalue", CharsetUtil.US_ASCII));
+        try {
+            decoder.offer(last);
+            fail();
+        } catch (ErrorDataDecoderException expected) {
+            // expected
+        } finally {
+            last.release();
+            decoder.destroy();
+        }
+    }
+
+    @Test
+    public void testHeadersTooLarge() {
+        HttpPostMultipartStreamDecoder decoder =
+                new HttpPostMultipartStreamDecoder(BOUNDARY, 16, new RecordingListener());
+        ByteBuf buf = Unpooled.copiedBuffer(
+                "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"field\"\r\n\r\n", CharsetUtil.US_ASCII);
+        try {
+            decoder.offer(buf);
+            fail();
+        } catch (ErrorDataDecoderException expected) {
+            // expected
+        } finally {
+            buf.release();
+            decoder.destroy();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalBoundary() {
+        new HttpPostMultipartStreamDecoder("a\r\nb", 1024, new RecordingListener());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.aayushatharva.brotli4j.decoder.DecoderJNI;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.internal.ObjectUtil;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Decompresses a <a href="https://tools.ietf.org/html/rfc7932">Brotli</a> stream.
+ * <p>
+ * Decompressed data is emitted as soon as it is available, so the stream does not need to be received in full.
+ * Requires <a href="https://github.com/hyperxpro/Brotli4j">Brotli4j</a>, see {@link Brotli#isAvailable()}.
+ */
+public class BrotliDecoder extends ByteToMessageDecoder {
+
+    private final int inputBufferSize;
+    private DecoderJNI.Wrapper decoder;
+    private boolean destroyed;
+    private volatile boolean finished;
+
+    /**
+     * Creates a new decoder with an input buffer of {@code 8} KiB.
+     */
+    public BrotliDecoder() {
+        this(8 * 1024);
+    }
+
+    /**
+     * Creates a new decoder.
+     *
+     * @param inputBufferSize the size of the native buffer which the compressed data is copied into.
+     */
+    public BrotliDecoder(int inputBufferSize) {
+        Brotli.ensureAvailability();
+        this.inputBufferSize = ObjectUtil.checkPositive(inputBufferSize, "inputBufferSize");
+    }
+
+    /**
+     * Returns {@code true} if and only if the end of the compressed stream has been reached.
+     */
+    public boolean isClosed() {
+        return finished;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        decoder = new DecoderJNI.Wrapper(inputBufferSize);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (finished) {
+            // Skip data received after finished.
+            in.skipBytes(in.readableBytes());
+            return;
+        }
+
+        for (;;) {
+            switch (decoder.getStatus()) {
+                case DONE:
+                    if (decoder.hasOutput()) {
+                        out.add(pull(ctx));
+                    }
+                    finished = true;
+                    destroy();
+                    in.skipBytes(in.readableBytes());
+                    return;
+                case OK:
+                    decoder.push(0);
+                    break;
+                case NEEDS_MORE_INPUT:
+                    if (decoder.hasOutput()) {
+                        out.add(pull(ctx));
+                    }
+                    if (!in.isReadable()) {
+                        return;
+                    }
+                    ByteBuffer input = decoder.getInputBuffer();
+                    input.clear();
+                    int length = Math.min(in.readableBytes(), input.remaining());
+                    input.limit(length);
+                    in.readBytes(input);
+                    decoder.push(length);
+                    break;
+                case NEEDS_MORE_OUTPUT:
+                    out.add(pull(ctx));
+                    break;
+                default:
+                    finished = true;
+                    destroy();
+                    throw new DecompressionException("Brotli stream corrupted");
+            }
+        }
+    }
+
+    private ByteBuf pull(ChannelHandlerContext ctx) {
+        ByteBuffer nativeOutput = decoder.pull();
+        ByteBuf output = ctx.alloc().buffer(nativeOutput.remaining());
+        output.writeBytes(nativeOutput);
+        return output;
+    }
+
+    private void destroy() {
+        if (!destroyed) {
+            destroyed = true;
+            decoder.destroy();
+        }
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        destroy();
+        super.handlerRemoved0(ctx);
+    }
+}
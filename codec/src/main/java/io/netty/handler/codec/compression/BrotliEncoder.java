@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.aayushatharva.brotli4j.encoder.BrotliEncoderChannel;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses a {@link ByteBuf} into a single
+ * <a href="https://tools.ietf.org/html/rfc7932">Brotli</a> stream.
+ * <p>
+ * The stream is flushed after every {@link ByteBuf}, so every written {@link ByteBuf} can be decompressed by the
+ * remote peer as soon as it is received, and is finished when the channel is closed. Requires
+ * <a href="https://github.com/hyperxpro/Brotli4j">Brotli4j</a>, see {@link Brotli#isAvailable()}.
+ */
+public class BrotliEncoder extends MessageToByteEncoder<ByteBuf> {
+
+    /**
+     * The default quality, which compresses faster than {@code gzip} at level {@code 6} with a better ratio.
+     */
+    public static final int DEFAULT_QUALITY = 4;
+
+    private final Encoder.Parameters parameters;
+    private final Sink sink = new Sink();
+    private BrotliEncoderChannel encoder;
+    private volatile boolean finished;
+
+    /**
+     * Creates a new encoder with the {@linkplain #DEFAULT_QUALITY default quality} and window size.
+     */
+    public BrotliEncoder() {
+        this(DEFAULT_QUALITY);
+    }
+
+    /**
+     * Creates a new encoder with the specified quality and the default window size.
+     *
+     * @param quality
+     *        {@code 0} yields the fastest compression and {@code 11} yields the best compression.
+     */
+    public BrotliEncoder(int quality) {
+        this(quality, -1);
+    }
+
+    /**
+     * Creates a new encoder with the specified quality and window size.
+     *
+     * @param quality
+     *        {@code 0} yields the fastest compression and {@code 11} yields the best compression.
+     * @param window
+     *        The base two logarithm of the size of the sliding window, between {@code 10} and {@code 24}, or
+     *        {@code -1} to use the default of the library.
+     */
+    public BrotliEncoder(int quality, int window) {
+        Brotli.ensureAvailability();
+        if (quality < 0 || quality > 11) {
+            throw new IllegalArgumentException("quality: " + quality + " (expected: 0-11)");
+        }
+        if (window != -1 && (window < 10 || window > 24)) {
+            throw new IllegalArgumentException("window: " + window + " (expected: -1 or 10-24)");
+        }
+        parameters = new Encoder.Parameters().setQuality(quality).setWindow(window);
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        encoder = new BrotliEncoderChannel(sink, parameters);
+    }
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, ByteBuf msg, boolean preferDirect) {
+        // Flushing adds a few bytes, so the output may be a bit larger than the input if it does not compress.
+        int sizeEstimate = msg.readableBytes() + 16;
+        return preferDirect ? ctx.alloc().ioBuffer(sizeEstimate) : ctx.alloc().heapBuffer(sizeEstimate);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf msg, ByteBuf out) throws Exception {
+        if (finished) {
+            out.writeBytes(msg);
+            return;
+        }
+        if (!msg.isReadable()) {
+            return;
+        }
+        sink.out = out;
+        try {
+            ByteBuffer in = CompressionUtil.safeNioBuffer(msg);
+            int length = in.remaining();
+            while (in.hasRemaining()) {
+                encoder.write(in);
+            }
+            encoder.flush();
+            msg.skipBytes(length);
+        } catch (IOException e) {
+            throw new CompressionException(e);
+        } finally {
+            sink.out = null;
+        }
+    }
+
+    /**
+     * Returns {@code true} if and only if the end of the compressed stream has been reached.
+     */
+    public boolean isClosed() {
+        return finished;
+    }
+
+    @Override
+    public void close(final ChannelHandlerContext ctx, final ChannelPromise promise) throws Exception {
+        ChannelFuture f = finishEncode(ctx, ctx.newPromise());
+        f.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture f) throws Exception {
+                ctx.close(promise);
+            }
+        });
+
+        if (!f.isDone()) {
+            // Ensure the channel is closed even if the write operation completes in time.
+            ctx.executor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ctx.close(promise);
+                }
+            }, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    private ChannelFuture finishEncode(ChannelHandlerContext ctx, ChannelPromise promise) {
+        if (finished) {
+            promise.setSuccess();
+            return promise;
+        }
+        finished = true;
+
+        ByteBuf footer = ctx.alloc().ioBuffer();
+        sink.out = footer;
+        try {
+            encoder.close();
+        } catch (Throwable cause) {
+            footer.release();
+            promise.setFailure(cause);
+            return promise;
+        } finally {
+            sink.out = null;
+        }
+        return ctx.writeAndFlush(footer, promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (!finished) {
+            // Release the native resources of the encoder.
+            finished = true;
+            ByteBuf discard = ctx.alloc().heapBuffer();
+            sink.out = discard;
+            try {
+                encoder.close();
+            } finally {
+                sink.out = null;
+                discard.release();
+            }
+        }
+        super.handlerRemoved(ctx);
+    }
+
+    /**
+     * Receives the compressed output of the {@link BrotliEncoderChannel} and writes it to the current buffer.
+     */
+    private static final class Sink implements WritableByteChannel {
+        ByteBuf out;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            out.writeBytes(src);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // The channel is only closed when the stream is finished, the buffers are handled by the encoder.
+        }
+    }
+}
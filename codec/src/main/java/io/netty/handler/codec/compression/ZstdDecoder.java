@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.internal.ObjectUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Decompresses a <a href="https://tools.ietf.org/html/rfc8878">Zstandard</a> stream, which may consist of several
+ * frames.
+ * <p>
+ * Decompressed data is emitted as soon as it is available, so the stream does not need to be received in full.
+ * Requires <a href="https://github.com/luben/zstd-jni">zstd-jni</a>, see {@link Zstd#isAvailable()}.
+ */
+public class ZstdDecoder extends ByteToMessageDecoder {
+
+    private final int outputBufferSize;
+    private final MutableByteBufInputStream input = new MutableByteBufInputStream();
+    private ZstdInputStreamNoFinalizer zstdIn;
+
+    /**
+     * Creates a new decoder which emits buffers of up to {@code 64} KiB.
+     */
+    public ZstdDecoder() {
+        this(64 * 1024);
+    }
+
+    /**
+     * Creates a new decoder.
+     *
+     * @param outputBufferSize the maximum size of the emitted buffers.
+     */
+    public ZstdDecoder(int outputBufferSize) {
+        Zstd.ensureAvailability();
+        this.outputBufferSize = ObjectUtil.checkPositive(outputBufferSize, "outputBufferSize");
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        // Continuous mode returns the data decompressed so far instead of failing when the input is exhausted.
+        zstdIn = new ZstdInputStreamNoFinalizer(input).setContinuous(true);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        input.current = in;
+        try {
+            for (;;) {
+                ByteBuf output = ctx.alloc().buffer(outputBufferSize);
+                int read;
+                try {
+                    do {
+                        read = output.writeBytes(zstdIn, output.writableBytes());
+                    } while (read > 0 && output.isWritable());
+                } catch (IOException e) {
+                    output.release();
+                    throw new DecompressionException(e);
+                } catch (RuntimeException e) {
+                    output.release();
+                    throw new DecompressionException(e);
+                }
+                if (output.isReadable()) {
+                    out.add(output);
+                } else {
+                    output.release();
+                }
+                if (read <= 0) {
+                    return;
+                }
+            }
+        } finally {
+            input.current = null;
+        }
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        if (zstdIn != null) {
+            zstdIn.close();
+            zstdIn = null;
+        }
+        super.handlerRemoved0(ctx);
+    }
+
+    /**
+     * Reads from the {@link ByteBuf} which is currently decoded.
+     */
+    private static final class MutableByteBufInputStream extends InputStream {
+        ByteBuf current;
+
+        @Override
+        public int read() {
+            if (current == null || !current.isReadable()) {
+                return -1;
+            }
+            return current.readByte() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int available = available();
+            if (available == 0) {
+                return -1;
+            }
+            len = Math.min(available, len);
+            current.readBytes(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return current == null ? 0 : current.readableBytes();
+        }
+    }
+}
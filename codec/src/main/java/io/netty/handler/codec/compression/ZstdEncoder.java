@@ -0,0 +1,221 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.internal.ObjectUtil;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses a {@link ByteBuf} using <a href="https://tools.ietf.org/html/rfc8878">Zstandard</a>.
+ * <p>
+ * Data is buffered until a block is full or the channel is flushed, and every block is compressed into an
+ * independent frame, so the compressed stream is a sequence of frames which every Zstandard decoder can decompress.
+ * Both the buffered data and the compressed frames are kept in direct buffers which are passed to the native library
+ * without copying. Requires <a href="https://github.com/luben/zstd-jni">zstd-jni</a>, see {@link Zstd#isAvailable()}.
+ */
+public class ZstdEncoder extends MessageToByteEncoder<ByteBuf> {
+
+    /**
+     * The default compression level.
+     */
+    public static final int DEFAULT_COMPRESSION_LEVEL = 3;
+
+    /**
+     * The default maximum number of bytes which are compressed into a single frame.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private final int compressionLevel;
+    private final int blockSize;
+    private ByteBuf buffer;
+    private boolean written;
+    private volatile boolean finished;
+
+    /**
+     * Creates a new encoder with the {@linkplain #DEFAULT_COMPRESSION_LEVEL default compression level} and
+     * {@linkplain #DEFAULT_BLOCK_SIZE block size}.
+     */
+    public ZstdEncoder() {
+        this(DEFAULT_COMPRESSION_LEVEL);
+    }
+
+    /**
+     * Creates a new encoder with the specified compression level and the {@linkplain #DEFAULT_BLOCK_SIZE default
+     * block size}.
+     */
+    public ZstdEncoder(int compressionLevel) {
+        this(compressionLevel, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new encoder.
+     *
+     * @param compressionLevel
+     *        higher levels yield better compression, negative levels yield faster compression. The supported range
+     *        depends on the version of the native library, {@code 1} to {@code 19} is always supported.
+     * @param blockSize
+     *        the maximum number of bytes which are compressed into a single frame.
+     */
+    public ZstdEncoder(int compressionLevel, int blockSize) {
+        Zstd.ensureAvailability();
+        int min = com.github.luben.zstd.Zstd.minCompressionLevel();
+        int max = com.github.luben.zstd.Zstd.maxCompressionLevel();
+        if (compressionLevel < min || compressionLevel > max) {
+            throw new IllegalArgumentException(
+                    "compressionLevel: " + compressionLevel + " (expected: " + min + '-' + max + ')');
+        }
+        this.compressionLevel = compressionLevel;
+        this.blockSize = ObjectUtil.checkPositive(blockSize, "blockSize");
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        buffer = ctx.alloc().directBuffer(blockSize);
+    }
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, ByteBuf msg, boolean preferDirect) {
+        // The native library requires direct buffers.
+        int pending = buffer.readableBytes() + msg.readableBytes();
+        int blocks = pending / blockSize;
+        return ctx.alloc().directBuffer(blocks == 0 ? 0 : boundOf(blockSize) * blocks);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf msg, ByteBuf out) throws Exception {
+        if (finished) {
+            out.writeBytes(msg);
+            return;
+        }
+        ByteBuf buffer = this.buffer;
+        while (msg.isReadable()) {
+            msg.readBytes(buffer, Math.min(msg.readableBytes(), buffer.writableBytes()));
+            if (!buffer.isWritable()) {
+                compressBuffered(out);
+            }
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (!finished && buffer.isReadable()) {
+            ByteBuf out = ctx.alloc().directBuffer(boundOf(buffer.readableBytes()));
+            try {
+                compressBuffered(out);
+            } catch (Throwable cause) {
+                out.release();
+                ctx.fireExceptionCaught(cause);
+                ctx.flush();
+                return;
+            }
+            ctx.write(out);
+        }
+        ctx.flush();
+    }
+
+    private void compressBuffered(ByteBuf out) {
+        compress(buffer, out);
+        buffer.clear();
+    }
+
+    private void compress(ByteBuf in, ByteBuf out) {
+        int length = in.readableBytes();
+        out.ensureWritable(boundOf(length));
+        int writerIndex = out.writerIndex();
+        int compressedLength;
+        try {
+            compressedLength = com.github.luben.zstd.Zstd.compress(
+                    out.internalNioBuffer(writerIndex, out.writableBytes()),
+                    in.internalNioBuffer(in.readerIndex(), length), compressionLevel);
+        } catch (RuntimeException e) {
+            throw new CompressionException(e);
+        }
+        out.writerIndex(writerIndex + compressedLength);
+        written = true;
+    }
+
+    private static int boundOf(int length) {
+        return (int) com.github.luben.zstd.Zstd.compressBound(length);
+    }
+
+    /**
+     * Returns {@code true} if and only if the compressed stream has been finished.
+     */
+    public boolean isClosed() {
+        return finished;
+    }
+
+    @Override
+    public void close(final ChannelHandlerContext ctx, final ChannelPromise promise) throws Exception {
+        ChannelFuture f = finishEncode(ctx, ctx.newPromise());
+        f.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture f) throws Exception {
+                ctx.close(promise);
+            }
+        });
+
+        if (!f.isDone()) {
+            // Ensure the channel is closed even if the write operation completes in time.
+            ctx.executor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ctx.close(promise);
+                }
+            }, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    private ChannelFuture finishEncode(ChannelHandlerContext ctx, ChannelPromise promise) {
+        if (finished) {
+            promise.setSuccess();
+            return promise;
+        }
+        finished = true;
+
+        if (written && !buffer.isReadable()) {
+            promise.setSuccess();
+            return promise;
+        }
+        // Write an empty frame if nothing was written yet, as an empty stream is not valid.
+        ByteBuf footer = ctx.alloc().directBuffer(boundOf(buffer.readableBytes()));
+        try {
+            compressBuffered(footer);
+        } catch (Throwable cause) {
+            footer.release();
+            promise.setFailure(cause);
+            return promise;
+        }
+        return ctx.writeAndFlush(footer, promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+        super.handlerRemoved(ctx);
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import static io.netty.util.internal.MathUtil.safeFindNextPositivePowerOfTwo;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Light-weight object pool which is an alternative to {@link Recycler} for objects that are often recycled by a
+ * different thread than the one that created them, like buffers that are allocated on one
+ * {@link io.netty.util.concurrent.EventExecutor} and released on another.
+ * <p>
+ * Every thread owns a stack that is only ever touched by itself, plus an MPSC return queue that other threads
+ * recycle into. The owning thread reclaims returned objects in batches once its stack runs empty. Both share a single
+ * per-thread capacity; once it is used up, the recycled object is dropped and left to the garbage collector. This
+ * keeps the cost of a cross-thread recycle at a reservation and a lock-free offer and avoids the per-thread-pair
+ * {@code WeakOrderQueue}s used by {@link Recycler}.
+ * <p>
+ * The pooled objects receive a {@link Recycler.Handle}, so switching between both implementations only requires
+ * changing the type of the pool.
+ *
+ * @param <T> the type of the pooled object
+ */
+public abstract class MpscRecycler<T> {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(MpscRecycler.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final Recycler.Handle NOOP_HANDLE = new Recycler.Handle() {
+        @Override
+        public void recycle(Object object) {
+            // NOOP
+        }
+    };
+    private static final int DEFAULT_INITIAL_MAX_CAPACITY_PER_THREAD = 4 * 1024; // Use 4k instances as default.
+    private static final int DEFAULT_MAX_CAPACITY_PER_THREAD;
+    private static final int INITIAL_CAPACITY;
+    private static final int RATIO;
+    private static final int RECLAIM_BATCH_SIZE;
+    // Number of pool changes a thread accumulates before it publishes them to the shared pooled objects counter.
+    private static final int METRIC_PUBLISH_THRESHOLD = 64;
+
+    static {
+        // Use the same settings as Recycler so both implementations behave the same when swapped.
+        int maxCapacityPerThread = SystemPropertyUtil.getInt("io.netty.recycler.maxCapacityPerThread",
+                SystemPropertyUtil.getInt("io.netty.recycler.maxCapacity", DEFAULT_INITIAL_MAX_CAPACITY_PER_THREAD));
+        if (maxCapacityPerThread < 0) {
+            maxCapacityPerThread = DEFAULT_INITIAL_MAX_CAPACITY_PER_THREAD;
+        }
+
+        DEFAULT_MAX_CAPACITY_PER_THREAD = maxCapacityPerThread;
+        RATIO = safeFindNextPositivePowerOfTwo(SystemPropertyUtil.getInt("io.netty.recycler.ratio", 8));
+        RECLAIM_BATCH_SIZE = max(1, SystemPropertyUtil.getInt("io.netty.recycler.reclaimBatchSize", 64));
+
+        if (logger.isDebugEnabled()) {
+            if (DEFAULT_MAX_CAPACITY_PER_THREAD == 0) {
+                logger.debug("-Dio.netty.recycler.maxCapacityPerThread: disabled");
+                logger.debug("-Dio.netty.recycler.ratio: disabled");
+                logger.debug("-Dio.netty.recycler.reclaimBatchSize: disabled");
+            } else {
+                logger.debug("-Dio.netty.recycler.maxCapacityPerThread: {}", DEFAULT_MAX_CAPACITY_PER_THREAD);
+                logger.debug("-Dio.netty.recycler.ratio: {}", RATIO);
+                logger.debug("-Dio.netty.recycler.reclaimBatchSize: {}", RECLAIM_BATCH_SIZE);
+            }
+        }
+
+        INITIAL_CAPACITY = min(DEFAULT_MAX_CAPACITY_PER_THREAD, 256);
+    }
+
+    private final int maxCapacityPerThread;
+    private final int ratioMask;
+    private final int reclaimBatchSize;
+    private final LongCounter pooledObjects = PlatformDependent.newLongCounter();
+    private final LongCounter drops = PlatformDependent.newLongCounter();
+    private final LongCounter crossThreadRecycles = PlatformDependent.newLongCounter();
+    private final RecyclerMetric metric = new RecyclerMetric() {
+        @Override
+        public long pooledObjects() {
+            return max(0, pooledObjects.value());
+        }
+
+        @Override
+        public long drops() {
+            return drops.value();
+        }
+
+        @Override
+        public long crossThreadRecycles() {
+            return crossThreadRecycles.value();
+        }
+
+        @Override
+        public String toString() {
+            return "RecyclerMetric(pooledObjects: " + pooledObjects() + ", drops: " + drops() +
+                    ", crossThreadRecycles: " + crossThreadRecycles() + ')';
+        }
+    };
+
+    private final FastThreadLocal<LocalPool<T>> threadLocal = new FastThreadLocal<LocalPool<T>>() {
+        @Override
+        protected LocalPool<T> initialValue() {
+            return new LocalPool<T>(MpscRecycler.this, Thread.currentThread());
+        }
+
+        @Override
+        protected void onRemoval(LocalPool<T> value) {
+            value.close();
+        }
+    };
+
+    protected MpscRecycler() {
+        this(DEFAULT_MAX_CAPACITY_PER_THREAD);
+    }
+
+    protected MpscRecycler(int maxCapacityPerThread) {
+        this(maxCapacityPerThread, RATIO, RECLAIM_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxCapacityPerThread  the maximum number of objects that are pooled per thread, counting the stack of
+     *                              the thread and its return queue together. {@code 0} disables pooling.
+     * @param ratio                 only one out of {@code ratio} newly created objects will be pooled, which slowly
+     *                              grows the pool instead of retaining everything that was allocated during a burst.
+     * @param reclaimBatchSize      the maximum number of objects the owning thread moves from its return queue to
+     *                              its stack at once.
+     */
+    protected MpscRecycler(int maxCapacityPerThread, int ratio, int reclaimBatchSize) {
+        ratioMask = safeFindNextPositivePowerOfTwo(ratio) - 1;
+        this.maxCapacityPerThread = max(0, maxCapacityPerThread);
+        this.reclaimBatchSize = min(checkPositive(reclaimBatchSize, "reclaimBatchSize"),
+                max(1, this.maxCapacityPerThread));
+    }
+
+    @SuppressWarnings("unchecked")
+    public final T get() {
+        if (maxCapacityPerThread == 0) {
+            return newObject((Recycler.Handle<T>) NOOP_HANDLE);
+        }
+        LocalPool<T> pool = threadLocal.get();
+        DefaultHandle<T> handle = pool.claim();
+        if (handle == null) {
+            handle = pool.newHandle();
+            if (handle == null) {
+                return newObject((Recycler.Handle<T>) NOOP_HANDLE);
+            }
+            handle.value = newObject(handle);
+        }
+        return handle.value;
+    }
+
+    /**
+     * Returns the {@link RecyclerMetric} of this pool.
+     */
+    public final RecyclerMetric metric() {
+        return metric;
+    }
+
+    final int threadLocalCapacity() {
+        return threadLocal.get().elements.length;
+    }
+
+    final int threadLocalSize() {
+        return threadLocal.get().size;
+    }
+
+    protected abstract T newObject(Recycler.Handle<T> handle);
+
+    private static final class DefaultHandle<T> implements Recycler.Handle<T> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<DefaultHandle> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(DefaultHandle.class, "state");
+
+        private static final int STATE_CLAIMED = 0;
+        private static final int STATE_AVAILABLE = 1;
+
+        private final LocalPool<T> pool;
+        private volatile int state;
+        T value;
+
+        DefaultHandle(LocalPool<T> pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void recycle(T object) {
+            if (object != value) {
+                throw new IllegalArgumentException("object does not belong to handle");
+            }
+            pool.release(this);
+        }
+
+        void toClaimed() {
+            STATE_UPDATER.lazySet(this, STATE_CLAIMED);
+        }
+
+        void toAvailableByOwner() {
+            // Only the owning thread can have claimed the handle in the first place, so a plain check is enough to
+            // detect if the same thread recycled the object twice.
+            if (state == STATE_AVAILABLE) {
+                throw new IllegalStateException("recycled already");
+            }
+            STATE_UPDATER.lazySet(this, STATE_AVAILABLE);
+        }
+
+        void toAvailable() {
+            if (!STATE_UPDATER.compareAndSet(this, STATE_CLAIMED, STATE_AVAILABLE)) {
+                throw new IllegalStateException("recycled already");
+            }
+        }
+    }
+
+    private static final class LocalPool<T> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<LocalPool, Queue> RETURN_QUEUE_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(LocalPool.class, Queue.class, "returnQueue");
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<LocalPool> RESERVED_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(LocalPool.class, "reserved");
+
+        private final MpscRecycler<T> parent;
+        // Stored in a WeakReference for the same reason as in Recycler.Stack: handles that are kept around by the
+        // user must not prevent the owning Thread from being collected.
+        private final WeakReference<Thread> threadRef;
+        private final int maxCapacity;
+        private final int ratioMask;
+        private final int reclaimBatchSize;
+
+        private DefaultHandle<?>[] elements;
+        private int size;
+        private int ratioCounter;
+        private int unpublishedPooledObjects;
+        // Objects claimed from the stack which are still counted in reserved. The owning thread reuses these
+        // reservations when it recycles objects itself and only gives them back once its stack runs empty, so
+        // claiming and recycling on the same thread does not need to update reserved.
+        private int claimedReservations;
+
+        // Created lazily as most threads never see objects coming back from other threads.
+        private volatile Queue<DefaultHandle<T>> returnQueue;
+        private volatile boolean closed;
+        // Number of objects in the stack and the return queue plus claimedReservations, never more than maxCapacity.
+        private volatile int reserved;
+
+        LocalPool(MpscRecycler<T> parent, Thread thread) {
+            this.parent = parent;
+            threadRef = new WeakReference<Thread>(thread);
+            maxCapacity = parent.maxCapacityPerThread;
+            ratioMask = parent.ratioMask;
+            reclaimBatchSize = parent.reclaimBatchSize;
+            ratioCounter = ratioMask; // Start with ratioMask so the first one will be pooled.
+            elements = new DefaultHandle[min(INITIAL_CAPACITY, maxCapacity)];
+        }
+
+        DefaultHandle<T> newHandle() {
+            if ((++ratioCounter & ratioMask) != 0) {
+                // Drop the object on the floor once it is recycled.
+                return null;
+            }
+            return new DefaultHandle<T>(this);
+        }
+
+        @SuppressWarnings("unchecked")
+        DefaultHandle<T> claim() {
+            int size = this.size;
+            if (size == 0) {
+                releaseClaimedReservations();
+                size = reclaim();
+                if (size == 0) {
+                    return null;
+                }
+            }
+            size--;
+            DefaultHandle<T> handle = (DefaultHandle<T>) elements[size];
+            elements[size] = null;
+            this.size = size;
+            claimedReservations++;
+            handle.toClaimed();
+            updatePooledObjects(-1);
+            return handle;
+        }
+
+        private void releaseClaimedReservations() {
+            int claimed = claimedReservations;
+            if (claimed != 0) {
+                claimedReservations = 0;
+                RESERVED_UPDATER.addAndGet(this, -claimed);
+            }
+        }
+
+        private boolean reserve() {
+            for (;;) {
+                int reserved = this.reserved;
+                if (reserved >= maxCapacity) {
+                    return false;
+                }
+                if (RESERVED_UPDATER.compareAndSet(this, reserved, reserved + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private int reclaim() {
+            Queue<DefaultHandle<T>> returnQueue = this.returnQueue;
+            if (returnQueue == null) {
+                return 0;
+            }
+            DefaultHandle<?>[] elements = this.elements;
+            int batchSize = min(reclaimBatchSize, maxCapacity);
+            if (elements.length < batchSize) {
+                elements = this.elements = Arrays.copyOf(elements, batchSize);
+            }
+            int size = 0;
+            while (size < batchSize) {
+                DefaultHandle<T> handle = returnQueue.poll();
+                if (handle == null) {
+                    break;
+                }
+                elements[size++] = handle;
+            }
+            this.size = size;
+            return size;
+        }
+
+        void release(DefaultHandle<T> handle) {
+            if (threadRef.get() == Thread.currentThread()) {
+                handle.toAvailableByOwner();
+                push(handle);
+            } else {
+                handle.toAvailable();
+                parent.crossThreadRecycles.increment();
+                offer(handle);
+            }
+        }
+
+        private void push(DefaultHandle<T> handle) {
+            if (closed) {
+                parent.drops.increment();
+                return;
+            }
+            if (claimedReservations > 0) {
+                claimedReservations--;
+            } else if (!reserve()) {
+                parent.drops.increment();
+                return;
+            }
+            int size = this.size;
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, min(size << 1, maxCapacity));
+            }
+            elements[size] = handle;
+            this.size = size + 1;
+            updatePooledObjects(1);
+        }
+
+        private void offer(DefaultHandle<T> handle) {
+            Thread owner = threadRef.get();
+            if (owner == null || !owner.isAlive() || closed || !reserve()) {
+                // Nobody will ever reclaim the object or the capacity of the thread is used up.
+                parent.drops.increment();
+                return;
+            }
+            if (!returnQueue().offer(handle)) {
+                // Can not happen as the reservation also bounds the queue, but be safe.
+                RESERVED_UPDATER.decrementAndGet(this);
+                parent.drops.increment();
+                return;
+            }
+            parent.pooledObjects.increment();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Queue<DefaultHandle<T>> returnQueue() {
+            Queue<DefaultHandle<T>> returnQueue = this.returnQueue;
+            if (returnQueue == null) {
+                returnQueue = PlatformDependent.newMpscQueue(maxCapacity);
+                if (!RETURN_QUEUE_UPDATER.compareAndSet(this, null, returnQueue)) {
+                    returnQueue = this.returnQueue;
+                }
+            }
+            return returnQueue;
+        }
+
+        private void updatePooledObjects(int delta) {
+            // Publishing every change would make the shared counter a contention point, so only do it from time
+            // to time.
+            int unpublished = unpublishedPooledObjects + delta;
+            if (unpublished >= METRIC_PUBLISH_THRESHOLD || unpublished <= -METRIC_PUBLISH_THRESHOLD) {
+                parent.pooledObjects.add(unpublished);
+                unpublished = 0;
+            }
+            unpublishedPooledObjects = unpublished;
+        }
+
+        void close() {
+            closed = true;
+            long released = size;
+            Arrays.fill(elements, 0, size, null);
+            size = 0;
+            Queue<DefaultHandle<T>> returnQueue = this.returnQueue;
+            if (returnQueue != null) {
+                while (returnQueue.poll() != null) {
+                    released++;
+                }
+            }
+            parent.pooledObjects.add(unpublishedPooledObjects - released);
+            unpublishedPooledObjects = 0;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+/**
+ * Exposes usage metrics of a {@link MpscRecycler}. All values are approximations which are updated without
+ * synchronization on the fast path and so may lag behind by a few operations per thread.
+ */
+public interface RecyclerMetric {
+    /**
+     * Returns the number of objects that are currently pooled and ready to be reused, including the ones that
+     * were recycled from another thread and are still waiting to be reclaimed by their owning thread.
+     */
+    long pooledObjects();
+
+    /**
+     * Returns the number of objects that were dropped (and so left to the garbage collector) because the pool of
+     * the owning thread was full or the owning thread is gone.
+     */
+    long drops();
+
+    /**
+     * Returns the number of objects that were recycled from a thread other than the one that created them.
+     */
+    long crossThreadRecycles();
+}
@@ -17,6 +17,7 @@
 package io.netty.util;
 
 import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
@@ -72,7 +73,16 @@ public class ResourceLeakDetector<T> {
          * Enables paranoid resource leak detection which reports where the leaked object was accessed recently,
          * at the cost of the highest possible overhead (for testing purposes only).
          */
-        PARANOID;
+        PARANOID,
+        /**
+         * Enables low overhead sampling resource leak detection which is meant to be always on in production. Like
+         * {@link #SIMPLE} only a sample of the objects is tracked, but no stack trace is captured when the object is
+         * allocated. Instead the first time a sampled object is accessed (like via {@code touch()} or
+         * {@code retain()}) its stack trace is captured and used to identify where the leaked objects come from.
+         * The leaks are reported per site to the {@link ResourceLeakListener} set via
+         * {@link #setLeakListener(ResourceLeakListener)}.
+         */
+        SAMPLED;
 
         /**
          * Returns level based on string value. Accepts also string that represents ordinal number of enum.
@@ -92,6 +102,7 @@ public class ResourceLeakDetector<T> {
     }
 
     private static Level level;
+    private static volatile ResourceLeakListener leakListener;
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(ResourceLeakDetector.class);
 
@@ -160,12 +171,30 @@ public class ResourceLeakDetector<T> {
         return level;
     }
 
+    /**
+     * Sets the {@link ResourceLeakListener} that is notified about the leaks that are detected at the
+     * {@link Level#SAMPLED} level, or {@code null} to only log them.
+     */
+    public static void setLeakListener(ResourceLeakListener listener) {
+        leakListener = listener;
+    }
+
+    /**
+     * Returns the {@link ResourceLeakListener} that is notified about the leaks that are detected at the
+     * {@link Level#SAMPLED} level, or {@code null} if none was set.
+     */
+    public static ResourceLeakListener getLeakListener() {
+        return leakListener;
+    }
+
     /** the collection of active resources */
     private final Set<DefaultResourceLeak<?>> allLeaks =
             Collections.newSetFromMap(new ConcurrentHashMap<DefaultResourceLeak<?>, Boolean>());
 
     private final ReferenceQueue<Object> refQueue = new ReferenceQueue<Object>();
     private final ConcurrentMap<String, Boolean> reportedLeaks = PlatformDependent.newConcurrentHashMap();
+    private final ConcurrentMap<String, LongCounter> sampledLeaksPerSite = PlatformDependent.newConcurrentHashMap();
+    private final LongCounter sampledObjects = PlatformDependent.newLongCounter();
 
     private final String resourceType;
     private final int samplingInterval;
@@ -255,15 +284,24 @@ public class ResourceLeakDetector<T> {
             return null;
         }
 
+        if (level == Level.SAMPLED) {
+            if ((PlatformDependent.threadLocalRandom().nextInt(samplingInterval)) == 0) {
+                reportLeak();
+                sampledObjects.increment();
+                return new DefaultResourceLeak(obj, refQueue, allLeaks, true);
+            }
+            return null;
+        }
+
         if (level.ordinal() < Level.PARANOID.ordinal()) {
             if ((PlatformDependent.threadLocalRandom().nextInt(samplingInterval)) == 0) {
                 reportLeak();
-                return new DefaultResourceLeak(obj, refQueue, allLeaks);
+                return new DefaultResourceLeak(obj, refQueue, allLeaks, false);
             }
             return null;
         }
         reportLeak();
-        return new DefaultResourceLeak(obj, refQueue, allLeaks);
+        return new DefaultResourceLeak(obj, refQueue, allLeaks, false);
     }
 
     private void clearRefQueue() {
@@ -278,7 +316,7 @@ public class ResourceLeakDetector<T> {
     }
 
     private void reportLeak() {
-        if (!logger.isErrorEnabled()) {
+        if (!logger.isErrorEnabled() && leakListener == null) {
             clearRefQueue();
             return;
         }
@@ -295,6 +333,11 @@ public class ResourceLeakDetector<T> {
                 continue;
             }
 
+            if (ref.sampled) {
+                reportSampledLeak(ref.firstAccess());
+                continue;
+            }
+
             String records = ref.toString();
             if (reportedLeaks.putIfAbsent(records, Boolean.TRUE) == null) {
                 if (records.isEmpty()) {
@@ -306,6 +349,35 @@ public class ResourceLeakDetector<T> {
         }
     }
 
+    private void reportSampledLeak(String site) {
+        LongCounter siteLeaks = sampledLeaksPerSite.get(site);
+        if (siteLeaks == null) {
+            LongCounter newSiteLeaks = PlatformDependent.newLongCounter();
+            siteLeaks = sampledLeaksPerSite.putIfAbsent(site, newSiteLeaks);
+            if (siteLeaks == null) {
+                siteLeaks = newSiteLeaks;
+            }
+        }
+        siteLeaks.increment();
+
+        if (logger.isErrorEnabled() && reportedLeaks.putIfAbsent(site, Boolean.TRUE) == null) {
+            if (site.isEmpty()) {
+                reportUntracedLeak(resourceType);
+            } else {
+                reportTracedLeak(resourceType, NEWLINE + "First accessed at:" + NEWLINE + site);
+            }
+        }
+
+        ResourceLeakListener listener = leakListener;
+        if (listener != null) {
+            try {
+                listener.onLeak(resourceType, site, siteLeaks.value(), sampledObjects.value());
+            } catch (Throwable t) {
+                logger.warn("An exception was thrown by " + listener.getClass().getName() + ".onLeak()", t);
+            }
+        }
+    }
+
     /**
      * This method is called when a traced leak is detected. It can be overridden for tracking how many times leaks
      * have been detected.
@@ -358,11 +430,14 @@ public class ResourceLeakDetector<T> {
 
         private final Set<DefaultResourceLeak<?>> allLeaks;
         private final int trackedHash;
+        // If true only the first access is recorded and no stack trace is captured on creation.
+        final boolean sampled;
 
         DefaultResourceLeak(
                 Object referent,
                 ReferenceQueue<Object> refQueue,
-                Set<DefaultResourceLeak<?>> allLeaks) {
+                Set<DefaultResourceLeak<?>> allLeaks,
+                boolean sampled) {
             super(referent, refQueue);
 
             assert referent != null;
@@ -372,9 +447,11 @@ public class ResourceLeakDetector<T> {
             // be collected via the WeakReference.
             trackedHash = System.identityHashCode(referent);
             allLeaks.add(this);
-            // Create a new Record so we always have the creation stacktrace included.
-            headUpdater.set(this, new Record(Record.BOTTOM));
+            // Create a new Record so we always have the creation stacktrace included, unless we are sampling in
+            // which case capturing the stacktrace is delayed until the first access.
+            headUpdater.set(this, sampled ? Record.BOTTOM : new Record(Record.BOTTOM));
             this.allLeaks = allLeaks;
+            this.sampled = sampled;
         }
 
         @Override
@@ -414,6 +491,14 @@ public class ResourceLeakDetector<T> {
          * thread won the race.
          */
         private void record0(Object hint) {
+            if (sampled) {
+                // Only the first access is recorded, every later one costs just a volatile read.
+                if (headUpdater.get(this) == Record.BOTTOM) {
+                    headUpdater.compareAndSet(this, Record.BOTTOM,
+                            hint != null ? new Record(Record.BOTTOM, hint) : new Record(Record.BOTTOM));
+                }
+                return;
+            }
             // Check TARGET_RECORDS > 0 here to avoid similar check before remove from and add to lastRecords
             if (TARGET_RECORDS > 0) {
                 Record oldHead;
@@ -447,6 +532,18 @@ public class ResourceLeakDetector<T> {
             return allLeaks.remove(this);
         }
 
+        /**
+         * Returns the stack trace of the first access of a sampled object, or an empty string if it was never
+         * accessed.
+         */
+        String firstAccess() {
+            Record oldHead = headUpdater.getAndSet(this, null);
+            if (oldHead == null || oldHead == Record.BOTTOM) {
+                return EMPTY_STRING;
+            }
+            return oldHead.toString();
+        }
+
         @Override
         public boolean close() {
             if (allLeaks.remove(this)) {
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+/**
+ * Receives the leaks that were detected by a {@link ResourceLeakDetector} running at the
+ * {@link ResourceLeakDetector.Level#SAMPLED} level, so they can be exported as metrics.
+ *
+ * @see ResourceLeakDetector#setLeakListener(ResourceLeakListener)
+ */
+public interface ResourceLeakListener {
+    /**
+     * Called for every sampled object that was garbage-collected without being released. Dividing
+     * {@code siteLeaks} by {@code sampledObjects} gives the leak rate of a site, while multiplying it with the
+     * sampling interval estimates the total number of objects leaked there.
+     *
+     * @param resourceType      the type of the leaked resource.
+     * @param site              the stack trace of the first access of the leaked object, or an empty string if it
+     *                          was never accessed after it was allocated.
+     * @param siteLeaks         the number of sampled objects that leaked at {@code site} so far.
+     * @param sampledObjects    the number of objects of {@code resourceType} that were sampled so far.
+     */
+    void onLeak(String resourceType, String site, long siteLeaks, long sampledObjects);
+}
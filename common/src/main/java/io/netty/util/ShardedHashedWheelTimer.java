@@ -0,0 +1,282 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * A {@link Timer} which spreads its {@link Timeout}s over multiple {@link HashedWheelTimer}s, each of them with its
+ * own worker thread and queue.
+ * <p>
+ * A {@link Timeout} is added to the shard which belongs to the calling {@link Thread}, so threads that create a lot
+ * of {@link Timeout}s (like the {@code EventLoop}s of a server) do not contend on the same queue.
+ * Optionally the {@link TimerTask}s can be run by an {@link Executor}, so a slow {@link TimerTask} does not delay the
+ * expiration of the other {@link Timeout}s of its shard.
+ * <p>
+ * How late the {@link Timeout}s of a shard expire can be monitored via {@link #metrics()}.
+ */
+public final class ShardedHashedWheelTimer implements Timer {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ShardedHashedWheelTimer.class);
+
+    private final Shard[] shards;
+    private final Executor executor;
+    private final List<TimerShardMetric> metrics;
+
+    /**
+     * Creates a new timer with one shard per available processor, the default thread factory
+     * ({@link Executors#defaultThreadFactory()}), default tick duration, and default number of ticks per wheel. The
+     * {@link TimerTask}s are run by the worker threads of the shards.
+     */
+    public ShardedHashedWheelTimer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new timer with the default thread factory ({@link Executors#defaultThreadFactory()}), default tick
+     * duration, and default number of ticks per wheel. The {@link TimerTask}s are run by the worker threads of the
+     * shards.
+     *
+     * @param shards  the number of {@link HashedWheelTimer}s to use
+     */
+    public ShardedHashedWheelTimer(int shards) {
+        this(shards, null);
+    }
+
+    /**
+     * Creates a new timer with the default thread factory ({@link Executors#defaultThreadFactory()}), default tick
+     * duration, and default number of ticks per wheel.
+     *
+     * @param shards    the number of {@link HashedWheelTimer}s to use
+     * @param executor  the {@link Executor} which runs the {@link TimerTask}s or {@code null} if they should be run
+     *                  by the worker threads of the shards
+     */
+    public ShardedHashedWheelTimer(int shards, Executor executor) {
+        this(Executors.defaultThreadFactory(), shards, 100, TimeUnit.MILLISECONDS, 512, executor);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates the worker {@link Thread} of each shard
+     * @param shards         the number of {@link HashedWheelTimer}s to use
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @param ticksPerWheel  the size of the wheel of each shard
+     * @param executor       the {@link Executor} which runs the {@link TimerTask}s or {@code null} if they should be
+     *                       run by the worker threads of the shards
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code shards}, {@code tickDuration} and {@code ticksPerWheel} is
+     *                                  &lt;= 0
+     */
+    public ShardedHashedWheelTimer(ThreadFactory threadFactory, int shards,
+                                   long tickDuration, TimeUnit unit, int ticksPerWheel, Executor executor) {
+        checkNotNull(threadFactory, "threadFactory");
+        checkPositive(shards, "shards");
+        this.executor = executor;
+        this.shards = new Shard[shards];
+        List<TimerShardMetric> metrics = new ArrayList<TimerShardMetric>(this.shards.length);
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new Shard(new HashedWheelTimer(threadFactory, tickDuration, unit, ticksPerWheel));
+            metrics.add(this.shards[i]);
+        }
+        this.metrics = Collections.unmodifiableList(metrics);
+    }
+
+    /**
+     * Returns the {@link TimerShardMetric} of each shard.
+     */
+    public List<TimerShardMetric> metrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the number of pending timeouts of this {@link Timer}.
+     */
+    public long pendingTimeouts() {
+        long pending = 0;
+        for (Shard shard: shards) {
+            pending += shard.pendingTimeouts();
+        }
+        return pending;
+    }
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        checkNotNull(task, "task");
+        checkNotNull(unit, "unit");
+        long deadlineNanos = System.nanoTime() + unit.toNanos(delay);
+        // Guard against overflow.
+        if (delay > 0 && deadlineNanos < 0) {
+            deadlineNanos = Long.MAX_VALUE;
+        }
+        Shard shard = shard();
+        ShardedTimeout timeout = new ShardedTimeout(shard, task, deadlineNanos);
+        timeout.timeout = shard.timer.newTimeout(timeout, delay, unit);
+        return timeout;
+    }
+
+    private Shard shard() {
+        // Mix the id as threads are often created in a row and so have consecutive ids.
+        long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return shards[(int) ((id >>> 32) % shards.length)];
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        Set<Timeout> unprocessed = new HashSet<Timeout>();
+        for (Shard shard: shards) {
+            for (Timeout timeout: shard.timer.stop()) {
+                unprocessed.add((ShardedTimeout) timeout.task());
+            }
+        }
+        return unprocessed;
+    }
+
+    private final class ShardedTimeout implements Timeout, TimerTask, Runnable {
+        private final Shard shard;
+        private final TimerTask task;
+        private final long deadlineNanos;
+        // Set directly after the Timeout was created and also when it expires, in case this happens before.
+        Timeout timeout;
+
+        ShardedTimeout(Shard shard, TimerTask task, long deadlineNanos) {
+            this.shard = shard;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public Timer timer() {
+            return ShardedHashedWheelTimer.this;
+        }
+
+        @Override
+        public TimerTask task() {
+            return task;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return timeout.isExpired();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return timeout.isCancelled();
+        }
+
+        @Override
+        public boolean cancel() {
+            return timeout.cancel();
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            this.timeout = timeout;
+            shard.expired(System.nanoTime() - deadlineNanos);
+            if (executor == null) {
+                run();
+            } else {
+                try {
+                    executor.execute(this);
+                } catch (Throwable t) {
+                    if (logger.isWarnEnabled()) {
+                        logger.warn("An exception was thrown while submitting " + TimerTask.class.getSimpleName()
+                                + " to the executor.", t);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run(this);
+            } catch (Throwable t) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("An exception was thrown by " + TimerTask.class.getSimpleName() + '.', t);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return StringUtil.simpleClassName(this) + "(task: " + task + ", timeout: " + timeout + ')';
+        }
+    }
+
+    private static final class Shard implements TimerShardMetric {
+        final HashedWheelTimer timer;
+        private final LongCounter expiredTimeouts = PlatformDependent.newLongCounter();
+        private final AtomicLong maxLagNanos = new AtomicLong();
+        private volatile long lastLagNanos;
+
+        Shard(HashedWheelTimer timer) {
+            this.timer = timer;
+        }
+
+        void expired(long lagNanos) {
+            lagNanos = Math.max(0, lagNanos);
+            lastLagNanos = lagNanos;
+            expiredTimeouts.increment();
+            for (;;) {
+                long max = maxLagNanos.get();
+                if (lagNanos <= max || maxLagNanos.compareAndSet(max, lagNanos)) {
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public long pendingTimeouts() {
+            return timer.pendingTimeouts();
+        }
+
+        @Override
+        public long expiredTimeouts() {
+            return expiredTimeouts.value();
+        }
+
+        @Override
+        public long lastLagNanos() {
+            return lastLagNanos;
+        }
+
+        @Override
+        public long maxLagNanos() {
+            return maxLagNanos.get();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+/**
+ * Exposes the metrics of one shard of a {@link ShardedHashedWheelTimer}.
+ */
+public interface TimerShardMetric {
+
+    /**
+     * Returns the number of {@link Timeout}s of the shard that are neither expired nor cancelled.
+     */
+    long pendingTimeouts();
+
+    /**
+     * Returns the number of {@link Timeout}s of the shard that expired so far.
+     */
+    long expiredTimeouts();
+
+    /**
+     * Returns how many nanoseconds the last expired {@link Timeout} of the shard was handed off after its deadline.
+     */
+    long lastLagNanos();
+
+    /**
+     * Returns the maximum number of nanoseconds an expired {@link Timeout} of the shard was handed off after its
+     * deadline.
+     */
+    long maxLagNanos();
+}
@@ -18,6 +18,7 @@ package io.netty.util.concurrent;
 import io.netty.util.internal.DefaultPriorityQueue;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PriorityQueue;
+import io.netty.util.internal.SystemPropertyUtil;
 
 import java.util.Comparator;
 import java.util.Queue;
@@ -30,7 +31,7 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class AbstractScheduledEventExecutor extends AbstractEventExecutor {
 
-    private static final Comparator<ScheduledFutureTask<?>> SCHEDULED_FUTURE_TASK_COMPARATOR =
+    static final Comparator<ScheduledFutureTask<?>> SCHEDULED_FUTURE_TASK_COMPARATOR =
             new Comparator<ScheduledFutureTask<?>>() {
                 @Override
                 public int compare(ScheduledFutureTask<?> o1, ScheduledFutureTask<?> o2) {
@@ -38,7 +39,11 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
                 }
             };
 
+    private static final String SCHEDULED_TASK_QUEUE_PROPERTY = "io.netty.eventexecutor.scheduledTaskQueue";
+
     PriorityQueue<ScheduledFutureTask<?>> scheduledTaskQueue;
+    // Not null if the scheduled tasks are kept in a timing wheel instead of a heap.
+    private final TimingWheelScheduledTaskQueue timingWheel = newTimingWheel();
 
     protected AbstractScheduledEventExecutor() {
     }
@@ -47,16 +52,33 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         super(parent);
     }
 
+    /**
+     * Returns a {@link TimingWheelScheduledTaskQueue} if {@code io.netty.eventexecutor.scheduledTaskQueue} is set to
+     * {@code timingWheel}. This is read for every {@link AbstractScheduledEventExecutor} so it is possible to compare
+     * both implementations in the same JVM.
+     */
+    private static TimingWheelScheduledTaskQueue newTimingWheel() {
+        String queue = SystemPropertyUtil.get(SCHEDULED_TASK_QUEUE_PROPERTY, "heap");
+        if ("timingWheel".equalsIgnoreCase(queue)) {
+            return new TimingWheelScheduledTaskQueue();
+        }
+        return null;
+    }
+
     protected static long nanoTime() {
         return ScheduledFutureTask.nanoTime();
     }
 
     PriorityQueue<ScheduledFutureTask<?>> scheduledTaskQueue() {
         if (scheduledTaskQueue == null) {
-            scheduledTaskQueue = new DefaultPriorityQueue<ScheduledFutureTask<?>>(
-                    SCHEDULED_FUTURE_TASK_COMPARATOR,
-                    // Use same initial capacity as java.util.PriorityQueue
-                    11);
+            if (timingWheel != null) {
+                scheduledTaskQueue = timingWheel;
+            } else {
+                scheduledTaskQueue = new DefaultPriorityQueue<ScheduledFutureTask<?>>(
+                        SCHEDULED_FUTURE_TASK_COMPARATOR,
+                        // Use same initial capacity as java.util.PriorityQueue
+                        11);
+            }
         }
         return scheduledTaskQueue;
     }
@@ -229,7 +251,7 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         if (inEventLoop()) {
             scheduledTaskQueue().add(task);
         } else {
-            execute(new Runnable() {
+            executeScheduledTaskQueueUpdate(new Runnable() {
                 @Override
                 public void run() {
                     scheduledTaskQueue().add(task);
@@ -243,8 +265,12 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
     final void removeScheduled(final ScheduledFutureTask<?> task) {
         if (inEventLoop()) {
             scheduledTaskQueue().removeTyped(task);
+        } else if (timingWheel != null) {
+            // The task is already cancelled, so the timing wheel will drop it once it is reached or purged. This
+            // saves us from executing a task just to remove it.
+            timingWheel.cancelledLazily();
         } else {
-            execute(new Runnable() {
+            executeScheduledTaskQueueUpdate(new Runnable() {
                 @Override
                 public void run() {
                     removeScheduled(task);
@@ -252,4 +278,12 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
             });
         }
     }
+
+    /**
+     * Executes a task which updates the scheduled task queue from outside the event loop. Implementations with more
+     * than one thread must run it on the thread for which {@link #inEventLoop()} returns {@code true}.
+     */
+    void executeScheduledTaskQueueUpdate(Runnable task) {
+        execute(task);
+    }
 }
@@ -0,0 +1,430 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Queue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * A scalable alternative to {@link GlobalEventExecutor} for background tasks submitted at a high rate.
+ * <p>
+ * Each worker has its own lock-free MPSC task queue and starts on demand. A worker parks while its queue is empty
+ * and terminates once it was idle for the keep-alive time, so bursts neither contend on a lock nor churn threads.
+ * Tasks are spread over the workers, a task submitted from a worker stays on that worker. Scheduled tasks are run by
+ * the first worker, which is also the thread {@link #inEventLoop()} returns {@code true} for. As a result tasks are
+ * only run in submission order if there is a single worker.
+ * <p>
+ * The {@link #INSTANCE} is configured with the {@code io.netty.backgroundEventExecutor.workers} (default: 1) and
+ * {@code io.netty.backgroundEventExecutor.keepAliveMillis} (default: 1000) system properties. Netty uses it instead of
+ * the {@link GlobalEventExecutor} for its own background tasks if
+ * {@code io.netty.backgroundEventExecutor.useForInternalTasks} is {@code true}, see {@link #globalExecutor()}.
+ */
+public final class BackgroundEventExecutor extends AbstractScheduledEventExecutor {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(BackgroundEventExecutor.class);
+
+    private static final int DEFAULT_WORKERS =
+            Math.max(1, SystemPropertyUtil.getInt("io.netty.backgroundEventExecutor.workers", 1));
+    private static final long DEFAULT_KEEP_ALIVE_MILLIS =
+            Math.max(0, SystemPropertyUtil.getLong("io.netty.backgroundEventExecutor.keepAliveMillis", 1000));
+    private static final boolean USE_FOR_INTERNAL_TASKS =
+            SystemPropertyUtil.getBoolean("io.netty.backgroundEventExecutor.useForInternalTasks", false);
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.backgroundEventExecutor.workers: {}", DEFAULT_WORKERS);
+            logger.debug("-Dio.netty.backgroundEventExecutor.keepAliveMillis: {}", DEFAULT_KEEP_ALIVE_MILLIS);
+            logger.debug("-Dio.netty.backgroundEventExecutor.useForInternalTasks: {}", USE_FOR_INTERNAL_TASKS);
+        }
+    }
+
+    public static final BackgroundEventExecutor INSTANCE =
+            new BackgroundEventExecutor(DEFAULT_WORKERS, DEFAULT_KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS);
+
+    private static final int STOPPED = 0;
+    private static final int RUNNING = 1;
+    private static final int PARKED = 2;
+
+    private final Worker[] workers;
+    private final long keepAliveNanos;
+    // The thread group of the submitter must not stick to the threads, see GlobalEventExecutor.
+    private final ThreadFactory threadFactory;
+    private final Future<?> terminationFuture = new FailedFuture<Object>(this, new UnsupportedOperationException());
+    private final BackgroundEventExecutorMetric metric = new BackgroundEventExecutorMetric() {
+        @Override
+        public int workers() {
+            return workers.length;
+        }
+
+        @Override
+        public int activeWorkers() {
+            int active = 0;
+            for (Worker worker : workers) {
+                if (worker.state != STOPPED) {
+                    active++;
+                }
+            }
+            return active;
+        }
+
+        @Override
+        public int pendingTasks() {
+            return BackgroundEventExecutor.this.pendingTasks();
+        }
+
+        @Override
+        public long completedTasks() {
+            long completed = 0;
+            for (Worker worker : workers) {
+                completed += worker.completedTasks;
+            }
+            return completed;
+        }
+
+        @Override
+        public long totalTaskLatencyNanos() {
+            long latency = 0;
+            for (Worker worker : workers) {
+                latency += worker.totalLatencyNanos;
+            }
+            return latency;
+        }
+
+        @Override
+        public long maxTaskLatencyNanos() {
+            long max = 0;
+            for (Worker worker : workers) {
+                max = Math.max(max, worker.maxLatencyNanos);
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "BackgroundEventExecutorMetric(workers: " + workers() + ", activeWorkers: " + activeWorkers() +
+                    ", pendingTasks: " + pendingTasks() + ", completedTasks: " + completedTasks() +
+                    ", maxTaskLatencyNanos: " + maxTaskLatencyNanos() + ')';
+        }
+    };
+
+    /**
+     * Creates a new instance.
+     *
+     * @param workers   the maximum number of worker threads.
+     * @param keepAlive the time a worker may be idle before it terminates.
+     * @param unit      the {@link TimeUnit} of {@code keepAlive}.
+     */
+    public BackgroundEventExecutor(int workers, long keepAlive, TimeUnit unit) {
+        this(workers, keepAlive, unit, new DefaultThreadFactory(
+                DefaultThreadFactory.toPoolName(BackgroundEventExecutor.class), false, Thread.NORM_PRIORITY, null));
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param workers       the maximum number of worker threads.
+     * @param keepAlive     the time a worker may be idle before it terminates.
+     * @param unit          the {@link TimeUnit} of {@code keepAlive}.
+     * @param threadFactory the {@link ThreadFactory} used to start the workers.
+     */
+    public BackgroundEventExecutor(int workers, long keepAlive, TimeUnit unit, ThreadFactory threadFactory) {
+        checkPositive(workers, "workers");
+        checkPositiveOrZero(keepAlive, "keepAlive");
+        keepAliveNanos = checkNotNull(unit, "unit").toNanos(keepAlive);
+        this.threadFactory = checkNotNull(threadFactory, "threadFactory");
+        this.workers = new Worker[workers];
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = new Worker(i);
+        }
+    }
+
+    /**
+     * Returns the executor Netty uses for its own background tasks: the {@link #INSTANCE} if the
+     * {@code io.netty.backgroundEventExecutor.useForInternalTasks} system property is {@code true}, the
+     * {@link GlobalEventExecutor#INSTANCE} otherwise.
+     */
+    public static EventExecutor globalExecutor() {
+        return USE_FOR_INTERNAL_TASKS ? INSTANCE : GlobalEventExecutor.INSTANCE;
+    }
+
+    /**
+     * Returns the {@link BackgroundEventExecutorMetric} of this executor.
+     */
+    public BackgroundEventExecutorMetric metric() {
+        return metric;
+    }
+
+    /**
+     * Return the number of tasks that are pending for processing.
+     */
+    public int pendingTasks() {
+        int pending = 0;
+        for (Worker worker : workers) {
+            pending += worker.taskQueue.size();
+        }
+        return pending;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        checkNotNull(task, "task");
+        nextWorker().execute(new TimedTask(task, System.nanoTime()));
+    }
+
+    @Override
+    void executeScheduledTaskQueueUpdate(Runnable task) {
+        // Only the first worker may touch the scheduled task queue.
+        workers[0].execute(task);
+    }
+
+    private Worker nextWorker() {
+        Worker[] workers = this.workers;
+        if (workers.length == 1) {
+            return workers[0];
+        }
+        Thread current = Thread.currentThread();
+        for (Worker worker : workers) {
+            if (worker.thread == current) {
+                return worker;
+            }
+        }
+        return workers[PlatformDependent.threadLocalRandom().nextInt(workers.length)];
+    }
+
+    @Override
+    public boolean inEventLoop(Thread thread) {
+        return thread == workers[0].thread;
+    }
+
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        return terminationFuture();
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return terminationFuture;
+    }
+
+    @Override
+    @Deprecated
+    public void shutdown() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return false;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return false;
+    }
+
+    /**
+     * Waits until all the workers of this executor have terminated because they ran out of work. As workers are
+     * started again when new tasks are submitted, this is only useful once no more tasks are submitted.
+     *
+     * @return {@code true} if and only if all the workers have terminated.
+     */
+    public boolean awaitInactivity(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + checkNotNull(unit, "unit").toNanos(timeout);
+        for (Worker worker : workers) {
+            Thread thread = worker.thread;
+            if (thread != null) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis > 0) {
+                    thread.join(remainingMillis);
+                }
+                if (thread.isAlive()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static final class TimedTask implements Runnable {
+        final Runnable task;
+        final long submitNanos;
+
+        TimedTask(Runnable task, long submitNanos) {
+            this.task = task;
+            this.submitNanos = submitNanos;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final AtomicIntegerFieldUpdater<Worker> stateUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(Worker.class, "state");
+        private final AtomicLongFieldUpdater<Worker> completedUpdater =
+                AtomicLongFieldUpdater.newUpdater(Worker.class, "completedTasks");
+        private final AtomicLongFieldUpdater<Worker> latencyUpdater =
+                AtomicLongFieldUpdater.newUpdater(Worker.class, "totalLatencyNanos");
+        private final AtomicLongFieldUpdater<Worker> maxLatencyUpdater =
+                AtomicLongFieldUpdater.newUpdater(Worker.class, "maxLatencyNanos");
+
+        private final int index;
+        final Queue<Runnable> taskQueue = PlatformDependent.newMpscQueue();
+        volatile Thread thread;
+        volatile int state = STOPPED;
+
+        // Only written by the worker thread.
+        volatile long completedTasks;
+        volatile long totalLatencyNanos;
+        volatile long maxLatencyNanos;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        void execute(Runnable task) {
+            taskQueue.offer(task);
+            for (;;) {
+                int state = this.state;
+                if (state == RUNNING) {
+                    return;
+                }
+                if (state == PARKED) {
+                    if (stateUpdater.compareAndSet(this, PARKED, RUNNING)) {
+                        LockSupport.unpark(thread);
+                        return;
+                    }
+                } else if (stateUpdater.compareAndSet(this, STOPPED, RUNNING)) {
+                    startThread();
+                    return;
+                }
+            }
+        }
+
+        private void startThread() {
+            final Thread t = threadFactory.newThread(this);
+            // Do not hold a strong reference to the inherited classloader, see GlobalEventExecutor.
+            AccessController.doPrivileged(new PrivilegedAction<Void>() {
+                @Override
+                public Void run() {
+                    t.setContextClassLoader(null);
+                    return null;
+                }
+            });
+            // Set the thread before starting it as otherwise inEventLoop() may return false.
+            thread = t;
+            t.start();
+        }
+
+        @Override
+        public void run() {
+            for (;;) {
+                Runnable task = taskQueue.poll();
+                if (task == null && index == 0) {
+                    task = pollScheduledTask();
+                }
+                if (task != null) {
+                    runTask(task);
+                } else if (!parkOrStop()) {
+                    return;
+                }
+            }
+        }
+
+        private void runTask(Runnable task) {
+            if (task instanceof TimedTask) {
+                long latency = System.nanoTime() - ((TimedTask) task).submitNanos;
+                latencyUpdater.lazySet(this, totalLatencyNanos + latency);
+                if (latency > maxLatencyNanos) {
+                    maxLatencyUpdater.lazySet(this, latency);
+                }
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.warn("Unexpected exception from the background event executor: ", t);
+            }
+            completedUpdater.lazySet(this, completedTasks + 1);
+        }
+
+        /**
+         * Parks the worker until a new task is submitted, a scheduled task is due or the keep-alive time passed.
+         *
+         * @return {@code false} if the worker was idle for the keep-alive time and must terminate.
+         */
+        private boolean parkOrStop() {
+            long parkNanos = keepAliveNanos;
+            boolean hasScheduledTasks = false;
+            if (index == 0) {
+                long nextScheduledTaskNanos = nextScheduledTaskNano();
+                if (nextScheduledTaskNanos != -1) {
+                    hasScheduledTasks = true;
+                    parkNanos = Math.min(parkNanos, nextScheduledTaskNanos);
+                }
+            }
+
+            // Announce that we are about to park and check the queue again, so no wakeup is lost.
+            state = PARKED;
+            if (!taskQueue.isEmpty()) {
+                stateUpdater.compareAndSet(this, PARKED, RUNNING);
+                return true;
+            }
+
+            long start = System.nanoTime();
+            if (parkNanos > 0) {
+                LockSupport.parkNanos(this, parkNanos);
+            }
+            if (state == RUNNING) {
+                // Woken up by a submitter.
+                return true;
+            }
+            if (!hasScheduledTasks && System.nanoTime() - start >= keepAliveNanos &&
+                    stateUpdater.compareAndSet(this, PARKED, STOPPED)) {
+                // A submitter that sees the STOPPED state starts a new thread, which is the only consumer from now on.
+                return false;
+            }
+            stateUpdater.compareAndSet(this, PARKED, RUNNING);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+/**
+ * Metrics of a {@link BackgroundEventExecutor}. All values are approximations, as they are read while the workers
+ * keep running tasks.
+ */
+public interface BackgroundEventExecutorMetric {
+
+    /**
+     * Returns the maximum number of worker threads.
+     */
+    int workers();
+
+    /**
+     * Returns the number of worker threads that are currently alive.
+     */
+    int activeWorkers();
+
+    /**
+     * Returns the number of tasks that wait to be picked up by a worker.
+     */
+    int pendingTasks();
+
+    /**
+     * Returns the number of tasks that were run.
+     */
+    long completedTasks();
+
+    /**
+     * Returns the sum of the time the completed tasks spent in the task queues, in nanoseconds.
+     */
+    long totalTaskLatencyNanos();
+
+    /**
+     * Returns the longest time a completed task spent in a task queue, in nanoseconds.
+     */
+    long maxTaskLatencyNanos();
+}
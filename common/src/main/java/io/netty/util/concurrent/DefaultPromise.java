@@ -25,6 +25,7 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
@@ -39,6 +40,12 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     @SuppressWarnings("rawtypes")
     private static final AtomicReferenceFieldUpdater<DefaultPromise, Object> RESULT_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(DefaultPromise.class, Object.class, "result");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<DefaultPromise, Object> LISTENERS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DefaultPromise.class, Object.class, "listeners");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<DefaultPromise> NOTIFYING_LISTENERS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(DefaultPromise.class, "notifyingListeners");
     private static final Object SUCCESS = new Object();
     private static final Object UNCANCELLABLE = new Object();
     private static final CauseHolder CANCELLATION_CAUSE_HOLDER = new CauseHolder(ThrowableUtil.unknownStackTrace(
@@ -47,22 +54,25 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     private volatile Object result;
     private final EventExecutor executor;
     /**
-     * One or more listeners. Can be a {@link GenericFutureListener} or a {@link DefaultFutureListeners}.
+     * One or more listeners. Can be a {@link GenericFutureListener} or a {@link ListenerNode} which is the head of a
+     * stack of listeners, the most recently added one first.
      * If {@code null}, it means either 1) no listeners were added yet or 2) all listeners were notified.
      *
-     * Threading - synchronized(this). We must support adding listeners when there is no EventExecutor.
+     * Threading - updated with CAS. We must support adding listeners when there is no EventExecutor.
      */
-    private Object listeners;
+    private volatile Object listeners;
     /**
-     * Threading - synchronized(this). We are required to hold the monitor to use Java's underlying wait()/notifyAll().
+     * Threading - only modified while holding the monitor as we are required to hold it to use Java's underlying
+     * wait()/notifyAll(). Volatile so the completing thread only needs to acquire the monitor if someone is waiting.
      */
-    private short waiters;
+    private volatile short waiters;
 
     /**
-     * Threading - synchronized(this). We must prevent concurrent notification and FIFO listener notification if the
-     * executor changes.
+     * Threading - updated with CAS. The number of notification requests that were not yet handled. We must prevent
+     * concurrent notification and FIFO listener notification if the executor changes, so only the thread that
+     * increments it from {@code 0} notifies the listeners and picks up the requests of all other threads.
      */
-    private boolean notifyingListeners;
+    private volatile int notifyingListeners;
 
     /**
      * Creates a new instance.
@@ -154,8 +164,11 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     public Promise<V> addListener(GenericFutureListener<? extends Future<? super V>> listener) {
         checkNotNull(listener, "listener");
 
-        synchronized (this) {
-            addListener0(listener);
+        for (;;) {
+            Object listeners = this.listeners;
+            if (LISTENERS_UPDATER.compareAndSet(this, listeners, push(listeners, listener))) {
+                break;
+            }
         }
 
         if (isDone()) {
@@ -169,12 +182,17 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     public Promise<V> addListeners(GenericFutureListener<? extends Future<? super V>>... listeners) {
         checkNotNull(listeners, "listeners");
 
-        synchronized (this) {
+        for (;;) {
+            Object oldListeners = this.listeners;
+            Object newListeners = oldListeners;
             for (GenericFutureListener<? extends Future<? super V>> listener : listeners) {
                 if (listener == null) {
                     break;
                 }
-                addListener0(listener);
+                newListeners = push(newListeners, listener);
+            }
+            if (newListeners == oldListeners || LISTENERS_UPDATER.compareAndSet(this, oldListeners, newListeners)) {
+                break;
             }
         }
 
@@ -189,9 +207,7 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     public Promise<V> removeListener(final GenericFutureListener<? extends Future<? super V>> listener) {
         checkNotNull(listener, "listener");
 
-        synchronized (this) {
-            removeListener0(listener);
-        }
+        removeListener0(listener);
 
         return this;
     }
@@ -200,13 +216,11 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     public Promise<V> removeListeners(final GenericFutureListener<? extends Future<? super V>>... listeners) {
         checkNotNull(listeners, "listeners");
 
-        synchronized (this) {
-            for (GenericFutureListener<? extends Future<? super V>> listener : listeners) {
-                if (listener == null) {
-                    break;
-                }
-                removeListener0(listener);
+        for (GenericFutureListener<? extends Future<? super V>> listener : listeners) {
+            if (listener == null) {
+                break;
             }
+            removeListener0(listener);
         }
 
         return this;
@@ -225,13 +239,15 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         checkDeadLock();
 
         synchronized (this) {
-            while (!isDone()) {
-                incWaiters();
-                try {
+            // Increment before checking isDone() as the completing thread only acquires the monitor when it observes
+            // a waiter.
+            incWaiters();
+            try {
+                while (!isDone()) {
                     wait();
-                } finally {
-                    decWaiters();
                 }
+            } finally {
+                decWaiters();
             }
         }
         return this;
@@ -247,16 +263,18 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
 
         boolean interrupted = false;
         synchronized (this) {
-            while (!isDone()) {
-                incWaiters();
-                try {
-                    wait();
-                } catch (InterruptedException e) {
-                    // Interrupted while waiting.
-                    interrupted = true;
-                } finally {
-                    decWaiters();
+            incWaiters();
+            try {
+                while (!isDone()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Interrupted while waiting.
+                        interrupted = true;
+                    }
                 }
+            } finally {
+                decWaiters();
             }
         }
 
@@ -414,6 +432,10 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     }
 
     private void notifyListeners() {
+        if (listeners == null) {
+            // The result was set before, so a listener that is added concurrently will be notified by addListener.
+            return;
+        }
         EventExecutor executor = executor();
         if (executor.inEventLoop()) {
             final InternalThreadLocalMap threadLocals = InternalThreadLocalMap.get();
@@ -468,40 +490,38 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     }
 
     private void notifyListenersNow() {
-        Object listeners;
-        synchronized (this) {
-            // Only proceed if there are listeners to notify and we are not already notifying listeners.
-            if (notifyingListeners || this.listeners == null) {
-                return;
-            }
-            notifyingListeners = true;
-            listeners = this.listeners;
-            this.listeners = null;
+        // Only proceed if we are not already notifying listeners. Otherwise the notifying thread will pick up the
+        // listeners that were added in the meantime.
+        if (NOTIFYING_LISTENERS_UPDATER.getAndIncrement(this) != 0) {
+            return;
         }
+        int missed = 1;
         for (;;) {
-            if (listeners instanceof DefaultFutureListeners) {
-                notifyListeners0((DefaultFutureListeners) listeners);
-            } else {
-                notifyListener0(this, (GenericFutureListener<?>) listeners);
-            }
-            synchronized (this) {
-                if (this.listeners == null) {
-                    // Nothing can throw from within this method, so setting notifyingListeners back to false does not
-                    // need to be in a finally block.
-                    notifyingListeners = false;
-                    return;
+            if (listeners != null) {
+                Object listeners = LISTENERS_UPDATER.getAndSet(this, null);
+                if (listeners instanceof ListenerNode) {
+                    notifyListeners0((ListenerNode) listeners);
+                } else if (listeners != null) {
+                    notifyListener0(this, (GenericFutureListener<?>) listeners);
                 }
-                listeners = this.listeners;
-                this.listeners = null;
+            }
+            missed = NOTIFYING_LISTENERS_UPDATER.addAndGet(this, -missed);
+            if (missed == 0) {
+                return;
             }
         }
     }
 
-    private void notifyListeners0(DefaultFutureListeners listeners) {
-        GenericFutureListener<?>[] a = listeners.listeners();
-        int size = listeners.size();
-        for (int i = 0; i < size; i ++) {
-            notifyListener0(this, a[i]);
+    private void notifyListeners0(ListenerNode head) {
+        Object next = head.next;
+        if (!(next instanceof ListenerNode)) {
+            // Two listeners, notify them in FIFO order without copying them first.
+            notifyListener0(this, (GenericFutureListener<?>) next);
+            notifyListener0(this, head.listener);
+            return;
+        }
+        for (GenericFutureListener<?> l: toArray(head)) {
+            notifyListener0(this, l);
         }
     }
 
@@ -516,22 +536,64 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         }
     }
 
-    private void addListener0(GenericFutureListener<? extends Future<? super V>> listener) {
-        if (listeners == null) {
-            listeners = listener;
-        } else if (listeners instanceof DefaultFutureListeners) {
-            ((DefaultFutureListeners) listeners).add(listener);
-        } else {
-            listeners = new DefaultFutureListeners((GenericFutureListener<?>) listeners, listener);
+    private void removeListener0(GenericFutureListener<? extends Future<? super V>> listener) {
+        for (;;) {
+            Object listeners = this.listeners;
+            Object newListeners;
+            if (listeners instanceof ListenerNode) {
+                newListeners = remove((ListenerNode) listeners, listener);
+            } else {
+                newListeners = listeners == listener ? null : listeners;
+            }
+            if (newListeners == listeners || LISTENERS_UPDATER.compareAndSet(this, listeners, newListeners)) {
+                return;
+            }
         }
     }
 
-    private void removeListener0(GenericFutureListener<? extends Future<? super V>> listener) {
-        if (listeners instanceof DefaultFutureListeners) {
-            ((DefaultFutureListeners) listeners).remove(listener);
-        } else if (listeners == listener) {
-            listeners = null;
+    /**
+     * Returns the stack of listeners after {@code listener} was added on top of {@code listeners}.
+     */
+    private static Object push(Object listeners, GenericFutureListener<?> listener) {
+        return listeners == null ? listener : new ListenerNode(listener, listeners);
+    }
+
+    /**
+     * Returns the stack of listeners after the first added occurrence of {@code listener} was removed from it.
+     */
+    private static Object remove(ListenerNode head, GenericFutureListener<?> listener) {
+        GenericFutureListener<?>[] array = toArray(head);
+        for (int i = 0; i < array.length; i ++) {
+            if (array[i] == listener) {
+                Object listeners = null;
+                for (int j = 0; j < array.length; j ++) {
+                    if (j != i) {
+                        listeners = push(listeners, array[j]);
+                    }
+                }
+                return listeners;
+            }
         }
+        return head;
+    }
+
+    /**
+     * Returns the listeners of the stack in the order they were added.
+     */
+    private static GenericFutureListener<?>[] toArray(ListenerNode head) {
+        int size = 1;
+        for (Object l = head; l instanceof ListenerNode; l = ((ListenerNode) l).next) {
+            size ++;
+        }
+        GenericFutureListener<?>[] array = new GenericFutureListener[size];
+        Object l = head;
+        while (l instanceof ListenerNode) {
+            ListenerNode node = (ListenerNode) l;
+            array[-- size] = node.listener;
+            l = node.next;
+        }
+        array[0] = (GenericFutureListener<?>) l;
+        return array;
     }
 
     private boolean setSuccess0(V result) {
@@ -551,9 +613,12 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         return false;
     }
 
-    private synchronized void checkNotifyWaiters() {
+    private void checkNotifyWaiters() {
+        // The result was set before, so a waiter either observes it or is visible to us here.
         if (waiters > 0) {
-            notifyAll();
+            synchronized (this) {
+                notifyAll();
+            }
         }
     }
 
@@ -598,11 +663,11 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         try {
             for (;;) {
                 synchronized (this) {
-                    if (isDone()) {
-                        return true;
-                    }
                     incWaiters();
                     try {
+                        if (isDone()) {
+                            return true;
+                        }
                         wait(waitTime / 1000000, (int) (waitTime % 1000000));
                     } catch (InterruptedException e) {
                         if (interruptable) {
@@ -685,30 +750,30 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
      * Returns a {@link GenericProgressiveFutureListener}, an array of {@link GenericProgressiveFutureListener}, or
      * {@code null}.
      */
-    private synchronized Object progressiveListeners() {
+    private Object progressiveListeners() {
         Object listeners = this.listeners;
         if (listeners == null) {
             // No listeners added
             return null;
         }
 
-        if (listeners instanceof DefaultFutureListeners) {
-            // Copy DefaultFutureListeners into an array of listeners.
-            DefaultFutureListeners dfl = (DefaultFutureListeners) listeners;
-            int progressiveSize = dfl.progressiveSize();
+        if (listeners instanceof ListenerNode) {
+            GenericFutureListener<?>[] array = toArray((ListenerNode) listeners);
+            int progressiveSize = 0;
+            GenericFutureListener<?> progressive = null;
+            for (GenericFutureListener<?> l: array) {
+                if (l instanceof GenericProgressiveFutureListener) {
+                    progressiveSize ++;
+                    progressive = l;
+                }
+            }
             switch (progressiveSize) {
                 case 0:
                     return null;
                 case 1:
-                    for (GenericFutureListener<?> l: dfl.listeners()) {
-                        if (l instanceof GenericProgressiveFutureListener) {
-                            return l;
-                        }
-                    }
-                    return null;
+                    return progressive;
             }
 
-            GenericFutureListener<?>[] array = dfl.listeners();
             GenericProgressiveFutureListener<?>[] copy = new GenericProgressiveFutureListener[progressiveSize];
             for (int i = 0, j = 0; j < progressiveSize; i ++) {
                 GenericFutureListener<?> l = array[i];
@@ -756,6 +821,21 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         return result != null && result != UNCANCELLABLE;
     }
 
+    /**
+     * A node of the listener stack. Nodes are never modified after they were published, so the stack can be
+     * traversed and replaced without holding a lock.
+     */
+    private static final class ListenerNode {
+        final GenericFutureListener<?> listener;
+        // Either the next ListenerNode or the listener that was added first.
+        final Object next;
+
+        ListenerNode(GenericFutureListener<?> listener, Object next) {
+            this.listener = listener;
+            this.next = next;
+        }
+    }
+
     private static final class CauseHolder {
         final Throwable cause;
         CauseHolder(Throwable cause) {
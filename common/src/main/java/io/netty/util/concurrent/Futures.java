@@ -0,0 +1,254 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Utility methods to aggregate the outcome of a number of {@link Future}s into one {@link Future}.
+ * <p>
+ * Unlike {@link PromiseCombiner} the returned {@link Future}s can be completed from any thread and:
+ * <ul>
+ *     <li>cancel all the futures that are still running ("stragglers") once the outcome is known,</li>
+ *     <li>cancel all the aggregated futures when the returned {@link Future} is cancelled,</li>
+ *     <li>can be bound to a deadline which is scheduled on the given {@link EventExecutor}.</li>
+ * </ul>
+ * A single listener instance is shared by all the aggregated futures, so no allocation happens per future.
+ * The returned {@link Future}s notify their listeners on the given {@link EventExecutor}.
+ */
+public final class Futures {
+
+    private Futures() { }
+
+    /**
+     * Returns a {@link Future} which succeeds with the results of all the given futures, in the order of the given
+     * {@link Collection}, once all of them succeeded. It fails as soon as one of them fails, in which case the
+     * remaining futures are cancelled.
+     */
+    public static <V> Future<List<V>> allOf(EventExecutor executor, Collection<? extends Future<? extends V>> futures) {
+        return allOf(executor, futures, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Like {@link #allOf(EventExecutor, Collection)} but fails with a {@link TimeoutException}, and cancels the
+     * remaining futures, if not all of them succeeded within the given timeout. A non-positive timeout means no
+     * deadline.
+     */
+    public static <V> Future<List<V>> allOf(EventExecutor executor, Collection<? extends Future<? extends V>> futures,
+                                            long timeout, TimeUnit unit) {
+        Aggregator<V, List<V>> aggregator = new Aggregator<V, List<V>>(executor, futures, futures.size(),
+                                                                       Aggregator.ALL);
+        aggregator.start(timeout, unit);
+        return aggregator;
+    }
+
+    /**
+     * Returns a {@link Future} which succeeds with the result of the first of the given futures to succeed, and
+     * cancels the other ones. It fails with the cause of the last failure once all of them failed.
+     */
+    public static <V> Future<V> anyOf(EventExecutor executor, Collection<? extends Future<? extends V>> futures) {
+        return anyOf(executor, futures, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Like {@link #anyOf(EventExecutor, Collection)} but fails with a {@link TimeoutException}, and cancels the
+     * remaining futures, if none of them succeeded within the given timeout. A non-positive timeout means no
+     * deadline.
+     */
+    public static <V> Future<V> anyOf(EventExecutor executor, Collection<? extends Future<? extends V>> futures,
+                                      long timeout, TimeUnit unit) {
+        if (futures.isEmpty()) {
+            throw new IllegalArgumentException("futures must not be empty");
+        }
+        Aggregator<V, V> aggregator = new Aggregator<V, V>(executor, futures, 1, Aggregator.ANY);
+        aggregator.start(timeout, unit);
+        return aggregator;
+    }
+
+    /**
+     * Returns a {@link Future} which succeeds with the results of the first {@code n} of the given futures to
+     * succeed, in the order they completed, and cancels the other ones. It fails as soon as too many futures failed
+     * to still collect {@code n} results.
+     */
+    public static <V> Future<List<V>> firstN(EventExecutor executor, int n,
+                                             Collection<? extends Future<? extends V>> futures) {
+        return firstN(executor, n, futures, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Like {@link #firstN(EventExecutor, int, Collection)} but fails with a {@link TimeoutException}, and cancels the
+     * remaining futures, if less than {@code n} of them succeeded within the given timeout. A non-positive timeout
+     * means no deadline.
+     */
+    public static <V> Future<List<V>> firstN(EventExecutor executor, int n,
+                                             Collection<? extends Future<? extends V>> futures,
+                                             long timeout, TimeUnit unit) {
+        checkPositive(n, "n");
+        if (n > futures.size()) {
+            throw new IllegalArgumentException("n: " + n + " (expected: <= " + futures.size() + ')');
+        }
+        Aggregator<V, List<V>> aggregator = new Aggregator<V, List<V>>(executor, futures, n, Aggregator.FIRST_N);
+        aggregator.start(timeout, unit);
+        return aggregator;
+    }
+
+    /**
+     * The aggregate promise, which is also the listener of all the aggregated futures and the deadline task.
+     */
+    private static final class Aggregator<V, R> extends DefaultPromise<R>
+            implements GenericFutureListener<Future<Object>>, Runnable {
+        static final int ALL = 0;
+        static final int ANY = 1;
+        static final int FIRST_N = 2;
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Aggregator> SUCCEEDED_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Aggregator.class, "succeeded");
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Aggregator> COLLECTED_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Aggregator.class, "collected");
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Aggregator> FAILED_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Aggregator.class, "failed");
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Aggregator> FINISHED_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Aggregator.class, "finished");
+
+        private final Future<?>[] futures;
+        private final int needed;
+        private final int mode;
+        // Results in completion order, only used by ANY and FIRST_N.
+        private final Object[] results;
+        private ScheduledFuture<?> deadline;
+
+        private volatile int succeeded;
+        private volatile int collected;
+        private volatile int failed;
+        private volatile int finished;
+
+        Aggregator(EventExecutor executor, Collection<? extends Future<? extends V>> futures, int needed, int mode) {
+            super(ObjectUtil.checkNotNull(executor, "executor"));
+            this.futures = futures.toArray(new Future<?>[0]);
+            this.needed = needed;
+            this.mode = mode;
+            results = mode == ALL ? null : new Object[needed];
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        void start(long timeout, TimeUnit unit) {
+            if (needed == 0) {
+                // Only possible for allOf with no futures.
+                finished = 1;
+                trySuccess((R) Collections.emptyList());
+                return;
+            }
+            if (timeout > 0) {
+                deadline = executor().schedule(this, timeout, unit);
+            }
+            for (Future<?> future : futures) {
+                ((Future) future).addListener(this);
+            }
+        }
+
+        @Override
+        public void operationComplete(Future<Object> future) {
+            if (finished != 0) {
+                // A straggler, most likely cancelled by us.
+                return;
+            }
+            if (future.isSuccess()) {
+                int index = SUCCEEDED_UPDATER.getAndIncrement(this);
+                if (index >= needed) {
+                    return;
+                }
+                if (results != null) {
+                    results[index] = future.getNow();
+                }
+                // Count the results that are stored so the one storing the last result completes the promise.
+                if (COLLECTED_UPDATER.incrementAndGet(this) == needed && finish()) {
+                    trySuccess(result());
+                }
+            } else if (futures.length - FAILED_UPDATER.incrementAndGet(this) < needed && finish()) {
+                // Not enough futures left to ever succeed.
+                tryFailure(future.cause());
+            }
+        }
+
+        @Override
+        public void run() {
+            if (finish()) {
+                tryFailure(new TimeoutException("only " + collected + " out of " + needed +
+                                                " futures succeeded in time"));
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return finish() && super.cancel(mayInterruptIfRunning);
+        }
+
+        /**
+         * Decides the outcome exactly once and cancels the stragglers before the promise is completed, so they are
+         * already cancelled when the listeners of the promise run.
+         */
+        private boolean finish() {
+            if (!FINISHED_UPDATER.compareAndSet(this, 0, 1)) {
+                return false;
+            }
+            cancelStragglers();
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private R result() {
+            switch (mode) {
+                case ANY:
+                    return (R) results[0];
+                case FIRST_N:
+                    return (R) Collections.unmodifiableList(Arrays.asList(results));
+                default:
+                    List<Object> list = new ArrayList<Object>(futures.length);
+                    for (Future<?> future : futures) {
+                        list.add(future.getNow());
+                    }
+                    return (R) Collections.unmodifiableList(list);
+            }
+        }
+
+        private void cancelStragglers() {
+            ScheduledFuture<?> deadline = this.deadline;
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+            for (Future<?> future : futures) {
+                if (!future.isDone()) {
+                    future.cancel(false);
+                }
+            }
+        }
+    }
+}
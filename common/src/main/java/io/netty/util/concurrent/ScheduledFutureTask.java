@@ -47,6 +47,13 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
 
     private int queueIndex = INDEX_NOT_IN_QUEUE;
 
+    // Only used by the TimingWheelScheduledTaskQueue. This adds an int and two references to every task, also when the
+    // tasks are kept in the default heap, which is cheaper than wrapping every task in a node of the wheel.
+    static final int NOT_IN_WHEEL = -1;
+    int wheelBucket = NOT_IN_WHEEL;
+    ScheduledFutureTask<?> wheelPrev;
+    ScheduledFutureTask<?> wheelNext;
+
     ScheduledFutureTask(
             AbstractScheduledEventExecutor executor,
             Runnable runnable, V result, long nanoTime) {
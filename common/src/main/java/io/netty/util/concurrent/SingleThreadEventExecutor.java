@@ -837,7 +837,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 assert thread != null;
             }
 
-            threadProperties = new DefaultThreadProperties(thread);
+            // Threads may expose richer properties themselves, for example the CPU they are pinned to.
+            threadProperties = thread instanceof ThreadProperties ?
+                    (ThreadProperties) thread : new DefaultThreadProperties(thread);
             if (!PROPERTIES_UPDATER.compareAndSet(this, null, threadProperties)) {
                 threadProperties = this.threadProperties;
             }
@@ -0,0 +1,463 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.DefaultPriorityQueue;
+import io.netty.util.internal.PriorityQueue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.util.concurrent.AbstractScheduledEventExecutor.SCHEDULED_FUTURE_TASK_COMPARATOR;
+
+/**
+ * A {@link PriorityQueue} for {@link ScheduledFutureTask}s which uses a hierarchical timing wheel, so adding and
+ * removing a task is {@code O(1)} regardless of the number of scheduled tasks.
+ * <p>
+ * The wheel has {@value #LEVELS} levels of {@value #SLOTS} buckets each. A bucket of the first level covers one tick
+ * of {@code 2^}{@value #TICK_SHIFT} nanoseconds (about a millisecond), and a bucket of the next level covers all the
+ * buckets of the previous level. Tasks that are more than {@code 2^32} ticks away are kept in a heap.
+ * <p>
+ * The wheel is not driven by a timer. Instead {@link #peek()} lazily moves the non-empty buckets that were reached by
+ * the clock into a small heap, which keeps the exact order of the tasks within the bucket. Buckets of the higher levels
+ * are cascaded into the lower levels once they are reached. The wheel is never moved past the current time, as tasks
+ * which are scheduled later with a short delay would end up in the heap otherwise. If the next task is not due yet it
+ * is looked up in its bucket without moving the wheel.
+ * <p>
+ * Tasks which are cancelled outside of the {@link EventExecutor} are not removed directly, but only once their bucket
+ * is reached or once enough of them were cancelled to make it worth purging them all. See
+ * {@link #cancelledLazily()}.
+ */
+final class TimingWheelScheduledTaskQueue extends AbstractQueue<ScheduledFutureTask<?>>
+        implements PriorityQueue<ScheduledFutureTask<?>> {
+
+    static final int TICK_SHIFT = 20;
+    static final int LEVELS = 4;
+    static final int SLOTS = 256;
+
+    private static final int SLOT_BITS = 8;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int WORDS_PER_LEVEL = SLOTS / Long.SIZE;
+    private static final int MIN_PURGE_THRESHOLD = 1024;
+
+    private final ScheduledFutureTask<?>[] buckets = new ScheduledFutureTask<?>[LEVELS * SLOTS];
+    // One bit per bucket which is set if the bucket is not empty, so we can find the next bucket fast.
+    private final long[] occupied = new long[LEVELS * WORDS_PER_LEVEL];
+    // Tasks of buckets that were reached already. All of them have a tick < currentTick.
+    private final DefaultPriorityQueue<ScheduledFutureTask<?>> ready =
+            new DefaultPriorityQueue<ScheduledFutureTask<?>>(SCHEDULED_FUTURE_TASK_COMPARATOR, 11);
+    // Tasks that are too far away for the wheel.
+    private final DefaultPriorityQueue<ScheduledFutureTask<?>> overflow =
+            new DefaultPriorityQueue<ScheduledFutureTask<?>>(SCHEDULED_FUTURE_TASK_COMPARATOR, 0);
+    private final AtomicInteger lazilyCancelled = new AtomicInteger();
+
+    private long currentTick;
+    private int wheelSize;
+    // The earliest task of the wheel and the overflow, or null if it needs to be looked up again.
+    private ScheduledFutureTask<?> earliest;
+
+    TimingWheelScheduledTaskQueue() {
+        currentTick = ScheduledFutureTask.nanoTime() >>> TICK_SHIFT;
+    }
+
+    /**
+     * Called when a task of this queue was cancelled outside of the {@link EventExecutor} and so was not removed.
+     * This is safe to call from any thread.
+     */
+    void cancelledLazily() {
+        lazilyCancelled.incrementAndGet();
+    }
+
+    @Override
+    public int size() {
+        return ready.size() + wheelSize + overflow.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean offer(ScheduledFutureTask<?> task) {
+        if (task.wheelBucket != ScheduledFutureTask.NOT_IN_WHEEL) {
+            throw new IllegalArgumentException("task already in the wheel: " + task);
+        }
+        purgeIfNeeded();
+        add0(task);
+        return true;
+    }
+
+    @Override
+    public ScheduledFutureTask<?> peek() {
+        for (;;) {
+            ScheduledFutureTask<?> task = ready.peek();
+            if (task == null) {
+                if (advance(ScheduledFutureTask.nanoTime() >>> TICK_SHIFT)) {
+                    continue;
+                }
+                // The next task is not due yet, so look it up without moving the wheel.
+                task = earliest();
+                if (task == null) {
+                    return null;
+                }
+                if (task.isCancelled()) {
+                    removeTyped(task);
+                    continue;
+                }
+                return task;
+            }
+            if (task.isCancelled()) {
+                // Cancelled outside of the EventExecutor, drop it so we not wake up for it.
+                ready.poll();
+            } else {
+                return task;
+            }
+        }
+    }
+
+    @Override
+    public ScheduledFutureTask<?> poll() {
+        ScheduledFutureTask<?> task = peek();
+        if (task == null) {
+            return null;
+        }
+        if (task.wheelBucket != ScheduledFutureTask.NOT_IN_WHEEL) {
+            unlink(task);
+        } else if (ready.peek() == task) {
+            ready.poll();
+        } else {
+            removeOverflow(task);
+        }
+        return task;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof ScheduledFutureTask && removeTyped((ScheduledFutureTask<?>) o);
+    }
+
+    @Override
+    public boolean removeTyped(ScheduledFutureTask<?> task) {
+        if (task.wheelBucket != ScheduledFutureTask.NOT_IN_WHEEL) {
+            unlink(task);
+            return true;
+        }
+        return ready.removeTyped(task) || removeOverflow(task);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof ScheduledFutureTask && containsTyped((ScheduledFutureTask<?>) o);
+    }
+
+    @Override
+    public boolean containsTyped(ScheduledFutureTask<?> task) {
+        return task.wheelBucket != ScheduledFutureTask.NOT_IN_WHEEL
+                || ready.containsTyped(task) || overflow.containsTyped(task);
+    }
+
+    @Override
+    public void priorityChanged(ScheduledFutureTask<?> task) {
+        if (removeTyped(task)) {
+            add0(task);
+        }
+    }
+
+    @Override
+    public void clear() {
+        ready.clear();
+        overflow.clear();
+        for (int i = 0; i < buckets.length; i++) {
+            ScheduledFutureTask<?> task = buckets[i];
+            while (task != null) {
+                ScheduledFutureTask<?> next = task.wheelNext;
+                task.wheelPrev = null;
+                task.wheelNext = null;
+                task.wheelBucket = ScheduledFutureTask.NOT_IN_WHEEL;
+                task = next;
+            }
+        }
+        clearIgnoringIndexes();
+    }
+
+    @Override
+    public void clearIgnoringIndexes() {
+        ready.clearIgnoringIndexes();
+        overflow.clearIgnoringIndexes();
+        Arrays.fill(buckets, null);
+        Arrays.fill(occupied, 0);
+        wheelSize = 0;
+        earliest = null;
+    }
+
+    @Override
+    public Iterator<ScheduledFutureTask<?>> iterator() {
+        // This is only used when all the tasks are cancelled, so there is no need to optimize it.
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>(size());
+        tasks.addAll(ready);
+        for (ScheduledFutureTask<?> bucket: buckets) {
+            for (ScheduledFutureTask<?> task = bucket; task != null; task = task.wheelNext) {
+                tasks.add(task);
+            }
+        }
+        tasks.addAll(overflow);
+        return tasks.iterator();
+    }
+
+    private static long tick(ScheduledFutureTask<?> task) {
+        return task.deadlineNanos() >>> TICK_SHIFT;
+    }
+
+    private void add0(ScheduledFutureTask<?> task) {
+        long tick = tick(task);
+        long diff = tick ^ currentTick;
+        if (tick < currentTick) {
+            ready.offer(task);
+        } else if (diff >>> (LEVELS * SLOT_BITS) != 0) {
+            overflow.offer(task);
+        } else {
+            // The level is defined by the highest bits which differ from the current tick.
+            int level = diff == 0 ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(diff)) / SLOT_BITS;
+            int slot = (int) (tick >>> (level * SLOT_BITS)) & SLOT_MASK;
+            link(task, level * SLOTS + slot);
+        }
+        if (earliest != null && SCHEDULED_FUTURE_TASK_COMPARATOR.compare(task, earliest) < 0) {
+            earliest = task;
+        }
+    }
+
+    private boolean removeOverflow(ScheduledFutureTask<?> task) {
+        if (task == earliest) {
+            earliest = null;
+        }
+        return overflow.removeTyped(task);
+    }
+
+    /**
+     * Moves the tasks of the next non-empty bucket to {@link #ready}, cascading buckets of higher levels if needed.
+     * Returns {@code false} if there are no more tasks or if the next non-empty bucket starts after {@code limit}, in
+     * which case the wheel is left as it is.
+     */
+    private boolean advance(long limit) {
+        for (;;) {
+            long current = currentTick;
+            int slot = nextOccupiedSlot(0, (int) current & SLOT_MASK);
+            if (slot >= 0) {
+                long tick = (current & ~SLOT_MASK) + slot;
+                if (tick > limit) {
+                    return false;
+                }
+                drainBucket(slot);
+                moveTo(tick + 1);
+                return true;
+            }
+            long next = nextBucketStart(current);
+            if (next < 0 || next > limit) {
+                return false;
+            }
+            moveTo(next);
+        }
+    }
+
+    /**
+     * Returns the first tick of the next non-empty bucket of the higher levels or of the overflow, or {@code -1} if
+     * there is none.
+     */
+    private long nextBucketStart(long current) {
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = level * SLOT_BITS;
+            int slot = nextOccupiedSlot(level, ((int) (current >>> shift) & SLOT_MASK) + 1);
+            if (slot >= 0) {
+                long rangeMask = (1L << (shift + SLOT_BITS)) - 1;
+                return (current & ~rangeMask) | (long) slot << shift;
+            }
+        }
+        ScheduledFutureTask<?> task = overflow.peek();
+        if (task == null) {
+            return -1;
+        }
+        int shift = LEVELS * SLOT_BITS;
+        return tick(task) >>> shift << shift;
+    }
+
+    /**
+     * Returns the earliest task which is not in {@link #ready}. As the buckets are ordered this is the earliest task
+     * of the first non-empty bucket, so only this bucket needs to be scanned. The result is cached until the task is
+     * removed or an earlier one is added.
+     */
+    private ScheduledFutureTask<?> earliest() {
+        ScheduledFutureTask<?> task = earliest;
+        if (task != null) {
+            return task;
+        }
+        long current = currentTick;
+        int bucket = nextOccupiedSlot(0, (int) current & SLOT_MASK);
+        for (int level = 1; bucket < 0 && level < LEVELS; level++) {
+            int slot = nextOccupiedSlot(level, ((int) (current >>> level * SLOT_BITS) & SLOT_MASK) + 1);
+            if (slot >= 0) {
+                bucket = level * SLOTS + slot;
+            }
+        }
+        if (bucket < 0) {
+            task = overflow.peek();
+        } else {
+            task = buckets[bucket];
+            for (ScheduledFutureTask<?> next = task.wheelNext; next != null; next = next.wheelNext) {
+                if (SCHEDULED_FUTURE_TASK_COMPARATOR.compare(next, task) < 0) {
+                    task = next;
+                }
+            }
+        }
+        earliest = task;
+        return task;
+    }
+
+    /**
+     * Sets the current tick and distributes the tasks of all the buckets which start at this tick to the lower
+     * levels, beginning with the highest level.
+     */
+    private void moveTo(long tick) {
+        currentTick = tick;
+        int shift = LEVELS * SLOT_BITS;
+        if ((tick & ((1L << shift) - 1)) == 0) {
+            ScheduledFutureTask<?> task = overflow.peek();
+            while (task != null && tick(task) >>> shift == tick >>> shift) {
+                overflow.poll();
+                add0(task);
+                task = overflow.peek();
+            }
+        }
+        for (int level = LEVELS - 1; level > 0; level--) {
+            shift = level * SLOT_BITS;
+            if ((tick & ((1L << shift) - 1)) == 0) {
+                int bucket = level * SLOTS + ((int) (tick >>> shift) & SLOT_MASK);
+                ScheduledFutureTask<?> task = buckets[bucket];
+                while (task != null) {
+                    ScheduledFutureTask<?> next = task.wheelNext;
+                    unlink(task);
+                    if (!task.isCancelled()) {
+                        add0(task);
+                    }
+                    task = next;
+                }
+            }
+        }
+    }
+
+    private void drainBucket(int bucket) {
+        ScheduledFutureTask<?> task = buckets[bucket];
+        while (task != null) {
+            ScheduledFutureTask<?> next = task.wheelNext;
+            unlink(task);
+            if (!task.isCancelled()) {
+                ready.offer(task);
+            }
+            task = next;
+        }
+    }
+
+    private int nextOccupiedSlot(int level, int fromSlot) {
+        if (fromSlot >= SLOTS) {
+            return -1;
+        }
+        int base = level * WORDS_PER_LEVEL;
+        int word = fromSlot >>> 6;
+        long bits = occupied[base + word] & (-1L << fromSlot);
+        for (;;) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == WORDS_PER_LEVEL) {
+                return -1;
+            }
+            bits = occupied[base + word];
+        }
+    }
+
+    private void link(ScheduledFutureTask<?> task, int bucket) {
+        ScheduledFutureTask<?> head = buckets[bucket];
+        task.wheelBucket = bucket;
+        task.wheelNext = head;
+        if (head != null) {
+            head.wheelPrev = task;
+        } else {
+            occupied[bucket >>> 6] |= 1L << bucket;
+        }
+        buckets[bucket] = task;
+        wheelSize++;
+    }
+
+    private void unlink(ScheduledFutureTask<?> task) {
+        int bucket = task.wheelBucket;
+        ScheduledFutureTask<?> prev = task.wheelPrev;
+        ScheduledFutureTask<?> next = task.wheelNext;
+        if (prev == null) {
+            buckets[bucket] = next;
+            if (next == null) {
+                occupied[bucket >>> 6] &= ~(1L << bucket);
+            }
+        } else {
+            prev.wheelNext = next;
+        }
+        if (next != null) {
+            next.wheelPrev = prev;
+        }
+        task.wheelPrev = null;
+        task.wheelNext = null;
+        task.wheelBucket = ScheduledFutureTask.NOT_IN_WHEEL;
+        wheelSize--;
+        if (task == earliest) {
+            earliest = null;
+        }
+    }
+
+    private void purgeIfNeeded() {
+        int cancelled = lazilyCancelled.get();
+        if (cancelled < MIN_PURGE_THRESHOLD || cancelled < size() >>> 1) {
+            return;
+        }
+        lazilyCancelled.addAndGet(-cancelled);
+        for (int i = 0; i < buckets.length; i++) {
+            ScheduledFutureTask<?> task = buckets[i];
+            while (task != null) {
+                ScheduledFutureTask<?> next = task.wheelNext;
+                if (task.isCancelled()) {
+                    unlink(task);
+                }
+                task = next;
+            }
+        }
+        purge(ready);
+        purge(overflow);
+        earliest = null;
+    }
+
+    private static void purge(DefaultPriorityQueue<ScheduledFutureTask<?>> queue) {
+        if (queue.isEmpty()) {
+            return;
+        }
+        for (ScheduledFutureTask<?> task: queue.toArray(new ScheduledFutureTask<?>[0])) {
+            if (task.isCancelled()) {
+                queue.removeTyped(task);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class MpscRecyclerTest {
+
+    private static MpscRecycler<HandledObject> newRecycler(int max) {
+        return new MpscRecycler<HandledObject>(max, 1, 16) {
+            @Override
+            protected HandledObject newObject(Recycler.Handle<HandledObject> handle) {
+                return new HandledObject(handle);
+            }
+        };
+    }
+
+    @Test
+    public void testRecycleOnSameThread() {
+        MpscRecycler<HandledObject> recycler = newRecycler(1024);
+        HandledObject object = recycler.get();
+        object.recycle();
+        assertSame(object, recycler.get());
+        assertNotSame(object, recycler.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMultipleRecycle() {
+        MpscRecycler<HandledObject> recycler = newRecycler(1024);
+        HandledObject object = recycler.get();
+        object.recycle();
+        object.recycle();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMultipleRecycleAtDifferentThread() throws Throwable {
+        MpscRecycler<HandledObject> recycler = newRecycler(1024);
+        final HandledObject object = recycler.get();
+        final AtomicReference<Throwable> exceptionStore = new AtomicReference<Throwable>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                object.recycle();
+                try {
+                    object.recycle();
+                } catch (Throwable cause) {
+                    exceptionStore.set(cause);
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        Throwable cause = exceptionStore.get();
+        if (cause != null) {
+            throw cause;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecycleWrongObject() {
+        MpscRecycler<HandledObject> recycler = newRecycler(1024);
+        HandledObject object = recycler.get();
+        object.handle.recycle(new HandledObject(object.handle));
+    }
+
+    @Test
+    public void testRecycleAtDifferentThread() throws Exception {
+        final MpscRecycler<HandledObject> recycler = newRecycler(1024);
+        final HandledObject[] objects = new HandledObject[32];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = recycler.get();
+        }
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (HandledObject object: objects) {
+                    object.recycle();
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+
+        RecyclerMetric metric = recycler.metric();
+        assertEquals(objects.length, metric.crossThreadRecycles());
+        assertEquals(objects.length, metric.pooledObjects());
+        assertEquals(0, metric.drops());
+
+        // The objects are reclaimed in batches once the owning thread runs out of pooled objects.
+        assertEquals(0, recycler.threadLocalSize());
+        HandledObject object = recycler.get();
+        assertEquals(15, recycler.threadLocalSize());
+        assertSame(objects[15], object);
+        for (int i = 0; i < objects.length - 1; i++) {
+            assertNotNull(recycler.get());
+        }
+        assertEquals(0, recycler.threadLocalSize());
+        assertNotSame(objects[0], recycler.get());
+    }
+
+    @Test
+    public void testMaxCapacity() {
+        MpscRecycler<HandledObject> recycler = newRecycler(8);
+        HandledObject[] objects = new HandledObject[16];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = recycler.get();
+        }
+        for (HandledObject object: objects) {
+            object.recycle();
+        }
+        assertEquals(8, recycler.threadLocalSize());
+        assertEquals(8, recycler.threadLocalCapacity());
+        assertEquals(8, recycler.metric().drops());
+    }
+
+    @Test
+    public void testMaxCapacityIncludesReturnQueue() throws Exception {
+        MpscRecycler<HandledObject> recycler = newRecycler(8);
+        final HandledObject[] objects = new HandledObject[16];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = recycler.get();
+        }
+        for (int i = 0; i < 4; i++) {
+            objects[i].recycle();
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 4; i < objects.length; i++) {
+                    objects[i].recycle();
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+
+        // The stack and the return queue share the capacity, so only 4 objects fit into the return queue.
+        assertEquals(12, recycler.metric().crossThreadRecycles());
+        assertEquals(8, recycler.metric().drops());
+        List<HandledObject> pooled = Arrays.asList(objects);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(pooled.contains(recycler.get()));
+        }
+        assertFalse(pooled.contains(recycler.get()));
+    }
+
+    @Test
+    public void testRatio() {
+        MpscRecycler<HandledObject> recycler = new MpscRecycler<HandledObject>(1024, 2, 16) {
+            @Override
+            protected HandledObject newObject(Recycler.Handle<HandledObject> handle) {
+                return new HandledObject(handle);
+            }
+        };
+        HandledObject first = recycler.get();
+        HandledObject second = recycler.get();
+        first.recycle();
+        second.recycle();
+        assertEquals(1, recycler.threadLocalSize());
+        assertSame(first, recycler.get());
+    }
+
+    @Test
+    public void testZeroCapacity() {
+        MpscRecycler<HandledObject> recycler = newRecycler(0);
+        HandledObject object = recycler.get();
+        object.recycle();
+        assertNotSame(object, recycler.get());
+    }
+
+    @Test(timeout = 5000L)
+    public void testRecycleAfterOwnerDied() throws Exception {
+        final MpscRecycler<HandledObject> recycler = newRecycler(1024);
+        final AtomicReference<HandledObject> reference = new AtomicReference<HandledObject>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                reference.set(recycler.get());
+            }
+        });
+        thread.start();
+        thread.join();
+
+        reference.get().recycle();
+        assertEquals(1, recycler.metric().drops());
+        assertEquals(0, recycler.metric().pooledObjects());
+    }
+
+    static final class HandledObject {
+        final Recycler.Handle<HandledObject> handle;
+
+        HandledObject(Recycler.Handle<HandledObject> handle) {
+            this.handle = handle;
+        }
+
+        void recycle() {
+            handle.recycle(this);
+        }
+    }
+}
@@ -19,10 +19,14 @@ import org.junit.Test;
 
 import java.util.ArrayDeque;
 import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.Assert.*;
+
 public class ResourceLeakDetectorTest {
 
     @Test(timeout = 60000)
@@ -95,6 +99,59 @@ public class ResourceLeakDetectorTest {
         assertNoErrors(error);
     }
 
+    @Test(timeout = 60000)
+    public void testSampledLeakReportedPerSite() throws Exception {
+        ResourceLeakDetector.Level level = ResourceLeakDetector.getLevel();
+        ResourceLeakListener listener = ResourceLeakDetector.getLeakListener();
+        final BlockingQueue<String> sites = new LinkedBlockingQueue<String>();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.SAMPLED);
+        ResourceLeakDetector.setLeakListener(new ResourceLeakListener() {
+            @Override
+            public void onLeak(String resourceType, String site, long siteLeaks, long sampledObjects) {
+                assertTrue(resourceType.endsWith("Resource"));
+                assertTrue(siteLeaks <= sampledObjects);
+                sites.add(site);
+            }
+        });
+        try {
+            TestResourceLeakDetector<Resource> detector = new TestResourceLeakDetector<Resource>(
+                    Resource.class, 1, Integer.MAX_VALUE);
+            leakResource(detector, true);
+            leakResource(detector, false);
+
+            while (sites.size() < 2) {
+                System.gc();
+                System.runFinalization();
+                Thread.sleep(10);
+                // Leaks are only reported when a new object is tracked.
+                ResourceLeakTracker<Resource> leak = detector.track(DefaultResource.INSTANCE);
+                assertTrue(leak.close(DefaultResource.INSTANCE));
+            }
+
+            // One leak was never accessed after its creation, the other one was accessed within leakResource(...).
+            String first = sites.take();
+            String second = sites.take();
+            assertTrue(first.isEmpty() != second.isEmpty());
+            assertTrue((first + second).contains("leakResource"));
+        } finally {
+            ResourceLeakDetector.setLevel(level);
+            ResourceLeakDetector.setLeakListener(listener);
+        }
+    }
+
+    private static void leakResource(ResourceLeakDetector<Resource> detector, boolean touch) {
+        ResourceLeakTracker<Resource> leak = detector.track(new DefaultResource());
+        assertNotNull(leak);
+        if (touch) {
+            touch(leak);
+        }
+    }
+
+    // Mimic the leak aware wrappers, whose frame is skipped when the access is recorded.
+    private static void touch(ResourceLeakTracker<Resource> leak) {
+        leak.record();
+    }
+
     // Mimic the way how we implement our classes that should help with leak detection
     private static final  class LeakAwareResource implements Resource {
         private final Resource resource;
@@ -117,6 +174,8 @@ public class ResourceLeakDetectorTest {
     }
 
     private static final class DefaultResource implements Resource {
+        static final DefaultResource INSTANCE = new DefaultResource();
+
         // Sample every allocation
         static final TestResourceLeakDetector<Resource> detector = new TestResourceLeakDetector<Resource>(
                 Resource.class, 1, Integer.MAX_VALUE);
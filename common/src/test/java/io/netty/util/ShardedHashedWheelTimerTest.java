@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ShardedHashedWheelTimerTest {
+
+    @Test(timeout = 5000)
+    public void testExpire() throws Exception {
+        final ShardedHashedWheelTimer timer = new ShardedHashedWheelTimer(2);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            final TimerTask task = new TimerTask() {
+                @Override
+                public void run(Timeout timeout) {
+                    if (timeout.timer() == timer && timeout.isExpired() && !timeout.isCancelled()) {
+                        latch.countDown();
+                    }
+                }
+            };
+            Timeout timeout = timer.newTimeout(task, 10, TimeUnit.MILLISECONDS);
+            assertSame(task, timeout.task());
+            assertSame(timer, timeout.timer());
+            latch.await();
+            assertTrue(timeout.isExpired());
+            assertFalse(timeout.cancel());
+
+            long expired = 0;
+            for (TimerShardMetric metric: timer.metrics()) {
+                expired += metric.expiredTimeouts();
+                assertTrue(metric.maxLagNanos() >= metric.lastLagNanos());
+            }
+            assertEquals(1, expired);
+            assertEquals(2, timer.metrics().size());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testSlowTaskDoesNotDelayOtherTimeouts() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        ShardedHashedWheelTimer timer = new ShardedHashedWheelTimer(Executors.defaultThreadFactory(), 1,
+                10, TimeUnit.MILLISECONDS, 8, executor);
+        try {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(1);
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    blocked.await();
+                }
+            }, 10, TimeUnit.MILLISECONDS);
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) {
+                    done.countDown();
+                }
+            }, 50, TimeUnit.MILLISECONDS);
+
+            // Would block forever if the first TimerTask was run by the worker thread.
+            done.await();
+            blocked.countDown();
+        } finally {
+            timer.stop();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancelAndStop() {
+        ShardedHashedWheelTimer timer = new ShardedHashedWheelTimer(2);
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                fail();
+            }
+        };
+        Timeout cancelled = timer.newTimeout(task, 1, TimeUnit.HOURS);
+        Timeout pending = timer.newTimeout(task, 1, TimeUnit.HOURS);
+        assertEquals(2, timer.pendingTimeouts());
+        assertTrue(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+        assertFalse(cancelled.cancel());
+
+        Set<Timeout> unprocessed = timer.stop();
+        assertEquals(1, unprocessed.size());
+        assertSame(pending, unprocessed.iterator().next());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidShards() {
+        new ShardedHashedWheelTimer(0);
+    }
+}
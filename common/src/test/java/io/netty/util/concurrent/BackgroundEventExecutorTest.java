@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class BackgroundEventExecutorTest {
+
+    @Test(timeout = 10000)
+    public void testExecuteOnAllWorkers() throws Exception {
+        BackgroundEventExecutor executor = new BackgroundEventExecutor(4, 1, TimeUnit.SECONDS);
+        final int tasks = 10000;
+        final CountDownLatch latch = new CountDownLatch(tasks);
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    threads.add(Thread.currentThread());
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        assertTrue(threads.size() <= 4);
+        assertTrue(executor.awaitInactivity(5, TimeUnit.SECONDS));
+        assertEquals(tasks, executor.metric().completedTasks());
+        assertEquals(0, executor.metric().pendingTasks());
+        assertEquals(0, executor.metric().activeWorkers());
+    }
+
+    @Test(timeout = 10000)
+    public void testTaskFromWorkerStaysOnWorker() throws Exception {
+        final BackgroundEventExecutor executor = new BackgroundEventExecutor(4, 1, TimeUnit.SECONDS);
+        final Promise<Thread> promise = ImmediateEventExecutor.INSTANCE.newPromise();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Thread outer = Thread.currentThread();
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        promise.setSuccess(outer == Thread.currentThread() ? outer : null);
+                    }
+                });
+            }
+        });
+        assertNotNull(promise.sync().getNow());
+    }
+
+    @Test(timeout = 10000)
+    public void testWorkerStopsAndRestarts() throws Exception {
+        BackgroundEventExecutor executor = new BackgroundEventExecutor(1, 100, TimeUnit.MILLISECONDS);
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(new CountDownTask(latch));
+        latch.await();
+        assertTrue(executor.awaitInactivity(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.metric().activeWorkers());
+
+        final CountDownLatch latch2 = new CountDownLatch(1);
+        executor.execute(new CountDownTask(latch2));
+        latch2.await();
+        assertTrue(executor.awaitInactivity(5, TimeUnit.SECONDS));
+        assertEquals(2, executor.metric().completedTasks());
+    }
+
+    @Test(timeout = 10000)
+    public void testScheduledTaskKeepsWorkerAlive() throws Exception {
+        BackgroundEventExecutor executor = new BackgroundEventExecutor(2, 10, TimeUnit.MILLISECONDS);
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        executor.schedule(new CountDownTask(latch), 200, TimeUnit.MILLISECONDS);
+        latch.await();
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue(executor.awaitInactivity(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10000)
+    public void testScheduledTaskCancel() throws Exception {
+        BackgroundEventExecutor executor = new BackgroundEventExecutor(2, 10, TimeUnit.MILLISECONDS);
+        final AtomicBoolean ran = new AtomicBoolean();
+        ScheduledFuture<?> future = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                ran.set(true);
+            }
+        }, 1, TimeUnit.HOURS);
+        assertTrue(future.cancel(false));
+        // Nothing is scheduled anymore, so the worker terminates.
+        assertTrue(executor.awaitInactivity(5, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testFixedRate() throws Exception {
+        BackgroundEventExecutor executor = new BackgroundEventExecutor(1, 10, TimeUnit.MILLISECONDS);
+        final CountDownLatch latch = new CountDownLatch(5);
+        ScheduledFuture<?> future = executor.scheduleAtFixedRate(new CountDownTask(latch), 0, 10, TimeUnit.MILLISECONDS);
+        latch.await();
+        future.cancel(false);
+        assertTrue(executor.awaitInactivity(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10000)
+    public void testExceptionDoesNotKillWorker() throws Exception {
+        BackgroundEventExecutor executor = new BackgroundEventExecutor(1, 1, TimeUnit.SECONDS);
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException();
+            }
+        });
+        executor.execute(new CountDownTask(latch));
+        latch.await();
+        assertTrue(executor.metric().maxTaskLatencyNanos() <= executor.metric().totalTaskLatencyNanos());
+    }
+
+    @Test
+    public void testNotTerminable() {
+        BackgroundEventExecutor executor = new BackgroundEventExecutor(1, 1, TimeUnit.SECONDS);
+        assertFalse(executor.shutdownGracefully().isSuccess());
+        assertFalse(executor.isShuttingDown());
+        assertFalse(executor.isShutdown());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWorkers() {
+        new BackgroundEventExecutor(0, 1, TimeUnit.SECONDS);
+    }
+
+    private static final class CountDownTask implements Runnable {
+        private final CountDownLatch latch;
+
+        CountDownTask(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void run() {
+            latch.countDown();
+        }
+    }
+}
@@ -271,6 +271,77 @@ public class DefaultPromiseTest {
         assertEquals("success", promise.getNow());
     }
 
+    @Test
+    public void testRemoveListenerKeepsOrder() {
+        final Promise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        final BlockingQueue<Integer> notified = new LinkedBlockingQueue<Integer>();
+        GenericFutureListener<Future<Void>>[] listeners = new GenericFutureListener[5];
+        for (int i = 0; i < listeners.length; i++) {
+            final int id = i;
+            listeners[i] = new FutureListener<Void>() {
+                @Override
+                public void operationComplete(Future<Void> future) {
+                    notified.add(id);
+                }
+            };
+        }
+        // Add the first listener twice, only the first occurrence is removed.
+        promise.addListeners(listeners);
+        promise.addListener(listeners[0]);
+        promise.removeListener(listeners[0]);
+        promise.removeListeners(listeners[2], listeners[4]);
+        promise.setSuccess(null);
+
+        assertEquals(Integer.valueOf(1), notified.poll());
+        assertEquals(Integer.valueOf(3), notified.poll());
+        assertEquals(Integer.valueOf(0), notified.poll());
+        assertNull(notified.poll());
+    }
+
+    @Test(timeout = 10000)
+    public void testConcurrentAddListener() throws Exception {
+        final int threads = 4;
+        final int listenersPerThread = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final Promise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+            final AtomicInteger notified = new AtomicInteger();
+            final FutureListener<Void> listener = new FutureListener<Void>() {
+                @Override
+                public void operationComplete(Future<Void> future) {
+                    notified.incrementAndGet();
+                }
+            };
+            final CountDownLatch start = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(threads);
+            for (int i = 0; i < threads; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        for (int j = 0; j < listenersPerThread; j++) {
+                            promise.addListener(listener);
+                            if (j == listenersPerThread / 2) {
+                                promise.trySuccess(null);
+                            }
+                        }
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            done.await();
+            // Every listener must be notified exactly once, no matter if it was added before or after completion.
+            assertEquals(threads * listenersPerThread, notified.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private static void testStackOverFlowChainedFuturesA(int promiseChainLength, final EventExecutor executor,
                                                          boolean runTestInExecutorThread)
             throws InterruptedException {
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class FuturesTest {
+    private static EventExecutor executor;
+
+    @BeforeClass
+    public static void setUp() {
+        executor = new DefaultEventExecutor();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testAllOfKeepsInputOrder() throws Exception {
+        Promise<String> p1 = executor.newPromise();
+        Promise<String> p2 = executor.newPromise();
+        Future<List<String>> all = Futures.allOf(executor, Arrays.asList(p1, p2));
+        p2.setSuccess("b");
+        assertFalse(all.isDone());
+        p1.setSuccess("a");
+        assertEquals(Arrays.asList("a", "b"), all.sync().getNow());
+    }
+
+    @Test
+    public void testAllOfEmpty() throws Exception {
+        List<Future<String>> futures = Collections.emptyList();
+        assertTrue(Futures.allOf(executor, futures).sync().getNow().isEmpty());
+    }
+
+    @Test
+    public void testAllOfFailsFastAndCancelsStragglers() throws Exception {
+        Promise<String> p1 = executor.newPromise();
+        Promise<String> p2 = executor.newPromise();
+        Future<List<String>> all = Futures.allOf(executor, Arrays.asList(p1, p2));
+        Exception cause = new Exception("expected");
+        p1.setFailure(cause);
+        assertSame(cause, all.await().cause());
+        assertTrue(p2.isCancelled());
+    }
+
+    @Test
+    public void testAnyOfUsesFirstSuccess() throws Exception {
+        Promise<String> p1 = executor.newPromise();
+        Promise<String> p2 = executor.newPromise();
+        Promise<String> p3 = executor.newPromise();
+        Future<String> any = Futures.anyOf(executor, Arrays.asList(p1, p2, p3));
+        p1.setFailure(new Exception("expected"));
+        assertFalse(any.isDone());
+        p2.setSuccess("b");
+        assertEquals("b", any.sync().getNow());
+        assertTrue(p3.isCancelled());
+    }
+
+    @Test
+    public void testAnyOfFailsOnceAllFailed() throws Exception {
+        Promise<String> p1 = executor.newPromise();
+        Promise<String> p2 = executor.newPromise();
+        Future<String> any = Futures.anyOf(executor, Arrays.asList(p1, p2));
+        p1.setFailure(new Exception("expected"));
+        assertFalse(any.isDone());
+        Exception cause = new Exception("expected");
+        p2.setFailure(cause);
+        assertSame(cause, any.await().cause());
+    }
+
+    @Test
+    public void testFirstNUsesCompletionOrder() throws Exception {
+        Promise<String> p1 = executor.newPromise();
+        Promise<String> p2 = executor.newPromise();
+        Promise<String> p3 = executor.newPromise();
+        Promise<String> p4 = executor.newPromise();
+        Future<List<String>> first = Futures.firstN(executor, 2, Arrays.asList(p1, p2, p3, p4));
+        p3.setSuccess("c");
+        p2.setFailure(new Exception("expected"));
+        p1.setSuccess("a");
+        assertEquals(Arrays.asList("c", "a"), first.sync().getNow());
+        assertTrue(p4.isCancelled());
+    }
+
+    @Test
+    public void testFirstNFailsIfNotEnoughCanSucceed() throws Exception {
+        Promise<String> p1 = executor.newPromise();
+        Promise<String> p2 = executor.newPromise();
+        Promise<String> p3 = executor.newPromise();
+        Future<List<String>> first = Futures.firstN(executor, 2, Arrays.asList(p1, p2, p3));
+        p1.setFailure(new Exception("expected"));
+        assertFalse(first.isDone());
+        p2.setFailure(new Exception("expected"));
+        assertFalse(first.await().isSuccess());
+        assertTrue(p3.isCancelled());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFirstNMoreThanFutures() {
+        Promise<String> p1 = executor.newPromise();
+        Futures.firstN(executor, 2, Collections.singletonList(p1));
+    }
+
+    @Test
+    public void testCancelPropagates() {
+        Promise<String> p1 = executor.newPromise();
+        Promise<String> p2 = executor.newPromise();
+        Future<List<String>> all = Futures.allOf(executor, Arrays.asList(p1, p2));
+        assertTrue(all.cancel(false));
+        assertTrue(p1.isCancelled());
+        assertTrue(p2.isCancelled());
+    }
+
+    @Test(timeout = 5000)
+    public void testDeadline() throws Exception {
+        Promise<String> p1 = executor.newPromise();
+        Promise<String> p2 = executor.newPromise();
+        Future<List<String>> all = Futures.allOf(executor, Arrays.asList(p1, p2), 50, TimeUnit.MILLISECONDS);
+        p1.setSuccess("a");
+        assertTrue(all.await().cause() instanceof TimeoutException);
+        assertTrue(p2.isCancelled());
+    }
+
+    @Test(timeout = 5000)
+    public void testCompletionBeforeDeadline() throws Exception {
+        Promise<String> p1 = executor.newPromise();
+        Future<String> any = Futures.anyOf(executor, Collections.singletonList(p1), 1, TimeUnit.HOURS);
+        p1.setSuccess("a");
+        assertEquals("a", any.sync().getNow());
+    }
+}
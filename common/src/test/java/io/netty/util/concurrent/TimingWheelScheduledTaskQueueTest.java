@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelScheduledTaskQueueTest {
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private static ScheduledFutureTask<Void> newTask(long deadlineNanos) {
+        return new ScheduledFutureTask<Void>(GlobalEventExecutor.INSTANCE, NOOP, null, deadlineNanos);
+    }
+
+    private static long tickNanos() {
+        return 1L << TimingWheelScheduledTaskQueue.TICK_SHIFT;
+    }
+
+    @Test
+    public void testPollInDeadlineOrder() {
+        TimingWheelScheduledTaskQueue queue = new TimingWheelScheduledTaskQueue();
+        Random random = new Random(42);
+        long now = ScheduledFutureTask.nanoTime();
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>();
+        for (int i = 0; i < 10000; i++) {
+            // Cover all the levels of the wheel and the overflow.
+            int shift = random.nextInt(TimingWheelScheduledTaskQueue.TICK_SHIFT +
+                    TimingWheelScheduledTaskQueue.LEVELS * 8 + 4);
+            long deadline = now + (random.nextLong() & ((1L << shift) - 1));
+            tasks.add(newTask(deadline));
+        }
+        tasks.add(newTask(Long.MAX_VALUE));
+        tasks.add(newTask(0));
+        tasks.add(newTask(now));
+
+        for (ScheduledFutureTask<?> task: tasks) {
+            assertTrue(queue.offer(task));
+        }
+        assertEquals(tasks.size(), queue.size());
+        assertPolledInOrder(queue, tasks);
+    }
+
+    @Test
+    public void testRemove() {
+        TimingWheelScheduledTaskQueue queue = new TimingWheelScheduledTaskQueue();
+        Random random = new Random(7);
+        long now = ScheduledFutureTask.nanoTime();
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>();
+        for (int i = 0; i < 2000; i++) {
+            ScheduledFutureTask<?> task = newTask(now + random.nextInt(Integer.MAX_VALUE) * tickNanos());
+            tasks.add(task);
+            queue.offer(task);
+        }
+        // Advance the wheel a bit, so the tasks are spread over the ready queue and the wheel.
+        ScheduledFutureTask<?> first = queue.poll();
+        assertTrue(tasks.remove(first));
+
+        Collections.shuffle(tasks, random);
+        List<ScheduledFutureTask<?>> removed = tasks.subList(0, tasks.size() / 2);
+        for (ScheduledFutureTask<?> task: removed) {
+            assertTrue(queue.containsTyped(task));
+            assertTrue(queue.removeTyped(task));
+            assertFalse(queue.containsTyped(task));
+            assertFalse(queue.removeTyped(task));
+        }
+        removed.clear();
+        assertEquals(tasks.size(), queue.size());
+        assertPolledInOrder(queue, tasks);
+    }
+
+    @Test
+    public void testPeekDoesNotMoveWheelPastNow() {
+        TimingWheelScheduledTaskQueue queue = new TimingWheelScheduledTaskQueue();
+        long now = ScheduledFutureTask.nanoTime();
+        ScheduledFutureTask<?> later = newTask(now + 1000 * tickNanos());
+        ScheduledFutureTask<?> muchLater = newTask(now + 100000 * tickNanos());
+        queue.offer(muchLater);
+        queue.offer(later);
+        assertSame(later, queue.peek());
+        assertSame(later, queue.peek());
+
+        // The wheel was not moved to the bucket of the task, so later short timers still land in a bucket.
+        ScheduledFutureTask<?> sooner = newTask(now + 10 * tickNanos());
+        queue.offer(sooner);
+        assertNotEquals(ScheduledFutureTask.NOT_IN_WHEEL, sooner.wheelBucket);
+        assertNotEquals(ScheduledFutureTask.NOT_IN_WHEEL, later.wheelBucket);
+        assertSame(sooner, queue.peek());
+        assertNotEquals(ScheduledFutureTask.NOT_IN_WHEEL, sooner.wheelBucket);
+        assertEquals(3, queue.size());
+
+        assertSame(sooner, queue.poll());
+        assertSame(later, queue.poll());
+        assertSame(muchLater, queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testAddBeforeCurrentTick() throws Exception {
+        TimingWheelScheduledTaskQueue queue = new TimingWheelScheduledTaskQueue();
+        long now = ScheduledFutureTask.nanoTime();
+        ScheduledFutureTask<?> due = newTask(now + tickNanos());
+        ScheduledFutureTask<?> later = newTask(now + 1000 * tickNanos());
+        queue.offer(due);
+        queue.offer(later);
+        // Wait until the bucket of the first task was reached, so peeking moves the wheel past it.
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(3 * tickNanos()));
+        assertSame(due, queue.peek());
+
+        ScheduledFutureTask<?> sooner = newTask(now);
+        queue.offer(sooner);
+        assertSame(sooner, queue.poll());
+        assertSame(due, queue.poll());
+        assertSame(later, queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testCancelledTasksAreDropped() {
+        TimingWheelScheduledTaskQueue queue = new TimingWheelScheduledTaskQueue();
+        long now = ScheduledFutureTask.nanoTime();
+        ScheduledFutureTask<?> cancelled = newTask(now + tickNanos());
+        ScheduledFutureTask<?> task = newTask(now + 70000 * tickNanos());
+        queue.offer(cancelled);
+        queue.offer(task);
+
+        // Cancel without removing it from the queue, like it is done outside of the EventExecutor.
+        assertTrue(cancelled.cancelWithoutRemove(false));
+        queue.cancelledLazily();
+        assertSame(task, queue.peek());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void testClear() {
+        TimingWheelScheduledTaskQueue queue = new TimingWheelScheduledTaskQueue();
+        long now = ScheduledFutureTask.nanoTime();
+        ScheduledFutureTask<?> task = newTask(now + 300 * tickNanos());
+        queue.offer(task);
+        queue.offer(newTask(Long.MAX_VALUE));
+        assertEquals(2, queue.size());
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+        // Can be added again after it was removed.
+        queue.offer(task);
+        assertSame(task, queue.poll());
+    }
+
+    @Test(timeout = 10000)
+    public void testEventExecutorWithTimingWheel() throws Exception {
+        String property = "io.netty.eventexecutor.scheduledTaskQueue";
+        System.setProperty(property, "timingWheel");
+        final EventExecutor executor;
+        try {
+            executor = new DefaultEventExecutor();
+        } finally {
+            System.clearProperty(property);
+        }
+        try {
+            final BlockingQueue<Integer> executed = new LinkedBlockingQueue<Integer>();
+            ScheduledFuture<?> cancelled = executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    executed.add(-1);
+                }
+            }, 50, TimeUnit.MILLISECONDS);
+            for (int i = 3; i > 0; i--) {
+                final int id = i;
+                executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        executed.add(id);
+                    }
+                }, id * 100, TimeUnit.MILLISECONDS);
+            }
+            assertTrue(cancelled.cancel(false));
+
+            assertEquals(1, (int) executed.take());
+            assertEquals(2, (int) executed.take());
+            assertEquals(3, (int) executed.take());
+            assertNull(executed.poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    private static void assertPolledInOrder(TimingWheelScheduledTaskQueue queue, List<ScheduledFutureTask<?>> tasks) {
+        List<ScheduledFutureTask<?>> expected = new ArrayList<ScheduledFutureTask<?>>(tasks);
+        Collections.sort(expected, AbstractScheduledEventExecutor.SCHEDULED_FUTURE_TASK_COMPARATOR);
+        for (ScheduledFutureTask<?> task: expected) {
+            assertSame(task, queue.peek());
+            assertSame(task, queue.poll());
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel.group;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.group.ShardedChannelGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the fan-out of a message to all the members of a {@link ChannelGroup} that are spread over multiple
+ * {@link io.netty.channel.EventLoop}s, comparing {@link DefaultChannelGroup} and {@link ShardedChannelGroup}.
+ */
+public class ChannelGroupBroadcastBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "1000", "10000" })
+    public int channels;
+
+    @Param({ "true", "false" })
+    public boolean sharded;
+
+    private EventLoopGroup group;
+    private Channel serverChan;
+    private ChannelGroup channelGroup;
+    private ByteBuf message;
+
+    @Setup
+    public void setup() throws Exception {
+        group = new DefaultEventLoopGroup(4);
+        LocalAddress address = new LocalAddress("ChannelGroupBroadcastBenchmark");
+        serverChan = new ServerBootstrap()
+            .channel(LocalServerChannel.class)
+            .group(group)
+            .childHandler(new DiscardHandler())
+            .bind(address)
+            .sync()
+            .channel();
+
+        channelGroup = sharded ? new ShardedChannelGroup(GlobalEventExecutor.INSTANCE)
+                : new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        Bootstrap bootstrap = new Bootstrap()
+            .channel(LocalChannel.class)
+            .handler(new DiscardHandler())
+            .group(group);
+        for (int i = 0; i < channels; i++) {
+            channelGroup.add(bootstrap.connect(address).sync().channel());
+        }
+        message = serverChan.alloc().directBuffer(64);
+        message.writeZero(64);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        channelGroup.close().sync();
+        serverChan.close().sync();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        message.release();
+    }
+
+    @Benchmark
+    public Object writeAndFlush() throws Exception {
+        return channelGroup.writeAndFlush(message.retainedDuplicate()).sync();
+    }
+
+    @ChannelHandler.Sharable
+    private static final class DiscardHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+}
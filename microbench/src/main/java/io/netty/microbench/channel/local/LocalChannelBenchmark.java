@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel.local;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the round-trip of small messages over the local transport. The numbers can be compared with
+ * {@link io.netty.microbench.channel.epoll.EpollDomainSocketChannelBenchmark} and
+ * {@link io.netty.microbench.channel.epoll.EpollSocketChannelBenchmark}.
+ */
+public class LocalChannelBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "true", "false" })
+    public boolean sameEventLoop;
+
+    @Param({ "1", "16", "256" })
+    public int messages;
+
+    private EventLoopGroup serverGroup;
+    private EventLoopGroup clientGroup;
+    private Channel serverChan;
+    private Channel chan;
+    private ByteBuf abyte;
+    private final ClientHandler clientHandler = new ClientHandler();
+
+    @Setup
+    public void setup() throws Exception {
+        serverGroup = new DefaultEventLoopGroup(1);
+        clientGroup = sameEventLoop ? serverGroup : new DefaultEventLoopGroup(1);
+        LocalAddress address = new LocalAddress("LocalChannelBenchmark");
+
+        serverChan = new ServerBootstrap()
+            .channel(LocalServerChannel.class)
+            .group(serverGroup)
+            .childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            ctx.write(msg, ctx.voidPromise());
+                        }
+
+                        @Override
+                        public void channelReadComplete(ChannelHandlerContext ctx) {
+                            ctx.flush();
+                        }
+                    });
+                }
+            })
+            .bind(address)
+            .sync()
+            .channel();
+        chan = new Bootstrap()
+            .channel(LocalChannel.class)
+            .handler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(clientHandler);
+                }
+            })
+            .group(clientGroup)
+            .connect(address)
+            .sync()
+            .channel();
+
+        abyte = chan.alloc().directBuffer(1);
+        abyte.writeByte('a');
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        chan.close().sync();
+        serverChan.close().sync();
+        serverGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        if (clientGroup != serverGroup) {
+            clientGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+        abyte.release();
+    }
+
+    @Benchmark
+    public Object pingPong() throws Exception {
+        final ChannelPromise promise = chan.newPromise();
+        // Write from within the EventLoop and flush every message, like a service that sends many small requests
+        // over the same connection does.
+        chan.eventLoop().execute(new Runnable() {
+            @Override
+            public void run() {
+                clientHandler.expect(messages, promise);
+                for (int i = 0; i < messages; i++) {
+                    chan.writeAndFlush(abyte.retainedSlice(), chan.voidPromise());
+                }
+            }
+        });
+        return promise.sync();
+    }
+
+    private static final class ClientHandler extends ChannelInboundHandlerAdapter {
+        private ChannelPromise promise;
+        private int pending;
+
+        void expect(int messages, ChannelPromise promise) {
+            pending = messages;
+            this.promise = promise;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ((ByteBuf) msg).release();
+            if (--pending == 0) {
+                ChannelPromise promise = this.promise;
+                this.promise = null;
+                promise.trySuccess();
+            }
+        }
+    }
+}
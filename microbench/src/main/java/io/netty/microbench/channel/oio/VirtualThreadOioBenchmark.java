@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel.oio;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.oio.VirtualThreadOioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.socket.oio.OioServerSocketChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares a server using the blocking OIO transport on top of {@link VirtualThreadOioEventLoopGroup} with a server
+ * using the NIO transport, by sending one byte over every connection and waiting until all of them were echoed back.
+ * <p>
+ * The clients always use the NIO transport and bind to different loopback addresses so the number of connections
+ * is not limited by the ephemeral port range. Without virtual threads (before Java 21) the OIO server falls back to
+ * one platform thread per connection, so the OS may need a higher thread limit to run it with 50000 connections.
+ */
+public class VirtualThreadOioBenchmark extends AbstractMicrobenchmark {
+
+    private static final int CONNECTIONS_PER_ADDRESS = 20000;
+
+    @Param({ "nio", "oio" })
+    public String transport;
+
+    @Param({ "1000", "50000" })
+    public int connections;
+
+    private EventLoopGroup serverGroup;
+    private EventLoopGroup clientGroup;
+    private Channel serverChannel;
+    private Channel[] clientChannels;
+    private final ClientHandler clientHandler = new ClientHandler();
+
+    @Setup
+    public void setup() throws Exception {
+        final Class<? extends ServerChannel> serverChannelClass;
+        if ("oio".equals(transport)) {
+            serverGroup = new VirtualThreadOioEventLoopGroup();
+            serverChannelClass = OioServerSocketChannel.class;
+        } else {
+            serverGroup = new NioEventLoopGroup();
+            serverChannelClass = NioServerSocketChannel.class;
+        }
+        clientGroup = new NioEventLoopGroup();
+
+        serverChannel = new ServerBootstrap()
+                .group(serverGroup)
+                .channel(serverChannelClass)
+                .childHandler(new EchoHandler())
+                .bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0))
+                .sync()
+                .channel();
+
+        Bootstrap bootstrap = new Bootstrap()
+                .group(clientGroup)
+                .channel(NioSocketChannel.class)
+                .handler(clientHandler);
+        clientChannels = new Channel[connections];
+        for (int i = 0; i < connections; i++) {
+            InetAddress localAddress = InetAddress.getByName("127.0.0." + (2 + i / CONNECTIONS_PER_ADDRESS));
+            clientChannels[i] = bootstrap.connect(serverChannel.localAddress(), new InetSocketAddress(localAddress, 0))
+                    .sync().channel();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (Channel ch: clientChannels) {
+            if (ch != null) {
+                ch.close();
+            }
+        }
+        serverChannel.close().sync();
+        clientGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        serverGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+    }
+
+    @Benchmark
+    public Object echoAll() throws Exception {
+        Promise<Void> promise = clientHandler.expect(connections);
+        for (Channel ch: clientChannels) {
+            ch.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { 'a' }), ch.voidPromise());
+        }
+        return promise.sync();
+    }
+
+    @ChannelHandler.Sharable
+    private static final class EchoHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.writeAndFlush(msg, ctx.voidPromise());
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private static final class ClientHandler extends ChannelInboundHandlerAdapter {
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile Promise<Void> promise;
+
+        Promise<Void> expect(int count) {
+            Promise<Void> promise = new DefaultPromise<Void>(GlobalEventExecutor.INSTANCE);
+            this.promise = promise;
+            pending.set(count);
+            return promise;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            int bytes = ((ByteBuf) msg).readableBytes();
+            ((ByteBuf) msg).release();
+            if (pending.addAndGet(-bytes) == 0) {
+                promise.trySuccess(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.concurrent;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.PlatformDependent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Queue;
+
+/**
+ * Measures adding listeners to a {@link DefaultPromise}, completing it and notifying the listeners, either all on
+ * the same thread or with the listeners added on one thread and the promise completed on another.
+ */
+@State(Scope.Group)
+public class DefaultPromiseBenchmark extends AbstractMicrobenchmark {
+
+    private static final FutureListener<Void> LISTENER = new FutureListener<Void>() {
+        @Override
+        public void operationComplete(Future<Void> future) {
+            // NOOP
+        }
+    };
+
+    @Param({ "1", "2", "3", "8" })
+    public int listeners;
+
+    private Queue<Promise<Void>> handOff;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        handOff = PlatformDependent.newFixedMpscQueue(1024);
+    }
+
+    @Benchmark
+    @Group("sameThread")
+    public Promise<Void> addListenersAndComplete() {
+        Promise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        addListeners(promise);
+        return promise.setSuccess(null);
+    }
+
+    @Benchmark
+    @Group("addAfterComplete")
+    public Promise<Void> completeAndAddListeners() {
+        Promise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        promise.setSuccess(null);
+        addListeners(promise);
+        return promise;
+    }
+
+    @Benchmark
+    @Group("foreignThread")
+    @GroupThreads(1)
+    public Promise<Void> addListeners() {
+        Promise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        addListeners(promise);
+        if (!handOff.offer(promise)) {
+            promise.setSuccess(null);
+        }
+        return promise;
+    }
+
+    @Benchmark
+    @Group("foreignThread")
+    @GroupThreads(1)
+    public Promise<Void> complete() {
+        Promise<Void> promise = handOff.poll();
+        if (promise != null) {
+            promise.setSuccess(null);
+        }
+        return promise;
+    }
+
+    private void addListeners(Promise<Void> promise) {
+        for (int i = 0; i < listeners; i++) {
+            promise.addListener(LISTENER);
+        }
+    }
+}
@@ -36,29 +36,44 @@ import java.util.concurrent.TimeUnit;
 @State(Scope.Benchmark)
 public class ScheduledFutureTaskBenchmark extends AbstractMicrobenchmark {
 
-    static final EventLoop executor = new DefaultEventLoop();
+    @Param({ "heap", "timingWheel" })
+    public String scheduledTaskQueue;
+
+    EventLoop executor;
+
+    @Setup(Level.Trial)
+    public void start() {
+        // Read when the EventLoop is created.
+        System.setProperty("io.netty.eventexecutor.scheduledTaskQueue", scheduledTaskQueue);
+        executor = new DefaultEventLoop();
+    }
 
     @State(Scope.Thread)
     public static class FuturesHolder {
 
-        private static final Callable<Void> NO_OP = new Callable<Void>() {
+        static final Callable<Void> NO_OP = new Callable<Void>() {
             @Override
             public Void call() throws Exception {
                 return null;
             }
         };
 
-        @Param({ "100", "1000", "10000", "100000" })
+        @Param({ "100", "1000", "10000", "100000", "1000000" })
         int num;
 
         final List<ScheduledFuture<Void>> futures = new ArrayList<ScheduledFuture<Void>>();
 
         @Setup(Level.Invocation)
-        public void reset() {
-            futures.clear();
+        public void reset(ScheduledFutureTaskBenchmark benchmark) {
+            final EventLoop executor = benchmark.executor;
             executor.submit(new Runnable() {
                 @Override
                 public void run() {
+                    // Remove what is left from the last invocation.
+                    for (ScheduledFuture<Void> future: futures) {
+                        future.cancel(false);
+                    }
+                    futures.clear();
                     for (int i = 1; i <= num; i++) {
                         futures.add(executor.schedule(NO_OP, i, TimeUnit.HOURS));
                     }
@@ -67,6 +82,12 @@ public class ScheduledFutureTaskBenchmark extends AbstractMicrobenchmark {
         }
     }
 
+    private static final Runnable NO_OP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
     @TearDown(Level.Trial)
     public void stop() throws Exception {
         executor.shutdownGracefully().syncUninterruptibly();
@@ -95,4 +116,28 @@ public class ScheduledFutureTaskBenchmark extends AbstractMicrobenchmark {
             }
         }).syncUninterruptibly();
     }
+
+    @Benchmark
+    public Future<?> cancelFromOtherThread(final FuturesHolder futuresHolder) {
+        for (int i = 0; i < futuresHolder.num; i++) {
+            futuresHolder.futures.get(i).cancel(false);
+        }
+        // Wait until the EventLoop processed all the cancellations.
+        return executor.submit(NO_OP).syncUninterruptibly();
+    }
+
+    @Benchmark
+    public Future<?> scheduleAndCancel(final FuturesHolder futuresHolder) {
+        // Like a read timeout which is rescheduled on every read.
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                List<ScheduledFuture<Void>> futures = futuresHolder.futures;
+                for (int i = 0; i < futuresHolder.num; i++) {
+                    futures.get(i).cancel(false);
+                    futures.set(i, executor.schedule(FuturesHolder.NO_OP, i + 1, TimeUnit.HOURS));
+                }
+            }
+        }).syncUninterruptibly();
+    }
 }
@@ -17,6 +17,7 @@ package io.netty.microbench.headers;
 
 import io.netty.handler.codec.Headers;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.IndexedHttpHeaders;
 import io.netty.handler.codec.http2.DefaultHttp2Headers;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import io.netty.util.AsciiString;
@@ -67,10 +68,13 @@ public class HeadersBenchmark extends AbstractMicrobenchmark {
     AsciiString[] httpValues;
 
     DefaultHttpHeaders httpHeaders;
+    IndexedHttpHeaders indexedHeaders;
     DefaultHttp2Headers http2Headers;
     DefaultHttpHeaders emptyHttpHeaders;
     DefaultHttp2Headers emptyHttp2Headers;
     DefaultHttpHeaders emptyHttpHeadersNoValidate;
+    IndexedHttpHeaders emptyIndexedHeaders;
+    IndexedHttpHeaders emptyIndexedHeadersNoValidate;
     DefaultHttp2Headers emptyHttp2HeadersNoValidate;
     SlowHeaders slowHttp2Headers;
 
@@ -82,6 +86,7 @@ public class HeadersBenchmark extends AbstractMicrobenchmark {
         httpValues = new AsciiString[headers.size()];
         httpHeaders = new DefaultHttpHeaders(false);
         http2Headers = new DefaultHttp2Headers(false);
+        indexedHeaders = new IndexedHttpHeaders(false);
         int idx = 0;
         for (Map.Entry<String, String> header : headers.entrySet()) {
             String name = header.getKey();
@@ -92,6 +97,7 @@ public class HeadersBenchmark extends AbstractMicrobenchmark {
             http2Names[idx] = new AsciiString(http2Name);
             httpValues[idx] = new AsciiString(value);
             httpHeaders.add(httpNames[idx], httpValues[idx]);
+            indexedHeaders.add(httpNames[idx], httpValues[idx]);
             http2Headers.add(http2Names[idx], httpValues[idx]);
             idx++;
         }
@@ -99,6 +105,8 @@ public class HeadersBenchmark extends AbstractMicrobenchmark {
         emptyHttpHeaders = new DefaultHttpHeaders(true);
         emptyHttp2Headers = new DefaultHttp2Headers(true);
         emptyHttpHeadersNoValidate = new DefaultHttpHeaders(false);
+        emptyIndexedHeaders = new IndexedHttpHeaders(true);
+        emptyIndexedHeadersNoValidate = new IndexedHttpHeaders(false);
         emptyHttp2HeadersNoValidate = new DefaultHttp2Headers(false);
     }
 
@@ -137,6 +145,41 @@ public class HeadersBenchmark extends AbstractMicrobenchmark {
         }
     }
 
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void indexedRemove(Blackhole bh) {
+        for (AsciiString name : httpNames) {
+            bh.consume(indexedHeaders.remove(name));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void indexedGet(Blackhole bh) {
+        for (AsciiString name : httpNames) {
+            bh.consume(indexedHeaders.get(name));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public IndexedHttpHeaders indexedPut() {
+        IndexedHttpHeaders headers = new IndexedHttpHeaders(false);
+        for (int i = 0; i < httpNames.length; i++) {
+            headers.add(httpNames[i], httpValues[i]);
+        }
+        return headers;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void indexedIterate(Blackhole bh) {
+        Iterator<Entry<CharSequence, CharSequence>> itr = indexedHeaders.iteratorCharSequence();
+        while (itr.hasNext()) {
+            bh.consume(itr.next());
+        }
+    }
+
     @Benchmark
     @BenchmarkMode(Mode.AverageTime)
     public void http2Remove(Blackhole bh) {
@@ -185,6 +228,20 @@ public class HeadersBenchmark extends AbstractMicrobenchmark {
         emptyHttpHeaders.clear();
     }
 
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void indexedAddAllFastest(Blackhole bh) {
+        bh.consume(emptyIndexedHeadersNoValidate.add(indexedHeaders));
+        emptyIndexedHeadersNoValidate.clear();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void indexedAddAllFast(Blackhole bh) {
+        bh.consume(emptyIndexedHeaders.add(indexedHeaders));
+        emptyIndexedHeaders.clear();
+    }
+
     @Benchmark
     @BenchmarkMode(Mode.AverageTime)
     public void http2AddAllFastest(Blackhole bh) {
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * Compares the {@code br} and {@code zstd} content encodings of {@link HttpContentCompressor} with {@code gzip} and
+ * {@code deflate}, for a full response and for a response which is streamed in chunks. The compression ratio is
+ * reported as an additional counter.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class HttpContentCompressorBenchmark extends AbstractMicrobenchmark {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({ "gzip", "deflate", "br", "zstd" })
+    public String encoding;
+
+    @Param({ "1024", "65536", "1048576" })
+    public int size;
+
+    private EmbeddedChannel channel;
+    private byte[] content;
+
+    /**
+     * Additional counters for a single iteration.
+     */
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class CompressionCounters {
+        long uncompressedBytes;
+        long compressedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            uncompressedBytes = 0;
+            compressedBytes = 0;
+        }
+
+        public double compressedPercent() {
+            return uncompressedBytes == 0 ? 0 : 100.0 * compressedBytes / uncompressedBytes;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        if ("br".equals(encoding)) {
+            Brotli.ensureAvailability();
+        } else if ("zstd".equals(encoding)) {
+            Zstd.ensureAvailability();
+        }
+        channel = new EmbeddedChannel(new HttpContentCompressor());
+        channel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+        content = newJsonContent(size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    // An API response, which is repetitive but not trivially compressible.
+    private static byte[] newJsonContent(int size) {
+        Random random = new Random(42);
+        String[] names = { "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel" };
+        StringBuilder buf = new StringBuilder(size + 256).append('[');
+        for (int i = 0; buf.length() < size; i++) {
+            buf.append("{\"id\":").append(i)
+               .append(",\"name\":\"").append(names[random.nextInt(names.length)])
+               .append('-').append(Integer.toHexString(random.nextInt()))
+               .append("\",\"score\":").append(random.nextInt(100000) / 100.0)
+               .append(",\"active\":").append(random.nextBoolean())
+               .append(",\"tags\":[\"").append(names[random.nextInt(names.length)])
+               .append("\",\"").append(names[random.nextInt(names.length)]).append("\"]},");
+        }
+        buf.setLength(size - 1);
+        return buf.append(']').toString().getBytes(CharsetUtil.US_ASCII);
+    }
+
+    private void writeRequest() {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        request.headers().set(HttpHeaderNames.ACCEPT_ENCODING, encoding);
+        channel.writeInbound(request);
+        ReferenceCountUtil.release(channel.readInbound());
+    }
+
+    private ByteBuf newContent(int offset, int length) {
+        return channel.alloc().buffer(length).writeBytes(content, offset, length);
+    }
+
+    private long readResponse(CompressionCounters counters) {
+        long compressed = 0;
+        for (;;) {
+            Object msg = channel.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            if (msg instanceof HttpContent) {
+                compressed += ((HttpContent) msg).content().readableBytes();
+            }
+            ReferenceCountUtil.release(msg);
+        }
+        counters.uncompressedBytes += size;
+        counters.compressedBytes += compressed;
+        return compressed;
+    }
+
+    @Benchmark
+    public long fullResponse(CompressionCounters counters) {
+        writeRequest();
+        DefaultFullHttpResponse response = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, newContent(0, size));
+        HttpUtil.setContentLength(response, size);
+        channel.writeOutbound(response);
+        return readResponse(counters);
+    }
+
+    @Benchmark
+    public long chunkedResponse(CompressionCounters counters) {
+        writeRequest();
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        channel.write(response);
+        int offset = 0;
+        while (size - offset > CHUNK_SIZE) {
+            channel.write(new DefaultHttpContent(newContent(offset, CHUNK_SIZE)));
+            offset += CHUNK_SIZE;
+        }
+        channel.writeOutbound(new DefaultLastHttpContent(newContent(offset, size - offset)));
+        return readResponse(counters);
+    }
+}
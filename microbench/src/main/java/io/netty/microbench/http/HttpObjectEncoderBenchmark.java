@@ -22,17 +22,22 @@ import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.DefaultHttpRequest;
 import io.netty.handler.codec.http.DefaultLastHttpContent;
 import io.netty.handler.codec.http.EmptyHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpRequestEncoder;
+import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpResponseTemplate;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.microbench.channel.EmbeddedChannelWriteReleaseHandlerContext;
@@ -62,6 +67,11 @@ public class HttpObjectEncoderBenchmark extends AbstractMicrobenchmark {
     private HttpRequest chunkedRequest;
     private ByteBuf content;
     private ChannelHandlerContext context;
+    private HttpResponseEncoder responseEncoder;
+    private ChannelHandlerContext responseContext;
+    private HttpHeaders responseHeaders;
+    private HttpResponseTemplate responseTemplate;
+    private ByteBuf testContent;
 
     @Param({ "true", "false" })
     public boolean pooledAllocator;
@@ -74,7 +84,7 @@ public class HttpObjectEncoderBenchmark extends AbstractMicrobenchmark {
         byte[] bytes = new byte[256];
         content = Unpooled.buffer(bytes.length);
         content.writeBytes(bytes);
-        ByteBuf testContent = Unpooled.unreleasableBuffer(content.asReadOnly());
+        testContent = Unpooled.unreleasableBuffer(content.asReadOnly());
         HttpHeaders headersWithChunked = new DefaultHttpHeaders(false);
         headersWithChunked.add(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
         HttpHeaders headersWithContentLength = new DefaultHttpHeaders(false);
@@ -95,6 +105,21 @@ public class HttpObjectEncoderBenchmark extends AbstractMicrobenchmark {
                 handleUnexpectedException(t);
             }
         };
+
+        responseHeaders = new DefaultHttpHeaders(false);
+        responseHeaders.add(HttpHeaderNames.SERVER, "netty");
+        responseHeaders.add(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=utf-8");
+        responseHeaders.add(HttpHeaderNames.CACHE_CONTROL, "no-cache, no-store, must-revalidate");
+        responseHeaders.add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        responseTemplate = new HttpResponseTemplate(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, responseHeaders);
+        responseEncoder = new HttpResponseEncoder();
+        responseContext = new EmbeddedChannelWriteReleaseHandlerContext(
+                pooledAllocator ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT, responseEncoder) {
+            @Override
+            protected void handleException(Throwable t) {
+                handleUnexpectedException(t);
+            }
+        };
     }
 
     @TearDown(Level.Trial)
@@ -120,7 +145,27 @@ public class HttpObjectEncoderBenchmark extends AbstractMicrobenchmark {
         encoder.write(context, lastContent, newPromise());
     }
 
+    @Benchmark
+    public void fullResponse() throws Exception {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                testContent, false);
+        response.headers().set(responseHeaders);
+        response.headers().set(HttpHeaderNames.DATE, "Mon, 19 Oct 2026 00:00:00 GMT");
+        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, testContent.readableBytes());
+        responseEncoder.write(responseContext, response, newResponsePromise());
+    }
+
+    @Benchmark
+    public void fullResponseTemplate() throws Exception {
+        responseEncoder.write(responseContext, responseTemplate.newFullResponse(testContent),
+                newResponsePromise());
+    }
+
     private ChannelPromise newPromise() {
         return voidPromise ? context.voidPromise() : context.newPromise();
     }
+
+    private ChannelPromise newResponsePromise() {
+        return voidPromise ? responseContext.voidPromise() : responseContext.newPromise();
+    }
 }
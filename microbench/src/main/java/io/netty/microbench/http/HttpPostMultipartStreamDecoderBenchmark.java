@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.multipart.DefaultHttpDataFactory;
+import io.netty.handler.codec.http.multipart.HttpPostMultipartRequestDecoder;
+import io.netty.handler.codec.http.multipart.HttpPostMultipartStreamDecoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes a {@code multipart/form-data} upload with a single file part which is received in 8 KiB chunks.
+ * {@link HttpPostMultipartStreamDecoder} is measured with uploads up to 1 GiB, the buffering
+ * {@link HttpPostMultipartRequestDecoder} only with smaller ones as it keeps the whole part in memory.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class HttpPostMultipartStreamDecoderBenchmark extends AbstractMicrobenchmark {
+
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+    private static final int CHUNK_SIZE = 8192;
+
+    private ByteBuf head;
+    private ByteBuf chunk;
+    private ByteBuf tail;
+
+    @Setup
+    public void setup() {
+        head = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer(
+                "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"upload.bin\"\r\n" +
+                "Content-Type: application/octet-stream\r\n" +
+                "\r\n", CharsetUtil.US_ASCII));
+        byte[] content = new byte[CHUNK_SIZE];
+        for (int i = 0; i < content.length; i++) {
+            // Include some CR and dashes so the delimiter search does not only see bytes it can skip over.
+            content[i] = (byte) (i % 97 == 0 ? '\r' : i % 89 == 0 ? '-' : 'a' + i % 26);
+        }
+        chunk = Unpooled.unreleasableBuffer(Unpooled.directBuffer(CHUNK_SIZE).writeBytes(content));
+        tail = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer("\r\n--" + BOUNDARY + "--\r\n", CharsetUtil.US_ASCII));
+    }
+
+    @TearDown
+    public void tearDown() {
+        head.unwrap().release();
+        chunk.unwrap().release();
+        tail.unwrap().release();
+    }
+
+    private static HttpRequest newRequest() {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        request.headers().set(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=" + BOUNDARY);
+        return request;
+    }
+
+    @State(Scope.Benchmark)
+    public static class StreamSize {
+        @Param({ "1048576", "67108864", "1073741824" })
+        public long size;
+    }
+
+    @State(Scope.Benchmark)
+    public static class BufferedSize {
+        @Param({ "1048576", "67108864" })
+        public long size;
+    }
+
+    @Benchmark
+    public void streamDecoder(StreamSize size, final Blackhole bh) {
+        HttpPostMultipartStreamDecoder decoder = new HttpPostMultipartStreamDecoder(newRequest(),
+                new HttpPostMultipartStreamDecoder.Listener() {
+                    @Override
+                    public void partStarted(HttpHeaders headers) {
+                        bh.consume(headers);
+                    }
+
+                    @Override
+                    public void partContent(ByteBuf content) {
+                        bh.consume(content.readableBytes());
+                    }
+
+                    @Override
+                    public void partEnded() {
+                    }
+
+                    @Override
+                    public void multipartEnded() {
+                    }
+                });
+        decoder.offer(head);
+        for (long remaining = size.size; remaining > 0; remaining -= CHUNK_SIZE) {
+            decoder.offer(chunk);
+        }
+        decoder.offer(tail);
+        bh.consume(decoder.isEnded());
+        decoder.destroy();
+    }
+
+    @Benchmark
+    public void requestDecoder(BufferedSize size, Blackhole bh) {
+        HttpPostMultipartRequestDecoder decoder =
+                new HttpPostMultipartRequestDecoder(new DefaultHttpDataFactory(false), newRequest());
+        decoder.offer(new DefaultHttpContent(head.duplicate()));
+        for (long remaining = size.size; remaining > 0; remaining -= CHUNK_SIZE) {
+            decoder.offer(new DefaultHttpContent(chunk.duplicate()));
+        }
+        decoder.offer(new DefaultLastHttpContent(tail.duplicate()));
+        while (decoder.hasNext()) {
+            bh.consume(decoder.next());
+        }
+        decoder.destroy();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.http;
+
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRouteMatch;
+import io.netty.handler.codec.http.HttpRouter;
+import io.netty.handler.codec.http.HttpRouterBuilder;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Compares {@link HttpRouter} with decoding the URI by {@link QueryStringDecoder} followed by a chain of
+ * {@link String#startsWith(String)} checks, which is what services without a router usually do.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class HttpRouterBenchmark extends AbstractMicrobenchmark {
+
+    private static final int URIS = 64;
+
+    @Param({ "10", "100", "1000" })
+    public int routes;
+
+    private HttpRouter<Integer> router;
+    private HttpRouteMatch<Integer> match;
+    private String[] prefixes;
+    private String[] uris;
+    private int next;
+
+    @Setup
+    public void setup() {
+        HttpRouterBuilder<Integer> builder = new HttpRouterBuilder<Integer>();
+        prefixes = new String[routes];
+        for (int i = 0; i < routes; i++) {
+            // Every third route has a path parameter, the others are literal.
+            String prefix = "/api/v1/resource" + i;
+            prefixes[i] = prefix;
+            builder.addRoute(HttpMethod.GET, i % 3 == 0 ? prefix + "/{id}" : prefix + "/list", i);
+        }
+        router = builder.build();
+        match = router.newMatch();
+
+        uris = new String[URIS];
+        for (int i = 0; i < URIS; i++) {
+            // Spread the requests over all routes, including the last ones which the startsWith chain reaches late.
+            int route = (int) ((long) i * (routes - 1) / (URIS - 1));
+            uris[i] = prefixes[route] + (route % 3 == 0 ? "/" + i : "/list") + "?page=" + i + "&size=20";
+        }
+    }
+
+    private String nextUri() {
+        String uri = uris[next];
+        next = (next + 1) & URIS - 1;
+        return uri;
+    }
+
+    @Benchmark
+    public void router(Blackhole bh) {
+        if (router.route(HttpMethod.GET, nextUri(), match)) {
+            bh.consume(match.target());
+            bh.consume(match.paramCount() > 0 ? match.paramEnd(0) : 0);
+        }
+    }
+
+    @Benchmark
+    public void routerWithQueryParam(Blackhole bh) {
+        if (router.route(HttpMethod.GET, nextUri(), match)) {
+            bh.consume(match.target());
+            bh.consume(match.queryParam("page"));
+        }
+    }
+
+    @Benchmark
+    public void queryStringDecoderStartsWith(Blackhole bh) {
+        QueryStringDecoder decoder = new QueryStringDecoder(nextUri());
+        String path = decoder.path();
+        for (int i = 0; i < prefixes.length; i++) {
+            String prefix = prefixes[i];
+            if (path.startsWith(prefix) && path.length() > prefix.length() && path.charAt(prefix.length()) == '/') {
+                bh.consume(i);
+                List<String> page = decoder.parameters().get("page");
+                bh.consume(page);
+                return;
+            }
+        }
+    }
+}
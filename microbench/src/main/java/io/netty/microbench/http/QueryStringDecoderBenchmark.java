@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.http;
+
+import io.netty.handler.codec.http.LazyQueryStringDecoder;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares {@link LazyQueryStringDecoder} with {@link QueryStringDecoder} for a handler which reads a single
+ * parameter and for one which reads all of them. Run with {@code -prof gc} to compare the allocations.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class QueryStringDecoderBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "1", "5", "20" })
+    public int params;
+
+    @Param({ "false", "true" })
+    public boolean escaped;
+
+    private String uri;
+    private String lastName;
+    private LazyQueryStringDecoder lazyDecoder;
+
+    @Setup
+    public void setup() {
+        StringBuilder buf = new StringBuilder("/api/v1/search?");
+        for (int i = 0; i < params; i++) {
+            if (i > 0) {
+                buf.append('&');
+            }
+            buf.append("param").append(i).append('=').append(escaped ? "value%20" : "value-").append(i);
+        }
+        uri = buf.toString();
+        // The last parameter is the worst case for the lazy decoder, which scans the parameters in order.
+        lastName = "param" + (params - 1);
+        lazyDecoder = new LazyQueryStringDecoder();
+    }
+
+    @Benchmark
+    public Object queryStringDecoderOne() {
+        List<String> values = new QueryStringDecoder(uri).parameters().get(lastName);
+        return values.get(0);
+    }
+
+    @Benchmark
+    public Object lazyDecoderOne() {
+        return lazyDecoder.reset(uri).get(lastName);
+    }
+
+    @Benchmark
+    public void queryStringDecoderAll(Blackhole bh) {
+        for (Map.Entry<String, List<String>> e : new QueryStringDecoder(uri).parameters().entrySet()) {
+            bh.consume(e.getKey());
+            bh.consume(e.getValue().get(0));
+        }
+    }
+
+    @Benchmark
+    public void lazyDecoderAll(Blackhole bh) {
+        LazyQueryStringDecoder decoder = lazyDecoder.reset(uri);
+        for (int i = 0; i < decoder.size(); i++) {
+            bh.consume(decoder.name(i));
+            bh.consume(decoder.value(i));
+        }
+    }
+}
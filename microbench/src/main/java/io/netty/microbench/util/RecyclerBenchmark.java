@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.util;
+
+import io.netty.util.MpscRecycler;
+import io.netty.util.Recycler;
+import io.netty.util.internal.PlatformDependent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Queue;
+
+/**
+ * Compares {@link Recycler} and {@link MpscRecycler} when objects are recycled by the thread that created them and
+ * when they are handed over to a consumer thread which recycles them, like a buffer allocated on one
+ * {@link io.netty.channel.EventLoop} and released on another.
+ */
+@State(Scope.Group)
+public class RecyclerBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "recycler", "mpscRecycler" })
+    public String implementation;
+
+    private Pool pool;
+    private Queue<DummyObject> handOff;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        pool = "recycler".equals(implementation) ? new RecyclerPool() : new MpscRecyclerPool();
+        handOff = PlatformDependent.newFixedMpscQueue(1024);
+    }
+
+    @Benchmark
+    @Group("sameThread")
+    public DummyObject getAndRecycle() {
+        DummyObject object = pool.get();
+        object.recycle();
+        return object;
+    }
+
+    @Benchmark
+    @Group("producerConsumer")
+    @GroupThreads(1)
+    public DummyObject produce() {
+        DummyObject object = pool.get();
+        if (!handOff.offer(object)) {
+            object.recycle();
+        }
+        return object;
+    }
+
+    @Benchmark
+    @Group("producerConsumer")
+    @GroupThreads(1)
+    public DummyObject consume() {
+        DummyObject object = handOff.poll();
+        if (object != null) {
+            object.recycle();
+        }
+        return object;
+    }
+
+    private interface Pool {
+        DummyObject get();
+    }
+
+    private static final class RecyclerPool extends Recycler<DummyObject> implements Pool {
+        @Override
+        protected DummyObject newObject(Recycler.Handle<DummyObject> handle) {
+            return new DummyObject(handle);
+        }
+    }
+
+    private static final class MpscRecyclerPool extends MpscRecycler<DummyObject> implements Pool {
+        @Override
+        protected DummyObject newObject(Recycler.Handle<DummyObject> handle) {
+            return new DummyObject(handle);
+        }
+    }
+
+    public static final class DummyObject {
+        private final Recycler.Handle<DummyObject> handle;
+
+        DummyObject(Recycler.Handle<DummyObject> handle) {
+            this.handle = handle;
+        }
+
+        void recycle() {
+            handle.recycle(this);
+        }
+    }
+}
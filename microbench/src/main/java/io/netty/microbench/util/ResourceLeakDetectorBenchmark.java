@@ -15,22 +15,53 @@
  */
 package io.netty.microbench.util;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.util.ResourceLeakDetector;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
 
+/**
+ * Measures the overhead of the different {@link ResourceLeakDetector.Level}s, both for the detector itself and for
+ * the typical life-cycle of a pooled buffer.
+ */
 public class ResourceLeakDetectorBenchmark extends AbstractMicrobenchmark {
 
     private static final Object DUMMY = new Object();
+
+    @Param({ "DISABLED", "SIMPLE", "SAMPLED" })
+    public ResourceLeakDetector.Level level;
+
+    private ResourceLeakDetector.Level oldLevel;
     private ResourceLeakDetector<Object> detector;
+    private final ByteBufAllocator allocator = new PooledByteBufAllocator(true);
 
-    @Setup
+    @Setup(Level.Trial)
     public void setup() {
+        oldLevel = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(level);
         detector = new ResourceLeakDetector<Object>(getClass(), 128, Long.MAX_VALUE);
     }
 
+    @TearDown(Level.Trial)
+    public void teardown() {
+        ResourceLeakDetector.setLevel(oldLevel);
+    }
+
     @Benchmark
     public Object open() {
         return detector.open(DUMMY);
     }
+
+    @Benchmark
+    public boolean allocateTouchRelease() {
+        ByteBuf buf = allocator.directBuffer(256);
+        buf.touch();
+        buf.writeLong(1);
+        return buf.release();
+    }
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbenchmark.common;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.collection.ConcurrentIntObjectHashMap;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.internal.PlatformDependent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compares {@link ConcurrentIntObjectHashMap} with a boxed {@link ConcurrentHashMap} and a synchronized
+ * {@link IntObjectHashMap}. The single threaded numbers can be compared with {@link IntObjectHashMapBenchmark}.
+ */
+@State(Scope.Benchmark)
+public class ConcurrentIntObjectHashMapBenchmark extends AbstractMicrobenchmark {
+    private static final Long VALUE = Long.MAX_VALUE;
+
+    public enum MapType {
+        CONCURRENT_HASH_MAP,
+        SYNCHRONIZED_NETTY,
+        CONCURRENT_NETTY
+    }
+
+    public enum KeyDistribution {
+        HTTP2,
+        RANDOM
+    }
+
+    @Param({ "10", "1000", "100000" })
+    public int size;
+
+    @Param
+    public MapType mapType;
+
+    @Param
+    public KeyDistribution keyDistribution;
+
+    private int[] keys;
+    private Environment environment;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = new int[size];
+        switch (keyDistribution) {
+            case HTTP2:
+                for (int index = 0, key = 3; index < size; ++index, key += 2) {
+                    keys[index] = key;
+                }
+                break;
+            case RANDOM: {
+                Random r = new Random();
+                Set<Integer> keySet = new HashSet<Integer>();
+                while (keySet.size() < size) {
+                    keySet.add(r.nextInt());
+                }
+                int index = 0;
+                for (Integer key : keySet) {
+                    keys[index++] = key;
+                }
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown keyDistribution: " + keyDistribution);
+        }
+
+        switch (mapType) {
+            case CONCURRENT_HASH_MAP:
+                environment = new ConcurrentHashMapEnvironment();
+                break;
+            case SYNCHRONIZED_NETTY:
+                environment = new SynchronizedNettyEnvironment();
+                break;
+            case CONCURRENT_NETTY:
+                environment = new ConcurrentNettyEnvironment();
+                break;
+            default:
+                throw new IllegalStateException("Invalid mapType: " + mapType);
+        }
+        for (int key : keys) {
+            environment.put(key);
+        }
+    }
+
+    @Benchmark
+    public void lookup(Blackhole bh) {
+        Environment environment = this.environment;
+        for (int key : keys) {
+            bh.consume(environment.get(key));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void lookupContended(Blackhole bh) {
+        lookup(bh);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void removeAndPutContended(Blackhole bh) {
+        // Each invocation touches a random key so that the map keeps its size while threads race on it.
+        Environment environment = this.environment;
+        int key = keys[PlatformDependent.threadLocalRandom().nextInt(keys.length)];
+        bh.consume(environment.remove(key));
+        bh.consume(environment.put(key));
+    }
+
+    private interface Environment {
+        Object get(int key);
+        Object put(int key);
+        Object remove(int key);
+    }
+
+    private static final class ConcurrentHashMapEnvironment implements Environment {
+        private final Map<Integer, Long> map = new ConcurrentHashMap<Integer, Long>();
+
+        @Override
+        public Object get(int key) {
+            return map.get(key);
+        }
+
+        @Override
+        public Object put(int key) {
+            return map.put(key, VALUE);
+        }
+
+        @Override
+        public Object remove(int key) {
+            return map.remove(key);
+        }
+    }
+
+    private static final class SynchronizedNettyEnvironment implements Environment {
+        private final IntObjectHashMap<Long> map = new IntObjectHashMap<Long>();
+
+        @Override
+        public synchronized Object get(int key) {
+            return map.get(key);
+        }
+
+        @Override
+        public synchronized Object put(int key) {
+            return map.put(key, VALUE);
+        }
+
+        @Override
+        public synchronized Object remove(int key) {
+            return map.remove(key);
+        }
+    }
+
+    private static final class ConcurrentNettyEnvironment implements Environment {
+        private final ConcurrentIntObjectHashMap<Long> map = new ConcurrentIntObjectHashMap<Long>();
+
+        @Override
+        public Object get(int key) {
+            return map.get(key);
+        }
+
+        @Override
+        public Object put(int key) {
+            return map.put(key, VALUE);
+        }
+
+        @Override
+        public Object remove(int key) {
+            return map.remove(key);
+        }
+    }
+}
@@ -38,6 +38,7 @@
 #include <time.h>
 
 #include "netty_epoll_linuxsocket.h"
+#include "netty_unix_affinity.h"
 #include "netty_unix_buffer.h"
 #include "netty_unix_errors.h"
 #include "netty_unix_filedescriptor.h"
@@ -457,6 +458,7 @@ static jint netty_epoll_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix
     int filedescriptorOnLoadCalled = 0;
     int socketOnLoadCalled = 0;
     int bufferOnLoadCalled = 0;
+    int affinityOnLoadCalled = 0;
     int linuxsocketOnLoadCalled = 0;
 
     // We must register the statically referenced methods first!
@@ -505,6 +507,11 @@ static jint netty_epoll_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix
     }
     bufferOnLoadCalled = 1;
 
+    if (netty_unix_affinity_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        goto error;
+    }
+    affinityOnLoadCalled = 1;
+
     if (netty_epoll_linuxsocket_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
         goto error;
     }
@@ -565,6 +572,9 @@ error:
    if (bufferOnLoadCalled == 1) {
        netty_unix_buffer_JNI_OnUnLoad(env);
    }
+   if (affinityOnLoadCalled == 1) {
+       netty_unix_affinity_JNI_OnUnLoad(env);
+   }
    if (linuxsocketOnLoadCalled == 1) {
        netty_epoll_linuxsocket_JNI_OnUnLoad(env);
    }
@@ -583,6 +593,7 @@ static void netty_epoll_native_JNI_OnUnLoad(JNIEnv* env) {
     netty_unix_filedescriptor_JNI_OnUnLoad(env);
     netty_unix_socket_JNI_OnUnLoad(env);
     netty_unix_buffer_JNI_OnUnLoad(env);
+    netty_unix_affinity_JNI_OnUnLoad(env);
     netty_epoll_linuxsocket_JNI_OnUnLoad(env);
 
     packetAddrFieldId = NULL;
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.relay.ChannelSplicer;
+
+/**
+ * {@link ChannelSplicer} which uses {@code splice(2)} via
+ * {@link AbstractEpollStreamChannel#spliceTo(AbstractEpollStreamChannel, int)} to move the data between two
+ * {@link AbstractEpollStreamChannel}s without copying it into the JVM.
+ * <p>
+ * Splicing is only supported if both {@link Channel}s are registered to the same {@link EpollEventLoop} and use
+ * {@link EpollMode#LEVEL_TRIGGERED}, which needs to be configured before the {@link Channel}s are registered. The
+ * splice is issued again whenever it completes, so it keeps moving the data until one of the {@link Channel}s is
+ * closed.
+ */
+public final class EpollChannelSplicer implements ChannelSplicer {
+
+    public static final EpollChannelSplicer INSTANCE = new EpollChannelSplicer();
+
+    private EpollChannelSplicer() { }
+
+    @Override
+    public boolean isSpliceSupported(Channel from, Channel to) {
+        if (!(from instanceof AbstractEpollStreamChannel) || !(to instanceof AbstractEpollStreamChannel)) {
+            return false;
+        }
+        AbstractEpollStreamChannel fromChannel = (AbstractEpollStreamChannel) from;
+        AbstractEpollStreamChannel toChannel = (AbstractEpollStreamChannel) to;
+        return fromChannel.isRegistered() && toChannel.isRegistered()
+                && fromChannel.eventLoop() == toChannel.eventLoop()
+                && fromChannel.config().getEpollMode() == EpollMode.LEVEL_TRIGGERED
+                && toChannel.config().getEpollMode() == EpollMode.LEVEL_TRIGGERED;
+    }
+
+    @Override
+    public ChannelFuture splice(Channel from, Channel to) {
+        ChannelPromise promise = from.newPromise();
+        splice((AbstractEpollStreamChannel) from, (AbstractEpollStreamChannel) to, promise);
+        return promise;
+    }
+
+    private static void splice(final AbstractEpollStreamChannel from, final AbstractEpollStreamChannel to,
+                               final ChannelPromise promise) {
+        // spliceTo(...) treats Integer.MAX_VALUE as unbounded, but issue the splice again if it ever completes while
+        // both Channels are open, as the data would be passed through the pipelines from then on.
+        from.spliceTo(to, Integer.MAX_VALUE).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                if (!future.isSuccess()) {
+                    promise.tryFailure(future.cause());
+                } else if (promise.isDone()) {
+                    return;
+                } else if (from.isActive() && to.isActive()) {
+                    splice(from, to, promise);
+                } else {
+                    promise.trySuccess();
+                }
+            }
+        });
+    }
+}
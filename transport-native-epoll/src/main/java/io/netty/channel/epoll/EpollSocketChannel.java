@@ -19,7 +19,7 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelException;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.BackgroundEventExecutor;
 
 import java.io.IOException;
 import java.net.InetAddress;
@@ -122,7 +122,7 @@ public final class EpollSocketChannel extends AbstractEpollStreamChannel impleme
                     // SO_LINGER handling.
                     // See https://github.com/netty/netty/issues/4449
                     ((EpollEventLoop) eventLoop()).remove(EpollSocketChannel.this);
-                    return GlobalEventExecutor.INSTANCE;
+                    return BackgroundEventExecutor.globalExecutor();
                 }
             } catch (Throwable ignore) {
                 // Ignore the error as the underlying channel may be closed in the meantime and so
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.unix.AffinityThreadProperties;
+import io.netty.channel.unix.CpuAffinityThreadFactory;
+import io.netty.channel.unix.ThreadAffinity;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class EpollCpuAffinityTest {
+
+    @Test(timeout = 10000)
+    public void testEventLoopIsPinned() throws Exception {
+        Epoll.ensureAvailability();
+        EventLoopGroup group = new EpollEventLoopGroup(1, new CpuAffinityThreadFactory("pinned", 0));
+        try {
+            SingleThreadEventExecutor loop = (SingleThreadEventExecutor) group.next();
+            AffinityThreadProperties properties = (AffinityThreadProperties) loop.threadProperties();
+            assertEquals(0, properties.cpu());
+            assertEquals(ThreadAffinity.numaNode(0), properties.numaNode());
+
+            Future<Integer> cpu = loop.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return ThreadAffinity.currentCpu();
+                }
+            });
+            assertEquals(0, (int) cpu.sync().getNow());
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+}
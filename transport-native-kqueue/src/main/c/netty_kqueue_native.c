@@ -28,6 +28,7 @@
 
 #include "netty_kqueue_bsdsocket.h"
 #include "netty_kqueue_eventarray.h"
+#include "netty_unix_affinity.h"
 #include "netty_unix_buffer.h"
 #include "netty_unix_errors.h"
 #include "netty_unix_filedescriptor.h"
@@ -274,6 +275,7 @@ static jint netty_kqueue_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefi
     int filedescriptorOnLoadCalled = 0;
     int socketOnLoadCalled = 0;
     int bufferOnLoadCalled = 0;
+    int affinityOnLoadCalled = 0;
     int bsdsocketOnLoadCalled = 0;
     int eventarrayOnLoadCalled = 0;
 
@@ -315,6 +317,11 @@ static jint netty_kqueue_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefi
     }
     bufferOnLoadCalled = 1;
 
+    if (netty_unix_affinity_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        goto error;
+    }
+    affinityOnLoadCalled = 1;
+
     if (netty_kqueue_bsdsocket_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
         goto error;
     }
@@ -349,6 +356,9 @@ error:
    if (bufferOnLoadCalled == 1) {
       netty_unix_buffer_JNI_OnUnLoad(env);
    }
+   if (affinityOnLoadCalled == 1) {
+       netty_unix_affinity_JNI_OnUnLoad(env);
+   }
    if (bsdsocketOnLoadCalled == 1) {
        netty_kqueue_bsdsocket_JNI_OnUnLoad(env);
    }
@@ -364,6 +374,7 @@ static void netty_kqueue_native_JNI_OnUnLoad(JNIEnv* env) {
     netty_unix_filedescriptor_JNI_OnUnLoad(env);
     netty_unix_socket_JNI_OnUnLoad(env);
     netty_unix_buffer_JNI_OnUnLoad(env);
+    netty_unix_affinity_JNI_OnUnLoad(env);
     netty_kqueue_bsdsocket_JNI_OnUnLoad(env);
     netty_kqueue_eventarray_JNI_OnUnLoad(env);
 }
@@ -18,7 +18,7 @@ package io.netty.channel.kqueue;
 import io.netty.channel.Channel;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.BackgroundEventExecutor;
 import io.netty.util.internal.UnstableApi;
 
 import java.net.InetSocketAddress;
@@ -80,7 +80,7 @@ public final class KQueueSocketChannel extends AbstractKQueueStreamChannel imple
                     // SO_LINGER handling.
                     // See https://github.com/netty/netty/issues/4449
                     ((KQueueEventLoop) eventLoop()).remove(KQueueSocketChannel.this);
-                    return GlobalEventExecutor.INSTANCE;
+                    return BackgroundEventExecutor.globalExecutor();
                 }
             } catch (Throwable ignore) {
                 // Ignore the error as the underlying channel may be closed in the meantime and so
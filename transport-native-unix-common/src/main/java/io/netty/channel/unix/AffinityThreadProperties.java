@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.util.concurrent.ThreadProperties;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * {@link ThreadProperties} of a thread created by a {@link CpuAffinityThreadFactory}, which expose the CPU the
+ * thread was pinned to.
+ */
+@UnstableApi
+public interface AffinityThreadProperties extends ThreadProperties {
+    /**
+     * Returns the CPU the thread is pinned to, or {@code -1} if it was not started yet or pinning it failed.
+     */
+    int cpu();
+
+    /**
+     * Returns the NUMA node of {@link #cpu()}, or {@code -1} if it is not known.
+     */
+    int numaNode();
+}
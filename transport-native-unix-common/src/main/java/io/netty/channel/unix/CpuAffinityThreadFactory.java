@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.FastThreadLocalThread;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link DefaultThreadFactory} which pins every thread it creates to one CPU out of a configured set, for example
+ * the cores isolated from the rest of the system via {@code isolcpus}.
+ * <p>
+ * The CPUs are handed out round-robin, grouped by NUMA node, so the threads of an {@code EventLoopGroup} which is
+ * smaller than the CPU set stay on as few NUMA nodes as possible. Each thread pins itself when it starts. If that
+ * fails, for example because the native transport library is not loaded or the platform is not Linux, a warning is
+ * logged and the thread runs unpinned.
+ * <p>
+ * The threads implement {@link AffinityThreadProperties}, which is what
+ * {@link io.netty.util.concurrent.SingleThreadEventExecutor#threadProperties()} returns for them, so the mapping of
+ * {@code EventLoop}s to CPUs can be inspected at runtime.
+ */
+@UnstableApi
+public class CpuAffinityThreadFactory extends DefaultThreadFactory {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(CpuAffinityThreadFactory.class);
+
+    private final int[] cpus;
+    private final int[] nodes;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    /**
+     * @param cpuList the CPUs to use in the format used by the kernel, for example {@code 2-5,8}.
+     */
+    public CpuAffinityThreadFactory(Class<?> poolType, String cpuList) {
+        this(toPoolName(poolType), false, Thread.NORM_PRIORITY, ThreadAffinity.parseCpuList(cpuList));
+    }
+
+    /**
+     * @param cpuList the CPUs to use in the format used by the kernel, for example {@code 2-5,8}.
+     */
+    public CpuAffinityThreadFactory(String poolName, String cpuList) {
+        this(poolName, false, Thread.NORM_PRIORITY, ThreadAffinity.parseCpuList(cpuList));
+    }
+
+    public CpuAffinityThreadFactory(String poolName, int... cpus) {
+        this(poolName, false, Thread.NORM_PRIORITY, cpus);
+    }
+
+    public CpuAffinityThreadFactory(String poolName, boolean daemon, int priority, int... cpus) {
+        super(poolName, daemon, priority);
+        ObjectUtil.checkNotNull(cpus, "cpus");
+        if (cpus.length == 0) {
+            throw new IllegalArgumentException("cpus must not be empty");
+        }
+
+        // Sort by NUMA node first and by CPU second.
+        long[] sorted = new long[cpus.length];
+        for (int i = 0; i < cpus.length; i++) {
+            int cpu = cpus[i];
+            if (cpu < 0) {
+                throw new IllegalArgumentException("cpu: " + cpu + " (expected: >= 0)");
+            }
+            sorted[i] = (long) (ThreadAffinity.numaNode(cpu) + 1) << 32 | cpu;
+        }
+        Arrays.sort(sorted);
+        this.cpus = new int[sorted.length];
+        nodes = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            this.cpus[i] = (int) sorted[i];
+            nodes[i] = (int) (sorted[i] >>> 32) - 1;
+        }
+    }
+
+    /**
+     * Creates a new instance which uses all the CPUs of the given NUMA node.
+     */
+    public static CpuAffinityThreadFactory forNumaNode(String poolName, int node) throws IOException {
+        return new CpuAffinityThreadFactory(poolName, ThreadAffinity.numaNodeCpus(node));
+    }
+
+    /**
+     * Returns the CPUs in the order they are assigned to new threads.
+     */
+    public int[] cpus() {
+        return cpus.clone();
+    }
+
+    @Override
+    protected Thread newThread(Runnable r, String name) {
+        int index = (nextIndex.getAndIncrement() & Integer.MAX_VALUE) % cpus.length;
+        return new AffinityThread(threadGroup, r, name, cpus[index], nodes[index]);
+    }
+
+    private static final class AffinityThread extends FastThreadLocalThread implements AffinityThreadProperties {
+        private final int requestedCpu;
+        private final int node;
+        private volatile int cpu = -1;
+
+        AffinityThread(ThreadGroup group, Runnable target, String name, int requestedCpu, int node) {
+            super(group, target, name);
+            this.requestedCpu = requestedCpu;
+            this.node = node;
+        }
+
+        @Override
+        public void run() {
+            try {
+                ThreadAffinity.setCurrentThreadAffinity(requestedCpu);
+                cpu = requestedCpu;
+            } catch (IOException e) {
+                logger.warn("Failed to pin thread {} to CPU {}", getName(), requestedCpu, e);
+            } catch (UnsatisfiedLinkError e) {
+                logger.warn("Failed to pin thread {} to CPU {}, the native transport library is not loaded",
+                            getName(), requestedCpu, e);
+            }
+            super.run();
+        }
+
+        @Override
+        public int cpu() {
+            return cpu;
+        }
+
+        @Override
+        public int numaNode() {
+            return cpu == -1 ? -1 : node;
+        }
+
+        @Override
+        public State state() {
+            return getState();
+        }
+
+        @Override
+        public int priority() {
+            return getPriority();
+        }
+
+        @Override
+        public String name() {
+            return getName();
+        }
+
+        @Override
+        public long id() {
+            return getId();
+        }
+
+        @Override
+        public StackTraceElement[] stackTrace() {
+            return getStackTrace();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+import static io.netty.channel.unix.Errors.newIOException;
+
+/**
+ * Utility methods to pin threads to CPUs and to discover the NUMA topology of the machine.
+ * <p>
+ * Pinning is only supported on Linux and requires the native transport library to be loaded, for example by
+ * calling {@code Epoll.ensureAvailability()}. The NUMA topology is read from {@code /sys/devices/system}.
+ */
+@UnstableApi
+public final class ThreadAffinity {
+    private static final String SYS_CPU = "/sys/devices/system/cpu/cpu";
+    private static final String SYS_NODE = "/sys/devices/system/node/node";
+
+    private ThreadAffinity() { }
+
+    /**
+     * Pins the calling thread to the given CPU.
+     */
+    public static void setCurrentThreadAffinity(int cpu) throws IOException {
+        int res = setCurrentThreadAffinity0(cpu);
+        if (res < 0) {
+            throw newIOException("sched_setaffinity", res);
+        }
+    }
+
+    /**
+     * Returns the CPU the calling thread is running on.
+     */
+    public static int currentCpu() throws IOException {
+        int res = currentCpu0();
+        if (res < 0) {
+            throw newIOException("sched_getcpu", res);
+        }
+        return res;
+    }
+
+    /**
+     * Returns the NUMA node of the given CPU, or {@code -1} if it is not known.
+     */
+    public static int numaNode(int cpu) {
+        String[] entries = new File(SYS_CPU + cpu).list();
+        if (entries != null) {
+            for (String entry : entries) {
+                if (entry.startsWith("node")) {
+                    try {
+                        return Integer.parseInt(entry.substring(4));
+                    } catch (NumberFormatException ignore) {
+                        // Not a node link, continue.
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the CPUs of the given NUMA node.
+     */
+    public static int[] numaNodeCpus(int node) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(SYS_NODE + node + "/cpulist"), "US-ASCII"));
+        try {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("empty cpulist for NUMA node " + node);
+            }
+            return parseCpuList(line);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Parses a CPU list in the format used by the kernel, for example {@code 0-3,8,10-11}. The returned CPUs are
+     * sorted and free of duplicates.
+     */
+    public static int[] parseCpuList(String cpuList) {
+        int[] cpus = new int[8];
+        int count = 0;
+        for (String part : cpuList.split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) {
+                continue;
+            }
+            int dash = part.indexOf('-');
+            int first;
+            int last;
+            try {
+                if (dash == -1) {
+                    first = last = Integer.parseInt(part);
+                } else {
+                    first = Integer.parseInt(part.substring(0, dash).trim());
+                    last = Integer.parseInt(part.substring(dash + 1).trim());
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid cpu list: " + cpuList, e);
+            }
+            if (first < 0 || last < first) {
+                throw new IllegalArgumentException("invalid cpu list: " + cpuList);
+            }
+            for (int cpu = first; cpu <= last; cpu++) {
+                if (count == cpus.length) {
+                    cpus = Arrays.copyOf(cpus, count << 1);
+                }
+                cpus[count++] = cpu;
+            }
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("empty cpu list: " + cpuList);
+        }
+        Arrays.sort(cpus, 0, count);
+        int unique = 1;
+        for (int i = 1; i < count; i++) {
+            if (cpus[i] != cpus[unique - 1]) {
+                cpus[unique++] = cpus[i];
+            }
+        }
+        return Arrays.copyOf(cpus, unique);
+    }
+
+    private static native int setCurrentThreadAffinity0(int cpu);
+    private static native int currentCpu0();
+}
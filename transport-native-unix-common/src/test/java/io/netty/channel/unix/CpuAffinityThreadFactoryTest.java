@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.ThreadProperties;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CpuAffinityThreadFactoryTest {
+
+    @Test
+    public void testParseCpuList() {
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 8, 10, 11 }, ThreadAffinity.parseCpuList("8,0-3, 10-11"));
+        assertArrayEquals(new int[] { 2, 3 }, ThreadAffinity.parseCpuList("3,2-3"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseInvalidCpuList() {
+        ThreadAffinity.parseCpuList("3-1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseEmptyCpuList() {
+        ThreadAffinity.parseCpuList(" , ");
+    }
+
+    @Test
+    public void testThreadIsNotPinnedBeforeStart() {
+        CpuAffinityThreadFactory factory = new CpuAffinityThreadFactory("test", 1, 0);
+        AffinityThreadProperties first = (AffinityThreadProperties) factory.newThread(new Runnable() {
+            @Override
+            public void run() { }
+        });
+        // Not started yet, so not pinned.
+        assertEquals(-1, first.cpu());
+        // The order depends on the NUMA topology of the machine.
+        int[] cpus = factory.cpus();
+        Arrays.sort(cpus);
+        assertArrayEquals(new int[] { 0, 1 }, cpus);
+    }
+
+    @Test(timeout = 10000)
+    public void testThreadPropertiesOfEventExecutor() throws Exception {
+        DefaultEventExecutor executor = new DefaultEventExecutor(new CpuAffinityThreadFactory("test", 0));
+        try {
+            ThreadProperties properties = executor.threadProperties();
+            assertTrue(properties instanceof AffinityThreadProperties);
+            assertTrue(properties.isAlive());
+            assertTrue(properties.name().startsWith("test-"));
+            int cpu = ((AffinityThreadProperties) properties).cpu();
+            // Depends on the native library being loaded.
+            assertTrue(cpu == -1 || cpu == 0);
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+}
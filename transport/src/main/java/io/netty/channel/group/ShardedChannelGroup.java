@@ -0,0 +1,384 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.group;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelId;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.ServerChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A {@link DefaultChannelGroup} which keeps its members sharded by their {@link EventLoop}, so broadcasting via
+ * {@link #write(Object)}, {@link #writeAndFlush(Object)} and {@link #flush()} only needs to submit one task per
+ * {@link EventLoop} instead of one task per {@link Channel}. Each of these tasks writes to all the local
+ * {@link Channel}s of its {@link EventLoop}, which also allows to retain the message only once per
+ * {@link EventLoop} and hand out {@linkplain ByteBuf#duplicate() duplicates} that share its reference count.
+ * <p>
+ * This is useful when broadcasting to a large number of {@link Channel}s. Please note that when using a
+ * {@code voidPromise} the {@link ChannelMatcher} is called from the {@link EventLoop} of the {@link Channel}s.
+ */
+public class ShardedChannelGroup extends DefaultChannelGroup {
+
+    private final EventExecutor executor;
+    private final ConcurrentMap<EventLoop, Shard> shards = PlatformDependent.newConcurrentHashMap();
+    // Channels which were not registered yet when they were added to the group.
+    private final ConcurrentMap<ChannelId, Channel> unregisteredChannels = PlatformDependent.newConcurrentHashMap();
+    private final VoidChannelGroupFuture voidFuture = new VoidChannelGroupFuture(this);
+
+    /**
+     * Creates a new group with a generated name and the provided {@link EventExecutor} to notify the
+     * {@link ChannelGroupFuture}s.
+     */
+    public ShardedChannelGroup(EventExecutor executor) {
+        this(executor, false);
+    }
+
+    /**
+     * Creates a new group with the specified {@code name} and {@link EventExecutor} to notify the
+     * {@link ChannelGroupFuture}s.  Please note that different groups can have the same name, which means no
+     * duplicate check is done against group names.
+     */
+    public ShardedChannelGroup(String name, EventExecutor executor) {
+        this(name, executor, false);
+    }
+
+    /**
+     * Creates a new group with a generated name and the provided {@link EventExecutor} to notify the
+     * {@link ChannelGroupFuture}s. {@code stayClosed} defines whether or not, this group can be closed
+     * more than once. Adding channels to a closed group will immediately close them, too. This makes it
+     * easy, to shutdown server and child channels at once.
+     */
+    public ShardedChannelGroup(EventExecutor executor, boolean stayClosed) {
+        super(executor, stayClosed);
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a new group with the specified {@code name} and {@link EventExecutor} to notify the
+     * {@link ChannelGroupFuture}s. {@code stayClosed} defines whether or not, this group can be closed
+     * more than once. Adding channels to a closed group will immediately close them, too. This makes it
+     * easy, to shutdown server and child channels at once. Please note that different groups can have
+     * the same name, which means no duplicate check is done against group names.
+     */
+    public ShardedChannelGroup(String name, EventExecutor executor, boolean stayClosed) {
+        super(name, executor, stayClosed);
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean add(Channel channel) {
+        if (!(channel instanceof ServerChannel)) {
+            // Add to the shard first, so the channel is also removed from it if the closeFuture was already done
+            // and so the channel is removed by the super class directly.
+            channelsOf(channel).put(channel.id(), channel);
+        }
+        return super.add(channel);
+    }
+
+    private ConcurrentMap<ChannelId, Channel> channelsOf(Channel channel) {
+        if (!channel.isRegistered()) {
+            return unregisteredChannels;
+        }
+        EventLoop loop = channel.eventLoop();
+        Shard shard = shards.get(loop);
+        if (shard == null) {
+            Shard newShard = new Shard(loop);
+            shard = shards.putIfAbsent(loop, newShard);
+            if (shard == null) {
+                shard = newShard;
+            }
+        }
+        return shard.channels;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        Channel c = null;
+        if (o instanceof ChannelId) {
+            c = find((ChannelId) o);
+        } else if (o instanceof Channel) {
+            c = (Channel) o;
+        }
+        boolean removed = super.remove(o);
+        if (c != null && !(c instanceof ServerChannel)) {
+            // The channel may have been re-registered to another EventLoop in the meantime, so just check all the
+            // shards. There is only one per EventLoop.
+            ChannelId id = c.id();
+            if (unregisteredChannels.remove(id) == null) {
+                for (Shard shard: shards.values()) {
+                    if (shard.channels.remove(id) != null) {
+                        break;
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        unregisteredChannels.clear();
+        for (Shard shard: shards.values()) {
+            shard.channels.clear();
+        }
+    }
+
+    @Override
+    public ChannelGroupFuture write(Object message, ChannelMatcher matcher, boolean voidPromise) {
+        return broadcast(message, matcher, voidPromise, false);
+    }
+
+    @Override
+    public ChannelGroupFuture writeAndFlush(Object message, ChannelMatcher matcher, boolean voidPromise) {
+        return broadcast(message, matcher, voidPromise, true);
+    }
+
+    @Override
+    public ChannelGroup flush(ChannelMatcher matcher) {
+        checkNotNull(matcher, "matcher");
+        shardRegisteredChannels();
+        for (Shard shard: shards.values()) {
+            if (!shard.channels.isEmpty()) {
+                shard.execute(new FlushTask(shard, matcher));
+            }
+        }
+        for (Channel c: unregisteredChannels.values()) {
+            if (matcher.matches(c)) {
+                c.flush();
+            }
+        }
+        return this;
+    }
+
+    private ChannelGroupFuture broadcast(Object message, ChannelMatcher matcher, boolean voidPromise, boolean flush) {
+        checkNotNull(message, "message");
+        checkNotNull(matcher, "matcher");
+
+        shardRegisteredChannels();
+        final ChannelGroupFuture future;
+        try {
+            if (voidPromise) {
+                for (Shard shard: shards.values()) {
+                    if (!shard.channels.isEmpty()) {
+                        // Let the EventLoop select the channels so the caller does not need to iterate them all.
+                        shard.execute(new BroadcastTask(shard, message, matcher, null, null, flush));
+                    }
+                }
+                for (Channel c: unregisteredChannels.values()) {
+                    if (matcher.matches(c)) {
+                        write(c, duplicate(ReferenceCountUtil.retain(message)), c.voidPromise(), flush);
+                    }
+                }
+                future = voidFuture;
+            } else {
+                Map<Channel, ChannelFuture> futures = new LinkedHashMap<Channel, ChannelFuture>(size());
+                for (Shard shard: shards.values()) {
+                    List<Channel> channels = null;
+                    for (Channel c: shard.channels.values()) {
+                        if (matcher.matches(c)) {
+                            if (channels == null) {
+                                channels = new ArrayList<Channel>();
+                            }
+                            channels.add(c);
+                        }
+                    }
+                    if (channels != null) {
+                        ChannelPromise[] promises = new ChannelPromise[channels.size()];
+                        for (int i = 0; i < promises.length; i++) {
+                            Channel c = channels.get(i);
+                            promises[i] = c.newPromise();
+                            futures.put(c, promises[i]);
+                        }
+                        shard.execute(new BroadcastTask(shard, message, null, channels, promises, flush));
+                    }
+                }
+                for (Channel c: unregisteredChannels.values()) {
+                    if (matcher.matches(c)) {
+                        futures.put(c, write(c, duplicate(ReferenceCountUtil.retain(message)), c.newPromise(),
+                                             flush));
+                    }
+                }
+                future = new DefaultChannelGroupFuture(this, futures, executor);
+            }
+        } finally {
+            ReferenceCountUtil.release(message);
+        }
+        return future;
+    }
+
+    /**
+     * Moves all the channels that were not registered when they were added, but are now, to their shard.
+     */
+    private void shardRegisteredChannels() {
+        if (unregisteredChannels.isEmpty()) {
+            return;
+        }
+        for (Channel c: unregisteredChannels.values()) {
+            if (c.isRegistered() && unregisteredChannels.remove(c.id(), c)) {
+                ConcurrentMap<ChannelId, Channel> channels = channelsOf(c);
+                channels.put(c.id(), c);
+                if (!contains(c)) {
+                    // The channel was removed concurrently.
+                    channels.remove(c.id(), c);
+                }
+            }
+        }
+    }
+
+    private static ChannelFuture write(Channel c, Object message, ChannelPromise promise, boolean flush) {
+        return flush ? c.writeAndFlush(message, promise) : c.write(message, promise);
+    }
+
+    // Create a duplicate that shares the reference count with the message, so the caller only needs to retain the
+    // message once for a batch of channels. This still protects the message from being modified by the writes to the
+    // other channels.
+    // See https://github.com/netty/netty/issues/1461
+    private static Object duplicate(Object message) {
+        if (message instanceof ByteBuf) {
+            return ((ByteBuf) message).duplicate();
+        }
+        if (message instanceof ByteBufHolder) {
+            return ((ByteBufHolder) message).duplicate();
+        }
+        return message;
+    }
+
+    private static final class Shard {
+        final EventLoop loop;
+        final ConcurrentMap<ChannelId, Channel> channels = PlatformDependent.newConcurrentHashMap();
+
+        Shard(EventLoop loop) {
+            this.loop = loop;
+        }
+
+        void execute(ShardTask task) {
+            if (loop.inEventLoop()) {
+                task.run();
+            } else {
+                try {
+                    loop.execute(task);
+                } catch (Throwable cause) {
+                    task.cancel(cause);
+                }
+            }
+        }
+    }
+
+    private abstract static class ShardTask implements Runnable {
+        final Shard shard;
+
+        ShardTask(Shard shard) {
+            this.shard = shard;
+        }
+
+        abstract void cancel(Throwable cause);
+    }
+
+    private static final class FlushTask extends ShardTask {
+        private final ChannelMatcher matcher;
+
+        FlushTask(Shard shard, ChannelMatcher matcher) {
+            super(shard);
+            this.matcher = matcher;
+        }
+
+        @Override
+        public void run() {
+            for (Channel c: shard.channels.values()) {
+                if (matcher.matches(c)) {
+                    c.flush();
+                }
+            }
+        }
+
+        @Override
+        void cancel(Throwable cause) {
+            // Nothing to release.
+        }
+    }
+
+    private static final class BroadcastTask extends ShardTask {
+        private final Object message;
+        private final ChannelMatcher matcher;
+        private final List<Channel> channels;
+        private final ChannelPromise[] promises;
+        private final boolean flush;
+
+        BroadcastTask(Shard shard, Object message, ChannelMatcher matcher,
+                      List<Channel> channels, ChannelPromise[] promises, boolean flush) {
+            super(shard);
+            // Keep the message alive until the task was run.
+            this.message = ReferenceCountUtil.retain(message);
+            this.matcher = matcher;
+            this.channels = channels;
+            this.promises = promises;
+            this.flush = flush;
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<Channel> channels = this.channels;
+                if (channels == null) {
+                    channels = new ArrayList<Channel>(shard.channels.size());
+                    for (Channel c: shard.channels.values()) {
+                        if (matcher.matches(c)) {
+                            channels.add(c);
+                        }
+                    }
+                }
+                int size = channels.size();
+                if (size == 0) {
+                    return;
+                }
+                // Retain once for all the channels of this EventLoop, every write will release its duplicate once.
+                ReferenceCountUtil.retain(message, size);
+                for (int i = 0; i < size; i++) {
+                    Channel c = channels.get(i);
+                    write(c, duplicate(message), promises == null ? c.voidPromise() : promises[i], flush);
+                }
+            } finally {
+                ReferenceCountUtil.release(message);
+            }
+        }
+
+        @Override
+        void cancel(Throwable cause) {
+            ReferenceCountUtil.release(message);
+            if (promises != null) {
+                for (ChannelPromise promise: promises) {
+                    promise.tryFailure(cause);
+                }
+            }
+        }
+    }
+}
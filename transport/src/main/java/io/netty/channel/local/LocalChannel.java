@@ -43,6 +43,7 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ConnectionPendingException;
 import java.nio.channels.NotYetConnectedException;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
@@ -53,6 +54,8 @@ public class LocalChannel extends AbstractChannel {
     @SuppressWarnings({ "rawtypes" })
     private static final AtomicReferenceFieldUpdater<LocalChannel, Future> FINISH_READ_FUTURE_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(LocalChannel.class, Future.class, "finishReadFuture");
+    private static final AtomicIntegerFieldUpdater<LocalChannel> PEER_READ_SCHEDULED_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(LocalChannel.class, "peerReadScheduled");
     private static final ChannelMetadata METADATA = new ChannelMetadata(false);
     private static final int MAX_READER_STACK_DEPTH = 8;
     private static final ClosedChannelException DO_WRITE_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
@@ -90,6 +93,11 @@ public class LocalChannel extends AbstractChannel {
     private volatile boolean readInProgress;
     private volatile boolean writeInProgress;
     private volatile Future<?> finishReadFuture;
+    // 1 if finishPeerReadTask was submitted to the EventLoop of the peer but did not start to run yet.
+    private volatile int peerReadScheduled;
+    // Lazy created on the first write to a peer on another EventLoop. A Channel only ever has one peer, so it does
+    // not matter if more than one instance is created because of a race.
+    private volatile FinishPeerReadTask finishPeerReadTask;
 
     public LocalChannel() {
         super(null);
@@ -396,21 +404,29 @@ public class LocalChannel extends AbstractChannel {
     }
 
     private void runFinishPeerReadTask(final LocalChannel peer) {
-        // If the peer is writing, we must wait until after reads are completed for that peer before we can read. So
-        // we keep track of the task, and coordinate later that our read can't happen until the peer is done.
-        final Runnable finishPeerReadTask = new Runnable() {
-            @Override
-            public void run() {
-                finishPeerRead0(peer);
-            }
-        };
         try {
             if (peer.writeInProgress) {
-                peer.finishReadFuture = peer.eventLoop().submit(finishPeerReadTask);
-            } else {
-                peer.eventLoop().execute(finishPeerReadTask);
+                // If the peer is writing, we must wait until after reads are completed for that peer before we can
+                // read. So we keep track of the task, and coordinate later that our read can't happen until the peer
+                // is done.
+                peer.finishReadFuture = peer.eventLoop().submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        finishPeerRead0(peer);
+                    }
+                });
+            } else if (PEER_READ_SCHEDULED_UPDATER.compareAndSet(this, 0, 1)) {
+                // Only submit one task at a time to the EventLoop of the peer. All writes that happen before the
+                // task starts to run will be picked up by it, so we not need one task hop per write and the peer
+                // will read everything as one batch.
+                FinishPeerReadTask task = finishPeerReadTask;
+                if (task == null) {
+                    finishPeerReadTask = task = new FinishPeerReadTask(peer);
+                }
+                peer.eventLoop().execute(task);
             }
         } catch (Throwable cause) {
+            peerReadScheduled = 0;
             logger.warn("Closing Local channels {}-{} because exception occurred!", this, peer, cause);
             close();
             peer.close();
@@ -447,6 +463,22 @@ public class LocalChannel extends AbstractChannel {
         }
     }
 
+    private final class FinishPeerReadTask implements Runnable {
+        private final LocalChannel peer;
+
+        FinishPeerReadTask(LocalChannel peer) {
+            this.peer = peer;
+        }
+
+        @Override
+        public void run() {
+            // Reset the flag before reading, so any write that happens concurrently will submit a new task
+            // and so is guaranteed to be picked up.
+            peerReadScheduled = 0;
+            finishPeerRead0(peer);
+        }
+    }
+
     private class LocalUnsafe extends AbstractUnsafe {
 
         @Override
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.oio;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * {@link OioEventLoopGroup} which runs the {@link EventLoop} of each {@link Channel} on its own virtual thread if the
+ * JVM supports it (Java 21+), and falls back to platform threads otherwise.
+ * <p>
+ * As virtual threads are unmounted from their carrier thread while blocking on socket I/O, this allows to use the
+ * blocking OIO transport with a large number of {@link Channel}s. All the {@link io.netty.channel.ChannelPipeline}
+ * semantics of the OIO transport are kept, so {@link io.netty.channel.ChannelHandler}s may still block.
+ * <p>
+ * Please note that each virtual thread is a new thread from the point of view of {@link ThreadLocal}s. You may want
+ * to set {@code -Dio.netty.allocator.useCacheForAllThreads=false} to not create a
+ * {@link io.netty.buffer.PooledByteBufAllocator} thread cache per {@link Channel}.
+ */
+public class VirtualThreadOioEventLoopGroup extends OioEventLoopGroup {
+
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(VirtualThreadOioEventLoopGroup.class);
+
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        if (PlatformDependent.javaVersion() >= 21) {
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                name = builderClass.getMethod("name", String.class, long.class);
+                factory = builderClass.getMethod("factory");
+                // Check that we are able to create a ThreadFactory.
+                newVirtualThreadFactory(ofVirtual, name, factory, "check");
+            } catch (Throwable cause) {
+                logger.debug("Virtual threads are not supported, using platform threads.", cause);
+                ofVirtual = null;
+                name = null;
+                factory = null;
+            }
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+    }
+
+    /**
+     * Returns {@code true} if virtual threads are used by this {@link OioEventLoopGroup}.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Create a new {@link VirtualThreadOioEventLoopGroup} with no limit in place.
+     */
+    public VirtualThreadOioEventLoopGroup() {
+        this(0);
+    }
+
+    /**
+     * Create a new {@link VirtualThreadOioEventLoopGroup}.
+     *
+     * @param maxChannels       the maximum number of channels to handle with this instance. Once you try to register
+     *                          a new {@link Channel} and the maximum is exceed it will throw an
+     *                          {@link ChannelException} on the {@link #register(Channel)} and
+     *                          {@link #register(ChannelPromise)} method.
+     *                          Use {@code 0} to use no limit
+     */
+    public VirtualThreadOioEventLoopGroup(int maxChannels) {
+        super(maxChannels, newThreadFactory());
+    }
+
+    private static ThreadFactory newThreadFactory() {
+        String prefix = DefaultThreadFactory.toPoolName(VirtualThreadOioEventLoopGroup.class);
+        if (OF_VIRTUAL != null) {
+            try {
+                return newVirtualThreadFactory(OF_VIRTUAL, NAME, FACTORY, prefix);
+            } catch (Throwable cause) {
+                logger.debug("Unable to create virtual thread factory, using platform threads.", cause);
+            }
+        }
+        return new DefaultThreadFactory(prefix);
+    }
+
+    private static ThreadFactory newVirtualThreadFactory(Method ofVirtual, Method name, Method factory, String prefix)
+            throws Exception {
+        Object builder = ofVirtual.invoke(null);
+        builder = name.invoke(builder, prefix + '-', 0L);
+        return (ThreadFactory) factory.invoke(builder);
+    }
+}
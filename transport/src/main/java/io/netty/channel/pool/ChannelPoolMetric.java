@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.pool;
+
+/**
+ * Exposes saturation metrics of a {@link ChannelPool}.
+ */
+public interface ChannelPoolMetric {
+    /**
+     * Returns the number of healthy {@link io.netty.channel.Channel}s that are currently idle in the pool.
+     */
+    int idleChannelCount();
+
+    /**
+     * Returns the number of connection attempts that are currently in progress in the background.
+     */
+    int pendingConnectCount();
+
+    /**
+     * Returns the number of acquire operations that were not completed yet.
+     */
+    int pendingAcquireCount();
+
+    /**
+     * Returns the total number of acquire operations that completed (successfully or not).
+     */
+    long acquireCount();
+
+    /**
+     * Returns a snapshot of the acquire latency histogram. The value at index {@code i} is the number of acquire
+     * operations that completed in less than {@code 2^i} microseconds (and at least {@code 2^(i-1)} microseconds
+     * for {@code i > 0}). The last bucket also counts every acquire operation that took longer.
+     */
+    long[] acquireLatencyHistogram();
+}
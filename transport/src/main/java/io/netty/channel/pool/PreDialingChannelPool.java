@@ -0,0 +1,510 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.BackgroundEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.ThrowableUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link SimpleChannelPool} which keeps a minimum number of idle {@link Channel}s connected at all times, so
+ * {@link #acquire()} does not need to pay for connection establishment after a cold start, a deploy or a failover.
+ * <p>
+ * Connections are established in the background (up to {@code maxConcurrentConnects} in parallel) once
+ * {@link #warmUp()} was called, and again every time the number of idle {@link Channel}s drops below
+ * {@code minIdle} because a {@link Channel} was acquired or closed. Failed connection attempts are retried with an
+ * exponential backoff with jitter.
+ */
+public class PreDialingChannelPool extends SimpleChannelPool {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(PreDialingChannelPool.class);
+
+    private static final AttributeKey<Boolean> IDLE_KEY = AttributeKey.newInstance("preDialingChannelPoolIdle");
+    private static final IllegalStateException POOL_CLOSED_ON_WARM_UP_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new IllegalStateException("PreDialingChannelPool was closed"),
+            PreDialingChannelPool.class, "warmUp()");
+
+    // Bucket i counts acquires that took less than 2^i microseconds, the last bucket everything above ~16 seconds.
+    private static final int ACQUIRE_LATENCY_BUCKETS = 25;
+
+    private final EventExecutor executor;
+    private final int minIdle;
+    private final int maxConcurrentConnects;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private final AtomicInteger idleChannelCount = new AtomicInteger();
+    private final AtomicInteger pendingAcquireCount = new AtomicInteger();
+    private final LongCounter acquireCount = PlatformDependent.newLongCounter();
+    private final LongCounter[] acquireLatency = new LongCounter[ACQUIRE_LATENCY_BUCKETS];
+    private final ChannelPoolMetric metric = new DefaultChannelPoolMetric();
+
+    private final Runnable replenishTask = new Runnable() {
+        @Override
+        public void run() {
+            replenish();
+        }
+    };
+    private final Runnable backoffTask = new Runnable() {
+        @Override
+        public void run() {
+            backoffFuture = null;
+            replenish();
+        }
+    };
+    private final ChannelFutureListener connectListener = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(final ChannelFuture future) {
+            if (executor.inEventLoop()) {
+                connectComplete(future);
+            } else {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        connectComplete(future);
+                    }
+                });
+            }
+        }
+    };
+    final ChannelFutureListener closeListener = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            markNotIdle(future.channel());
+            scheduleReplenish();
+        }
+    };
+
+    // Everything below is only modified by the above EventExecutor.
+    private final Queue<Promise<Void>> warmUpPromises = new ArrayDeque<Promise<Void>>();
+    private volatile int pendingConnectCount;
+    private int failedConnects;
+    private ScheduledFuture<?> backoffFuture;
+    private boolean warmedUp;
+    private boolean closed;
+
+    /**
+     * Creates a new instance using the {@link ChannelHealthChecker#ACTIVE}.
+     *
+     * @param bootstrap         the {@link Bootstrap} that is used for connections
+     * @param handler           the {@link ChannelPoolHandler} that will be notified for the different pool actions
+     * @param minIdle           the number of idle {@link Channel}s this pool tries to keep connected.
+     */
+    public PreDialingChannelPool(Bootstrap bootstrap, ChannelPoolHandler handler, int minIdle) {
+        this(bootstrap, handler, ChannelHealthChecker.ACTIVE, minIdle, minIdle, 50, 5000);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bootstrap             the {@link Bootstrap} that is used for connections
+     * @param handler               the {@link ChannelPoolHandler} that will be notified for the different pool actions
+     * @param healthCheck           the {@link ChannelHealthChecker} that will be used to check if a {@link Channel} is
+     *                              still healthy when obtain from the {@link ChannelPool}
+     * @param minIdle               the number of idle {@link Channel}s this pool tries to keep connected.
+     * @param maxConcurrentConnects the maximal number of connection attempts that are done in parallel in the
+     *                              background.
+     * @param initialBackoffMillis  the time (in milliseconds) to wait before retrying after the first failed
+     *                              connection attempt. The time is doubled for every consecutive failure.
+     * @param maxBackoffMillis      the maximal time (in milliseconds) to wait before retrying to connect.
+     */
+    public PreDialingChannelPool(Bootstrap bootstrap, ChannelPoolHandler handler, ChannelHealthChecker healthCheck,
+                                 int minIdle, int maxConcurrentConnects,
+                                 long initialBackoffMillis, long maxBackoffMillis) {
+        this(bootstrap, handler, healthCheck, minIdle, maxConcurrentConnects, initialBackoffMillis, maxBackoffMillis,
+             true, true);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bootstrap             the {@link Bootstrap} that is used for connections
+     * @param handler               the {@link ChannelPoolHandler} that will be notified for the different pool actions
+     * @param healthCheck           the {@link ChannelHealthChecker} that will be used to check if a {@link Channel} is
+     *                              still healthy when obtain from the {@link ChannelPool}
+     * @param minIdle               the number of idle {@link Channel}s this pool tries to keep connected.
+     * @param maxConcurrentConnects the maximal number of connection attempts that are done in parallel in the
+     *                              background.
+     * @param initialBackoffMillis  the time (in milliseconds) to wait before retrying after the first failed
+     *                              connection attempt. The time is doubled for every consecutive failure.
+     * @param maxBackoffMillis      the maximal time (in milliseconds) to wait before retrying to connect.
+     * @param releaseHealthCheck    will check channel health before offering back if this parameter set to
+     *                              {@code true}.
+     * @param lastRecentUsed        {@code true} {@link Channel} selection will be LIFO, if {@code false} FIFO.
+     */
+    public PreDialingChannelPool(Bootstrap bootstrap, ChannelPoolHandler handler, ChannelHealthChecker healthCheck,
+                                 int minIdle, int maxConcurrentConnects,
+                                 long initialBackoffMillis, long maxBackoffMillis,
+                                 boolean releaseHealthCheck, boolean lastRecentUsed) {
+        super(bootstrap, new PreDialingChannelPoolHandler(handler), healthCheck, releaseHealthCheck, lastRecentUsed);
+        if (minIdle < 1) {
+            throw new IllegalArgumentException("minIdle: " + minIdle + " (expected: >= 1)");
+        }
+        if (maxConcurrentConnects < 1) {
+            throw new IllegalArgumentException(
+                    "maxConcurrentConnects: " + maxConcurrentConnects + " (expected: >= 1)");
+        }
+        if (initialBackoffMillis < 0) {
+            throw new IllegalArgumentException(
+                    "initialBackoffMillis: " + initialBackoffMillis + " (expected: >= 0)");
+        }
+        if (maxBackoffMillis < initialBackoffMillis) {
+            throw new IllegalArgumentException(
+                    "maxBackoffMillis: " + maxBackoffMillis + " (expected: >= " + initialBackoffMillis + ')');
+        }
+        this.minIdle = minIdle;
+        this.maxConcurrentConnects = maxConcurrentConnects;
+        initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(initialBackoffMillis);
+        maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis);
+        for (int i = 0; i < acquireLatency.length; i++) {
+            acquireLatency[i] = PlatformDependent.newLongCounter();
+        }
+        executor = bootstrap.config().group().next();
+        ((PreDialingChannelPoolHandler) handler()).pool = this;
+    }
+
+    /**
+     * Returns the number of idle {@link Channel}s this pool tries to keep connected.
+     */
+    public int minIdle() {
+        return minIdle;
+    }
+
+    /**
+     * Returns the {@link ChannelPoolMetric} of this pool.
+     */
+    public ChannelPoolMetric metric() {
+        return metric;
+    }
+
+    /**
+     * Starts to connect {@link Channel}s in the background until {@link #minIdle()} idle {@link Channel}s are
+     * available. From now on the pool will also replenish itself every time the number of idle {@link Channel}s
+     * drops below {@link #minIdle()}.
+     *
+     * @return a {@link Future} which is notified once {@link #minIdle()} idle {@link Channel}s are available for the
+     *         first time, or failed if the pool is closed before.
+     */
+    public Future<Void> warmUp() {
+        final Promise<Void> promise = executor.newPromise();
+        if (executor.inEventLoop()) {
+            warmUp0(promise);
+        } else {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    warmUp0(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    private void warmUp0(Promise<Void> promise) {
+        assert executor.inEventLoop();
+
+        if (closed) {
+            promise.setFailure(POOL_CLOSED_ON_WARM_UP_EXCEPTION);
+            return;
+        }
+        warmedUp = true;
+        warmUpPromises.add(promise);
+        notifyWarmUpIfDone();
+        replenish();
+    }
+
+    @Override
+    public Future<Channel> acquire(Promise<Channel> promise) {
+        ObjectUtil.checkNotNull(promise, "promise");
+        pendingAcquireCount.incrementAndGet();
+        promise.addListener(new AcquireMetricListener(System.nanoTime()));
+        return super.acquire(promise);
+    }
+
+    @Override
+    protected Channel pollChannel() {
+        Channel channel = super.pollChannel();
+        if (channel != null) {
+            markNotIdle(channel);
+            if (idleChannelCount.get() < minIdle) {
+                scheduleReplenish();
+            }
+        }
+        return channel;
+    }
+
+    @Override
+    protected boolean offerChannel(Channel channel) {
+        // Mark the channel before offering it so it is guaranteed to be marked once someone polls it.
+        channel.attr(IDLE_KEY).set(Boolean.TRUE);
+        idleChannelCount.incrementAndGet();
+        if (!super.offerChannel(channel)) {
+            markNotIdle(channel);
+            return false;
+        }
+        if (channel.closeFuture().isDone()) {
+            // The closeListener may have been notified before we marked the channel, so unmark it again.
+            markNotIdle(channel);
+        }
+        return true;
+    }
+
+    private void markNotIdle(Channel channel) {
+        if (channel.attr(IDLE_KEY).getAndSet(null) != null) {
+            idleChannelCount.decrementAndGet();
+        }
+    }
+
+    private void scheduleReplenish() {
+        if (executor.inEventLoop()) {
+            replenish();
+        } else {
+            executor.execute(replenishTask);
+        }
+    }
+
+    private void replenish() {
+        assert executor.inEventLoop();
+
+        // Only start to connect in the background once warmUp() was called.
+        if (!warmedUp || closed || backoffFuture != null) {
+            return;
+        }
+        int missing = minIdle - idleChannelCount.get() - pendingConnectCount;
+        int connects = Math.min(missing, maxConcurrentConnects - pendingConnectCount);
+        for (int i = 0; i < connects; i++) {
+            connect();
+        }
+    }
+
+    private void connect() {
+        assert executor.inEventLoop();
+
+        pendingConnectCount++;
+        ChannelFuture future;
+        try {
+            future = connectChannel(bootstrap().clone());
+        } catch (Throwable cause) {
+            pendingConnectCount--;
+            connectFailed(cause);
+            return;
+        }
+        future.addListener(connectListener);
+    }
+
+    private void connectComplete(ChannelFuture future) {
+        assert executor.inEventLoop();
+
+        pendingConnectCount--;
+        if (!future.isSuccess()) {
+            connectFailed(future.cause());
+            return;
+        }
+        failedConnects = 0;
+        Channel channel = future.channel();
+        if (closed || !offerChannel(channel)) {
+            channel.close();
+            return;
+        }
+        notifyWarmUpIfDone();
+        replenish();
+    }
+
+    private void connectFailed(Throwable cause) {
+        assert executor.inEventLoop();
+
+        if (closed) {
+            return;
+        }
+        failedConnects++;
+        if (backoffFuture == null) {
+            long backoffNanos = backoffNanos(failedConnects);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed to connect a Channel in the background, retrying in {}ms",
+                        TimeUnit.NANOSECONDS.toMillis(backoffNanos), cause);
+            }
+            backoffFuture = executor.schedule(backoffTask, backoffNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private long backoffNanos(int failures) {
+        long backoff = initialBackoffNanos << Math.min(failures - 1, 30);
+        if (backoff > maxBackoffNanos || backoff < 0) {
+            backoff = maxBackoffNanos;
+        }
+        // Use "equal jitter" so that multiple pools that lost their connections at the same time will not all
+        // reconnect at the same moment, while we still wait at least half of the backoff.
+        long half = backoff >>> 1;
+        return half + (long) (PlatformDependent.threadLocalRandom().nextDouble() * (backoff - half));
+    }
+
+    private void notifyWarmUpIfDone() {
+        assert executor.inEventLoop();
+
+        if (idleChannelCount.get() < minIdle) {
+            return;
+        }
+        for (;;) {
+            Promise<Void> promise = warmUpPromises.poll();
+            if (promise == null) {
+                break;
+            }
+            promise.trySuccess(null);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor.inEventLoop()) {
+            close0();
+        } else {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    close0();
+                }
+            }).awaitUninterruptibly();
+        }
+    }
+
+    private void close0() {
+        if (!closed) {
+            closed = true;
+            ScheduledFuture<?> f = backoffFuture;
+            if (f != null) {
+                backoffFuture = null;
+                f.cancel(false);
+            }
+            for (;;) {
+                Promise<Void> promise = warmUpPromises.poll();
+                if (promise == null) {
+                    break;
+                }
+                promise.tryFailure(POOL_CLOSED_ON_WARM_UP_EXCEPTION);
+            }
+
+            // Ensure we dispatch this on another Thread as close0 will be called from the EventExecutor and we need
+            // to ensure we will not block in a EventExecutor.
+            BackgroundEventExecutor.globalExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    PreDialingChannelPool.super.close();
+                }
+            });
+        }
+    }
+
+    private final class AcquireMetricListener implements FutureListener<Channel> {
+        private final long startNanos;
+
+        AcquireMetricListener(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void operationComplete(Future<Channel> future) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+            int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), ACQUIRE_LATENCY_BUCKETS - 1);
+            acquireLatency[bucket].increment();
+            acquireCount.increment();
+            pendingAcquireCount.decrementAndGet();
+        }
+    }
+
+    private final class DefaultChannelPoolMetric implements ChannelPoolMetric {
+        @Override
+        public int idleChannelCount() {
+            return Math.max(0, idleChannelCount.get());
+        }
+
+        @Override
+        public int pendingConnectCount() {
+            return pendingConnectCount;
+        }
+
+        @Override
+        public int pendingAcquireCount() {
+            return pendingAcquireCount.get();
+        }
+
+        @Override
+        public long acquireCount() {
+            return acquireCount.value();
+        }
+
+        @Override
+        public long[] acquireLatencyHistogram() {
+            long[] histogram = new long[acquireLatency.length];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = acquireLatency[i].value();
+            }
+            return histogram;
+        }
+
+        @Override
+        public String toString() {
+            return "ChannelPoolMetric(idle: " + idleChannelCount() + ", pendingConnects: " + pendingConnectCount() +
+                    ", pendingAcquires: " + pendingAcquireCount() + ", acquires: " + acquireCount() + ')';
+        }
+    }
+
+    /**
+     * Wraps the user {@link ChannelPoolHandler} so that every {@link Channel} created by the pool, either in the
+     * background or on {@link #acquire()}, will trigger a replenish of the pool once it is closed.
+     */
+    private static final class PreDialingChannelPoolHandler implements ChannelPoolHandler {
+        private final ChannelPoolHandler handler;
+        PreDialingChannelPool pool;
+
+        PreDialingChannelPoolHandler(ChannelPoolHandler handler) {
+            this.handler = ObjectUtil.checkNotNull(handler, "handler");
+        }
+
+        @Override
+        public void channelReleased(Channel ch) throws Exception {
+            handler.channelReleased(ch);
+        }
+
+        @Override
+        public void channelAcquired(Channel ch) throws Exception {
+            handler.channelAcquired(ch);
+        }
+
+        @Override
+        public void channelCreated(Channel ch) throws Exception {
+            ch.closeFuture().addListener(pool.closeListener);
+            handler.channelCreated(ch);
+        }
+    }
+}
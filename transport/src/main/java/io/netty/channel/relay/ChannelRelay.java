@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.relay;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Relays all the data between two {@link Channel}s, which is what every proxy needs to do once the connection to
+ * the remote peer was established.
+ * <p>
+ * The relay stops reading from one {@link Channel} as long as the other {@link Channel} is not
+ * {@linkplain Channel#isWritable() writable}, so the amount of data that is buffered per direction is bounded by the
+ * {@link WriteBufferWaterMark#high() high water mark} of the receiving {@link Channel} plus the last message that was
+ * read. Once one of the {@link Channel}s is closed, all the pending data is flushed to the other {@link Channel}
+ * before it is closed as well.
+ * <p>
+ * The relay takes over the {@link io.netty.channel.ChannelConfig#setAutoRead(boolean) auto read} setting of both
+ * {@link Channel}s, and both of them are expected to be active when the relay is started. Any
+ * {@link io.netty.channel.ChannelHandler}s that were added before are still part of the relayed path and so can be
+ * used to transform the data.
+ */
+public final class ChannelRelay {
+
+    /**
+     * Starts to relay the data between {@code first} and {@code second}. The returned {@link Future} is notified
+     * once both {@link Channel}s are closed.
+     */
+    public static Future<Void> relay(Channel first, Channel second) {
+        return relay(first, second, null);
+    }
+
+    /**
+     * Starts to relay the data between {@code first} and {@code second}, by using the given {@link ChannelSplicer}
+     * if it supports both directions. This should only be used if the data does not need to be transformed by any
+     * {@link io.netty.channel.ChannelHandler}. Any data that was read before the splicing started is still relayed
+     * through the {@link io.netty.channel.ChannelPipeline}.
+     * <p>
+     * The returned {@link Future} is notified once both {@link Channel}s are closed.
+     */
+    public static Future<Void> relay(final Channel first, final Channel second, ChannelSplicer splicer) {
+        checkNotNull(first, "first");
+        checkNotNull(second, "second");
+        if (first == second) {
+            throw new IllegalArgumentException("first and second must not be the same Channel");
+        }
+        final Promise<Void> promise = first.eventLoop().newPromise();
+        final AtomicInteger open = new AtomicInteger(2);
+        ChannelFutureListener closeListener = new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                closeOnFlush(future.channel() == first ? second : first);
+                if (open.decrementAndGet() == 0) {
+                    promise.trySuccess(null);
+                }
+            }
+        };
+
+        first.pipeline().addLast(new RelayHandler(second));
+        second.pipeline().addLast(new RelayHandler(first));
+        first.closeFuture().addListener(closeListener);
+        second.closeFuture().addListener(closeListener);
+
+        if (splicer != null && splicer.isSpliceSupported(first, second) && splicer.isSpliceSupported(second, first)) {
+            ChannelFutureListener spliceListener = new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) {
+                    if (!future.isSuccess()) {
+                        first.close();
+                        second.close();
+                    }
+                }
+            };
+            splicer.splice(first, second).addListener(spliceListener);
+            splicer.splice(second, first).addListener(spliceListener);
+        }
+
+        first.config().setAutoRead(true);
+        second.config().setAutoRead(true);
+        return promise;
+    }
+
+    /**
+     * Closes the given {@link Channel} after all the pending data was flushed.
+     */
+    static void closeOnFlush(Channel channel) {
+        if (channel.isActive()) {
+            channel.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+        } else {
+            channel.close();
+        }
+    }
+
+    private ChannelRelay() { }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.relay;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+
+/**
+ * Moves the data that is received by a {@link Channel} to another {@link Channel} without passing it through the
+ * {@link io.netty.channel.ChannelPipeline}, for example by using {@code splice(2)}.
+ * <p>
+ * As the data is never seen by any {@link io.netty.channel.ChannelHandler}, a {@link ChannelSplicer} should only be
+ * used by a {@link ChannelRelay} if the data does not need to be transformed.
+ */
+public interface ChannelSplicer {
+
+    /**
+     * Returns {@code true} if this {@link ChannelSplicer} can move the data from {@code from} to {@code to}.
+     */
+    boolean isSpliceSupported(Channel from, Channel to);
+
+    /**
+     * Starts to move all the data that is received by {@code from} to {@code to}, until one of the {@link Channel}s
+     * is closed. The returned {@link ChannelFuture} is failed if the splicing was stopped because of an error.
+     * <p>
+     * The implementation is responsible for stopping to read from {@code from} as long as {@code to} is not
+     * writable.
+     */
+    ChannelFuture splice(Channel from, Channel to);
+}
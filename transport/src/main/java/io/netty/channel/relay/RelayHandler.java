@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.relay;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * Writes everything that is read to the peer {@link Channel} and stops reading while the peer is not writable. The
+ * {@link RelayHandler} of the peer starts reading again once its {@link Channel} is writable again.
+ */
+final class RelayHandler extends ChannelInboundHandlerAdapter {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(RelayHandler.class);
+
+    private final Channel peer;
+
+    RelayHandler(Channel peer) {
+        this.peer = peer;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!peer.isActive()) {
+            // The peer is closed, and so will be this Channel soon.
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+        // Use the voidPromise as the RelayHandler of the peer will close it if the write fails.
+        peer.write(msg, peer.voidPromise());
+        if (!peer.isWritable()) {
+            ChannelConfig config = ctx.channel().config();
+            // This also stops the current read loop.
+            config.setAutoRead(false);
+            if (peer.isWritable()) {
+                // The peer may be in another EventLoop and became writable before we turned off auto read, in which
+                // case its RelayHandler may have already tried to turn auto read on again.
+                config.setAutoRead(true);
+            }
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        peer.flush();
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (ctx.channel().isWritable()) {
+            peer.config().setAutoRead(true);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        logger.debug("Closing relayed channel {} because of an exception", ctx.channel(), cause);
+        // The relay will also close the peer once all pending data was flushed.
+        ctx.close();
+    }
+}
@@ -30,7 +30,7 @@ import io.netty.channel.nio.AbstractNioByteChannel;
 import io.netty.channel.socket.DefaultSocketChannelConfig;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.SocketChannelConfig;
-import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.BackgroundEventExecutor;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SocketUtils;
 import io.netty.util.internal.UnstableApi;
@@ -450,7 +450,7 @@ public class NioSocketChannel extends AbstractNioByteChannel implements io.netty
                     // SO_LINGER handling.
                     // See https://github.com/netty/netty/issues/4449
                     doDeregister();
-                    return GlobalEventExecutor.INSTANCE;
+                    return BackgroundEventExecutor.globalExecutor();
                 }
             } catch (Throwable ignore) {
                 // Ignore the error as the underlying channel may be closed in the meantime and so
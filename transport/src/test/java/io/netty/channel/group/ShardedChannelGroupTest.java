@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.group;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ShardedChannelGroupTest {
+
+    @Test
+    public void testWriteAndFlushToAllChannels() {
+        ShardedChannelGroup group = new ShardedChannelGroup(ImmediateEventExecutor.INSTANCE);
+        EmbeddedChannel ch1 = newChannel();
+        EmbeddedChannel ch2 = newChannel();
+        EmbeddedChannel ch3 = newChannel();
+        assertTrue(group.add(ch1));
+        assertTrue(group.add(ch2));
+        assertTrue(group.add(ch3));
+
+        ByteBuf buf = Unpooled.copiedBuffer("test", CharsetUtil.US_ASCII);
+        ChannelGroupFuture future = group.writeAndFlush(buf);
+        assertTrue(future.isSuccess());
+        // All the writes share the same reference count.
+        assertEquals(3, buf.refCnt());
+
+        assertOutbound(ch1, "test");
+        assertOutbound(ch2, "test");
+        assertOutbound(ch3, "test");
+        assertEquals(0, buf.refCnt());
+        group.close();
+    }
+
+    @Test
+    public void testWriteAndFlushVoidPromiseWithMatcher() {
+        ShardedChannelGroup group = new ShardedChannelGroup(ImmediateEventExecutor.INSTANCE);
+        EmbeddedChannel ch1 = newChannel();
+        final EmbeddedChannel ch2 = newChannel();
+        group.add(ch1);
+        group.add(ch2);
+
+        ByteBuf buf = Unpooled.copiedBuffer("test", CharsetUtil.US_ASCII);
+        group.writeAndFlush(buf, ChannelMatchers.isNot(ch2), true);
+        assertOutbound(ch1, "test");
+        assertNull(ch2.readOutbound());
+        assertEquals(0, buf.refCnt());
+        group.close();
+    }
+
+    @Test
+    public void testWriteThenFlush() {
+        ShardedChannelGroup group = new ShardedChannelGroup(ImmediateEventExecutor.INSTANCE);
+        EmbeddedChannel ch = newChannel();
+        group.add(ch);
+
+        ByteBuf buf = Unpooled.copiedBuffer("test", CharsetUtil.US_ASCII);
+        group.write(buf);
+        assertNull(ch.readOutbound());
+        group.flush();
+        assertOutbound(ch, "test");
+        assertEquals(0, buf.refCnt());
+        group.close();
+    }
+
+    @Test
+    public void testClosedChannelIsRemoved() {
+        ShardedChannelGroup group = new ShardedChannelGroup(ImmediateEventExecutor.INSTANCE);
+        EmbeddedChannel ch1 = newChannel();
+        EmbeddedChannel ch2 = newChannel();
+        group.add(ch1);
+        group.add(ch2);
+        ch1.close();
+        assertEquals(1, group.size());
+
+        ByteBuf buf = Unpooled.copiedBuffer("test", CharsetUtil.US_ASCII);
+        ChannelGroupFuture future = group.writeAndFlush(buf);
+        assertTrue(future.isSuccess());
+        assertNull(future.find(ch1));
+        assertOutbound(ch2, "test");
+        assertEquals(0, buf.refCnt());
+
+        assertTrue(group.remove(ch2.id()));
+        assertTrue(group.isEmpty());
+        buf = Unpooled.copiedBuffer("test", CharsetUtil.US_ASCII);
+        group.writeAndFlush(buf);
+        assertNull(ch2.readOutbound());
+        assertEquals(0, buf.refCnt());
+        ch2.finish();
+    }
+
+    private static EmbeddedChannel newChannel() {
+        // EmbeddedChannel uses the same id for all instances by default.
+        return new EmbeddedChannel(DefaultChannelId.newInstance());
+    }
+
+    private static void assertOutbound(EmbeddedChannel ch, String expected) {
+        ByteBuf buf = ch.readOutbound();
+        assertEquals(expected, buf.toString(CharsetUtil.US_ASCII));
+        buf.release();
+        assertNull(ch.readOutbound());
+    }
+}
@@ -1023,6 +1023,58 @@ public class LocalChannelTest {
         }
     }
 
+    @Test(timeout = 5000)
+    public void testManyFlushesFromDifferentEventLoopPreservesOrder() throws Exception {
+        final int messages = 1000;
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Throwable> causeRef = new AtomicReference<Throwable>();
+        Bootstrap cb = new Bootstrap();
+        ServerBootstrap sb = new ServerBootstrap();
+
+        cb.group(group1)
+                .channel(LocalChannel.class)
+                .handler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) {
+                        // Flush every message so every write needs to notify the peer.
+                        for (int i = 0; i < messages; i++) {
+                            ctx.writeAndFlush(i);
+                        }
+                    }
+                });
+
+        sb.group(group2)
+                .channel(LocalServerChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    private int expected;
+
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        if (!Integer.valueOf(expected++).equals(msg)) {
+                            causeRef.compareAndSet(null, new AssertionError(
+                                    "expected: " + (expected - 1) + ", got: " + msg));
+                        }
+                        if (expected == messages) {
+                            latch.countDown();
+                        }
+                    }
+                });
+
+        Channel sc = null;
+        Channel cc = null;
+        try {
+            // Start server
+            sc = sb.bind(TEST_ADDRESS).sync().channel();
+            cc = cb.connect(TEST_ADDRESS).sync().channel();
+
+            latch.await();
+            assertNull(causeRef.get());
+        } finally {
+            closeChannel(cc);
+            closeChannel(sc);
+        }
+    }
+
     @Test(timeout = 5000)
     public void testMaxMessagesPerReadRespectedWithAutoReadSharedGroup() throws Exception {
         testMaxMessagesPerReadRespected(sharedGroup, sharedGroup, true);
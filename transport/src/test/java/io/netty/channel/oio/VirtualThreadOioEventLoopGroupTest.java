@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.oio;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.oio.OioServerSocketChannel;
+import io.netty.channel.socket.oio.OioSocketChannel;
+import io.netty.util.NetUtil;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class VirtualThreadOioEventLoopGroupTest {
+
+    @Test(timeout = 30000)
+    public void testBlockingHandlersDoNotBlockOtherChannels() throws Exception {
+        final int clients = 32;
+        EventLoopGroup group = new VirtualThreadOioEventLoopGroup();
+        try {
+            // Every child Channel blocks until all the clients are connected and sent their message, which only works
+            // if every Channel has its own thread.
+            final CountDownLatch latch = new CountDownLatch(clients);
+            final BlockingQueue<Thread> threads = new LinkedBlockingQueue<Thread>();
+            Channel sc = new ServerBootstrap()
+                    .channel(OioServerSocketChannel.class)
+                    .group(group)
+                    .childHandler(new BlockingEchoHandler(latch, threads))
+                    .bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).sync().channel();
+
+            final BlockingQueue<Byte> echoed = new LinkedBlockingQueue<Byte>();
+            Bootstrap cb = new Bootstrap()
+                    .channel(OioSocketChannel.class)
+                    .group(group)
+                    .handler(new EchoReceiver(echoed));
+            List<Channel> channels = new ArrayList<Channel>(clients);
+            for (int i = 0; i < clients; i++) {
+                Channel ch = cb.connect(sc.localAddress()).sync().channel();
+                ch.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { (byte) i }));
+                channels.add(ch);
+            }
+            for (int i = 0; i < clients; i++) {
+                assertNotNull(echoed.poll(10, TimeUnit.SECONDS));
+            }
+            assertEquals(clients, threads.size());
+            if (VirtualThreadOioEventLoopGroup.isVirtualThreadSupported()) {
+                Thread thread = threads.take();
+                assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(thread));
+            }
+
+            for (Channel ch: channels) {
+                ch.close().sync();
+            }
+            sc.close().sync();
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private static final class BlockingEchoHandler extends ChannelInboundHandlerAdapter {
+        private final CountDownLatch latch;
+        private final BlockingQueue<Thread> threads;
+
+        BlockingEchoHandler(CountDownLatch latch, BlockingQueue<Thread> threads) {
+            this.latch = latch;
+            this.threads = threads;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            threads.add(Thread.currentThread());
+            latch.countDown();
+            latch.await();
+            ctx.writeAndFlush(msg);
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private static final class EchoReceiver extends ChannelInboundHandlerAdapter {
+        private final BlockingQueue<Byte> echoed;
+
+        EchoReceiver(BlockingQueue<Byte> echoed) {
+            this.echoed = echoed;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf buf = (ByteBuf) msg;
+            while (buf.isReadable()) {
+                echoed.add(buf.readByte());
+            }
+            buf.release();
+        }
+    }
+}
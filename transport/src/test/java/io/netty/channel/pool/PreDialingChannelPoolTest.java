@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalEventLoopGroup;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PreDialingChannelPoolTest {
+    private static final String LOCAL_ADDR_ID = "test.id";
+
+    private EventLoopGroup group;
+    private Bootstrap cb;
+    private Channel sc;
+
+    @Before
+    public void setUp() throws Exception {
+        group = new LocalEventLoopGroup();
+        LocalAddress addr = new LocalAddress(LOCAL_ADDR_ID);
+        cb = new Bootstrap();
+        cb.remoteAddress(addr);
+        cb.group(group)
+          .channel(LocalChannel.class);
+
+        ServerBootstrap sb = new ServerBootstrap();
+        sb.group(group)
+          .channel(LocalServerChannel.class)
+          .childHandler(new ChannelInitializer<LocalChannel>() {
+              @Override
+              public void initChannel(LocalChannel ch) throws Exception {
+                  ch.pipeline().addLast(new ChannelInboundHandlerAdapter());
+              }
+          });
+
+        // Start server
+        sc = sb.bind(addr).sync().channel();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (sc != null) {
+            sc.close().sync();
+        }
+        group.shutdownGracefully();
+    }
+
+    @Test
+    public void testNoConnectBeforeWarmUp() throws Exception {
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        PreDialingChannelPool pool = new PreDialingChannelPool(cb, handler, 2);
+        assertEquals(0, handler.channelCount());
+        assertEquals(0, pool.metric().idleChannelCount());
+        pool.close();
+    }
+
+    @Test(timeout = 10000)
+    public void testWarmUp() throws Exception {
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        PreDialingChannelPool pool = new PreDialingChannelPool(cb, handler, 3);
+        pool.warmUp().sync();
+        assertEquals(3, handler.channelCount());
+        assertEquals(3, pool.metric().idleChannelCount());
+
+        // A second warm up completes directly as the pool is already warm.
+        pool.warmUp().sync();
+        assertEquals(3, handler.channelCount());
+        pool.close();
+    }
+
+    @Test(timeout = 10000)
+    public void testAcquireUsesPreDialedChannelAndReplenishes() throws Exception {
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        PreDialingChannelPool pool = new PreDialingChannelPool(cb, handler, 2);
+        pool.warmUp().sync();
+        assertEquals(2, handler.channelCount());
+
+        Channel channel = pool.acquire().sync().getNow();
+        assertTrue(channel.isActive());
+        assertEquals(1, handler.acquiredCount());
+
+        // The pool dials a new Channel in the background to get back to minIdle.
+        waitForIdle(pool, 2);
+        assertEquals(3, handler.channelCount());
+
+        pool.release(channel).sync();
+        assertEquals(1, handler.releasedCount());
+        assertEquals(3, pool.metric().idleChannelCount());
+
+        ChannelPoolMetric metric = pool.metric();
+        assertEquals(1, metric.acquireCount());
+        assertEquals(0, metric.pendingAcquireCount());
+        long acquires = 0;
+        for (long count: metric.acquireLatencyHistogram()) {
+            acquires += count;
+        }
+        assertEquals(1, acquires);
+        pool.close();
+    }
+
+    @Test(timeout = 10000)
+    public void testReplenishAfterClose() throws Exception {
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        PreDialingChannelPool pool = new PreDialingChannelPool(cb, handler, 2);
+        pool.warmUp().sync();
+
+        Channel channel = pool.acquire().sync().getNow();
+        pool.release(channel).sync();
+        waitForIdle(pool, 3);
+
+        // Closing an idle channel must trigger a replenish but never result in more than minIdle idle channels.
+        channel.close().sync();
+        waitForIdle(pool, 2);
+        assertEquals(3, handler.channelCount());
+        pool.close();
+    }
+
+    @Test(timeout = 10000)
+    public void testBackoffOnConnectFailure() throws Exception {
+        sc.close().sync();
+        sc = null;
+
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        PreDialingChannelPool pool = new PreDialingChannelPool(
+                cb, handler, ChannelHealthChecker.ACTIVE, 2, 1, 10, 20);
+        Future<Void> warmUp = pool.warmUp();
+        Thread.sleep(200);
+        assertFalse(warmUp.isDone());
+        assertEquals(0, pool.metric().idleChannelCount());
+
+        pool.close();
+        assertTrue(warmUp.await(5000));
+        assertFalse(warmUp.isSuccess());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMinIdle() {
+        new PreDialingChannelPool(cb, new CountingChannelPoolHandler(), 0);
+    }
+
+    private static void waitForIdle(PreDialingChannelPool pool, int idle) throws InterruptedException {
+        while (pool.metric().idleChannelCount() != idle || pool.metric().pendingConnectCount() != 0) {
+            Thread.sleep(10);
+        }
+    }
+}
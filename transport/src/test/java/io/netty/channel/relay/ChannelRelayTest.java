@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.relay;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.Future;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ChannelRelayTest {
+
+    @Test
+    public void testStopReadingWhilePeerIsNotWritable() {
+        EmbeddedChannel first = new EmbeddedChannel();
+        EmbeddedChannel second = new EmbeddedChannel();
+        second.config().setWriteBufferWaterMark(new WriteBufferWaterMark(8, 16));
+        ChannelRelay.relay(first, second);
+        assertTrue(first.config().isAutoRead());
+
+        // Not flushed before channelReadComplete, so the second channel is not writable anymore.
+        first.pipeline().fireChannelRead(Unpooled.wrappedBuffer(new byte[32]));
+        assertFalse(second.isWritable());
+        assertFalse(first.config().isAutoRead());
+
+        first.pipeline().fireChannelReadComplete();
+        assertTrue(second.isWritable());
+        assertTrue(first.config().isAutoRead());
+
+        ByteBuf buf = second.readOutbound();
+        assertEquals(32, buf.readableBytes());
+        buf.release();
+        first.finishAndReleaseAll();
+        second.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testCloseIsPropagated() {
+        EmbeddedChannel first = new EmbeddedChannel();
+        EmbeddedChannel second = new EmbeddedChannel();
+        Future<Void> future = ChannelRelay.relay(first, second);
+
+        first.pipeline().fireChannelRead(Unpooled.wrappedBuffer(new byte[8]));
+        first.close();
+        assertFalse(second.isOpen());
+        assertTrue(future.isSuccess());
+
+        // The pending data was flushed before closing.
+        ByteBuf buf = second.readOutbound();
+        assertEquals(8, buf.readableBytes());
+        buf.release();
+        second.finishAndReleaseAll();
+    }
+
+    @Test(timeout = 10000)
+    public void testRelayBetweenLocalChannels() throws Exception {
+        EventLoopGroup group = new DefaultEventLoopGroup(2);
+        try {
+            final BlockingQueue<Channel> accepted = new LinkedBlockingQueue<Channel>();
+            LocalAddress frontend = new LocalAddress("ChannelRelayTest-frontend");
+            LocalAddress backend = new LocalAddress("ChannelRelayTest-backend");
+            ChannelInitializer<Channel> acceptor = new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    accepted.add(ch);
+                }
+            };
+            Channel frontendServer = new ServerBootstrap().channel(LocalServerChannel.class).group(group)
+                    .childHandler(acceptor).bind(frontend).sync().channel();
+            Channel backendServer = new ServerBootstrap().channel(LocalServerChannel.class).group(group)
+                    .childHandler(acceptor).bind(backend).sync().channel();
+
+            final BlockingQueue<String> received = new LinkedBlockingQueue<String>();
+            Bootstrap cb = new Bootstrap().channel(LocalChannel.class).group(group)
+                    .handler(new ReceiveHandler(received));
+            Channel client = cb.connect(frontend).sync().channel();
+            Channel frontendChild = accepted.take();
+            Channel server = cb.connect(backend).sync().channel();
+            Channel backendChild = accepted.take();
+
+            Future<Void> future = ChannelRelay.relay(frontendChild, backendChild);
+            client.writeAndFlush(Unpooled.copiedBuffer("ping", CharsetUtil.US_ASCII));
+            assertEquals("ping", received.take());
+            server.writeAndFlush(Unpooled.copiedBuffer("pong", CharsetUtil.US_ASCII));
+            assertEquals("pong", received.take());
+
+            client.close().sync();
+            server.closeFuture().sync();
+            assertTrue(future.await(5, TimeUnit.SECONDS));
+            assertTrue(future.isSuccess());
+
+            frontendServer.close().sync();
+            backendServer.close().sync();
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private static final class ReceiveHandler extends ChannelInboundHandlerAdapter {
+        private final BlockingQueue<String> received;
+
+        ReceiveHandler(BlockingQueue<String> received) {
+            this.received = received;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf buf = (ByteBuf) msg;
+            received.add(buf.toString(CharsetUtil.US_ASCII));
+            buf.release();
+        }
+    }
+}